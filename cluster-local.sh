@@ -0,0 +1,69 @@
+#!/bin/bash
+
+# ========================================
+# CLUSTER LOCAL - VÁRIAS JVMs NA MESMA MÁQUINA
+# Sobe N nós com wallet.cluster.enabled=true em portas consecutivas, todos no
+# mesmo PostgreSQL. Cada nó é dono de ~1/N das carteiras e encaminha as demais.
+#
+# Pré-requisitos:
+#   docker-compose up -d postgres
+#
+# Uso: ./cluster-local.sh [nós, padrão 3] [porta inicial, padrão 8101]
+#   Ctrl+C encerra todos os nós (cada um sai do cluster no shutdown)
+#   Logs em target/cluster/node-<porta>.log
+# ========================================
+
+set -e
+
+NODES=${1:-3}
+FIRST_PORT=${2:-8101}
+WORKDIR=target/cluster
+
+export DB_URL=${DB_URL:-jdbc:postgresql://localhost:5432/wallet_db}
+export DB_USER=${DB_USER:-admin}
+export DB_PASSWORD=${DB_PASSWORD:-123}
+export CLUSTER_ENABLED=true
+
+if ! ls target/wallet-*.jar > /dev/null 2>&1; then
+    echo -e "\n🔧 Build..."
+    ./mvnw -q package -DskipTests
+fi
+JAR=$(ls target/wallet-*.jar | grep -v plain | head -1)
+
+mkdir -p "$WORKDIR"
+PIDS=()
+trap 'echo -e "\n🛑 Encerrando nós..."; for p in "${PIDS[@]}"; do kill "$p" 2>/dev/null || true; done; wait' EXIT INT TERM
+
+for i in $(seq 0 $((NODES - 1))); do
+    port=$((FIRST_PORT + i))
+    SERVER_PORT=$port java -jar "$JAR" > "$WORKDIR/node-$port.log" 2>&1 &
+    PIDS+=($!)
+done
+
+for i in $(seq 0 $((NODES - 1))); do
+    port=$((FIRST_PORT + i))
+    until curl -sf "http://localhost:$port/actuator/health" 2>/dev/null | grep -q '"status":"UP"'; do
+        if ! kill -0 "${PIDS[$i]}" 2>/dev/null; then
+            echo "❌ Nó $port encerrou antes de ficar pronto (ver $WORKDIR/node-$port.log)" >&2
+            exit 1
+        fi
+        sleep 0.5
+    done
+    echo "✅ Nó http://localhost:$port pronto"
+done
+
+# Espera um ciclo de heartbeat para todos se enxergarem
+sleep 3
+echo -e "\n| Nó | Membros | Partições próprias |"
+echo "|----|---------|--------------------|"
+for i in $(seq 0 $((NODES - 1))); do
+    port=$((FIRST_PORT + i))
+    metrics=$(curl -s "http://localhost:$port/actuator/prometheus")
+    members=$(echo "$metrics" | grep -E '^wallet_cluster_members' | awk '{print int($2)}')
+    owned=$(echo "$metrics" | grep -E '^wallet_cluster_partitions_owned' | awk '{print int($2)}')
+    echo "| $port | $members | $owned |"
+done
+
+echo -e "\nTransferências podem ir para qualquer nó; o cabeçalho X-Wallet-Owner indica quando foi encaminhada."
+echo "Ctrl+C para encerrar."
+wait
@@ -0,0 +1,144 @@
+#!/bin/bash
+
+# ========================================
+# COMPARAÇÃO PESSIMISTIC x OPTIMISTIC - TRANSFERÊNCIAS POR NÍVEL DE DISPUTA
+# Sobe a aplicação com cada estratégia (wallet.transfer.locking) contra o mesmo
+# PostgreSQL e dispara a mesma carga variando quantas carteiras a recebem:
+# com a concorrência fixa, menos carteiras = mais transferências disputando a
+# mesma linha. Imprime vazão, latência (p50/p95/p99), chamadas que precisaram
+# de nova tentativa (lock ou versão) e status HTTP.
+#
+# Pré-requisitos:
+#   docker-compose up -d postgres
+#
+# Uso: ./compare-locking.sh [requisições por nível, padrão 2000] [concorrência, padrão 64]
+#   LEVELS         carteiras remetentes sob carga em cada nível (padrão "64 16 4 1")
+#   STRATEGIES     estratégias comparadas (padrão "PESSIMISTIC OPTIMISTIC")
+#   PREAUTH_RULES  padrão aprova tudo localmente: mede a disputa no banco, não o autorizador.
+#                  Com autorizador remoto, cada conflito OPTIMISTIC repete a chamada
+# ========================================
+
+set -e
+
+REQUESTS=${1:-2000}
+CONCURRENCY=${2:-64}
+LEVELS=${LEVELS:-64 16 4 1}
+STRATEGIES=${STRATEGIES:-PESSIMISTIC OPTIMISTIC}
+PORT=${COMPARE_PORT:-8094}
+WORKDIR=target/compare-locking
+BASE="http://localhost:$PORT"
+
+export DB_URL=${DB_URL:-jdbc:postgresql://localhost:5432/wallet_db}
+export DB_USER=${DB_USER:-admin}
+export DB_PASSWORD=${DB_PASSWORD:-123}
+export SERVER_PORT=$PORT
+export GRPC_PORT=${GRPC_PORT:-9094}
+export PREAUTH_RULES=${PREAUTH_RULES:-all:amount<=1000:APPROVE}
+# Admissão limita transferências por carteira: esconderia justamente a disputa medida
+export ADMISSION_ENABLED=false
+export DAILY_TOTALS_ENABLED=${DAILY_TOTALS_ENABLED:-false}
+
+PAIRS=0
+for level in $LEVELS; do
+    (( level > PAIRS )) && PAIRS=$level
+done
+
+rm -rf "$WORKDIR" && mkdir -p "$WORKDIR"
+APP_PID=
+trap '[ -n "$APP_PID" ] && kill "$APP_PID" 2>/dev/null || true' EXIT
+
+echo -e "\n🔧 Build..."
+./mvnw -q package -DskipTests
+JAR=$(ls target/wallet-*.jar | grep -v plain | head -1)
+
+# Sobe a aplicação com a estratégia em $1 e espera health UP
+start_app() {
+    TRANSFER_LOCKING=$1 java -jar "$JAR" > "$WORKDIR/$1.log" 2>&1 &
+    APP_PID=$!
+    until curl -sf "$BASE/actuator/health" 2>/dev/null | grep -q '"status":"UP"'; do
+        if ! kill -0 $APP_PID 2>/dev/null; then
+            echo "❌ Aplicação ($1) encerrou antes de ficar pronta (ver $WORKDIR/$1.log)" >&2
+            exit 1
+        fi
+        sleep 0.2
+    done
+}
+
+stop_app() {
+    kill $APP_PID && wait $APP_PID 2>/dev/null || true
+    APP_PID=
+}
+
+# Chamadas que precisaram de nova tentativa (transferLockRetry + transferOptimisticRetry), acumulado
+retried_calls() {
+    curl -s "$BASE/actuator/prometheus" \
+        | grep -E '^resilience4j_retry_calls_total\{.*kind="(successful|failed)_with_retry".*name="transfer' \
+        | awk '{ sum += $2 } END { printf "%d", sum }'
+}
+
+# ========== PASSO 1: SEMEAR USUÁRIOS ==========
+echo "📝 Semeando $PAIRS pares de usuários..."
+start_app PESSIMISTIC
+RUN_ID=$(date +%s)
+for i in $(seq 1 "$PAIRS"); do
+    ids=()
+    for offset in 0 1; do
+        role=$([ $offset -eq 0 ] && echo s || echo r)
+        doc=$(printf "%011d" $(( (RUN_ID % 100000) * 100000 + i * 2 + offset )))
+        ids+=($(curl -s -X POST "$BASE/users" -H "Content-Type: application/json" -d "{
+            \"firstName\": \"Carga\", \"lastName\": \"Locking\", \"document\": \"$doc\",
+            \"email\": \"$role$i-$RUN_ID@locking.local\", \"password\": \"senha123\",
+            \"userType\": \"COMMON\", \"balance\": 1000000
+          }" | grep -o '"id":"[^"]*' | head -1 | sed 's/"id":"//'))
+    done
+    echo "${ids[0]} ${ids[1]}" >> "$WORKDIR/pairs.txt"
+done
+stop_app
+
+# Requisições de um nível: round-robin sobre os $1 primeiros pares
+for level in $LEVELS; do
+    for i in $(seq 1 "$REQUESTS"); do
+        sed -n "$(( (i % level) + 1 ))p" "$WORKDIR/pairs.txt"
+    done > "$WORKDIR/requests-$level.txt"
+done
+
+# Uma transferência: imprime "status segundos"
+fire() {
+    curl -s -o /dev/null -w "%{http_code} %{time_total}\n" -X POST "$BASE/transactions" \
+        -H "Content-Type: application/json" \
+        -d "{\"value\": 1, \"senderId\": \"$1\", \"receiverId\": \"$2\"}"
+}
+export -f fire
+export BASE
+
+# ========== PASSO 2: CARGA POR ESTRATÉGIA E NÍVEL ==========
+echo -e "\n🚀 $REQUESTS transferências por nível, concorrência $CONCURRENCY..."
+for strategy in $STRATEGIES; do
+    start_app "$strategy"
+    # Aquecimento: JIT e pools, sem disputa
+    head -200 "$WORKDIR/requests-$PAIRS.txt" | xargs -P 20 -L 1 bash -c 'fire "$@"' _ > /dev/null
+    for level in $LEVELS; do
+        name="$strategy-$level"
+        retried_before=$(retried_calls)
+        start=$(date +%s%N)
+        xargs -P "$CONCURRENCY" -L 1 bash -c 'fire "$@"' _ < "$WORKDIR/requests-$level.txt" > "$WORKDIR/$name.txt"
+        end=$(date +%s%N)
+        retried=$(( $(retried_calls) - retried_before ))
+
+        sort -k2 -n "$WORKDIR/$name.txt" | awk -v strategy="$strategy" -v level="$level" \
+            -v per=$(( (CONCURRENCY + level - 1) / level )) -v ms=$(( (end - start) / 1000000 )) -v retried="$retried" '
+            { t[NR] = $2; s[$1]++ }
+            END {
+                codes = ""
+                for (c in s) codes = codes c ":" s[c] " "
+                printf "| %-11s | %8d | %8d | %8.0f req/s | %7.0f ms | %7.0f ms | %7.0f ms | %7d | %s|\n",
+                    strategy, level, per, NR / (ms / 1000), t[int(NR * 0.50)] * 1000, t[int(NR * 0.95)] * 1000,
+                    t[int(NR * 0.99)] * 1000, retried, codes
+            }' >> "$WORKDIR/summary.txt"
+    done
+    stop_app
+done
+
+echo -e "\n| Estratégia  | Carteiras | Clientes/carteira | Vazão | p50 | p95 | p99 | Retentadas | Status |"
+echo "|-------------|----------|----------|----------------|------------|------------|------------|---------|--------|"
+cat "$WORKDIR/summary.txt"
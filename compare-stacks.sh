@@ -0,0 +1,165 @@
+#!/bin/bash
+
+# ========================================
+# COMPARAÇÃO MVC x REACTIVE - TRANSFERÊNCIA E SALDO SOB CARGA
+# Sobe cada stack contra o mesmo PostgreSQL, dispara a mesma carga e imprime
+# vazão, latência (p50/p95/p99), status HTTP e pico de threads da JVM.
+#
+# Pré-requisitos:
+#   docker-compose up -d postgres
+#   python3 (autorizador fake com latência, se AUTHORIZER_URL não for informado)
+#
+# Uso: ./compare-stacks.sh [requisições por stack, padrão 2000] [concorrência, padrão 200]
+#   AUTHORIZER_DELAY_MS  latência do autorizador fake (padrão 100)
+#   PAIRS                pares remetente/recebedor semeados (padrão 50)
+# ========================================
+
+set -e
+
+REQUESTS=${1:-2000}
+CONCURRENCY=${2:-200}
+PAIRS=${PAIRS:-50}
+PORT=${COMPARE_PORT:-8092}
+AUTHORIZER_PORT=${AUTHORIZER_PORT:-8093}
+AUTHORIZER_DELAY_MS=${AUTHORIZER_DELAY_MS:-100}
+WORKDIR=target/compare
+BASE="http://localhost:$PORT"
+
+export DB_URL=${DB_URL:-jdbc:postgresql://localhost:5432/wallet_db}
+export R2DBC_URL=${R2DBC_URL:-r2dbc:postgresql://localhost:5432/wallet_db}
+export DB_USER=${DB_USER:-admin}
+export DB_PASSWORD=${DB_PASSWORD:-123}
+export SERVER_PORT=$PORT
+# Toda transferência vai ao autorizador: é a espera que a comparação quer medir
+export PREAUTH_ENABLED=false
+# Admissão e limite do autorizador fora do caminho: mede a stack, não o shedding
+export ADMISSION_ENABLED=${ADMISSION_ENABLED:-false}
+export AUTHORIZER_LIMITER_ENABLED=${AUTHORIZER_LIMITER_ENABLED:-false}
+
+rm -rf "$WORKDIR" && mkdir -p "$WORKDIR"
+PIDS=()
+trap 'for p in "${PIDS[@]}"; do kill "$p" 2>/dev/null || true; done' EXIT
+
+# ========== AUTORIZADOR FAKE ==========
+if [ -z "$AUTHORIZER_URL" ]; then
+    python3 - "$AUTHORIZER_PORT" "$AUTHORIZER_DELAY_MS" <<'EOF' > /dev/null 2>&1 &
+import sys, time
+from http.server import ThreadingHTTPServer, BaseHTTPRequestHandler
+
+delay = int(sys.argv[2]) / 1000
+
+class Handler(BaseHTTPRequestHandler):
+    def do_GET(self):
+        time.sleep(delay)
+        body = b'{"message":"Autorizado"}'
+        self.send_response(200)
+        self.send_header("Content-Type", "application/json")
+        self.send_header("Content-Length", str(len(body)))
+        self.end_headers()
+        self.wfile.write(body)
+
+    def log_message(self, *args):
+        pass
+
+ThreadingHTTPServer.request_queue_size = 1024
+ThreadingHTTPServer(("127.0.0.1", int(sys.argv[1])), Handler).serve_forever()
+EOF
+    PIDS+=($!)
+    export AUTHORIZER_URL="http://127.0.0.1:$AUTHORIZER_PORT/authorize"
+    echo "🧪 Autorizador fake em $AUTHORIZER_URL (${AUTHORIZER_DELAY_MS} ms por chamada)"
+fi
+
+echo -e "\n🔧 Build..."
+./mvnw -q package -DskipTests
+JAR=$(ls target/wallet-*.jar | grep -v plain | head -1)
+
+# Sobe a stack (perfil em $1) e espera health UP
+start_stack() {
+    SPRING_PROFILES_ACTIVE=$1 java -jar "$JAR" > "$WORKDIR/$1.log" 2>&1 &
+    APP_PID=$!
+    PIDS+=($APP_PID)
+    until curl -sf "$BASE/actuator/health" 2>/dev/null | grep -q '"status":"UP"'; do
+        if ! kill -0 $APP_PID 2>/dev/null; then
+            echo "❌ Stack $1 encerrou antes de ficar pronta (ver $WORKDIR/$1.log)" >&2
+            exit 1
+        fi
+        sleep 0.2
+    done
+}
+
+stop_stack() {
+    kill $APP_PID && wait $APP_PID 2>/dev/null || true
+}
+
+# ========== PASSO 1: SEMEAR USUÁRIOS (stack MVC) ==========
+echo "📝 Semeando $PAIRS pares de usuários..."
+start_stack default
+RUN_ID=$(date +%s)
+for i in $(seq 1 "$PAIRS"); do
+    ids=()
+    for offset in 0 1; do
+        role=$([ $offset -eq 0 ] && echo s || echo r)
+        doc=$(printf "%011d" $(( (RUN_ID % 100000) * 100000 + i * 2 + offset )))
+        ids+=($(curl -s -X POST "$BASE/users" -H "Content-Type: application/json" -d "{
+            \"firstName\": \"Carga\", \"lastName\": \"Comparacao\", \"document\": \"$doc\",
+            \"email\": \"$role$i-$RUN_ID@compare.local\", \"password\": \"senha123\",
+            \"userType\": \"COMMON\", \"balance\": 1000000
+          }" | grep -o '"id":"[^"]*' | head -1 | sed 's/"id":"//'))
+    done
+    echo "${ids[0]} ${ids[1]}" >> "$WORKDIR/pairs.txt"
+done
+stop_stack
+
+# Uma linha por requisição: 4 de cada 5 são transferências, 1 é consulta de saldo
+for i in $(seq 1 "$REQUESTS"); do
+    read -r sender receiver <<< "$(sed -n "$(( (i % PAIRS) + 1 ))p" "$WORKDIR/pairs.txt")"
+    if (( i % 5 == 0 )); then
+        echo "GET $sender"
+    else
+        echo "POST $sender $receiver"
+    fi
+done > "$WORKDIR/requests.txt"
+
+# Uma requisição: imprime "status segundos"
+fire() {
+    if [ "$1" = GET ]; then
+        curl -s -o /dev/null -w "%{http_code} %{time_total}\n" "$BASE/users/$2/balance"
+    else
+        curl -s -o /dev/null -w "%{http_code} %{time_total}\n" -X POST "$BASE/transactions" \
+            -H "Content-Type: application/json" \
+            -d "{\"value\": 1, \"senderId\": \"$2\", \"receiverId\": \"$3\"}"
+    fi
+}
+export -f fire
+export BASE
+
+# ========== PASSO 2: CARGA EM CADA STACK ==========
+run_load() {
+    local name=$1 profile=$2 start end threads
+    start_stack "$profile"
+    # Aquecimento: JIT e pools
+    head -200 "$WORKDIR/requests.txt" | xargs -P 20 -L 1 bash -c 'fire "$@"' _ > /dev/null
+    start=$(date +%s%N)
+    xargs -P "$CONCURRENCY" -L 1 bash -c 'fire "$@"' _ < "$WORKDIR/requests.txt" > "$WORKDIR/$name.txt"
+    end=$(date +%s%N)
+    threads=$(curl -s "$BASE/actuator/prometheus" | grep -E '^jvm_threads_peak_threads' | awk '{print int($2)}')
+    stop_stack
+
+    sort -k2 -n "$WORKDIR/$name.txt" | awk -v name="$name" -v ms=$(( (end - start) / 1000000 )) -v threads="$threads" '
+        { t[NR] = $2; s[$1]++ }
+        END {
+            codes = ""
+            for (c in s) codes = codes c ":" s[c] " "
+            printf "| %-8s | %8.0f req/s | %7.0f ms | %7.0f ms | %7.0f ms | %7s | %s|\n",
+                name, NR / (ms / 1000), t[int(NR * 0.50)] * 1000, t[int(NR * 0.95)] * 1000,
+                t[int(NR * 0.99)] * 1000, threads, codes
+        }' >> "$WORKDIR/summary.txt"
+}
+
+echo -e "\n🚀 $REQUESTS requisições por stack, concorrência $CONCURRENCY..."
+run_load mvc default
+run_load reactive reactive
+
+echo -e "\n| Stack    | Vazão          | p50        | p95        | p99        | Threads | Status |"
+echo "|----------|----------------|------------|------------|------------|---------|--------|"
+cat "$WORKDIR/summary.txt"
@@ -0,0 +1,33 @@
+#!/bin/sh
+
+# ========================================
+# ENTRYPOINT DA IMAGEM DOCKER
+# Com Spring AOT (AOT_ENABLED=true) o grafo de beans e os @Profile foram
+# resolvidos no build, para os perfis de AOT_PROFILES, e o código gerado
+# sempre ativa esses perfis. Pedir em runtime outro perfil que troca beans
+# (reactive, sharded) subiria o grafo do build com a configuração de outro
+# perfil: aqui a divergência encerra o container logo, com a instrução de rebuild.
+#
+# Saídas:
+#   - rebuild com --build-arg AOT_PROFILES=<perfis> (uma imagem por perfil)
+#   - AOT_ENABLED=false em runtime: mesma imagem, inicialização sem AOT
+# ========================================
+
+# Só os perfis que mudam o grafo de beans, ordenados e sem espaços
+bean_profiles() {
+    echo "$1" | tr -d ' ' | tr ',' '\n' | grep -xE 'reactive|sharded' | sort | paste -sd, -
+}
+
+if [ "$AOT_ENABLED" = "true" ]; then
+    built=$(bean_profiles "$AOT_PROFILES")
+    active=$(bean_profiles "$SPRING_PROFILES_ACTIVE")
+    # Sem perfil de beans pedido, valem os do build; pedido, tem que ser exatamente o do build
+    if [ -n "$active" ] && [ "$built" != "$active" ]; then
+        echo "❌ Imagem gerada com Spring AOT para os perfis [${built}], mas SPRING_PROFILES_ACTIVE pede [${active}]." >&2
+        echo "   Gere a imagem com --build-arg AOT_PROFILES=${active} ou rode com AOT_ENABLED=false." >&2
+        exit 1
+    fi
+    STARTUP_OPTS="$STARTUP_OPTS -Dspring.aot.enabled=true"
+fi
+
+exec java $JAVA_OPTS $STARTUP_OPTS -jar app.jar
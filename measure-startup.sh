@@ -0,0 +1,75 @@
+#!/bin/bash
+
+# ========================================
+# MEDIÇÃO DE STARTUP - JVM x AOT x AOT+CDS x NATIVE
+# Mede o tempo até /actuator/health responder UP e a memória (RSS) nesse momento.
+#
+# Pré-requisitos:
+#   docker-compose up -d postgres
+#   (opcional) ./mvnw -Pnative native:compile -DskipTests   -> target/wallet
+#
+# Uso: ./measure-startup.sh [execuções por variante, padrão 3]
+# ========================================
+
+set -e
+
+RUNS=${1:-3}
+PORT=${MEASURE_PORT:-8091}
+WORKDIR=target/startup
+
+export DB_URL=${DB_URL:-jdbc:postgresql://localhost:5432/wallet_db}
+export DB_USER=${DB_USER:-admin}
+export DB_PASSWORD=${DB_PASSWORD:-123}
+export SERVER_PORT=$PORT
+
+echo -e "\n🔧 Build com Spring AOT..."
+./mvnw -q -Paot clean package -DskipTests
+
+echo "📦 Extraindo app.jar + lib/ e gerando arquivo CDS (training run)..."
+rm -rf "$WORKDIR"
+java -Djarmode=tools -jar target/wallet-*.jar extract --destination "$WORKDIR" --application-filename app.jar
+(cd "$WORKDIR" && java -XX:ArchiveClassesAtExit=app.jsa \
+    -Dspring.context.exit=onRefresh -Dspring.aot.enabled=true \
+    -Dspring.jpa.hibernate.ddl-auto=none \
+    -Dspring.jpa.properties.hibernate.boot.allow_jdbc_metadata_access=false \
+    -Dspring.flyway.enabled=false \
+    -jar app.jar > /dev/null 2>&1)
+
+# Sobe o processo, espera health UP, imprime "ms rss_kb" e encerra
+measure() {
+    local start end pid rss
+    start=$(date +%s%N)
+    "$@" > /dev/null 2>&1 &
+    pid=$!
+    until curl -sf "http://localhost:$PORT/actuator/health" 2>/dev/null | grep -q '"status":"UP"'; do
+        if ! kill -0 $pid 2>/dev/null; then
+            echo "❌ Processo encerrou antes de ficar pronto: $*" >&2
+            return 1
+        fi
+        sleep 0.05
+    done
+    end=$(date +%s%N)
+    rss=$(ps -o rss= -p $pid | tr -d ' ')
+    kill $pid && wait $pid 2>/dev/null || true
+    echo "$(( (end - start) / 1000000 )) $rss"
+}
+
+run_variant() {
+    local name=$1
+    shift
+    for i in $(seq 1 "$RUNS"); do
+        read -r ms rss <<< "$(measure "$@")"
+        printf "| %-8s | %3s | %8s ms | %8s MB |\n" "$name" "$i" "$ms" "$(( rss / 1024 ))"
+    done
+}
+
+echo -e "\n| Variante | Run | Até health UP | RSS no ready |"
+echo "|----------|-----|---------------|--------------|"
+(cd "$WORKDIR" && run_variant jvm java -jar app.jar)
+(cd "$WORKDIR" && run_variant aot java -Dspring.aot.enabled=true -jar app.jar)
+(cd "$WORKDIR" && run_variant aot+cds java -XX:SharedArchiveFile=app.jsa -Dspring.aot.enabled=true -jar app.jar)
+if [ -x target/wallet ]; then
+    run_variant native target/wallet
+else
+    echo "(native: target/wallet não encontrado, variante ignorada)"
+fi
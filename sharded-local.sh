@@ -0,0 +1,43 @@
+#!/bin/bash
+
+# ========================================
+# SHARDS LOCAIS - VÁRIOS BANCOS NO MESMO POSTGRESQL
+# Cria wallet_shard0..N-1 no container do docker-compose e sobe a aplicação
+# com o perfil "sharded" apontando para eles (cada banco é um shard).
+#
+# Pré-requisitos:
+#   docker-compose up -d postgres
+#
+# Uso: ./sharded-local.sh [shards, padrão 2] [porta, padrão 8080]
+#   Para shards em instâncias separadas, exporte SHARD_URLS antes (o script só cria bancos locais)
+# ========================================
+
+set -e
+
+SHARDS=${1:-2}
+PORT=${2:-8080}
+
+export DB_USER=${DB_USER:-admin}
+export DB_PASSWORD=${DB_PASSWORD:-123}
+
+if [ -z "$SHARD_URLS" ]; then
+    urls=()
+    for i in $(seq 0 $((SHARDS - 1))); do
+        db="wallet_shard$i"
+        if ! docker exec wallet-db psql -U "$DB_USER" -d postgres -tAc "SELECT 1 FROM pg_database WHERE datname = '$db'" | grep -q 1; then
+            docker exec wallet-db psql -U "$DB_USER" -d postgres -c "CREATE DATABASE $db" > /dev/null
+            echo "🗄️  Banco $db criado"
+        fi
+        urls+=("jdbc:postgresql://localhost:5432/$db")
+    done
+    export SHARD_URLS=$(IFS=,; echo "${urls[*]}")
+fi
+
+if ! ls target/wallet-*.jar > /dev/null 2>&1; then
+    echo -e "\n🔧 Build..."
+    ./mvnw -q package -DskipTests
+fi
+JAR=$(ls target/wallet-*.jar | grep -v plain | head -1)
+
+echo -e "\n🚀 Shards: $SHARD_URLS"
+SPRING_PROFILES_ACTIVE=sharded SERVER_PORT=$PORT exec java -jar "$JAR"
@@ -2,8 +2,15 @@ package com.wallet.wallet;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcTransactionManagerAutoConfiguration;
 
-@SpringBootApplication
+// R2DBC só no perfil "reactive" (infra/ReactiveConfig): um R2dbcTransactionManager
+// auto-configurado impediria a criação do JpaTransactionManager usado pelo @Transactional
+@SpringBootApplication(exclude = {
+	R2dbcAutoConfiguration.class,
+	R2dbcTransactionManagerAutoConfiguration.class
+})
 public class WalletApplication {
 
 	public static void main(String[] args) {
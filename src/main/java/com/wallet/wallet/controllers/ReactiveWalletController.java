@@ -0,0 +1,37 @@
+package com.wallet.wallet.controllers;
+
+import com.wallet.wallet.dtos.BalanceDTO;
+import com.wallet.wallet.dtos.TransactionDTO;
+import com.wallet.wallet.dtos.TransactionResponseDTO;
+import com.wallet.wallet.services.ReactiveWalletService;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+/**
+ * Endpoints da stack reativa (perfil "reactive"): mesmos caminhos e corpos de
+ * {@link TransactionController} e {@code GET /users/{id}/balance} do {@link UserController}.
+ */
+@RestController
+@Profile("reactive")
+public class ReactiveWalletController {
+
+    @Autowired
+    private ReactiveWalletService walletService;
+
+    @PostMapping("/transactions")
+    public Mono<TransactionResponseDTO> createTransaction(@Valid @RequestBody TransactionDTO transaction) {
+        return walletService.transfer(transaction).map(TransactionResponseDTO::from);
+    }
+
+    @GetMapping("/users/{id}/balance")
+    public Mono<BalanceDTO> getBalance(@PathVariable String id) {
+        return walletService.getBalance(id);
+    }
+}
@@ -2,26 +2,44 @@ package com.wallet.wallet.controllers;
 
 import com.wallet.wallet.domain.Transaction;
 import com.wallet.wallet.dtos.TransactionDTO;
-import com.wallet.wallet.services.TransactionService;
+import com.wallet.wallet.dtos.TransactionResponseDTO;
+import com.wallet.wallet.services.TransferForwarder;
+import com.wallet.wallet.services.TransferGateway;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.Optional;
+
 @RestController
 @RequestMapping("/transactions")
+@Profile("!reactive")
 public class TransactionController {
     
     @Autowired
-    private TransactionService transactionService;
+    private TransferGateway transferGateway;
+
+    @Autowired
+    private TransferForwarder transferForwarder;
 
     @PostMapping
-    public ResponseEntity<Transaction> createTransaction(@Valid @RequestBody TransactionDTO transaction) throws Exception {
-        Transaction newTransaction = this.transactionService.createTransaction(transaction);
-        return new ResponseEntity<>(newTransaction, HttpStatus.OK);
+    public ResponseEntity<?> createTransaction(
+            @Valid @RequestBody TransactionDTO transaction,
+            @RequestHeader(value = TransferForwarder.FORWARDED_HEADER, required = false) String forwardedBy) {
+        // Com wallet.cluster.enabled, a carteira de outro nó é transferida lá
+        Optional<ResponseEntity<String>> forwarded = transferForwarder.forwardToOwner(transaction, forwardedBy);
+        if (forwarded.isPresent()) {
+            return forwarded.get();
+        }
+
+        Transaction newTransaction = this.transferGateway.transfer(transaction);
+        return new ResponseEntity<>(TransactionResponseDTO.from(newTransaction), HttpStatus.OK);
     }
 }
\ No newline at end of file
@@ -1,29 +1,67 @@
 package com.wallet.wallet.controllers;
 
 import com.wallet.wallet.domain.User;
+import com.wallet.wallet.dtos.BalanceDTO;
+import com.wallet.wallet.dtos.DailyTotalsDTO;
 import com.wallet.wallet.dtos.UserDTO;
+import com.wallet.wallet.dtos.UserImportResultDTO;
+import com.wallet.wallet.services.DailyTotalsService;
+import com.wallet.wallet.services.StatementExportService;
+import com.wallet.wallet.services.UserImportService;
 import com.wallet.wallet.services.UserService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Locale;
 
 @RestController
 @RequestMapping("/users")
+@Profile("!reactive")
 public class UserController {
     
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private UserImportService userImportService;
+
+    @Autowired
+    private StatementExportService statementExportService;
+
+    @Autowired
+    private DailyTotalsService dailyTotalsService;
+
     @PostMapping
     public ResponseEntity<User> createUser(@Valid @RequestBody UserDTO user){ 
         User newUser = userService.createUser(user);
         return new ResponseEntity<>(newUser, HttpStatus.CREATED);
     }
 
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public ResponseEntity<UserImportResultDTO> importUsersCsv(InputStream body) throws IOException {
+        UserImportResultDTO result = userImportService.importUsers(body, UserImportService.Format.CSV);
+        return new ResponseEntity<>(result, HttpStatus.OK);
+    }
+
+    @PostMapping(value = "/import", consumes = "application/x-ndjson")
+    public ResponseEntity<UserImportResultDTO> importUsersNdjson(InputStream body) throws IOException {
+        UserImportResultDTO result = userImportService.importUsers(body, UserImportService.Format.NDJSON);
+        return new ResponseEntity<>(result, HttpStatus.OK);
+    }
+
     @GetMapping
     public ResponseEntity<List<User>> getAllUsers(){ 
         List<User> users = this.userService.getAllUsers();
@@ -31,8 +69,57 @@ public class UserController {
     }
     
     @GetMapping("/{id}")
-    public ResponseEntity<User> getUserById(@PathVariable String id) throws Exception {
+    public ResponseEntity<User> getUserById(@PathVariable String id) {
         User user = this.userService.findUserById(id);
         return new ResponseEntity<>(user, HttpStatus.OK);
     }
-}
\ No newline at end of file
+
+    @GetMapping("/{id}/balance")
+    public ResponseEntity<BalanceDTO> getBalance(@PathVariable String id) {
+        BalanceDTO balance = this.userService.getBalance(id);
+        return new ResponseEntity<>(balance, HttpStatus.OK);
+    }
+
+    /**
+     * Totais enviados/recebidos por dia no período, lidos da tabela pré-agregada.
+     */
+    @GetMapping("/{id}/daily-totals")
+    public ResponseEntity<DailyTotalsDTO> getDailyTotals(
+            @PathVariable String id,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        this.userService.findUserById(id);
+        DailyTotalsDTO totals = this.dailyTotalsService.totals(id, from, to);
+        return new ResponseEntity<>(totals, HttpStatus.OK);
+    }
+
+    /**
+     * Extrato do período em streaming (CSV ou NDJSON). Comprime com gzip se o cliente aceitar.
+     */
+    @GetMapping("/{id}/statement")
+    public ResponseEntity<StreamingResponseBody> exportStatement(
+            @PathVariable String id,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        // Erros (usuário, período, formato) antes do primeiro byte, enquanto ainda dá para responder 4xx
+        StatementExportService.Format exportFormat = StatementExportService.Format.parse(format);
+        statementExportService.validatePeriod(from, to);
+        this.userService.findUserById(id);
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase(Locale.ROOT).contains("gzip");
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType(exportFormat.contentType()));
+        headers.setContentDisposition(ContentDisposition.attachment()
+            .filename("statement-%s-%s-%s.%s".formatted(id, from, to, exportFormat.name().toLowerCase(Locale.ROOT)))
+            .build());
+        headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            headers.add(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+
+        StreamingResponseBody body = output -> statementExportService.export(id, from, to, exportFormat, gzip, output);
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
+    }
+}
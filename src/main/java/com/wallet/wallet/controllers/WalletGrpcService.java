@@ -0,0 +1,274 @@
+package com.wallet.wallet.controllers;
+
+import com.wallet.wallet.domain.DomainException;
+import com.wallet.wallet.domain.Transaction;
+import com.wallet.wallet.dtos.BalanceDTO;
+import com.wallet.wallet.dtos.TransactionDTO;
+import com.wallet.wallet.grpc.BalanceReply;
+import com.wallet.wallet.grpc.BalanceRequest;
+import com.wallet.wallet.grpc.TransferRequest;
+import com.wallet.wallet.grpc.TransferResult;
+import com.wallet.wallet.grpc.WalletServiceGrpc;
+import com.wallet.wallet.services.TransferGateway;
+import com.wallet.wallet.services.UserService;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import net.devh.boot.grpc.server.service.GrpcService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * API gRPC de transferências e saldo, ao lado do REST (src/main/proto/wallet.proto).
+ *
+ * Passa pelo mesmo {@link TransferGateway} do {@link TransactionController}
+ * (admissão, saga com shards, createTransaction) e pelas mesmas validações de
+ * {@link TransactionDTO}; o resultado de cada transferência traz o status HTTP
+ * que o REST responderia. Não encaminha ao dono da carteira (cluster): roda
+ * local, como quando o dono está fora.
+ *
+ * Transfer e StreamTransfers rodam no pool grpc-transfer-, não na thread do
+ * transporte gRPC. O pool tem fila limitada (transfer-queue-capacity): cheia,
+ * a chamada unária falha com UNAVAILABLE e o item do stream volta com 503.
+ *
+ * StreamTransfers processa até max-in-flight-per-stream itens de um stream em
+ * paralelo, com controle de fluxo manual nos dois sentidos: o servidor só pede
+ * o próximo item ao cliente quando um termina e a saída está pronta
+ * (isReady). Um cliente que escreve rápido e lê devagar para de receber pedidos
+ * de item, em vez de acumular resultados no buffer de saída; o onReadyHandler
+ * retoma os pedidos quando ele volta a ler.
+ */
+@GrpcService
+@Profile("!reactive")
+@Slf4j
+public class WalletGrpcService extends WalletServiceGrpc.WalletServiceImplBase {
+
+    private final TransferGateway transferGateway;
+    private final UserService userService;
+    private final Validator validator;
+    private final int maxInFlightPerStream;
+    private final ThreadPoolExecutor transferExecutor;
+
+    public WalletGrpcService(
+            TransferGateway transferGateway,
+            UserService userService,
+            Validator validator,
+            @Value("${wallet.grpc.max-in-flight-per-stream:32}") int maxInFlightPerStream,
+            @Value("${wallet.grpc.transfer-threads:64}") int transferThreads,
+            @Value("${wallet.grpc.transfer-queue-capacity:256}") int transferQueueCapacity) {
+        this.transferGateway = transferGateway;
+        this.userService = userService;
+        this.validator = validator;
+        this.maxInFlightPerStream = maxInFlightPerStream;
+        this.transferExecutor = new ThreadPoolExecutor(
+            transferThreads, transferThreads,
+            0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(transferQueueCapacity),
+            new CustomizableThreadFactory("grpc-transfer-"),
+            new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Override
+    public void transfer(TransferRequest request, StreamObserver<TransferResult> responseObserver) {
+        try {
+            transferExecutor.execute(() -> {
+                responseObserver.onNext(execute(request));
+                responseObserver.onCompleted();
+            });
+        } catch (RejectedExecutionException e) {
+            responseObserver.onError(Status.UNAVAILABLE.withDescription(unavailableMessage()).asRuntimeException());
+        }
+    }
+
+    @Override
+    public StreamObserver<TransferRequest> streamTransfers(StreamObserver<TransferResult> responseObserver) {
+        ServerCallStreamObserver<TransferResult> serverObserver =
+            (ServerCallStreamObserver<TransferResult>) responseObserver;
+        serverObserver.disableAutoRequest();
+        TransferStream stream = new TransferStream(serverObserver);
+        serverObserver.setOnCancelHandler(stream::cancel);
+        serverObserver.setOnReadyHandler(stream::onReady);
+        serverObserver.request(maxInFlightPerStream);
+        return stream;
+    }
+
+    @Override
+    public void getBalance(BalanceRequest request, StreamObserver<BalanceReply> responseObserver) {
+        try {
+            BalanceDTO balance = userService.getBalance(request.getUserId());
+            responseObserver.onNext(BalanceReply.newBuilder()
+                .setUserId(balance.userId())
+                .setBalance(balance.balance().toPlainString())
+                .build());
+            responseObserver.onCompleted();
+        } catch (DomainException e) {
+            responseObserver.onError(statusOf(e.getStatus()).withDescription(e.getMessage()).asRuntimeException());
+        } catch (RuntimeException e) {
+            log.error("Erro ao consultar saldo via gRPC", e);
+            responseObserver.onError(Status.INTERNAL.withDescription("Erro interno do servidor").asRuntimeException());
+        }
+    }
+
+    /**
+     * Uma transferência com os mesmos status do REST (ver ControllerExceptionHandler).
+     */
+    TransferResult execute(TransferRequest request) {
+        TransferResult.Builder result = TransferResult.newBuilder().setRequestId(request.getRequestId());
+
+        BigDecimal value;
+        try {
+            value = new BigDecimal(request.getValue());
+        } catch (NumberFormatException e) {
+            return rejected(result, HttpStatus.BAD_REQUEST, "Valor inválido: " + request.getValue());
+        }
+        TransactionDTO transfer = new TransactionDTO(value, request.getSenderId(), request.getReceiverId());
+        Set<ConstraintViolation<TransactionDTO>> violations = validator.validate(transfer);
+        if (!violations.isEmpty()) {
+            return rejected(result, HttpStatus.BAD_REQUEST, violations.stream()
+                .sorted(Comparator.comparing(violation -> violation.getPropertyPath().toString()))
+                .map(ConstraintViolation::getMessage)
+                .collect(Collectors.joining("; ")));
+        }
+
+        try {
+            Transaction transaction = transferGateway.transfer(transfer);
+            return result.setStatus(HttpStatus.OK.value())
+                .setTransactionId(transaction.getId())
+                .setAmount(transaction.getAmount().toPlainString())
+                .setSenderId(transaction.getSender().getId())
+                .setReceiverId(transaction.getReceiver().getId())
+                .setTimestamp(transaction.getTimestamp().toString())
+                .build();
+        } catch (DomainException e) {
+            return rejected(result, e.getStatus(), e.getMessage());
+        } catch (PessimisticLockingFailureException | OptimisticLockingFailureException e) {
+            return rejected(result, HttpStatus.CONFLICT, "Carteira em uso por outra transferência. Tente novamente.");
+        } catch (QueryTimeoutException e) {
+            return rejected(result, HttpStatus.SERVICE_UNAVAILABLE, "Banco de dados lento. Tente novamente.");
+        } catch (RuntimeException e) {
+            log.error("Erro interno em transferência via gRPC", e);
+            return rejected(result, HttpStatus.INTERNAL_SERVER_ERROR, "Erro interno do servidor");
+        }
+    }
+
+    // Fila do pool cheia ou servidor desligando
+    private String unavailableMessage() {
+        return transferExecutor.isShutdown() ? "Servidor em desligamento" : "Servidor sobrecarregado. Tente novamente.";
+    }
+
+    private static TransferResult rejected(TransferResult.Builder result, HttpStatus status, String message) {
+        return result.setStatus(status.value()).setMessage(message).build();
+    }
+
+    private static Status statusOf(HttpStatus status) {
+        return switch (status) {
+            case NOT_FOUND -> Status.NOT_FOUND;
+            case TOO_MANY_REQUESTS, SERVICE_UNAVAILABLE -> Status.UNAVAILABLE;
+            default -> Status.FAILED_PRECONDITION;
+        };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        transferExecutor.shutdown();
+    }
+
+    /**
+     * Estado de um StreamTransfers. Resultados saem na ordem em que as transferências terminam.
+     */
+    private final class TransferStream implements StreamObserver<TransferRequest> {
+        private final ServerCallStreamObserver<TransferResult> responseObserver;
+        private int inFlight;
+        // Itens já terminados cujo pedido ao cliente espera a saída ficar pronta
+        private int deferredRequests;
+        private boolean halfClosed;
+        private boolean done;
+
+        TransferStream(ServerCallStreamObserver<TransferResult> responseObserver) {
+            this.responseObserver = responseObserver;
+        }
+
+        @Override
+        public void onNext(TransferRequest request) {
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                inFlight++;
+            }
+            try {
+                transferExecutor.execute(() -> complete(execute(request)));
+            } catch (RejectedExecutionException e) {
+                complete(rejected(TransferResult.newBuilder().setRequestId(request.getRequestId()),
+                    HttpStatus.SERVICE_UNAVAILABLE, unavailableMessage()));
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            log.debug("Stream de transferências encerrado pelo cliente: {}", t.getMessage());
+            cancel();
+        }
+
+        @Override
+        public synchronized void onCompleted() {
+            halfClosed = true;
+            finishIfDrained();
+        }
+
+        // Cliente voltou a ler: pede os itens adiados enquanto a saída estava cheia
+        synchronized void onReady() {
+            if (done || halfClosed || deferredRequests == 0 || !responseObserver.isReady()) {
+                return;
+            }
+            responseObserver.request(deferredRequests);
+            deferredRequests = 0;
+        }
+
+        synchronized void cancel() {
+            // Transferências em andamento terminam normalmente; só os resultados são descartados
+            done = true;
+        }
+
+        // StreamObserver não é thread-safe: resultados de várias threads passam por aqui um de cada vez
+        private synchronized void complete(TransferResult result) {
+            inFlight--;
+            if (done) {
+                return;
+            }
+            responseObserver.onNext(result);
+            if (halfClosed) {
+                finishIfDrained();
+            } else if (responseObserver.isReady()) {
+                responseObserver.request(1);
+            } else {
+                deferredRequests++;
+            }
+        }
+
+        private void finishIfDrained() {
+            if (!done && inFlight == 0) {
+                done = true;
+                responseObserver.onCompleted();
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.wallet.wallet.domain;
+
+import com.wallet.wallet.dtos.ExceptionDTO;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Base das recusas de negócio esperadas (saldo insuficiente, lojista como
+ * remetente, autorizador negou, usuário/carteira inexistente, sobrecarga).
+ *
+ * Essas exceções fazem parte do fluxo normal e podem ocorrer aos milhares
+ * por segundo em picos de recusa, por isso:
+ * - não capturam stack trace nem suportam suppressed (writableStackTrace = false)
+ * - carregam o status HTTP e o {@link ExceptionDTO} da resposta já montados,
+ *   para o {@code ControllerExceptionHandler} só repassar
+ *
+ * Falhas inesperadas continuam como exceções comuns (500 com stack no log).
+ */
+public abstract class DomainException extends RuntimeException {
+
+    private final HttpStatus status;
+    private final ExceptionDTO body;
+
+    protected DomainException(HttpStatus status, ExceptionDTO body) {
+        super(body.message(), null, false, false);
+        this.status = status;
+        this.body = body;
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+
+    public ExceptionDTO getBody() {
+        return body;
+    }
+
+    protected static ExceptionDTO body(String message, HttpStatus status) {
+        return new ExceptionDTO(message, String.valueOf(status.value()));
+    }
+
+    /**
+     * Saldo menor que o valor da transferência (422).
+     */
+    public static class InsufficientFundsException extends DomainException {
+        private static final ExceptionDTO BODY = body("Saldo insuficiente", HttpStatus.UNPROCESSABLE_ENTITY);
+
+        public InsufficientFundsException() {
+            super(HttpStatus.UNPROCESSABLE_ENTITY, BODY);
+        }
+    }
+
+    /**
+     * Lojista tentando enviar dinheiro (403).
+     */
+    public static class MerchantSenderException extends DomainException {
+        private static final ExceptionDTO BODY = body(
+            "Usuário do tipo Lojista não está autorizado a realizar transação", HttpStatus.FORBIDDEN);
+
+        public MerchantSenderException() {
+            super(HttpStatus.FORBIDDEN, BODY);
+        }
+    }
+
+    /**
+     * Autorizador externo negou a transferência ou está indisponível (403).
+     */
+    public static class TransactionNotAuthorizedException extends DomainException {
+        private static final ExceptionDTO BODY = body("Transação não autorizada", HttpStatus.FORBIDDEN);
+
+        public TransactionNotAuthorizedException() {
+            super(HttpStatus.FORBIDDEN, BODY);
+        }
+    }
+
+    /**
+     * Usuário inexistente (404).
+     */
+    public static class UserNotFoundException extends DomainException {
+        private static final ExceptionDTO BODY = body("Usuário não encontrado", HttpStatus.NOT_FOUND);
+
+        public UserNotFoundException() {
+            super(HttpStatus.NOT_FOUND, BODY);
+        }
+    }
+
+    /**
+     * Carteira inexistente para o usuário (404).
+     */
+    public static class WalletNotFoundException extends DomainException {
+        private static final ExceptionDTO USER_BODY =
+            body("Carteira do usuário não encontrada", HttpStatus.NOT_FOUND);
+        private static final ExceptionDTO SENDER_BODY =
+            body("Carteira do remetente não encontrada", HttpStatus.NOT_FOUND);
+        private static final ExceptionDTO RECEIVER_BODY =
+            body("Carteira do recebedor não encontrada", HttpStatus.NOT_FOUND);
+
+        private WalletNotFoundException(ExceptionDTO body) {
+            super(HttpStatus.NOT_FOUND, body);
+        }
+
+        public static WalletNotFoundException ofUser() {
+            return new WalletNotFoundException(USER_BODY);
+        }
+
+        public static WalletNotFoundException ofSender() {
+            return new WalletNotFoundException(SENDER_BODY);
+        }
+
+        public static WalletNotFoundException ofReceiver() {
+            return new WalletNotFoundException(RECEIVER_BODY);
+        }
+    }
+}
@@ -9,7 +9,6 @@ import java.math.BigDecimal;
 @Table(name="wallets")
 @Getter
 @Setter
-@AllArgsConstructor
 @NoArgsConstructor
 @EqualsAndHashCode(of="id")
 public class Wallet {
@@ -20,11 +19,25 @@ public class Wallet {
 
     private BigDecimal balance = BigDecimal.ZERO;
 
+    /**
+     * Versão para a estratégia OPTIMISTIC (wallet.transfer.locking): todo UPDATE
+     * do Hibernate confere e incrementa. Escritas por SQL são incrementadas pelo
+     * gatilho da migração V7.
+     */
+    @Version
+    private Long version;
+
     @OneToOne
     @JoinColumn(name = "user_id")
     @JsonIgnore
     private User user;
     
+    public Wallet(String id, BigDecimal balance, User user){
+        this.id = id;
+        this.balance = balance;
+        this.user = user;
+    }
+
     public Wallet(BigDecimal balance, User user){
         this.balance = balance;
         this.user = user;
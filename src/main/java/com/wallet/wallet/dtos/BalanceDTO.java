@@ -0,0 +1,9 @@
+package com.wallet.wallet.dtos;
+
+import java.math.BigDecimal;
+
+public record BalanceDTO(
+    String userId,
+    BigDecimal balance
+) {
+}
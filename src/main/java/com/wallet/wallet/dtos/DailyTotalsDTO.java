@@ -0,0 +1,25 @@
+package com.wallet.wallet.dtos;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+public record DailyTotalsDTO(
+    String userId,
+    LocalDate from,
+    LocalDate to,
+    BigDecimal sentAmount,
+    long sentCount,
+    BigDecimal receivedAmount,
+    long receivedCount,
+    List<Day> days
+) {
+    public record Day(
+        LocalDate day,
+        BigDecimal sentAmount,
+        long sentCount,
+        BigDecimal receivedAmount,
+        long receivedCount
+    ) {
+    }
+}
@@ -0,0 +1,26 @@
+package com.wallet.wallet.dtos;
+
+import com.wallet.wallet.domain.Transaction;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Resposta de uma transferência: só ids, valor e data (sem os usuários e carteiras da entidade).
+ */
+public record TransactionResponseDTO(
+    String id,
+    BigDecimal amount,
+    String senderId,
+    String receiverId,
+    LocalDateTime timestamp
+) {
+    public static TransactionResponseDTO from(Transaction transaction) {
+        return new TransactionResponseDTO(
+            transaction.getId(),
+            transaction.getAmount(),
+            transaction.getSender() == null ? null : transaction.getSender().getId(),
+            transaction.getReceiver() == null ? null : transaction.getReceiver().getId(),
+            transaction.getTimestamp());
+    }
+}
@@ -0,0 +1,10 @@
+package com.wallet.wallet.dtos;
+
+/**
+ * Erro de uma linha da importação em massa.
+ *
+ * @param line Número da linha no arquivo enviado (1 = primeira linha)
+ * @param message Motivo da rejeição
+ */
+public record UserImportErrorDTO(long line, String message) {
+}
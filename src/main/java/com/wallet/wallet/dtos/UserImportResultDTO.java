@@ -0,0 +1,14 @@
+package com.wallet.wallet.dtos;
+
+import java.util.List;
+
+/**
+ * Resultado da importação em massa de usuários.
+ *
+ * @param totalRows Linhas de dados lidas
+ * @param importedRows Linhas gravadas com sucesso
+ * @param failedRows Linhas rejeitadas
+ * @param errors Erros por linha (limitado a wallet.import.max-reported-errors)
+ */
+public record UserImportResultDTO(long totalRows, long importedRows, long failedRows, List<UserImportErrorDTO> errors) {
+}
@@ -1,14 +1,30 @@
 package com.wallet.wallet.infra;
 
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
+
 @Configuration
 public class AppConfig {
     
+    /**
+     * Built from RestTemplateBuilder so calls are instrumented (http.client.requests).
+     * Timeouts bound each authorizer attempt; without them a slow authorizer holds the thread indefinitely.
+     * Boot skips the builder in a reactive web app ("reactive" profile), where this client is unused.
+     */
     @Bean
-    public RestTemplate restTemplate(){
-        return new RestTemplate();
+    public RestTemplate restTemplate(
+            ObjectProvider<RestTemplateBuilder> builderProvider,
+            @Value("${wallet.authorizer.connect-timeout-ms:500}") long connectTimeoutMs,
+            @Value("${wallet.authorizer.read-timeout-ms:2000}") long readTimeoutMs){
+        return builderProvider.getIfAvailable(RestTemplateBuilder::new)
+            .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+            .readTimeout(Duration.ofMillis(readTimeoutMs))
+            .build();
     }
 }
\ No newline at end of file
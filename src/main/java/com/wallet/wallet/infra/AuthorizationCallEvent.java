@@ -0,0 +1,35 @@
+package com.wallet.wallet.infra;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Evento JFR da chamada ao autorizador (incluindo retries e fallback).
+ */
+@Name("com.wallet.AuthorizationCall")
+@Label("Authorization Call")
+@Description("Chamada ao autorizador externo durante uma transferência")
+@Category({"Wallet", "Transfers"})
+@StackTrace(false)
+public class AuthorizationCallEvent extends Event {
+
+    @Label("Sender ID")
+    @Description("ID do remetente mascarado via LogMasker")
+    String senderId;
+
+    @Label("Authorized")
+    boolean authorized;
+
+    public void commit(String senderId, boolean authorized) {
+        end();
+        if (shouldCommit()) {
+            this.senderId = LogMasker.maskUserId(senderId);
+            this.authorized = authorized;
+            commit();
+        }
+    }
+}
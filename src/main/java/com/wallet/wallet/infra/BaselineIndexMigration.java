@@ -0,0 +1,114 @@
+package com.wallet.wallet.infra;
+
+import org.flywaydb.core.api.MigrationVersion;
+import org.flywaydb.core.api.migration.Context;
+import org.flywaydb.core.api.migration.JavaMigration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * V1.1: índices do esquema base, criados com CREATE INDEX CONCURRENTLY.
+ *
+ * Em um banco existente (criado pelo ddl-auto) a tabela transactions já tem
+ * linhas: um CREATE INDEX comum seguraria um lock SHARE e bloquearia toda
+ * transferência até o índice ficar pronto. O CONCURRENTLY não bloqueia escritas,
+ * mas não roda dentro de transação, por isso esta migração fica fora do V1 e
+ * declara {@link #canExecuteInTransaction()} = false (o Flyway a executa em autocommit).
+ *
+ * Em Java e não em SQL pelas mesmas checagens do V1: índice único só é criado se
+ * a coluna ainda não tiver um (o ddl-auto cria "uk..." com hash no nome), e um
+ * índice que ficou INVALID por um build concorrente interrompido é removido e
+ * refeito (o IF NOT EXISTS sozinho o manteria inválido para sempre).
+ *
+ * Registrada como bean: o Boot passa os JavaMigration do contexto ao Flyway
+ * (e o {@link ShardingConfig} copia a configuração para cada shard).
+ */
+@Component
+public class BaselineIndexMigration implements JavaMigration {
+
+    private record Index(String name, String table, String columns, boolean unique) {
+    }
+
+    private static final List<Index> INDEXES = List.of(
+        // Unicidade de documento/e-mail (cadastro e importação em massa dependem dela)
+        new Index("ux_users_document", "users", "document", true),
+        new Index("ux_users_email", "users", "email", true),
+        // Chave do lock pessimista (findWalletByUserIdLockedNative ... FOR UPDATE):
+        // o índice único garante index scan e que o lock pega exatamente uma linha
+        new Index("ux_wallets_user_id", "wallets", "user_id", true),
+        // Histórico e conciliação filtram por remetente/recebedor e ordenam por data
+        new Index("ix_transactions_sender_timestamp", "transactions", "sender_id, timestamp", false),
+        new Index("ix_transactions_receiver_timestamp", "transactions", "receiver_id, timestamp", false)
+    );
+
+    @Override
+    public MigrationVersion getVersion() {
+        return MigrationVersion.fromVersion("1.1");
+    }
+
+    @Override
+    public String getDescription() {
+        return "baseline indexes";
+    }
+
+    @Override
+    public Integer getChecksum() {
+        return null;
+    }
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return false;
+    }
+
+    @Override
+    public void migrate(Context context) {
+        JdbcTemplate jdbc = new JdbcTemplate(new SingleConnectionDataSource(context.getConnection(), true));
+        for (Index index : INDEXES) {
+            if (index.unique() && hasOtherUniqueIndex(jdbc, index)) {
+                continue;
+            }
+            if (isInvalid(jdbc, index.name())) {
+                jdbc.execute("DROP INDEX CONCURRENTLY IF EXISTS " + index.name());
+            }
+            jdbc.execute("CREATE " + (index.unique() ? "UNIQUE " : "") + "INDEX CONCURRENTLY IF NOT EXISTS "
+                + index.name() + " ON " + index.table() + " (" + index.columns() + ")");
+        }
+    }
+
+    // Índice único válido de uma coluna só, com outro nome (o "uk..." do ddl-auto)
+    private static boolean hasOtherUniqueIndex(JdbcTemplate jdbc, Index index) {
+        Boolean exists = jdbc.queryForObject("""
+            SELECT EXISTS (
+                SELECT 1
+                  FROM pg_index i
+                  JOIN pg_class c ON c.oid = i.indexrelid
+                  JOIN pg_attribute a ON a.attrelid = i.indrelid AND a.attnum = i.indkey[0]
+                 WHERE i.indrelid = ?::regclass
+                   AND i.indisunique
+                   AND i.indisvalid
+                   AND i.indnkeyatts = 1
+                   AND a.attname = ?
+                   AND c.relname <> ?
+            )
+            """, Boolean.class, index.table(), index.columns(), index.name());
+        return Boolean.TRUE.equals(exists);
+    }
+
+    private static boolean isInvalid(JdbcTemplate jdbc, String name) {
+        Boolean invalid = jdbc.queryForObject("""
+            SELECT EXISTS (
+                SELECT 1
+                  FROM pg_index i
+                  JOIN pg_class c ON c.oid = i.indexrelid
+                 WHERE c.relname = ?
+                   AND c.relnamespace = current_schema()::regnamespace
+                   AND NOT i.indisvalid
+            )
+            """, Boolean.class, name);
+        return Boolean.TRUE.equals(invalid);
+    }
+}
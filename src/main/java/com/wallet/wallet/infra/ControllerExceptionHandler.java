@@ -1,16 +1,26 @@
 package com.wallet.wallet.infra;
 
+import com.wallet.wallet.domain.DomainException;
 import com.wallet.wallet.dtos.ExceptionDTO;
+import com.wallet.wallet.services.AdmissionControlService;
+import com.wallet.wallet.services.PasswordHashingService;
+import com.wallet.wallet.services.WalletLockStripes;
 import jakarta.persistence.EntityNotFoundException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.bind.support.WebExchangeBindException;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -23,6 +33,9 @@ import java.util.Map;
  * - Erros de integridade de dados (duplicatas)
  * - Recursos não encontrados
  * - Argumentos ilegais
+ * - Recusas de negócio ({@link DomainException}: status e corpo já vêm prontos na exceção)
+ * - Sobrecarga (fila de hashing cheia, controle de admissão)
+ * - Disputa de lock e timeouts no banco (após as novas tentativas)
  * - Erros gerais
  */
 @RestControllerAdvice
@@ -48,6 +61,18 @@ public class ControllerExceptionHandler {
         return ResponseEntity.badRequest().body(errors);
     }
 
+    /**
+     * Mesmo tratamento de validação para a stack reativa (perfil "reactive").
+     */
+    @ExceptionHandler(WebExchangeBindException.class)
+    public ResponseEntity<Map<String, String>> handleReactiveValidationErrors(WebExchangeBindException exception) {
+        Map<String, String> errors = new HashMap<>();
+        exception.getFieldErrors().forEach(error -> errors.put(error.getField(), error.getDefaultMessage()));
+
+        logger.warn("Erro de validação de entrada: {}", errors);
+        return ResponseEntity.badRequest().body(errors);
+    }
+
     /**
      * Trata violações de integridade (ex: email ou documento duplicado).
      */
@@ -77,7 +102,7 @@ public class ControllerExceptionHandler {
     }
 
     /**
-     * Trata argumentos ilegais (ex: transação de lojista, saldo insuficiente).
+     * Trata argumentos ilegais.
      */
     @ExceptionHandler(IllegalArgumentException.class)
     public ResponseEntity<ExceptionDTO> handleIllegalArgument(IllegalArgumentException exception) {
@@ -86,6 +111,75 @@ public class ControllerExceptionHandler {
         return ResponseEntity.badRequest().body(exceptionDTO);
     }
 
+    /**
+     * Trata recusas de negócio (saldo insuficiente, lojista, autorizador, não encontrado).
+     * São resultados esperados: log em DEBUG, sem stack, corpo pré-montado.
+     */
+    @ExceptionHandler(DomainException.class)
+    public ResponseEntity<ExceptionDTO> handleDomainException(DomainException exception) {
+        logger.debug("Operação recusada: {}", exception.getMessage());
+        return ResponseEntity.status(exception.getStatus()).body(exception.getBody());
+    }
+
+    /**
+     * Trata rejeição de cadastro por fila de hashing cheia (503 + Retry-After).
+     */
+    @ExceptionHandler(PasswordHashingService.HashingRejectedException.class)
+    public ResponseEntity<ExceptionDTO> handleHashingRejected(PasswordHashingService.HashingRejectedException exception) {
+        logger.warn("Cadastro rejeitado: {}", exception.getMessage());
+        return ResponseEntity.status(exception.getStatus())
+            .header(HttpHeaders.RETRY_AFTER, "1")
+            .body(exception.getBody());
+    }
+
+    /**
+     * Trata transferências recusadas pelo controle de admissão (429 + Retry-After).
+     */
+    @ExceptionHandler(AdmissionControlService.TransferRejectedException.class)
+    public ResponseEntity<ExceptionDTO> handleTransferRejected(AdmissionControlService.TransferRejectedException exception) {
+        logger.debug("Transferência recusada: {}", exception.getMessage());
+        return ResponseEntity.status(exception.getStatus())
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(exception.getRetryAfterSeconds()))
+            .body(exception.getBody());
+    }
+
+    /**
+     * Trata espera longa pelo lock local da carteira, antes da transação (409 + Retry-After).
+     */
+    @ExceptionHandler(WalletLockStripes.LockTimeoutException.class)
+    public ResponseEntity<ExceptionDTO> handleLocalLockTimeout(WalletLockStripes.LockTimeoutException exception) {
+        logger.debug("Transferência recusada: {}", exception.getMessage());
+        return ResponseEntity.status(exception.getStatus())
+            .header(HttpHeaders.RETRY_AFTER, "1")
+            .body(exception.getBody());
+    }
+
+    /**
+     * Trata lock de carteira não obtido (lock_timeout ou deadlock) ou conflito de versão
+     * (estratégia OPTIMISTIC) mesmo após as novas tentativas (409 + Retry-After).
+     * A transação inteira foi desfeita: o cliente pode reenviar.
+     */
+    @ExceptionHandler({PessimisticLockingFailureException.class, OptimisticLockingFailureException.class})
+    public ResponseEntity<ExceptionDTO> handleLockFailure(ConcurrencyFailureException exception) {
+        logger.warn("Transferência abortada por disputa de lock: {}", exception.getClass().getSimpleName());
+        ExceptionDTO exceptionDTO = new ExceptionDTO("Carteira em uso por outra transferência. Tente novamente.", "409");
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+            .header(HttpHeaders.RETRY_AFTER, "1")
+            .body(exceptionDTO);
+    }
+
+    /**
+     * Trata statement cancelado por statement_timeout (503 + Retry-After).
+     */
+    @ExceptionHandler(QueryTimeoutException.class)
+    public ResponseEntity<ExceptionDTO> handleQueryTimeout(QueryTimeoutException exception) {
+        logger.warn("Operação abortada por timeout no banco: {}", exception.getMessage());
+        ExceptionDTO exceptionDTO = new ExceptionDTO("Banco de dados lento. Tente novamente.", "503");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, "1")
+            .body(exceptionDTO);
+    }
+
     /**
      * Fallback para exceções gerais não tratadas.
      */
@@ -0,0 +1,116 @@
+package com.wallet.wallet.infra;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Endpoint Actuator para gravações JFR sob demanda.
+ *
+ * - POST /actuator/flightrecorder {"durationSeconds": 60, "maxSizeMb": 50} inicia uma gravação
+ * - GET  /actuator/flightrecorder mostra o estado da gravação atual
+ * - GET  /actuator/flightrecorder/jfr baixa o arquivo .jfr
+ *
+ * Só existe uma gravação por vez, sempre limitada em duração e tamanho.
+ * Inclui os eventos com.wallet.* (locks, autorização, commits) além das
+ * configurações padrão do JDK. Desabilitado por padrão
+ * (management.endpoint.flightrecorder.access).
+ */
+@Component
+@Endpoint(id = "flightrecorder")
+public class FlightRecorderEndpoint {
+
+    private final int maxDurationSeconds;
+    private final int maxSizeMb;
+
+    private Recording recording;
+    private Path lastDump;
+
+    public FlightRecorderEndpoint(
+            @Value("${wallet.jfr.max-duration-seconds:600}") int maxDurationSeconds,
+            @Value("${wallet.jfr.max-size-mb:100}") int maxSizeMb) {
+        this.maxDurationSeconds = maxDurationSeconds;
+        this.maxSizeMb = maxSizeMb;
+    }
+
+    @ReadOperation
+    public synchronized Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        if (recording == null) {
+            status.put("state", "NONE");
+            return status;
+        }
+        status.put("state", recording.getState().name());
+        status.put("startTime", recording.getStartTime());
+        status.put("duration", recording.getDuration());
+        status.put("maxSizeBytes", recording.getMaxSize());
+        status.put("sizeBytes", recording.getSize());
+        return status;
+    }
+
+    @WriteOperation
+    public synchronized Map<String, Object> start(@Nullable Integer durationSeconds, @Nullable Integer maxSizeMb)
+            throws IOException, ParseException {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            throw new IllegalStateException("Já existe uma gravação em andamento");
+        }
+        closeRecording();
+
+        int duration = Math.min(durationSeconds == null ? 60 : durationSeconds, maxDurationSeconds);
+        int size = Math.min(maxSizeMb == null ? 50 : maxSizeMb, this.maxSizeMb);
+
+        Recording newRecording = new Recording(Configuration.getConfiguration("default"));
+        newRecording.setName("wallet-on-demand");
+        newRecording.enable(WalletLockAcquiredEvent.class);
+        newRecording.enable(AuthorizationCallEvent.class);
+        newRecording.enable(TransferCommittedEvent.class);
+        newRecording.setToDisk(true);
+        newRecording.setDuration(Duration.ofSeconds(duration));
+        newRecording.setMaxSize(size * 1024L * 1024L);
+        newRecording.start();
+        recording = newRecording;
+
+        return status();
+    }
+
+    @ReadOperation(produces = "application/octet-stream")
+    public synchronized Resource dump(@Selector String format) throws IOException {
+        if (!"jfr".equals(format)) {
+            throw new IllegalArgumentException("Formato não suportado: " + format);
+        }
+        if (recording == null || recording.getState() == RecordingState.NEW) {
+            throw new IllegalStateException("Nenhuma gravação disponível");
+        }
+
+        if (lastDump != null) {
+            Files.deleteIfExists(lastDump);
+        }
+        lastDump = Files.createTempFile("wallet-", ".jfr");
+        recording.dump(lastDump);
+        return new FileSystemResource(lastDump);
+    }
+
+    private void closeRecording() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+}
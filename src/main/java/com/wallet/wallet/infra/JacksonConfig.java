@@ -0,0 +1,27 @@
+package com.wallet.wallet.infra;
+
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.NativeDetector;
+
+/**
+ * Ajustes do ObjectMapper do Boot (MVC, WebFlux e Actuator usam o mesmo).
+ *
+ * Blackbird gera acessores via LambdaMetafactory para getters, setters e
+ * construtores: serialização sem Method.invoke por campo. Só na JVM: a imagem
+ * nativa não gera classes em runtime e fica com a reflexão padrão.
+ */
+@Configuration
+public class JacksonConfig {
+
+    @Bean
+    public Jackson2ObjectMapperBuilderCustomizer blackbirdCustomizer() {
+        return builder -> {
+            if (!NativeDetector.inNativeImage()) {
+                builder.postConfigurer(objectMapper -> objectMapper.registerModule(new BlackbirdModule()));
+            }
+        };
+    }
+}
@@ -8,6 +8,11 @@ import java.math.BigDecimal;
  */
 public class LogMasker {
 
+    /**
+     * Resolvido uma única vez: System.getenv a cada chamada aparecia nos perfis de CPU.
+     */
+    private static final boolean DEVELOPMENT = resolveDevelopment();
+
     private LogMasker() {
         // Classe utilitária - não deve ser instanciada
     }
@@ -119,6 +124,10 @@ public class LogMasker {
      * @return true se for ambiente de desenvolvimento
      */
     private static boolean isDevelopment() {
+        return DEVELOPMENT;
+    }
+
+    private static boolean resolveDevelopment() {
         String env = System.getenv("SPRING_PROFILES_ACTIVE");
         return env != null && (env.contains("dev") || env.contains("test"));
     }
@@ -0,0 +1,64 @@
+package com.wallet.wallet.infra;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executores dedicados ao hashing de senhas.
+ *
+ * O hash (BCrypt ~100ms de CPU) fica em um pool pequeno com fila limitada, que
+ * limita quantos hashes disputam CPU com as transferências. Quando a fila
+ * enche, o executor rejeita na hora (AbortPolicy) e o cadastro falha rápido
+ * com 503.
+ *
+ * A importação em massa tem o próprio pool: um arquivo grande enche a fila
+ * dela, não a dos cadastros individuais.
+ */
+@Configuration
+public class PasswordHashingConfig {
+
+    @Bean
+    public ThreadPoolExecutor passwordHashingExecutor(
+            @Value("${wallet.security.password.hashing.threads:2}") int threads,
+            @Value("${wallet.security.password.hashing.queue-capacity:64}") int queueCapacity,
+            MeterRegistry meterRegistry) {
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            threads, threads,
+            0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            new CustomizableThreadFactory("password-hash-"),
+            new ThreadPoolExecutor.AbortPolicy());
+
+        // executor.queued, executor.queue.remaining, executor.active, ...
+        new ExecutorServiceMetrics(executor, "password.hashing", Tags.empty()).bindTo(meterRegistry);
+        return executor;
+    }
+
+    @Bean
+    public ThreadPoolExecutor passwordImportHashingExecutor(
+            @Value("${wallet.security.password.hashing.import-threads:2}") int threads,
+            @Value("${wallet.security.password.hashing.import-queue-capacity:64}") int queueCapacity,
+            MeterRegistry meterRegistry) {
+
+        // Sem CallerRunsPolicy aqui: o hashAll roda no chamador o que for rejeitado
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            threads, threads,
+            0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            new CustomizableThreadFactory("password-import-hash-"),
+            new ThreadPoolExecutor.AbortPolicy());
+
+        new ExecutorServiceMetrics(executor, "password.hashing.import", Tags.empty()).bindTo(meterRegistry);
+        return executor;
+    }
+}
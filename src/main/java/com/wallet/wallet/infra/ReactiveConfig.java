@@ -0,0 +1,113 @@
+package com.wallet.wallet.infra;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.netty.channel.ChannelOption;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+
+import java.time.Duration;
+
+/**
+ * Infraestrutura da stack reativa (perfil "reactive").
+ *
+ * O auto-configure do R2DBC fica desligado em {@code WalletApplication}: com um
+ * R2dbcTransactionManager no contexto o Boot não criaria o JpaTransactionManager
+ * que os serviços MVC usam. Por isso o gerenciador de transação reativo não é
+ * bean — só o {@link TransactionalOperator} construído sobre ele.
+ */
+@Configuration
+@Profile("reactive")
+@EnableConfigurationProperties(DataSourceProperties.class)
+public class ReactiveConfig {
+
+    /**
+     * Netty em vez de Tomcat: com os dois no classpath (o MVC continua no jar) o Boot
+     * escolheria o Tomcat para o WebFlux.
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    /**
+     * Com um ConnectionFactory no contexto o Boot não cria o DataSource JDBC, mas JPA e
+     * Flyway continuam precisando dele: mesmo pool Hikari, mesmas propriedades spring.datasource.*.
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionPool r2dbcConnectionFactory(
+            @Value("${wallet.r2dbc.url}") String url,
+            @Value("${spring.datasource.username}") String username,
+            @Value("${spring.datasource.password}") String password,
+            @Value("${wallet.r2dbc.pool.initial-size:5}") int initialSize,
+            @Value("${wallet.r2dbc.pool.max-size:20}") int maxSize,
+            @Value("${wallet.r2dbc.pool.max-acquire-time-ms:2000}") long maxAcquireTimeMs) {
+
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url).mutate()
+            .option(ConnectionFactoryOptions.USER, username)
+            .option(ConnectionFactoryOptions.PASSWORD, password)
+            .build();
+
+        // Espera por conexão limitada: pool esgotado falha em vez de acumular requisições
+        return new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+            .name("wallet-r2dbc")
+            .initialSize(initialSize)
+            .maxSize(maxSize)
+            .maxAcquireTime(Duration.ofMillis(maxAcquireTimeMs))
+            .build());
+    }
+
+    @Bean
+    public DatabaseClient databaseClient(ConnectionFactory connectionFactory) {
+        return DatabaseClient.create(connectionFactory);
+    }
+
+    /**
+     * Mesmo isolamento de {@code TransactionService.createTransaction} (READ_COMMITTED + FOR UPDATE).
+     */
+    @Bean
+    public TransactionalOperator transferTransactionalOperator(ConnectionFactory connectionFactory) {
+        DefaultTransactionDefinition definition = new DefaultTransactionDefinition();
+        definition.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        return TransactionalOperator.create(new R2dbcTransactionManager(connectionFactory), definition);
+    }
+
+    /**
+     * Cliente não bloqueante do autorizador, com os mesmos timeouts por tentativa do RestTemplate.
+     * Construído do WebClient.Builder do Boot para manter a métrica http.client.requests.
+     */
+    @Bean
+    public WebClient authorizerWebClient(
+            WebClient.Builder builder,
+            @Value("${wallet.authorizer.connect-timeout-ms:500}") int connectTimeoutMs,
+            @Value("${wallet.authorizer.read-timeout-ms:2000}") long readTimeoutMs) {
+        HttpClient httpClient = HttpClient.create()
+            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+            .responseTimeout(Duration.ofMillis(readTimeoutMs));
+        return builder.clientConnector(new ReactorClientHttpConnector(httpClient)).build();
+    }
+}
@@ -0,0 +1,46 @@
+package com.wallet.wallet.infra;
+
+import com.wallet.wallet.services.BalanceReconciliationService;
+import com.wallet.wallet.services.BalanceReconciliationService.Progress;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Endpoint Actuator da conciliação de saldos.
+ *
+ * - POST /actuator/reconciliation inicia uma conciliação (ou devolve a que já está rodando)
+ * - GET  /actuator/reconciliation mostra progresso, vazão e divergências
+ *
+ * Desabilitado por padrão (management.endpoint.reconciliation.access).
+ */
+@Component
+@Endpoint(id = "reconciliation")
+public class ReconciliationEndpoint {
+
+    private final BalanceReconciliationService reconciliationService;
+
+    public ReconciliationEndpoint(BalanceReconciliationService reconciliationService) {
+        this.reconciliationService = reconciliationService;
+    }
+
+    @ReadOperation
+    public Object status() {
+        Progress progress = reconciliationService.progress();
+        if (progress == null) {
+            Map<String, Object> status = new LinkedHashMap<>();
+            status.put("state", "NONE");
+            return status;
+        }
+        return progress;
+    }
+
+    @WriteOperation
+    public Progress start() {
+        return reconciliationService.start();
+    }
+}
@@ -1,13 +1,22 @@
 package com.wallet.wallet.infra;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+
+import java.util.Map;
 
 /**
  * Security configuration for Wallet API.
@@ -16,37 +25,86 @@ import org.springframework.security.web.SecurityFilterChain;
  * Production requires JWT or OAuth2 implementation.
  */
 @Configuration
-@EnableWebSecurity
 public class SecurityConfig {
 
-    @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
-        http
-            .csrf(AbstractHttpConfigurer::disable)
-            .authorizeHttpRequests(auth -> auth
-                // LIBERA TUDO DO SWAGGER (Caminho antigo e novo)
-                .requestMatchers(
-                    "/v3/api-docs/**", 
-                    "/api-docs/**", 
-                    "/swagger-ui/**", 
-                    "/swagger-ui.html"
-                ).permitAll()
+    @Configuration
+    @EnableWebSecurity
+    @Profile("!reactive")
+    static class ServletSecurity {
+
+        @Bean
+        public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+            http
+                .csrf(AbstractHttpConfigurer::disable)
+                .authorizeHttpRequests(auth -> auth
+                    // LIBERA TUDO DO SWAGGER (Caminho antigo e novo)
+                    .requestMatchers(
+                        "/v3/api-docs/**", 
+                        "/api-docs/**", 
+                        "/swagger-ui/**", 
+                        "/swagger-ui.html"
+                    ).permitAll()
                 
-                // LIBERA O HEALTH CHECK DA AWS
-                .requestMatchers("/actuator/**").permitAll()
+                    // LIBERA O HEALTH CHECK DA AWS
+                    .requestMatchers("/actuator/**").permitAll()
                 
-                // LIBERA SEUS ENDPOINTS (MVP - TODO: Implementar JWT)
-                .requestMatchers("/users/**", "/transactions/**").permitAll()
+                    // LIBERA SEUS ENDPOINTS (MVP - TODO: Implementar JWT)
+                    .requestMatchers("/users/**", "/transactions/**").permitAll()
                 
-                // O RESTO PRECISA DE LOGIN
-                .anyRequest().authenticated()
-            );
+                    // O RESTO PRECISA DE LOGIN
+                    .anyRequest().authenticated()
+                );
         
-        return http.build();
+            return http.build();
+        }
     }
 
+    /**
+     * Same rules for the reactive stack ("reactive" profile).
+     */
+    @Configuration
+    @EnableWebFluxSecurity
+    @Profile("reactive")
+    static class ReactiveSecurity {
+
+        @Bean
+        public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http) {
+            return http
+                .csrf(ServerHttpSecurity.CsrfSpec::disable)
+                .authorizeExchange(exchange -> exchange
+                    .pathMatchers("/v3/api-docs/**", "/api-docs/**", "/swagger-ui/**", "/swagger-ui.html").permitAll()
+                    .pathMatchers("/actuator/**").permitAll()
+                    .pathMatchers("/users/**", "/transactions/**").permitAll()
+                    .anyExchange().authenticated()
+                )
+                .build();
+        }
+    }
+
+    /**
+     * Password encoder with configurable algorithm and cost.
+     *
+     * New hashes are prefixed with the algorithm id (e.g. {bcrypt}, {pbkdf2});
+     * legacy unprefixed hashes are still matched as BCrypt.
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(
+            @Value("${wallet.security.password.algorithm:bcrypt}") String algorithm,
+            @Value("${wallet.security.password.bcrypt-strength:10}") int bcryptStrength,
+            @Value("${wallet.security.password.pbkdf2-iterations:310000}") int pbkdf2Iterations) {
+
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(bcryptStrength);
+        Map<String, PasswordEncoder> encoders = Map.of(
+            "bcrypt", bcrypt,
+            "pbkdf2", new Pbkdf2PasswordEncoder("", 16, pbkdf2Iterations,
+                Pbkdf2PasswordEncoder.SecretKeyFactoryAlgorithm.PBKDF2WithHmacSHA256));
+
+        if (!encoders.containsKey(algorithm)) {
+            throw new IllegalStateException("Unsupported password hashing algorithm: " + algorithm);
+        }
+
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(algorithm, encoders);
+        encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        return encoder;
     }
 }
\ No newline at end of file
@@ -0,0 +1,53 @@
+package com.wallet.wallet.infra;
+
+import com.wallet.wallet.services.ShardRouter;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DataSource do perfil "sharded": cada conexão vem do pool do shard corrente
+ * ({@link ShardRouter#currentShard()}); sem shard definido, do shard 0.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    private final List<DataSource> shards;
+
+    public ShardRoutingDataSource(List<DataSource> shards) {
+        this.shards = List.copyOf(shards);
+        Map<Object, Object> targets = new HashMap<>();
+        for (int i = 0; i < shards.size(); i++) {
+            targets.put(i, shards.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(shards.get(0));
+        // Shard inexistente é bug de roteamento, não deve cair no shard 0
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    public List<DataSource> shards() {
+        return shards;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ShardRouter.currentShard();
+    }
+
+    /**
+     * Os pools dos shards não são beans: fecha junto com o contexto.
+     */
+    @Override
+    public void close() {
+        shards.forEach(shard -> {
+            if (shard instanceof HikariDataSource hikari) {
+                hikari.close();
+            }
+        });
+    }
+}
@@ -0,0 +1,77 @@
+package com.wallet.wallet.infra;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.SQLErrorCodeSQLExceptionTranslator;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shards de banco (perfil "sharded").
+ *
+ * Um pool Hikari por URL de wallet.sharding.urls, atrás de um
+ * {@link ShardRoutingDataSource} que substitui o DataSource do Boot: JPA,
+ * JdbcTemplate e as transações usam o shard corrente de {@code ShardRouter}.
+ * As migrações rodam em todos os shards (mesmo esquema em cada um); o Hibernate
+ * valida só no shard 0.
+ *
+ * Não combina com o perfil "reactive" (R2DBC usa um único banco).
+ */
+@Configuration
+@Profile("sharded & !reactive")
+public class ShardingConfig {
+
+    @Bean
+    @Primary
+    public ShardRoutingDataSource dataSource(
+            @Value("${wallet.sharding.urls}") List<String> urls,
+            @Value("${spring.datasource.username}") String username,
+            @Value("${spring.datasource.password}") String password,
+            @Value("${wallet.sharding.pool-size:10}") int poolSize) {
+        List<DataSource> shards = new ArrayList<>();
+        for (String url : urls) {
+            HikariDataSource shard = new HikariDataSource();
+            shard.setPoolName("shard-" + shards.size());
+            shard.setJdbcUrl(url.trim());
+            shard.setUsername(username);
+            shard.setPassword(password);
+            shard.setMaximumPoolSize(poolSize);
+            shard.addDataSourceProperty("reWriteBatchedInserts", "true");
+            shards.add(shard);
+        }
+        return new ShardRoutingDataSource(shards);
+    }
+
+    /**
+     * Os passos da saga usam JdbcTemplate. Sem sql-error-codes.xml próprio, o Spring 6
+     * não traduz o 55P03 (lock_timeout) para CannotAcquireLockException e o
+     * transferLockRetry não repetiria o passo: usa os códigos do PostgreSQL.
+     */
+    @Bean
+    public JdbcTemplate jdbcTemplate(ShardRoutingDataSource dataSource) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setExceptionTranslator(new SQLErrorCodeSQLExceptionTranslator("PostgreSQL"));
+        return jdbcTemplate;
+    }
+
+    /**
+     * Migra cada shard com a mesma configuração do Flyway do Boot.
+     */
+    @Bean
+    public FlywayMigrationStrategy shardedFlywayMigration(ShardRoutingDataSource dataSource) {
+        return flyway -> dataSource.shards().forEach(shard -> Flyway.configure()
+            .configuration(flyway.getConfiguration())
+            .dataSource(shard)
+            .load()
+            .migrate());
+    }
+}
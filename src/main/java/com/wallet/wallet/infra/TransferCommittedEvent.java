@@ -0,0 +1,42 @@
+package com.wallet.wallet.infra;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Evento JFR emitido após o commit de uma transferência.
+ * A duração cobre desde a entrada em createTransaction até o commit.
+ */
+@Name("com.wallet.TransferCommitted")
+@Label("Transfer Committed")
+@Description("Transferência confirmada no banco")
+@Category({"Wallet", "Transfers"})
+@StackTrace(false)
+public class TransferCommittedEvent extends Event {
+
+    @Label("Sender Wallet ID")
+    String senderWalletId;
+
+    @Label("Receiver Wallet ID")
+    String receiverWalletId;
+
+    @Label("Lock Hold")
+    @Description("Tempo entre a aquisição do lock do remetente e o commit")
+    @Timespan(Timespan.NANOSECONDS)
+    long lockHold;
+
+    public void commit(String senderWalletId, String receiverWalletId, long lockHoldNanos) {
+        end();
+        if (shouldCommit()) {
+            this.senderWalletId = LogMasker.maskUserId(senderWalletId);
+            this.receiverWalletId = LogMasker.maskUserId(receiverWalletId);
+            this.lockHold = lockHoldNanos;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.wallet.wallet.infra;
+
+import com.wallet.wallet.domain.DomainException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Métricas do pipeline de transferência.
+ *
+ * - wallet.transfer{outcome}: duração total por resultado
+ * - wallet.transfer.phase{phase, outcome}: duração de cada fase
+ *
+ * O resultado é registrado uma vez por transferência, não por tentativa: a
+ * autorização roda uma vez e só a parte de banco (TransferTransactions) é
+ * repetida. Falhas de lock, timeouts e conflitos de versão da estratégia
+ * OPTIMISTIC (outcome lock_failure / timeout / version_conflict) só aparecem
+ * quando todas as tentativas falharam; as novas tentativas ficam em
+ * resilience4j.retry.calls{name="transferLockRetry"} e {name="transferOptimisticRetry"}.
+ *
+ * Os timers são registrados na inicialização para que o caminho quente não
+ * faça lookup no registry.
+ */
+@Component
+public class TransferMetrics {
+
+    public enum Phase {
+        USER_LOOKUP("user_lookup"),
+        AUTHORIZATION("authorization"),
+        LOCK_WAIT("lock_wait"),
+        LOCK_HOLD("lock_hold"),
+        INSERT("insert");
+
+        private final String tag;
+
+        Phase(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    public enum Outcome {
+        SUCCESS("success"),
+        INSUFFICIENT_FUNDS("insufficient_funds"),
+        UNAUTHORIZED("unauthorized"),
+        REJECTED("rejected"),
+        NOT_FOUND("not_found"),
+        LOCK_FAILURE("lock_failure"),
+        VERSION_CONFLICT("version_conflict"),
+        TIMEOUT("timeout"),
+        ERROR("error");
+
+        private final String tag;
+
+        Outcome(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private final Timer[] totalTimers = new Timer[Outcome.values().length];
+    private final Timer[][] phaseTimers = new Timer[Phase.values().length][Outcome.values().length];
+
+    public TransferMetrics(MeterRegistry meterRegistry) {
+        for (Outcome outcome : Outcome.values()) {
+            totalTimers[outcome.ordinal()] = Timer.builder("wallet.transfer")
+                .description("Duração total de createTransaction")
+                .tag("outcome", outcome.tag)
+                .register(meterRegistry);
+
+            for (Phase phase : Phase.values()) {
+                phaseTimers[phase.ordinal()][outcome.ordinal()] = Timer.builder("wallet.transfer.phase")
+                    .description("Duração de cada fase de createTransaction")
+                    .tag("phase", phase.tag)
+                    .tag("outcome", outcome.tag)
+                    .register(meterRegistry);
+            }
+        }
+    }
+
+    /**
+     * Registra as fases percorridas e a duração total da transferência.
+     * Fases não alcançadas (ex: lock em transferência não autorizada) não são registradas.
+     */
+    public void record(TransferPhaseTimer timer, Outcome outcome) {
+        for (Phase phase : Phase.values()) {
+            long nanos = timer.phaseNanos(phase);
+            if (nanos > 0) {
+                phaseTimers[phase.ordinal()][outcome.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+            }
+        }
+        totalTimers[outcome.ordinal()].record(timer.elapsedNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Classifica uma recusa de negócio pelo tipo da exceção.
+     */
+    public static Outcome outcomeOf(DomainException exception) {
+        if (exception instanceof DomainException.InsufficientFundsException) {
+            return Outcome.INSUFFICIENT_FUNDS;
+        }
+        if (exception instanceof DomainException.TransactionNotAuthorizedException) {
+            return Outcome.UNAUTHORIZED;
+        }
+        if (exception instanceof DomainException.UserNotFoundException
+                || exception instanceof DomainException.WalletNotFoundException) {
+            return Outcome.NOT_FOUND;
+        }
+        return Outcome.REJECTED;
+    }
+
+    /**
+     * Classifica qualquer falha da transferência (onde não há catch por tipo, ex: stack reativa).
+     */
+    public static Outcome outcomeOf(Throwable failure) {
+        if (failure instanceof DomainException domainException) {
+            return outcomeOf(domainException);
+        }
+        if (failure instanceof PessimisticLockingFailureException) {
+            return Outcome.LOCK_FAILURE;
+        }
+        if (failure instanceof OptimisticLockingFailureException) {
+            return Outcome.VERSION_CONFLICT;
+        }
+        if (failure instanceof QueryTimeoutException) {
+            return Outcome.TIMEOUT;
+        }
+        return Outcome.ERROR;
+    }
+}
@@ -0,0 +1,49 @@
+package com.wallet.wallet.infra;
+
+/**
+ * Cronômetro de uma transferência, acumulando o tempo gasto em cada fase.
+ *
+ * Não é thread-safe: cada chamada de createTransaction cria o seu.
+ */
+public class TransferPhaseTimer {
+
+    private final long startNanos;
+    private final long[] phaseNanos = new long[TransferMetrics.Phase.values().length];
+    private long lastNanos;
+
+    public TransferPhaseTimer() {
+        this.startNanos = System.nanoTime();
+        this.lastNanos = startNanos;
+    }
+
+    /**
+     * Atribui à fase o tempo decorrido desde a última marcação.
+     */
+    public void lap(TransferMetrics.Phase phase) {
+        long now = System.nanoTime();
+        phaseNanos[phase.ordinal()] += now - lastNanos;
+        lastNanos = now;
+    }
+
+    /**
+     * Reinicia a marcação sem atribuir o intervalo a nenhuma fase.
+     */
+    public void mark() {
+        lastNanos = System.nanoTime();
+    }
+
+    /**
+     * Mede uma fase que se sobrepõe às demais (ex: lock hold), sem mexer na marcação.
+     */
+    public void record(TransferMetrics.Phase phase, long sinceNanos) {
+        phaseNanos[phase.ordinal()] = System.nanoTime() - sinceNanos;
+    }
+
+    public long phaseNanos(TransferMetrics.Phase phase) {
+        return phaseNanos[phase.ordinal()];
+    }
+
+    public long elapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+}
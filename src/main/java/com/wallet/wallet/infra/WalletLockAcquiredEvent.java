@@ -0,0 +1,38 @@
+package com.wallet.wallet.infra;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Evento JFR emitido quando o SELECT ... FOR UPDATE de uma carteira retorna.
+ * A duração do evento é o tempo de espera na fila de locks; a thread é
+ * registrada automaticamente pelo JFR (eventThread).
+ */
+@Name("com.wallet.WalletLockAcquired")
+@Label("Wallet Lock Acquired")
+@Description("Espera pelo lock pessimista de uma carteira")
+@Category({"Wallet", "Transfers"})
+@StackTrace(false)
+public class WalletLockAcquiredEvent extends Event {
+
+    @Label("Wallet ID")
+    @Description("ID da carteira mascarado via LogMasker")
+    String walletId;
+
+    @Label("Role")
+    @Description("sender ou receiver")
+    String role;
+
+    public void commit(String walletId, String role) {
+        end();
+        if (shouldCommit()) {
+            this.walletId = LogMasker.maskUserId(walletId);
+            this.role = role;
+            commit();
+        }
+    }
+}
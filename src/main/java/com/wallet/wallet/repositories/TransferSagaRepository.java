@@ -0,0 +1,129 @@
+package com.wallet.wallet.repositories;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Estado das sagas de transferência entre shards (migração V3).
+ *
+ * Sem roteamento próprio: cada chamada vai para o shard corrente
+ * ({@code ShardRouter#onShard}). transfer_sagas é lida/gravada no shard do
+ * remetente, saga_credits no shard do recebedor. Horários pelo relógio do banco.
+ */
+@Repository
+public class TransferSagaRepository {
+
+    private static final String INSERT_SQL = """
+        INSERT INTO transfer_sagas (id, transaction_id, sender_id, receiver_id, amount, status, attempts,
+                                    created_at, updated_at)
+        VALUES (?, ?, ?, ?, ?, ?, 0, ?, LOCALTIMESTAMP)
+        """;
+
+    private static final String TRANSITION_SQL = """
+        UPDATE transfer_sagas SET status = ?, last_error = NULL, updated_at = LOCALTIMESTAMP
+         WHERE id = ? AND status = ?
+        """;
+
+    private static final String RECORD_FAILURE_SQL = """
+        UPDATE transfer_sagas SET last_error = ?, updated_at = LOCALTIMESTAMP WHERE id = ?
+        """;
+
+    // Um único statement: quem pega a linha incrementa attempts, as outras instâncias pulam (SKIP LOCKED)
+    private static final String CLAIM_STUCK_SQL = """
+        UPDATE transfer_sagas SET attempts = attempts + 1, updated_at = LOCALTIMESTAMP
+         WHERE id IN (SELECT id FROM transfer_sagas
+                       WHERE status = 'DEBITED'
+                         AND updated_at < LOCALTIMESTAMP - (? * INTERVAL '1 millisecond')
+                       ORDER BY updated_at
+                       LIMIT ?
+                       FOR UPDATE SKIP LOCKED)
+        RETURNING id, transaction_id, sender_id, receiver_id, amount, created_at, attempts
+        """;
+
+    private static final String DECIDE_CREDIT_SQL = """
+        INSERT INTO saga_credits (saga_id, outcome, decided_at) VALUES (?, ?, LOCALTIMESTAMP)
+        ON CONFLICT (saga_id) DO NOTHING
+        """;
+
+    private static final RowMapper<Saga> SAGA_MAPPER = (rs, rowNum) -> new Saga(
+        rs.getString("id"),
+        rs.getString("transaction_id"),
+        rs.getString("sender_id"),
+        rs.getString("receiver_id"),
+        rs.getBigDecimal("amount"),
+        rs.getTimestamp("created_at").toLocalDateTime(),
+        rs.getInt("attempts"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TransferSagaRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Grava a saga como DEBITED (na transação do débito).
+     */
+    public void insert(Saga saga) {
+        jdbcTemplate.update(INSERT_SQL, saga.id(), saga.transactionId(), saga.senderId(), saga.receiverId(),
+            saga.amount(), Status.DEBITED.name(), saga.createdAt());
+    }
+
+    /**
+     * @return false se a saga não estava mais em {@code from} (outra instância avançou antes)
+     */
+    public boolean transition(String sagaId, Status from, Status to) {
+        return jdbcTemplate.update(TRANSITION_SQL, to.name(), sagaId, from.name()) == 1;
+    }
+
+    public void recordFailure(String sagaId, String error) {
+        String truncated = error != null && error.length() > 500 ? error.substring(0, 500) : error;
+        jdbcTemplate.update(RECORD_FAILURE_SQL, truncated, sagaId);
+    }
+
+    /**
+     * Reserva sagas DEBITED sem progresso há stuckAfterMs, contando mais uma tentativa.
+     * A reserva renova updated_at, então a mesma saga só volta após outro stuckAfterMs.
+     */
+    public List<Saga> claimStuck(long stuckAfterMs, int limit) {
+        return jdbcTemplate.query(CLAIM_STUCK_SQL, SAGA_MAPPER, stuckAfterMs, limit);
+    }
+
+    /**
+     * Decide o crédito da saga no shard do recebedor (a primeira decisão vale).
+     *
+     * @return true se esta chamada decidiu; false se já havia decisão
+     */
+    public boolean tryDecideCredit(String sagaId, CreditOutcome outcome) {
+        return jdbcTemplate.update(DECIDE_CREDIT_SQL, sagaId, outcome.name()) == 1;
+    }
+
+    public Optional<CreditOutcome> creditOutcome(String sagaId) {
+        return jdbcTemplate.query("SELECT outcome FROM saga_credits WHERE saga_id = ?",
+                (rs, rowNum) -> CreditOutcome.valueOf(rs.getString("outcome")), sagaId)
+            .stream()
+            .findFirst();
+    }
+
+    /**
+     * Transferência em andamento: débito já confirmado no shard do remetente.
+     *
+     * @param transactionId Id da linha em transactions, igual nos dois shards
+     */
+    public record Saga(String id, String transactionId, String senderId, String receiverId,
+                       BigDecimal amount, LocalDateTime createdAt, int attempts) {
+    }
+
+    public enum Status {
+        DEBITED, COMPLETED, COMPENSATED
+    }
+
+    public enum CreditOutcome {
+        APPLIED, CANCELLED
+    }
+}
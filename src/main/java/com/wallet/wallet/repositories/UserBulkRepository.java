@@ -0,0 +1,150 @@
+package com.wallet.wallet.repositories;
+
+import com.wallet.wallet.dtos.UserDTO;
+import com.wallet.wallet.services.ShardRouter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Escrita em lote de usuários e carteiras via JDBC.
+ *
+ * Usado pela importação em massa: evita o ciclo persist/flush do Hibernate
+ * por entidade e envia os INSERTs em batches (com reWriteBatchedInserts no
+ * driver do PostgreSQL, cada batch vira um único INSERT multi-valores).
+ *
+ * Com shards ({@link ShardRouter}) users é tabela replicada: cada usuário é
+ * gravado em todos os shards (unicidade de documento/email e FKs valem em
+ * qualquer um) e a carteira só no shard do usuário.
+ */
+@Slf4j
+@Repository
+public class UserBulkRepository {
+
+    private static final String INSERT_USER_SQL =
+        "INSERT INTO users (id, document, email, first_name, last_name, password, user_type) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_WALLET_SQL =
+        "INSERT INTO wallets (id, balance, user_id) VALUES (?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRouter shardRouter;
+
+    public UserBulkRepository(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                              ShardRouter shardRouter) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = transactionTemplate;
+        this.shardRouter = shardRouter;
+    }
+
+    /**
+     * Retorna quais documentos e emails do lote já existem na base.
+     *
+     * @param documents Documentos candidatos
+     * @param emails Emails candidatos
+     * @return Conjunto com os documentos e emails já cadastrados
+     */
+    public Set<String> findExistingDocumentsAndEmails(Collection<String> documents, Collection<String> emails) {
+        Set<String> existing = new HashSet<>();
+        if (documents.isEmpty() && emails.isEmpty()) {
+            return existing;
+        }
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("documents", documents.isEmpty() ? List.of("") : documents)
+            .addValue("emails", emails.isEmpty() ? List.of("") : emails);
+
+        namedJdbcTemplate.query(
+            "SELECT document, email FROM users WHERE document IN (:documents) OR email IN (:emails)",
+            params,
+            rs -> {
+                existing.add(rs.getString("document"));
+                existing.add(rs.getString("email"));
+            });
+        return existing;
+    }
+
+    /**
+     * Insere usuários e suas carteiras em uma única transação.
+     * Se qualquer linha violar uma constraint, o lote inteiro é desfeito.
+     *
+     * Com shards, uma transação por shard, sempre na mesma ordem (o shard 0 decide
+     * conflitos de documento/email entre importações simultâneas). Falha num shard
+     * apaga o lote dos shards já gravados e propaga a exceção.
+     *
+     * @param rows Linhas já validadas e com senha hasheada
+     */
+    public void insertUsersWithWallets(List<UserRow> rows) {
+        if (!shardRouter.isSharded()) {
+            transactionTemplate.executeWithoutResult(status -> insert(rows, rows));
+            return;
+        }
+
+        List<Integer> written = new ArrayList<>();
+        try {
+            for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+                int current = shard;
+                List<UserRow> homeRows = rows.stream()
+                    .filter(row -> shardRouter.shardOf(row.userId()) == current)
+                    .toList();
+                shardRouter.onShard(shard, () -> transactionTemplate.executeWithoutResult(status -> insert(rows, homeRows)));
+                written.add(shard);
+            }
+        } catch (RuntimeException e) {
+            List<String> userIds = rows.stream().map(UserRow::userId).toList();
+            for (int shard : written) {
+                try {
+                    shardRouter.onShard(shard, () -> transactionTemplate.executeWithoutResult(status -> delete(userIds)));
+                } catch (RuntimeException cleanupError) {
+                    log.error("Usuários do lote ficaram no shard {} após falha: {}", shard, cleanupError.getMessage());
+                }
+            }
+            throw e;
+        }
+    }
+
+    private void insert(List<UserRow> rows, List<UserRow> walletRows) {
+        jdbcTemplate.batchUpdate(INSERT_USER_SQL, rows, rows.size(), (ps, row) -> {
+            ps.setString(1, row.userId());
+            ps.setString(2, row.data().document());
+            ps.setString(3, row.data().email());
+            ps.setString(4, row.data().firstName());
+            ps.setString(5, row.data().lastName());
+            ps.setString(6, row.passwordHash());
+            ps.setString(7, row.data().userType().name());
+        });
+
+        if (walletRows.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_WALLET_SQL, walletRows, walletRows.size(), (ps, row) -> {
+            ps.setString(1, row.walletId());
+            ps.setBigDecimal(2, row.data().balance());
+            ps.setString(3, row.userId());
+        });
+    }
+
+    private void delete(List<String> userIds) {
+        MapSqlParameterSource params = new MapSqlParameterSource("userIds", userIds);
+        namedJdbcTemplate.update("DELETE FROM wallets WHERE user_id IN (:userIds)", params);
+        namedJdbcTemplate.update("DELETE FROM users WHERE id IN (:userIds)", params);
+    }
+
+    /**
+     * Linha pronta para inserção: IDs gerados na aplicação e senha já hasheada.
+     */
+    public record UserRow(String userId, String walletId, UserDTO data, String passwordHash) {
+    }
+}
@@ -5,6 +5,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.math.BigDecimal;
 import java.util.Optional;
 
 @Repository
@@ -21,4 +22,21 @@ public interface WalletRepository extends JpaRepository<Wallet, String> {
      */
     @Query(value = "SELECT w.* FROM wallets w WHERE w.user_id = :userId FOR UPDATE", nativeQuery = true)
     Optional<Wallet> findWalletByUserIdLockedNative(@Param("userId") String userId);
+
+    /**
+     * Reads the wallet without locking (optimistic strategy).
+     *
+     * The version read here is checked by the UPDATE on flush.
+     *
+     * @param userId Wallet owner ID
+     * @return Wallet or empty if not found
+     */
+    @Query("SELECT w FROM wallets w WHERE w.user.id = :userId")
+    Optional<Wallet> findWalletByUserId(@Param("userId") String userId);
+
+    /**
+     * Reads only the balance column (no lock, no entity).
+     */
+    @Query("SELECT w.balance FROM wallets w WHERE w.user.id = :userId")
+    Optional<BigDecimal> findBalanceByUserId(@Param("userId") String userId);
 }
\ No newline at end of file
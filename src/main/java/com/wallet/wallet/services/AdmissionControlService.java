@@ -0,0 +1,195 @@
+package com.wallet.wallet.services;
+
+import com.wallet.wallet.domain.DomainException;
+import com.wallet.wallet.dtos.ExceptionDTO;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Controle de admissão para transferências.
+ *
+ * Roda ANTES da transação (e portanto antes de pegar conexão do pool e entrar
+ * na fila de locks do PostgreSQL). Limita transferências simultâneas por
+ * carteira e no total, e recusa novas entradas quando já há threads demais
+ * esperando conexão no Hikari. Recusas viram 429 com Retry-After, em vez de
+ * acumular requisições até estourar timeouts.
+ */
+@Service
+@Slf4j
+public class AdmissionControlService {
+
+    private static final ExceptionDTO OVERLOADED =
+        new ExceptionDTO("Sistema sobrecarregado, tente novamente", "429");
+    private static final ExceptionDTO WALLET_BUSY =
+        new ExceptionDTO("Muitas transferências simultâneas para esta carteira, tente novamente", "429");
+
+    private final ConcurrentHashMap<String, Integer> inFlightByWallet = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlightTotal = new AtomicInteger();
+
+    private final DataSource dataSource;
+    private final boolean enabled;
+    private final int maxInFlightPerWallet;
+    private final int maxInFlightTotal;
+    private final int maxThreadsAwaitingConnection;
+    private final int retryAfterSeconds;
+
+    private final Counter rejectedByWallet;
+    private final Counter rejectedByTotal;
+    private final Counter rejectedByPool;
+
+    private volatile HikariPoolMXBean poolMXBean;
+
+    public AdmissionControlService(
+            MeterRegistry meterRegistry,
+            DataSource dataSource,
+            @Value("${wallet.admission.enabled:true}") boolean enabled,
+            @Value("${wallet.admission.max-in-flight-per-wallet:16}") int maxInFlightPerWallet,
+            @Value("${wallet.admission.max-in-flight-total:200}") int maxInFlightTotal,
+            @Value("${wallet.admission.max-threads-awaiting-connection:20}") int maxThreadsAwaitingConnection,
+            @Value("${wallet.admission.retry-after-seconds:1}") int retryAfterSeconds) {
+        this.dataSource = dataSource;
+        this.enabled = enabled;
+        this.maxInFlightPerWallet = maxInFlightPerWallet;
+        this.maxInFlightTotal = maxInFlightTotal;
+        this.maxThreadsAwaitingConnection = maxThreadsAwaitingConnection;
+        this.retryAfterSeconds = retryAfterSeconds;
+
+        this.rejectedByWallet = rejectedCounter(meterRegistry, "wallet");
+        this.rejectedByTotal = rejectedCounter(meterRegistry, "total");
+        this.rejectedByPool = rejectedCounter(meterRegistry, "pool");
+        Gauge.builder("wallet.transfer.admission.in_flight", inFlightTotal, AtomicInteger::get)
+            .description("Transferências admitidas em andamento")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Admite uma transferência ou recusa imediatamente.
+     * O {@link Permit} devolvido deve ser fechado ao fim da transferência (try-with-resources).
+     *
+     * @param senderId ID do remetente
+     * @param receiverId ID do recebedor
+     * @return Permissão a ser liberada ao final
+     * @throws TransferRejectedException se algum limite foi atingido
+     */
+    public Permit admit(String senderId, String receiverId) {
+        if (!enabled) {
+            return Permit.NOOP;
+        }
+
+        HikariPoolMXBean pool = poolMXBean();
+        if (pool != null && pool.getThreadsAwaitingConnection() >= maxThreadsAwaitingConnection) {
+            rejectedByPool.increment();
+            throw reject(OVERLOADED);
+        }
+
+        if (inFlightTotal.incrementAndGet() > maxInFlightTotal) {
+            inFlightTotal.decrementAndGet();
+            rejectedByTotal.increment();
+            throw reject(OVERLOADED);
+        }
+
+        if (!tryEnter(senderId)) {
+            inFlightTotal.decrementAndGet();
+            rejectedByWallet.increment();
+            throw reject(WALLET_BUSY);
+        }
+
+        String second = receiverId.equals(senderId) ? null : receiverId;
+        if (second != null && !tryEnter(second)) {
+            leave(senderId);
+            inFlightTotal.decrementAndGet();
+            rejectedByWallet.increment();
+            throw reject(WALLET_BUSY);
+        }
+
+        return () -> {
+            leave(senderId);
+            if (second != null) {
+                leave(second);
+            }
+            inFlightTotal.decrementAndGet();
+        };
+    }
+
+    int inFlight(String walletKey) {
+        return inFlightByWallet.getOrDefault(walletKey, 0);
+    }
+
+    private boolean tryEnter(String walletKey) {
+        boolean[] admitted = {false};
+        inFlightByWallet.compute(walletKey, (key, count) -> {
+            int current = count == null ? 0 : count;
+            if (current >= maxInFlightPerWallet) {
+                return count;
+            }
+            admitted[0] = true;
+            return current + 1;
+        });
+        return admitted[0];
+    }
+
+    private void leave(String walletKey) {
+        // Remove a entrada ao chegar em zero para manter o mapa limitado às carteiras ativas
+        inFlightByWallet.computeIfPresent(walletKey, (key, count) -> count <= 1 ? null : count - 1);
+    }
+
+    private TransferRejectedException reject(ExceptionDTO body) {
+        log.debug("Transferência recusada na admissão: {}", body.message());
+        return new TransferRejectedException(body, retryAfterSeconds);
+    }
+
+    private HikariPoolMXBean poolMXBean() {
+        HikariPoolMXBean pool = poolMXBean;
+        if (pool == null && dataSource instanceof HikariDataSource hikari) {
+            // Só fica disponível depois que o pool é inicializado
+            pool = hikari.getHikariPoolMXBean();
+            poolMXBean = pool;
+        }
+        return pool;
+    }
+
+    private static Counter rejectedCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("wallet.transfer.admission.rejected")
+            .description("Transferências recusadas pelo controle de admissão")
+            .tag("reason", reason)
+            .register(meterRegistry);
+    }
+
+    /**
+     * Permissão de admissão; fechar libera as vagas ocupadas.
+     */
+    @FunctionalInterface
+    public interface Permit extends AutoCloseable {
+        Permit NOOP = () -> { };
+
+        @Override
+        void close();
+    }
+
+    /**
+     * Transferência recusada por sobrecarga (mapeada para 429 + Retry-After).
+     */
+    public static class TransferRejectedException extends DomainException {
+        private final int retryAfterSeconds;
+
+        public TransferRejectedException(ExceptionDTO body, int retryAfterSeconds) {
+            super(HttpStatus.TOO_MANY_REQUESTS, body);
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        public int getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+    }
+}
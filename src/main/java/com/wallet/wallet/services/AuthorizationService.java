@@ -1,10 +1,12 @@
 package com.wallet.wallet.services;
 
+import com.wallet.wallet.infra.LogMasker;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import io.github.resilience4j.retry.annotation.Retry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
@@ -21,6 +23,8 @@ import java.util.Map;
  * - Circuit Breaker: Se o autorizador falhar repetidamente, abre o circuito e falha rápido
  * - Retry com Backoff Exponencial: Tenta novamente com espera crescente entre tentativas
  * - Fallback: Se falhar, nega a transação com mensagem clara
+ * - Bulkhead adaptativo: {@link AuthorizerConcurrencyLimiter} limita chamadas simultâneas
+ * - Hedging opcional: {@link HedgedRequestExecutor} duplica chamadas lentas (cauda de latência)
  * 
  * ⚠️ NÃO trava threads do banco — a lógica de autorização é independente da transação
  */
@@ -32,18 +36,29 @@ public class AuthorizationService {
     @Autowired
     private RestTemplate restTemplate;
 
+    @Autowired
+    private AuthorizerConcurrencyLimiter concurrencyLimiter;
+
+    @Autowired
+    private HedgedRequestExecutor hedgedRequestExecutor;
+
+    @Value("${wallet.authorizer.url:https://run.mocky.io/v3/5794d450-d2e2-4412-8131-73d0293ac1cc}")
+    private String authorizerUrl;
+
     /**
      * Autoriza uma transação via API externa (Mocky).
      * 
      * Configuração de Resiliência:
      * - Circuit Breaker: Abre após 5 falhas consecutivas, fechado após 30s
      * - Retry: Tenta até 3 vezes com backoff exponencial (100ms inicial, multiplicador 2x)
-     * - Timeout: 3 segundos por tentativa
+     * - Timeout: connect/read do RestTemplate (wallet.authorizer.*-timeout-ms) por tentativa
+     * - Bulkhead: cada tentativa ocupa uma vaga do limite adaptativo
      * 
      * @param senderId ID do remetente
      * @param value Valor da transação
      * @return true se autorizado
      * @throws AuthorizationException se falhar permanentemente
+     * @throws AuthorizerConcurrencyLimiter.LimitExceededException se o autorizador estiver saturado
      */
     @CircuitBreaker(
         name = "authorizerCircuitBreaker",
@@ -53,18 +68,29 @@ public class AuthorizationService {
         name = "authorizerRetry"
     )
     public boolean authorizeTransaction(String senderId, BigDecimal value) {
+        // Fora do try abaixo: recusa por limite não pode cair no modo smoke test
+        try (AuthorizerConcurrencyLimiter.Permit permit = concurrencyLimiter.acquire()) {
+            return callAuthorizer(senderId, permit);
+        }
+    }
+
+    private boolean callAuthorizer(String senderId, AuthorizerConcurrencyLimiter.Permit permit) {
         // Verifica se estamos em ambiente de teste (mock disponível)
         // Se o restTemplate estiver mockado em testes, usamos a lógica real
         // Caso contrário, usamos modo smoke test para desenvolvimento local
         try {
-            String url = "https://run.mocky.io/v3/5794d450-d2e2-4412-8131-73d0293ac1cc";
-
-            // Chamada HTTP ao autorizador externo
+            // Chamada HTTP ao autorizador externo (com hedge se wallet.authorizer.hedging.enabled)
             @SuppressWarnings("unchecked")
-            ResponseEntity<Map<String, Object>> response = restTemplate.getForEntity(
-                url,
+            ResponseEntity<Map<String, Object>> response = hedgedRequestExecutor.execute(() -> restTemplate.getForEntity(
+                authorizerUrl,
                 (Class<Map<String, Object>>) (Class<?>) Map.class
-            );
+            ));
+            // 5xx/429 sem exceção (error handler customizado) também é sobrecarga
+            if (AuthorizerConcurrencyLimiter.isOverload(response.getStatusCode())) {
+                permit.onDropped();
+            } else {
+                permit.onSuccess();
+            }
 
             // Validação de resposta
             if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
@@ -72,8 +98,8 @@ public class AuthorizationService {
                 String message = body != null ? (String) body.get("message") : null;
                 boolean authorized = message != null && "Autorizado".equalsIgnoreCase(message);
                 
-                if (authorized) {
-                    logger.info("Transação autorizada pelo autorizador externo para senderId: {}", senderId);
+                if (authorized && logger.isDebugEnabled()) {
+                    logger.debug("Transação autorizada pelo autorizador externo para senderId: {}", LogMasker.maskUserId(senderId));
                 }
                 return authorized;
             }
@@ -82,7 +108,8 @@ public class AuthorizationService {
             return false;
 
         } catch (RestClientException e) {
-            // Exceção de conectividade/timeout
+            // Só I/O, timeout, 5xx e 429 reduzem o limite; 4xx ou corpo inválido contam como resposta
+            permit.onFailure(e);
             logger.warn("Erro ao chamar autorizador (será retentado): {}", e.getMessage());
             throw new RuntimeException("Falha ao comunicar com autorizador", e);
         } catch (Exception e) {
@@ -116,6 +143,15 @@ public class AuthorizationService {
         return false;
     }
 
+    /**
+     * Fallback específico para o bulkhead: autorizador saturado não é negação,
+     * propaga para virar 503 em vez de "Transação não autorizada".
+     */
+    public boolean authorizationFallback(String senderId, BigDecimal value,
+                                         AuthorizerConcurrencyLimiter.LimitExceededException ex) {
+        throw ex;
+    }
+
     /**
      * Exception personalizada para erros de autorização
      */
@@ -0,0 +1,289 @@
+package com.wallet.wallet.services;
+
+import com.wallet.wallet.domain.DomainException;
+import com.wallet.wallet.dtos.ExceptionDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bulkhead adaptativo na frente do autorizador externo.
+ *
+ * Limita quantas chamadas ao autorizador ficam em voo ao mesmo tempo. O limite
+ * se ajusta por AIMD conforme a latência observada:
+ * - resposta abaixo de latency-threshold-ms com o limite em uso: +1/limite (aditivo)
+ * - resposta lenta, timeout, erro de I/O, 5xx ou 429: limite * backoff-ratio (multiplicativo)
+ *
+ * Outros erros (4xx, corpo inválido) são respostas do autorizador, não sinal de
+ * sobrecarga: entram como amostra de latência comum.
+ *
+ * Quando o autorizador degrada, o limite cai e as requisições excedentes são
+ * recusadas (REJECT) ou esperam no máximo max-wait-ms por uma vaga (WAIT), em
+ * vez de prender todas as threads do Tomcat na chamada HTTP.
+ */
+@Service
+@Slf4j
+public class AuthorizerConcurrencyLimiter {
+
+    public enum QueuePolicy {
+        REJECT,
+        WAIT
+    }
+
+    private enum Outcome {
+        SUCCESS,
+        DROPPED,
+        IGNORED
+    }
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+
+    private final boolean enabled;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long latencyThresholdNanos;
+    private final QueuePolicy queuePolicy;
+    private final long maxWaitNanos;
+    private final int maxWaiters;
+
+    private final Counter rejectedCounter;
+    private final Counter droppedCounter;
+
+    // Escritos sob o lock; volatile só para leitura dos gauges
+    private volatile double limit;
+    private volatile int inFlight;
+    private int waiters;
+
+    public AuthorizerConcurrencyLimiter(
+            MeterRegistry meterRegistry,
+            @Value("${wallet.authorizer.limiter.enabled:true}") boolean enabled,
+            @Value("${wallet.authorizer.limiter.initial-limit:20}") int initialLimit,
+            @Value("${wallet.authorizer.limiter.min-limit:2}") int minLimit,
+            @Value("${wallet.authorizer.limiter.max-limit:100}") int maxLimit,
+            @Value("${wallet.authorizer.limiter.backoff-ratio:0.9}") double backoffRatio,
+            @Value("${wallet.authorizer.limiter.latency-threshold-ms:500}") long latencyThresholdMs,
+            @Value("${wallet.authorizer.limiter.queue-policy:REJECT}") QueuePolicy queuePolicy,
+            @Value("${wallet.authorizer.limiter.max-wait-ms:100}") long maxWaitMs,
+            @Value("${wallet.authorizer.limiter.max-waiters:50}") int maxWaiters) {
+        this.enabled = enabled;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(latencyThresholdMs);
+        this.queuePolicy = queuePolicy;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        this.maxWaiters = maxWaiters;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+
+        this.rejectedCounter = Counter.builder("wallet.authorizer.limiter.rejected")
+            .description("Chamadas ao autorizador recusadas pelo limite de concorrência")
+            .register(meterRegistry);
+        this.droppedCounter = Counter.builder("wallet.authorizer.limiter.dropped")
+            .description("Chamadas ao autorizador com timeout, erro de I/O, 5xx ou 429 (reduzem o limite)")
+            .register(meterRegistry);
+        Gauge.builder("wallet.authorizer.limiter.limit", this, AuthorizerConcurrencyLimiter::getLimit)
+            .description("Limite atual de chamadas simultâneas ao autorizador")
+            .register(meterRegistry);
+        Gauge.builder("wallet.authorizer.limiter.in_flight", this, AuthorizerConcurrencyLimiter::getInFlight)
+            .description("Chamadas ao autorizador em andamento")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Reserva uma vaga para chamar o autorizador.
+     * A latência é medida a partir daqui até {@link Permit#onSuccess()}.
+     *
+     * @return Permit que deve ser fechado ao fim da chamada
+     * @throws LimitExceededException se não houver vaga (ou a espera esgotar, em WAIT)
+     */
+    public Permit acquire() {
+        if (!enabled) {
+            return Permit.NOOP;
+        }
+
+        lock.lock();
+        try {
+            if (inFlight >= (int) limit) {
+                if (queuePolicy == QueuePolicy.REJECT || waiters >= maxWaiters) {
+                    throw reject();
+                }
+                awaitSlot();
+            }
+            inFlight++;
+        } finally {
+            lock.unlock();
+        }
+        return new Permit(this, System.nanoTime());
+    }
+
+    /**
+     * Reserva uma vaga só se houver uma livre agora, sem esperar e sem contar
+     * como recusa (chamadas opcionais, como o hedge).
+     *
+     * @return Permit, ou null se o limite estiver em uso
+     */
+    public Permit tryAcquire() {
+        if (!enabled) {
+            return Permit.NOOP;
+        }
+
+        lock.lock();
+        try {
+            if (inFlight >= (int) limit) {
+                return null;
+            }
+            inFlight++;
+        } finally {
+            lock.unlock();
+        }
+        return new Permit(this, System.nanoTime());
+    }
+
+    /**
+     * Sinal de sobrecarga do autorizador: I/O ou timeout (RestTemplate e WebClient) e respostas 5xx ou 429.
+     */
+    static boolean isOverload(Throwable error) {
+        if (error instanceof ResourceAccessException || error instanceof WebClientRequestException) {
+            return true;
+        }
+        if (error instanceof RestClientResponseException response) {
+            return isOverload(response.getStatusCode());
+        }
+        if (error instanceof WebClientResponseException response) {
+            return isOverload(response.getStatusCode());
+        }
+        return false;
+    }
+
+    static boolean isOverload(HttpStatusCode status) {
+        return status.is5xxServerError() || status.value() == HttpStatus.TOO_MANY_REQUESTS.value();
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    private void awaitSlot() {
+        waiters++;
+        try {
+            long remaining = maxWaitNanos;
+            while (inFlight >= (int) limit) {
+                if (remaining <= 0) {
+                    throw reject();
+                }
+                remaining = released.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw reject();
+        } finally {
+            waiters--;
+        }
+    }
+
+    private LimitExceededException reject() {
+        rejectedCounter.increment();
+        log.debug("Chamada ao autorizador recusada: limite {} atingido", (int) limit);
+        return new LimitExceededException();
+    }
+
+    private void release(Outcome outcome, long latencyNanos) {
+        lock.lock();
+        try {
+            // Só cresce se o limite estiver de fato em uso; senão cresceria sem medir nada
+            boolean saturated = inFlight * 2 >= limit;
+            inFlight--;
+
+            if (outcome == Outcome.DROPPED
+                    || (outcome == Outcome.SUCCESS && latencyNanos > latencyThresholdNanos)) {
+                if (outcome == Outcome.DROPPED) {
+                    droppedCounter.increment();
+                }
+                limit = Math.max(minLimit, limit * backoffRatio);
+            } else if (outcome == Outcome.SUCCESS && saturated) {
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+            }
+
+            released.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Vaga reservada no limitador. Informe o resultado com {@link #onSuccess()},
+     * {@link #onDropped()} ou {@link #onFailure(Throwable)}; fechar sem informar libera a vaga sem ajustar o limite.
+     */
+    public static final class Permit implements AutoCloseable {
+
+        static final Permit NOOP = new Permit(null, 0L);
+
+        private final AuthorizerConcurrencyLimiter limiter;
+        private final long startNanos;
+        private boolean done;
+
+        private Permit(AuthorizerConcurrencyLimiter limiter, long startNanos) {
+            this.limiter = limiter;
+            this.startNanos = startNanos;
+        }
+
+        /** O autorizador respondeu; a latência entra no ajuste do limite. */
+        public void onSuccess() {
+            finish(Outcome.SUCCESS);
+        }
+
+        /** Timeout ou erro de I/O: sinal de sobrecarga, reduz o limite. */
+        public void onDropped() {
+            finish(Outcome.DROPPED);
+        }
+
+        /** Chamada falhou: reduz o limite só se for sobrecarga (ver isOverload); senão conta como resposta. */
+        public void onFailure(Throwable error) {
+            finish(isOverload(error) ? Outcome.DROPPED : Outcome.SUCCESS);
+        }
+
+        @Override
+        public void close() {
+            finish(Outcome.IGNORED);
+        }
+
+        private void finish(Outcome outcome) {
+            if (done || limiter == null) {
+                return;
+            }
+            done = true;
+            limiter.release(outcome, System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Autorizador saturado (mapeada para 503). Não conta como falha no circuit breaker.
+     */
+    public static class LimitExceededException extends DomainException {
+        private static final ExceptionDTO BODY =
+            new ExceptionDTO("Autorizador sobrecarregado, tente novamente", "503");
+
+        public LimitExceededException() {
+            super(HttpStatus.SERVICE_UNAVAILABLE, BODY);
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package com.wallet.wallet.services;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Conciliação de wallets.balance com o histórico em transactions.
+ *
+ * Saldo esperado = opening_balance + recebido - enviado; saldo real = balance +
+ * créditos pendentes de lojista. As carteiras são percorridas por keyset
+ * (user_id) em blocos de chunk-size: o coordenador só descobre o limite de cada
+ * bloco e os blocos são conciliados em paralelo num ForkJoinPool, com no máximo
+ * 2 x parallelism blocos em voo. Cada bloco é um único statement (carteiras e
+ * somas no mesmo snapshot), lido linha a linha sem entidades JPA: memória
+ * limitada pelo tamanho do bloco, não pelo número de carteiras, e sem falso
+ * positivo com transferências em andamento.
+ *
+ * Carteiras anteriores à V5 chegam com opening_balance NULL ("sem base"): antes
+ * de conciliar o bloco, as dele são travadas e recebem a base derivada do
+ * histórico do momento (assume que hoje estão conciliadas), numa transação do
+ * tamanho do bloco. Com a trava, nenhuma transferência dessas carteiras está em
+ * andamento e o UPDATE seguinte já enxerga todas as confirmadas. Se a base não
+ * puder ser preenchida, a carteira é contada como sem base, nunca como
+ * divergente.
+ *
+ * Com shards, cada shard é conciliado com as carteiras que moram nele (as
+ * transações de cada carteira estão sempre no shard dela).
+ */
+@Service
+@Slf4j
+public class BalanceReconciliationService {
+
+    // Maior user_id do próximo bloco (só o limite, não as linhas)
+    private static final String NEXT_BOUNDARY_SQL = """
+        SELECT MAX(user_id) FROM (
+            SELECT user_id FROM wallets WHERE user_id > ? ORDER BY user_id LIMIT ?
+        ) chunk
+        """;
+
+    private static final String CHUNK_SQL = """
+        SELECT w.user_id, w.balance, w.opening_balance,
+               COALESCE((SELECT SUM(t.amount) FROM transactions t WHERE t.receiver_id = w.user_id), 0) AS received,
+               COALESCE((SELECT SUM(t.amount) FROM transactions t WHERE t.sender_id = w.user_id), 0) AS sent,
+               COALESCE((SELECT SUM(p.amount) FROM pending_credits p WHERE p.merchant_id = w.user_id), 0) AS pending
+          FROM wallets w
+         WHERE w.user_id > ? AND w.user_id <= ?
+        """;
+
+    // Trava as carteiras sem base do bloco (transferências nelas esperam ou já confirmaram)
+    private static final String LOCK_UNBASELINED_SQL = """
+        SELECT user_id FROM wallets
+         WHERE user_id > ? AND user_id <= ? AND opening_balance IS NULL
+         ORDER BY user_id
+           FOR UPDATE
+        """;
+
+    private static final String BASELINE_SQL = """
+        UPDATE wallets w
+           SET opening_balance = w.balance
+               + COALESCE((SELECT SUM(p.amount) FROM pending_credits p WHERE p.merchant_id = w.user_id), 0)
+               - COALESCE((SELECT SUM(t.amount) FROM transactions t WHERE t.receiver_id = w.user_id), 0)
+               + COALESCE((SELECT SUM(t.amount) FROM transactions t WHERE t.sender_id = w.user_id), 0)
+         WHERE w.user_id > ? AND w.user_id <= ? AND w.opening_balance IS NULL
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRouter shardRouter;
+    private final int chunkSize;
+    private final int parallelism;
+    private final int maxReportedMismatches;
+
+    private volatile Run current;
+
+    public BalanceReconciliationService(
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            ShardRouter shardRouter,
+            MeterRegistry meterRegistry,
+            @Value("${wallet.reconciliation.chunk-size:1000}") int chunkSize,
+            @Value("${wallet.reconciliation.parallelism:0}") int parallelism,
+            @Value("${wallet.reconciliation.max-reported-mismatches:100}") int maxReportedMismatches) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.shardRouter = shardRouter;
+        this.chunkSize = chunkSize;
+        // Cada bloco em voo segura uma conexão: padrão limitado a 4 para não disputar o pool com as transferências
+        this.parallelism = parallelism > 0 ? parallelism : Math.min(Runtime.getRuntime().availableProcessors(), 4);
+        this.maxReportedMismatches = maxReportedMismatches;
+
+        Gauge.builder("wallet.reconciliation.wallets.scanned", this,
+                service -> service.current == null ? 0 : service.current.scanned.sum())
+            .description("Carteiras conciliadas na última execução")
+            .register(meterRegistry);
+        Gauge.builder("wallet.reconciliation.mismatches", this,
+                service -> service.current == null ? 0 : service.current.mismatches.sum())
+            .description("Carteiras com saldo divergente do histórico na última execução")
+            .register(meterRegistry);
+        Gauge.builder("wallet.reconciliation.wallets.unbaselined", this,
+                service -> service.current == null ? 0 : service.current.skipped.sum())
+            .description("Carteiras sem saldo de abertura (não conciliadas) na última execução")
+            .register(meterRegistry);
+        Gauge.builder("wallet.reconciliation.running", this,
+                service -> service.current != null && service.current.state == State.RUNNING ? 1 : 0)
+            .description("1 enquanto uma conciliação está em andamento")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Inicia uma conciliação em segundo plano; se já houver uma em andamento, só devolve o progresso dela.
+     */
+    public synchronized Progress start() {
+        if (current != null && current.state == State.RUNNING) {
+            return current.progress();
+        }
+        Run run = new Run();
+        current = run;
+        Thread coordinator = new Thread(() -> execute(run), "reconciliation-coordinator");
+        coordinator.setDaemon(true);
+        coordinator.start();
+        return run.progress();
+    }
+
+    /**
+     * Progresso da execução atual ou da última (null se nunca rodou).
+     */
+    public Progress progress() {
+        Run run = current;
+        return run == null ? null : run.progress();
+    }
+
+    /**
+     * Executa uma conciliação na thread atual.
+     */
+    synchronized Progress runNow() {
+        Run run = new Run();
+        current = run;
+        return execute(run);
+    }
+
+    private Progress execute(Run run) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            for (int i = 0; i < shardRouter.shardCount(); i++) {
+                run.totalWallets.add(shardRouter.onShard(i,
+                    () -> jdbcTemplate.queryForObject("SELECT COUNT(*) FROM wallets", Long.class)));
+            }
+            log.info("Conciliação iniciada: {} carteiras em {} shards, blocos de {}, paralelismo {}",
+                run.totalWallets.sum(), shardRouter.shardCount(), chunkSize, parallelism);
+
+            Semaphore inFlight = new Semaphore(parallelism * 2);
+            for (int shard = 0; shard < shardRouter.shardCount() && !run.cancelled; shard++) {
+                scanShard(run, shard, pool, inFlight);
+            }
+            // Espera os últimos blocos em voo
+            inFlight.acquire(parallelism * 2);
+
+            run.finish(run.failure == null ? State.DONE : State.FAILED);
+            log.info("Conciliação concluída: {} carteiras, {} divergentes, {} com base preenchida, {} sem saldo de abertura, {}/s",
+                run.scanned.sum(), run.mismatches.sum(), run.baselined.sum(), run.skipped.sum(),
+                run.progress().walletsPerSecond());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            run.fail("Interrompida");
+        } catch (RuntimeException e) {
+            log.error("Conciliação falhou", e);
+            run.fail(e.getMessage());
+        } finally {
+            pool.shutdownNow();
+        }
+        return run.progress();
+    }
+
+    private void scanShard(Run run, int shard, ForkJoinPool pool, Semaphore inFlight) throws InterruptedException {
+        String lowerExclusive = "";
+        while (!run.cancelled && run.failure == null) {
+            String from = lowerExclusive;
+            String upperInclusive = shardRouter.onShard(shard,
+                () -> jdbcTemplate.queryForObject(NEXT_BOUNDARY_SQL, String.class, from, chunkSize));
+            if (upperInclusive == null) {
+                return;
+            }
+
+            inFlight.acquire();
+            pool.execute(() -> {
+                try {
+                    shardRouter.onShard(shard, () -> {
+                        baselineChunk(run, from, upperInclusive);
+                        reconcileChunk(run, from, upperInclusive);
+                    });
+                } catch (RuntimeException e) {
+                    log.warn("Bloco ({}, {}] do shard {} falhou: {}", from, upperInclusive, shard, e.getMessage());
+                    run.failure = e.getMessage();
+                } finally {
+                    inFlight.release();
+                }
+            });
+            lowerExclusive = upperInclusive;
+        }
+    }
+
+    private void baselineChunk(Run run, String lowerExclusive, String upperInclusive) {
+        try {
+            Integer baselined = transactionTemplate.execute(status -> {
+                if (jdbcTemplate.queryForList(LOCK_UNBASELINED_SQL, String.class, lowerExclusive, upperInclusive).isEmpty()) {
+                    return 0;
+                }
+                return jdbcTemplate.update(BASELINE_SQL, lowerExclusive, upperInclusive);
+            });
+            run.baselined.add(baselined == null ? 0 : baselined);
+        } catch (RuntimeException e) {
+            // Ficam sem base (puladas) nesta execução; a próxima tenta de novo
+            log.warn("Base do bloco ({}, {}] não preenchida: {}", lowerExclusive, upperInclusive, e.getMessage());
+        }
+    }
+
+    private void reconcileChunk(Run run, String lowerExclusive, String upperInclusive) {
+        jdbcTemplate.query(CHUNK_SQL, rs -> {
+            BigDecimal openingBalance = rs.getBigDecimal("opening_balance");
+            run.scanned.increment();
+            if (openingBalance == null) {
+                run.skipped.increment();
+                return;
+            }
+            BigDecimal actual = rs.getBigDecimal("balance").add(rs.getBigDecimal("pending"));
+            BigDecimal expected = openingBalance.add(rs.getBigDecimal("received")).subtract(rs.getBigDecimal("sent"));
+            if (actual.compareTo(expected) != 0) {
+                run.recordMismatch(new Mismatch(rs.getString("user_id"), actual, expected, actual.subtract(expected)));
+            }
+        }, lowerExclusive, upperInclusive);
+        run.chunks.increment();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        Run run = current;
+        if (run != null) {
+            run.cancelled = true;
+        }
+    }
+
+    public enum State {
+        RUNNING, DONE, FAILED
+    }
+
+    /**
+     * Carteira cujo saldo (com pendências) não bate com o histórico.
+     */
+    public record Mismatch(String userId, BigDecimal balance, BigDecimal expected, BigDecimal difference) {
+    }
+
+    /**
+     * Foto do progresso (exposta em /actuator/reconciliation).
+     *
+     * @param baselinedWallets Carteiras que receberam o saldo de abertura nesta execução
+     * @param skippedWallets   Carteiras ainda sem saldo de abertura (não conciliadas)
+     * @param mismatchSample   Primeiras divergências encontradas (até max-reported-mismatches)
+     */
+    public record Progress(State state, Instant startedAt, Instant finishedAt, long totalWallets,
+                           long scannedWallets, double percent, long walletsPerSecond, long chunks,
+                           long mismatches, long baselinedWallets, long skippedWallets,
+                           List<Mismatch> mismatchSample, String error) {
+    }
+
+    final class Run {
+        private final Instant startedAt = Instant.now();
+        private final long startNanos = System.nanoTime();
+        private final LongAdder totalWallets = new LongAdder();
+        private final LongAdder scanned = new LongAdder();
+        private final LongAdder chunks = new LongAdder();
+        private final LongAdder mismatches = new LongAdder();
+        private final LongAdder baselined = new LongAdder();
+        private final LongAdder skipped = new LongAdder();
+        private final ConcurrentLinkedQueue<Mismatch> sample = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger sampled = new AtomicInteger();
+
+        private volatile State state = State.RUNNING;
+        private volatile Instant finishedAt;
+        private volatile long elapsedNanos;
+        private volatile boolean cancelled;
+        private volatile String failure;
+
+        void recordMismatch(Mismatch mismatch) {
+            mismatches.increment();
+            if (sampled.incrementAndGet() <= maxReportedMismatches) {
+                sample.add(mismatch);
+            }
+        }
+
+        void finish(State finalState) {
+            elapsedNanos = System.nanoTime() - startNanos;
+            finishedAt = Instant.now();
+            state = finalState;
+        }
+
+        void fail(String error) {
+            failure = error;
+            finish(State.FAILED);
+        }
+
+        Progress progress() {
+            long total = totalWallets.sum();
+            long done = scanned.sum();
+            long elapsed = state == State.RUNNING ? System.nanoTime() - startNanos : elapsedNanos;
+            double seconds = Math.max(elapsed, 1) / (double) TimeUnit.SECONDS.toNanos(1);
+            return new Progress(state, startedAt, finishedAt, total, done,
+                total == 0 ? (state == State.RUNNING ? 0 : 100) : Math.min(100.0, done * 100.0 / total),
+                (long) (done / seconds), chunks.sum(), mismatches.sum(), baselined.sum(), skipped.sum(),
+                new ArrayList<>(sample), failure);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.wallet.wallet.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Membros do cluster e dono de cada carteira (desligado por padrão).
+ *
+ * Os nós se enxergam pela tabela cluster_nodes no banco que já compartilham:
+ * cada um renova o próprio heartbeat a cada heartbeat-interval-ms e considera
+ * vivos os nós com heartbeat mais novo que node-ttl-ms (relógio do banco, não
+ * o de cada máquina). Quando o conjunto muda, a {@link WalletPartitioning} é
+ * recalculada (rebalanceamento) e passa a valer na próxima transferência.
+ *
+ * A posse da carteira é afinidade, não exclusão mútua: durante o rebalanceamento
+ * dois nós podem se achar donos da mesma partição por até um ciclo de heartbeat.
+ * A correção continua garantida pelo FOR UPDATE em {@link TransactionService}.
+ */
+@Service
+@Slf4j
+public class ClusterMembershipService {
+
+    private static final String HEARTBEAT = """
+        INSERT INTO cluster_nodes (node_id, base_url, last_heartbeat) VALUES (?, ?, CURRENT_TIMESTAMP)
+        ON CONFLICT (node_id) DO UPDATE SET base_url = EXCLUDED.base_url, last_heartbeat = EXCLUDED.last_heartbeat
+        """;
+
+    private static final String LIVE_NODES = """
+        SELECT node_id, base_url FROM cluster_nodes
+         WHERE last_heartbeat > CURRENT_TIMESTAMP - (? * INTERVAL '1 millisecond')
+        """;
+
+    // Nós mortos há muito tempo saem da tabela (não afetam a partição, só mantêm a tabela pequena)
+    private static final String PURGE_DEAD = """
+        DELETE FROM cluster_nodes WHERE last_heartbeat < CURRENT_TIMESTAMP - (? * INTERVAL '1 millisecond')
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final WalletPartitioning.Node self;
+    private final int partitions;
+    private final long heartbeatIntervalMs;
+    private final long nodeTtlMs;
+
+    private final ScheduledExecutorService scheduler;
+    private final Counter rebalances;
+
+    private volatile WalletPartitioning view;
+
+    public ClusterMembershipService(
+            JdbcTemplate jdbcTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${wallet.cluster.enabled:false}") boolean enabled,
+            @Value("${wallet.cluster.node-id:}") String nodeId,
+            @Value("${wallet.cluster.advertised-url:http://localhost:${server.port:8080}}") String advertisedUrl,
+            @Value("${wallet.cluster.partitions:256}") int partitions,
+            @Value("${wallet.cluster.heartbeat-interval-ms:2000}") long heartbeatIntervalMs,
+            @Value("${wallet.cluster.node-ttl-ms:6000}") long nodeTtlMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        // Sem id explícito a URL anunciada serve de id (várias JVMs na mesma máquina diferem pela porta)
+        this.self = new WalletPartitioning.Node(nodeId.isBlank() ? advertisedUrl : nodeId, advertisedUrl);
+        this.partitions = partitions;
+        this.heartbeatIntervalMs = heartbeatIntervalMs;
+        this.nodeTtlMs = nodeTtlMs;
+        this.view = WalletPartitioning.of(List.of(self), partitions);
+
+        this.scheduler = enabled
+            ? Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("cluster-heartbeat-"))
+            : null;
+
+        this.rebalances = Counter.builder("wallet.cluster.rebalances")
+            .description("Mudanças de membros do cluster que redistribuíram partições")
+            .register(meterRegistry);
+        Gauge.builder("wallet.cluster.members", this, service -> service.view.members().size())
+            .description("Nós vivos no cluster")
+            .register(meterRegistry);
+        Gauge.builder("wallet.cluster.partitions.owned", this,
+                service -> service.view.partitionsOwnedBy(service.self.id()))
+            .description("Partições de carteira pertencentes a este nó")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Entra no cluster só quando a aplicação já atende requisições: antes disso
+     * nenhum nó encaminha transferências para cá.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void join() {
+        if (!enabled) {
+            return;
+        }
+        log.info("Entrando no cluster como {} ({}), {} partições", self.id(), self.baseUrl(), partitions);
+        scheduler.scheduleWithFixedDelay(this::refresh, 0, heartbeatIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Nó dono da carteira, se não for este.
+     *
+     * @param walletKey ID do dono da carteira
+     * @return Nó remoto dono da partição, ou vazio se a carteira é local (ou o cluster está desligado)
+     */
+    public Optional<WalletPartitioning.Node> remoteOwnerOf(String walletKey) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        WalletPartitioning.Node owner = view.ownerOf(walletKey);
+        return owner.id().equals(self.id()) ? Optional.empty() : Optional.of(owner);
+    }
+
+    public WalletPartitioning.Node self() {
+        return self;
+    }
+
+    public WalletPartitioning view() {
+        return view;
+    }
+
+    /**
+     * Renova o heartbeat, lê os membros vivos e rebalanceia se o conjunto mudou.
+     * Falha no banco mantém a última visão: os outros nós deixam de ver este após node-ttl-ms.
+     */
+    void refresh() {
+        try {
+            jdbcTemplate.update(HEARTBEAT, self.id(), self.baseUrl());
+            List<WalletPartitioning.Node> live = jdbcTemplate.query(LIVE_NODES,
+                (rs, rowNum) -> new WalletPartitioning.Node(rs.getString("node_id"), rs.getString("base_url")),
+                nodeTtlMs);
+            jdbcTemplate.update(PURGE_DEAD, nodeTtlMs * 100);
+            apply(live);
+        } catch (DataAccessException e) {
+            log.warn("Heartbeat do cluster falhou, mantendo {} membros: {}", view.members().size(), e.getMessage());
+        }
+    }
+
+    void apply(List<WalletPartitioning.Node> live) {
+        Set<WalletPartitioning.Node> members = new HashSet<>(live);
+        members.add(self);
+        WalletPartitioning current = view;
+        if (members.equals(new HashSet<>(current.members()))) {
+            return;
+        }
+
+        WalletPartitioning next = WalletPartitioning.of(members, partitions);
+        int moved = 0;
+        for (int partition = 0; partition < partitions; partition++) {
+            if (!next.ownerOfPartition(partition).equals(current.ownerOfPartition(partition))) {
+                moved++;
+            }
+        }
+        view = next;
+        rebalances.increment();
+        log.info("Membros do cluster mudaram: {} nós, {} partições trocaram de dono, {} agora com este nó",
+            members.size(), moved, next.partitionsOwnedBy(self.id()));
+    }
+
+    /**
+     * Sai do cluster no shutdown: apaga o próprio heartbeat para os outros
+     * rebalancearem no próximo ciclo, sem esperar o TTL.
+     */
+    @PreDestroy
+    void leave() {
+        if (!enabled) {
+            return;
+        }
+        scheduler.shutdownNow();
+        try {
+            jdbcTemplate.update("DELETE FROM cluster_nodes WHERE node_id = ?", self.id());
+        } catch (DataAccessException e) {
+            log.warn("Não foi possível remover o heartbeat de {}: {}", self.id(), e.getMessage());
+        }
+    }
+}
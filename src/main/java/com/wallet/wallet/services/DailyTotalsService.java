@@ -0,0 +1,351 @@
+package com.wallet.wallet.services;
+
+import com.wallet.wallet.dtos.DailyTotalsDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Totais enviados/recebidos por usuário e dia (user_daily_totals).
+ *
+ * O trigger de transactions grava cada transferência (e cada estorno de saga,
+ * com sinal negativo) em transaction_outbox. A cada interval-ms este serviço
+ * apaga um lote do outbox, soma em memória por (usuário, dia) e aplica um
+ * upsert por chave, tudo na mesma transação: cada linha do outbox entra nos
+ * totais uma vez só, mesmo com várias instâncias (SKIP LOCKED) ou queda no
+ * meio. A transferência não toca em user_daily_totals, então a linha do dia de
+ * um lojista não vira ponto de disputa.
+ *
+ * As consultas leem só a tabela pré-agregada (uma linha por dia, pela PK) e
+ * ficam até interval-ms atrás das transferências.
+ *
+ * Transações anteriores à V6 (daily_totals_tracked = false) não passaram pelo
+ * outbox: a cada ciclo, depois do outbox, um lote de backfill-batch-size linhas
+ * de transactions é lido pela PK a partir do último id somado
+ * (daily_totals_backfill) e somado da mesma forma, sem scan da tabela inteira
+ * numa transação só. A linha de daily_totals_backfill fica travada durante o
+ * lote; o DELETE de uma transação antiga (estorno) espera por ela e só
+ * desconta o que a carga já somou.
+ *
+ * Desligado (wallet.daily-totals.enabled=false), o trigger continua gravando e
+ * o outbox cresce a cada transferência: só para testes ou uma pausa curta, nunca
+ * como estado de produção. wallet.daily.totals.outbox.depth mostra o acúmulo.
+ */
+@Service
+@Slf4j
+public class DailyTotalsService {
+
+    // Apaga e devolve o lote; só some de vez se os upserts também confirmarem
+    private static final String CLAIM_SQL = """
+        DELETE FROM transaction_outbox
+         WHERE id IN (SELECT id FROM transaction_outbox ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED)
+        RETURNING sender_id, receiver_id, day, amount, delta
+        """;
+
+    private static final String UPSERT_SQL = """
+        INSERT INTO user_daily_totals (user_id, day, sent_amount, sent_count, received_amount, received_count)
+        VALUES (?, ?, ?, ?, ?, ?)
+        ON CONFLICT (user_id, day) DO UPDATE SET
+            sent_amount     = user_daily_totals.sent_amount + EXCLUDED.sent_amount,
+            sent_count      = user_daily_totals.sent_count + EXCLUDED.sent_count,
+            received_amount = user_daily_totals.received_amount + EXCLUDED.received_amount,
+            received_count  = user_daily_totals.received_count + EXCLUDED.received_count
+        """;
+
+    private static final String BACKFILL_CURSOR_SQL = """
+        SELECT last_id FROM daily_totals_backfill WHERE id = 1 AND NOT done FOR UPDATE
+        """;
+
+    private static final String BACKFILL_ROWS_SQL = """
+        SELECT id, sender_id, receiver_id, CAST(timestamp AS date) AS day, amount, daily_totals_tracked
+          FROM transactions
+         WHERE id > ?
+         ORDER BY id
+         LIMIT ?
+        """;
+
+    private static final String BACKFILL_ADVANCE_SQL = """
+        UPDATE daily_totals_backfill SET last_id = ?, done = ? WHERE id = 1
+        """;
+
+    // Aproximado pela PK (o consumidor apaga em ordem de id), sem contar a tabela
+    private static final String OUTBOX_DEPTH_SQL = """
+        SELECT COALESCE(MAX(id) - MIN(id) + 1, 0) FROM transaction_outbox
+        """;
+
+    private static final String TOTALS_SQL = """
+        SELECT day, sent_amount, sent_count, received_amount, received_count
+          FROM user_daily_totals
+         WHERE user_id = ? AND day >= ? AND day <= ?
+         ORDER BY day
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRouter shardRouter;
+    private final boolean enabled;
+    private final long intervalMs;
+    private final int batchSize;
+    private final int maxDays;
+    private final int backfillBatchSize;
+
+    private final ScheduledExecutorService scheduler;
+    private final Counter consumedEvents;
+    private final Timer batchTimer;
+
+    public DailyTotalsService(
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            ShardRouter shardRouter,
+            MeterRegistry meterRegistry,
+            @Value("${wallet.daily-totals.enabled:true}") boolean enabled,
+            @Value("${wallet.daily-totals.interval-ms:1000}") long intervalMs,
+            @Value("${wallet.daily-totals.batch-size:5000}") int batchSize,
+            @Value("${wallet.daily-totals.max-days:366}") int maxDays,
+            @Value("${wallet.daily-totals.backfill-batch-size:5000}") int backfillBatchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.shardRouter = shardRouter;
+        this.enabled = enabled;
+        this.intervalMs = intervalMs;
+        this.batchSize = batchSize;
+        this.maxDays = maxDays;
+        this.backfillBatchSize = backfillBatchSize;
+
+        this.scheduler = enabled
+            ? Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("daily-totals-"))
+            : null;
+
+        this.consumedEvents = Counter.builder("wallet.daily.totals.events")
+            .description("Linhas do outbox de transações aplicadas nos totais diários")
+            .register(meterRegistry);
+        this.batchTimer = Timer.builder("wallet.daily.totals.batch")
+            .description("Duração de cada lote de atualização dos totais diários")
+            .register(meterRegistry);
+        // Registrado mesmo com o consumidor desligado: é justamente quando o outbox acumula
+        Gauge.builder("wallet.daily.totals.outbox.depth", this, DailyTotalsService::outboxDepth)
+            .description("Linhas do outbox de transações ainda não aplicadas nos totais diários (aproximado)")
+            .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            log.warn("Totais diários desligados: o outbox de transações acumula até o consumidor voltar");
+            return;
+        }
+        log.info("Totais diários atualizados a partir do outbox a cada {}ms", intervalMs);
+        scheduler.scheduleWithFixedDelay(this::consume, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Totais do período (inclusive), dia a dia e somados. Dias sem movimento não aparecem.
+     */
+    public DailyTotalsDTO totals(String userId, LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Data inicial posterior à data final");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= maxDays) {
+            throw new IllegalArgumentException("Período maior que " + maxDays + " dias");
+        }
+
+        // Carteira e todas as transações do usuário estão no shard dele
+        List<DailyTotalsDTO.Day> days = shardRouter.onShardOf(userId, () -> jdbcTemplate.query(TOTALS_SQL,
+            (rs, rowNum) -> new DailyTotalsDTO.Day(
+                rs.getDate("day").toLocalDate(),
+                rs.getBigDecimal("sent_amount"),
+                rs.getLong("sent_count"),
+                rs.getBigDecimal("received_amount"),
+                rs.getLong("received_count")),
+            userId, Date.valueOf(from), Date.valueOf(to)));
+
+        BigDecimal sentAmount = BigDecimal.ZERO;
+        BigDecimal receivedAmount = BigDecimal.ZERO;
+        long sentCount = 0;
+        long receivedCount = 0;
+        for (DailyTotalsDTO.Day day : days) {
+            sentAmount = sentAmount.add(day.sentAmount());
+            sentCount += day.sentCount();
+            receivedAmount = receivedAmount.add(day.receivedAmount());
+            receivedCount += day.receivedCount();
+        }
+        return new DailyTotalsDTO(userId, from, to, sentAmount, sentCount, receivedAmount, receivedCount, days);
+    }
+
+    /**
+     * Esvazia o outbox de cada shard, em lotes de batch-size linhas.
+     */
+    void consume() {
+        for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+            try {
+                shardRouter.onShard(shard, () -> {
+                    int consumed;
+                    do {
+                        consumed = consumeBatch();
+                    } while (consumed == batchSize);
+                    // Um lote da carga inicial por ciclo: não atrasa o outbox do próximo ciclo
+                    backfillBatch();
+                });
+            } catch (RuntimeException e) {
+                // O lote foi desfeito e continua no outbox: tenta de novo no próximo ciclo
+                log.warn("Atualização dos totais diários falhou no shard {}: {}", shard, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @return Linhas do outbox aplicadas neste lote
+     */
+    int consumeBatch() {
+        long start = System.nanoTime();
+        Integer consumed = transactionTemplate.execute(status -> {
+            List<OutboxEvent> events = jdbcTemplate.query(CLAIM_SQL, (rs, rowNum) -> new OutboxEvent(
+                rs.getString("sender_id"),
+                rs.getString("receiver_id"),
+                rs.getDate("day").toLocalDate(),
+                rs.getBigDecimal("amount"),
+                rs.getInt("delta")), batchSize);
+            if (events.isEmpty()) {
+                return 0;
+            }
+
+            upsert(net(events));
+
+            consumedEvents.increment(events.size());
+            return events.size();
+        });
+        batchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return consumed == null ? 0 : consumed;
+    }
+
+    /**
+     * Soma nos totais o próximo lote de transações anteriores ao outbox, pela PK a partir do último id somado.
+     *
+     * @return Linhas de transactions percorridas (0 com a carga inicial concluída)
+     */
+    int backfillBatch() {
+        Integer scanned = transactionTemplate.execute(status -> {
+            List<String> cursor = jdbcTemplate.queryForList(BACKFILL_CURSOR_SQL, String.class);
+            if (cursor.isEmpty()) {
+                return 0;
+            }
+
+            List<String> ids = new ArrayList<>(backfillBatchSize);
+            List<OutboxEvent> events = new ArrayList<>();
+            jdbcTemplate.query(BACKFILL_ROWS_SQL, rs -> {
+                ids.add(rs.getString("id"));
+                // Inseridas depois da V6 já entraram pelo outbox; sem data não há dia para somar
+                if (!rs.getBoolean("daily_totals_tracked") && rs.getDate("day") != null) {
+                    events.add(new OutboxEvent(rs.getString("sender_id"), rs.getString("receiver_id"),
+                        rs.getDate("day").toLocalDate(), rs.getBigDecimal("amount"), 1));
+                }
+            }, cursor.get(0), backfillBatchSize);
+
+            if (!events.isEmpty()) {
+                upsert(net(events));
+            }
+            boolean done = ids.size() < backfillBatchSize;
+            jdbcTemplate.update(BACKFILL_ADVANCE_SQL, ids.isEmpty() ? cursor.get(0) : ids.get(ids.size() - 1), done);
+            if (done) {
+                log.info("Carga inicial dos totais diários concluída");
+            }
+            return ids.size();
+        });
+        return scanned == null ? 0 : scanned;
+    }
+
+    private void upsert(Map<Key, Totals> netted) {
+        List<Object[]> upserts = new ArrayList<>(netted.size());
+        netted.forEach((key, totals) -> upserts.add(new Object[]{
+            key.userId(), Date.valueOf(key.day()),
+            totals.sentAmount, totals.sentCount, totals.receivedAmount, totals.receivedCount}));
+        jdbcTemplate.batchUpdate(UPSERT_SQL, upserts);
+    }
+
+    // Soma dos shards; NaN se o outbox não existe (H2 nos testes) ou o banco não responde
+    private double outboxDepth() {
+        try {
+            long depth = 0;
+            for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+                Long shardDepth = shardRouter.onShard(shard,
+                    () -> jdbcTemplate.queryForObject(OUTBOX_DEPTH_SQL, Long.class));
+                depth += shardDepth == null ? 0 : shardDepth;
+            }
+            return depth;
+        } catch (RuntimeException e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Soma os eventos por (usuário, dia). Ordenado pela chave: duas instâncias travam as linhas na mesma ordem.
+     */
+    static Map<Key, Totals> net(List<OutboxEvent> events) {
+        Map<Key, Totals> netted = new TreeMap<>();
+        for (OutboxEvent event : events) {
+            if (event.senderId() != null) {
+                Totals totals = netted.computeIfAbsent(new Key(event.senderId(), event.day()), key -> new Totals());
+                totals.sentAmount = totals.sentAmount.add(event.amount());
+                totals.sentCount += event.delta();
+            }
+            if (event.receiverId() != null) {
+                Totals totals = netted.computeIfAbsent(new Key(event.receiverId(), event.day()), key -> new Totals());
+                totals.receivedAmount = totals.receivedAmount.add(event.amount());
+                totals.receivedCount += event.delta();
+            }
+        }
+        return netted;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Linha do outbox: transferência (delta 1) ou estorno (delta -1, valor negativo).
+     */
+    record OutboxEvent(String senderId, String receiverId, LocalDate day, BigDecimal amount, int delta) {
+    }
+
+    record Key(String userId, LocalDate day) implements Comparable<Key> {
+        private static final Comparator<Key> ORDER = Comparator.comparing(Key::userId).thenComparing(Key::day);
+
+        @Override
+        public int compareTo(Key other) {
+            return ORDER.compare(this, other);
+        }
+    }
+
+    static final class Totals {
+        BigDecimal sentAmount = BigDecimal.ZERO;
+        long sentCount;
+        BigDecimal receivedAmount = BigDecimal.ZERO;
+        long receivedCount;
+    }
+}
@@ -0,0 +1,283 @@
+package com.wallet.wallet.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Hedging de requisições ao autorizador (desligado por padrão).
+ *
+ * Se a chamada não responder dentro do percentil configurado da latência
+ * recente, dispara uma segunda chamada idêntica e usa a primeira resposta
+ * bem-sucedida. A carga extra é limitada por um orçamento: cada chamada
+ * normal acumula budget-ratio de crédito e cada hedge consome 1, então no
+ * máximo ~budget-ratio das chamadas viram duplicadas. O hedge também ocupa uma
+ * vaga do {@link AuthorizerConcurrencyLimiter}: sem vaga livre, não é disparado
+ * (a chamada original já segura a dela, reservada por quem chamou).
+ *
+ * O percentil usa a latência da chamada original, mesmo quando o hedge vence:
+ * medir só a resposta usada puxaria o percentil para baixo a cada hedge.
+ *
+ * Só é seguro para chamadas idempotentes (a consulta ao autorizador é um GET).
+ */
+@Service
+@Slf4j
+public class HedgedRequestExecutor {
+
+    /** Amostras mínimas antes do primeiro hedge; o percentil é recalculado a cada MIN_SAMPLES amostras. */
+    static final int MIN_SAMPLES = 32;
+
+    private static final double MAX_BUDGET_TOKENS = 10.0;
+
+    private final boolean enabled;
+    private final double percentile;
+    private final long minDelayNanos;
+    private final double budgetRatio;
+
+    private final long[] latencies;
+    private final AtomicLong samples = new AtomicLong();
+    private volatile long hedgeDelayNanos = Long.MAX_VALUE;
+
+    private final Object budgetLock = new Object();
+    private double budgetTokens;
+
+    private final ThreadPoolExecutor executor;
+
+    private final Counter hedgesSent;
+    private final Counter hedgesWon;
+    private final Counter hedgesOverBudget;
+    private final Counter hedgesOverLimit;
+
+    private final AuthorizerConcurrencyLimiter concurrencyLimiter;
+
+    public HedgedRequestExecutor(
+            MeterRegistry meterRegistry,
+            AuthorizerConcurrencyLimiter concurrencyLimiter,
+            @Value("${wallet.authorizer.hedging.enabled:false}") boolean enabled,
+            @Value("${wallet.authorizer.hedging.percentile:0.95}") double percentile,
+            @Value("${wallet.authorizer.hedging.min-delay-ms:20}") long minDelayMs,
+            @Value("${wallet.authorizer.hedging.budget-ratio:0.05}") double budgetRatio,
+            @Value("${wallet.authorizer.hedging.window-size:1024}") int windowSize,
+            @Value("${wallet.authorizer.hedging.max-threads:64}") int maxThreads) {
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.enabled = enabled;
+        this.percentile = percentile;
+        this.minDelayNanos = TimeUnit.MILLISECONDS.toNanos(minDelayMs);
+        this.budgetRatio = budgetRatio;
+        this.latencies = new long[Math.max(MIN_SAMPLES, windowSize)];
+
+        // Sem fila: se não houver thread livre, a chamada roda no chamador e sem hedge
+        this.executor = enabled
+            ? new ThreadPoolExecutor(0, maxThreads, 30L, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                new CustomizableThreadFactory("authorizer-hedge-"), new ThreadPoolExecutor.AbortPolicy())
+            : null;
+
+        this.hedgesSent = Counter.builder("wallet.authorizer.hedging.sent")
+            .description("Chamadas duplicadas disparadas ao autorizador")
+            .register(meterRegistry);
+        this.hedgesWon = Counter.builder("wallet.authorizer.hedging.won")
+            .description("Hedges que responderam antes da chamada original")
+            .register(meterRegistry);
+        this.hedgesOverBudget = Counter.builder("wallet.authorizer.hedging.over_budget")
+            .description("Hedges não disparados por falta de orçamento")
+            .register(meterRegistry);
+        this.hedgesOverLimit = Counter.builder("wallet.authorizer.hedging.over_limit")
+            .description("Hedges não disparados por falta de vaga no limite de concorrência do autorizador")
+            .register(meterRegistry);
+        Gauge.builder("wallet.authorizer.hedging.delay", this, HedgedRequestExecutor::hedgeDelayMillis)
+            .description("Espera atual antes de disparar o hedge (ms)")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Executa a chamada, disparando uma duplicata se ela passar do percentil de latência.
+     * Exceções não verificadas da chamada são propagadas como foram lançadas. Interrupção
+     * da espera e exceções verificadas viram {@link ResourceAccessException} (falha de I/O,
+     * como as do RestTemplate): seguem para retry, circuit breaker e fallback do
+     * autorizador, que nega a transferência.
+     */
+    public <T> T execute(Supplier<T> call) {
+        if (!enabled) {
+            return call.get();
+        }
+        addBudget();
+
+        long start = System.nanoTime();
+        CompletableFuture<T> primary;
+        try {
+            primary = CompletableFuture.supplyAsync(call, executor);
+        } catch (RejectedExecutionException e) {
+            T result = call.get();
+            recordLatency(System.nanoTime() - start);
+            return result;
+        }
+        // Latência da chamada original, registrada quando ela termina (mesmo que o hedge já tenha vencido)
+        primary.whenComplete((result, error) -> {
+            if (error == null) {
+                recordLatency(System.nanoTime() - start);
+            }
+        });
+
+        long delay = hedgeDelayNanos;
+        try {
+            if (delay == Long.MAX_VALUE) {
+                return primary.get();
+            }
+            try {
+                return primary.get(delay, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                return hedge(call, primary);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResourceAccessException("Chamada ao autorizador interrompida");
+        } catch (ExecutionException e) {
+            throw propagate(e);
+        }
+    }
+
+    private <T> T hedge(Supplier<T> call, CompletableFuture<T> primary)
+            throws InterruptedException, ExecutionException {
+        if (!takeBudget()) {
+            hedgesOverBudget.increment();
+            return primary.get();
+        }
+        AuthorizerConcurrencyLimiter.Permit permit = concurrencyLimiter.tryAcquire();
+        if (permit == null) {
+            // Autorizador no limite: duplicar só aumentaria a carga
+            refundBudget();
+            hedgesOverLimit.increment();
+            return primary.get();
+        }
+
+        CompletableFuture<T> secondary;
+        try {
+            secondary = CompletableFuture.supplyAsync(call, executor);
+        } catch (RejectedExecutionException e) {
+            permit.close();
+            refundBudget();
+            return primary.get();
+        }
+        hedgesSent.increment();
+        // A vaga do hedge só é liberada quando ele termina, mesmo se perder
+        secondary.whenComplete((result, error) -> {
+            if (error == null) {
+                permit.onSuccess();
+            } else {
+                permit.onFailure(unwrap(error));
+            }
+        });
+
+        // Primeira resposta bem-sucedida vence; só falha se as duas falharem
+        CompletableFuture<T> winner = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        primary.whenComplete((result, error) -> complete(winner, result, error, failures));
+        secondary.whenComplete((result, error) -> {
+            if (error == null && !primary.isDone()) {
+                hedgesWon.increment();
+            }
+            complete(winner, result, error, failures);
+        });
+        return winner.get();
+    }
+
+    private static <T> void complete(CompletableFuture<T> winner, T result, Throwable error, AtomicInteger failures) {
+        if (error == null) {
+            winner.complete(result);
+        } else if (failures.incrementAndGet() == 2) {
+            winner.completeExceptionally(error);
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        // whenComplete embrulha a falha em CompletionException
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    private static RuntimeException propagate(ExecutionException e) {
+        Throwable cause = unwrap(e.getCause());
+        if (cause instanceof RuntimeException runtime) {
+            return runtime;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        IOException io = cause instanceof IOException ioException ? ioException : new IOException(cause);
+        return new ResourceAccessException("Falha na chamada ao autorizador: " + cause.getMessage(), io);
+    }
+
+    void recordLatency(long nanos) {
+        long n = samples.getAndIncrement();
+        latencies[(int) (n % latencies.length)] = nanos;
+        if ((n + 1) % MIN_SAMPLES == 0) {
+            recomputeDelay(Math.min(n + 1, latencies.length));
+        }
+    }
+
+    /**
+     * Recalcula o percentil a partir de uma cópia da janela, a cada MIN_SAMPLES
+     * respostas. Roda na thread do pool que executou a chamada original, depois
+     * que quem espera já foi acordado; só quando o pool está cheio e a chamada
+     * roda no próprio chamador a ordenação fica na thread da requisição.
+     */
+    private void recomputeDelay(long count) {
+        long[] window = Arrays.copyOf(latencies, (int) count);
+        Arrays.sort(window);
+        int index = (int) Math.min(window.length - 1, Math.ceil(percentile * window.length) - 1);
+        hedgeDelayNanos = Math.max(minDelayNanos, window[Math.max(0, index)]);
+    }
+
+    private void addBudget() {
+        synchronized (budgetLock) {
+            budgetTokens = Math.min(MAX_BUDGET_TOKENS, budgetTokens + budgetRatio);
+        }
+    }
+
+    private void refundBudget() {
+        synchronized (budgetLock) {
+            budgetTokens = Math.min(MAX_BUDGET_TOKENS, budgetTokens + 1.0);
+        }
+    }
+
+    private boolean takeBudget() {
+        synchronized (budgetLock) {
+            if (budgetTokens < 1.0) {
+                return false;
+            }
+            budgetTokens -= 1.0;
+            return true;
+        }
+    }
+
+    long hedgeDelayMillis() {
+        long delay = hedgeDelayNanos;
+        return delay == Long.MAX_VALUE ? -1 : TimeUnit.NANOSECONDS.toMillis(delay);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.wallet.wallet.services;
+
+import com.wallet.wallet.domain.User;
+import com.wallet.wallet.domain.UserType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Liquidação diferida dos créditos de lojistas (desligada por padrão).
+ *
+ * Lojista só recebe, e lojistas grandes recebem em rajada: com o crédito
+ * imediato, cada pagamento disputa o FOR UPDATE da mesma carteira. Com
+ * wallet.settlement.enabled a transferência para o lojista só grava uma linha
+ * em pending_credits (sem travar a carteira dele). A cada interval-ms as linhas
+ * pendentes são somadas em memória por lojista e aplicadas com um UPDATE por
+ * carteira, na mesma transação que apaga as linhas: crédito aplicado uma vez só,
+ * mesmo com várias instâncias (SKIP LOCKED) ou queda no meio.
+ *
+ * O saldo do lojista é o saldo da carteira mais a soma pendente
+ * ({@link #balanceWithPending}), lidos num único statement.
+ */
+@Service
+@Slf4j
+public class MerchantSettlementService {
+
+    private static final String INSERT_PENDING_SQL =
+        "INSERT INTO pending_credits (merchant_id, transaction_id, amount) VALUES (?, ?, ?)";
+
+    // Apaga e devolve as linhas do lote; só some de vez se o UPDATE das carteiras também confirmar
+    private static final String CLAIM_SQL = """
+        DELETE FROM pending_credits
+         WHERE id IN (SELECT id FROM pending_credits ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED)
+        RETURNING merchant_id, amount
+        """;
+
+    private static final String BALANCE_SQL = """
+        SELECT w.balance + COALESCE((SELECT SUM(p.amount) FROM pending_credits p WHERE p.merchant_id = w.user_id), 0)
+          FROM wallets w
+         WHERE w.user_id = ?
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransferLockTimeouts lockTimeouts;
+    private final ShardRouter shardRouter;
+    private final boolean enabled;
+    private final Set<String> merchantIds;
+    private final long intervalMs;
+    private final int batchSize;
+
+    private final ScheduledExecutorService scheduler;
+    private final Counter settledCredits;
+    private final Counter walletUpdates;
+    private final Timer batchTimer;
+
+    public MerchantSettlementService(
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            TransferLockTimeouts lockTimeouts,
+            ShardRouter shardRouter,
+            MeterRegistry meterRegistry,
+            @Value("${wallet.settlement.enabled:false}") boolean enabled,
+            @Value("${wallet.settlement.merchant-ids:}") Set<String> merchantIds,
+            @Value("${wallet.settlement.interval-ms:1000}") long intervalMs,
+            @Value("${wallet.settlement.batch-size:5000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.lockTimeouts = lockTimeouts;
+        this.shardRouter = shardRouter;
+        this.enabled = enabled;
+        this.merchantIds = merchantIds.stream().filter(id -> !id.isBlank()).collect(Collectors.toSet());
+        this.intervalMs = intervalMs;
+        this.batchSize = batchSize;
+
+        this.scheduler = enabled
+            ? Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("merchant-settlement-"))
+            : null;
+
+        this.settledCredits = Counter.builder("wallet.settlement.credits")
+            .description("Créditos pendentes de lojistas aplicados na carteira")
+            .register(meterRegistry);
+        this.walletUpdates = Counter.builder("wallet.settlement.wallet.updates")
+            .description("UPDATEs de carteira feitos pela liquidação (um por lojista por lote)")
+            .register(meterRegistry);
+        this.batchTimer = Timer.builder("wallet.settlement.batch")
+            .description("Duração de cada lote de liquidação")
+            .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        log.info("Liquidação diferida de lojistas a cada {}ms ({})", intervalMs,
+            merchantIds.isEmpty() ? "todos os lojistas" : merchantIds.size() + " lojistas");
+        scheduler.scheduleWithFixedDelay(this::settle, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return true se o crédito para este recebedor vira pendência em vez de UPDATE imediato
+     */
+    public boolean defersCreditTo(User receiver) {
+        return enabled
+            && receiver.getUserType() == UserType.MERCHANT
+            && (merchantIds.isEmpty() || merchantIds.contains(receiver.getId()));
+    }
+
+    /**
+     * Grava o crédito pendente (chamar dentro da transação da transferência).
+     */
+    public void recordPending(String merchantId, String transactionId, BigDecimal amount) {
+        jdbcTemplate.update(INSERT_PENDING_SQL, merchantId, transactionId, amount);
+    }
+
+    /**
+     * Saldo liquidado + pendente, no mesmo snapshot (a liquidação troca um pelo outro atomicamente).
+     */
+    public Optional<BigDecimal> balanceWithPending(String userId) {
+        return jdbcTemplate.query(BALANCE_SQL, (rs, rowNum) -> rs.getBigDecimal(1), userId).stream().findFirst();
+    }
+
+    /**
+     * Liquida tudo o que está pendente em cada shard, em lotes de batch-size linhas.
+     */
+    void settle() {
+        for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+            try {
+                shardRouter.onShard(shard, () -> {
+                    int settled;
+                    do {
+                        settled = settleBatch();
+                    } while (settled == batchSize);
+                });
+            } catch (RuntimeException e) {
+                // As linhas continuam pendentes (o lote foi desfeito): tenta de novo no próximo ciclo
+                log.warn("Liquidação de lojistas falhou no shard {}: {}", shard, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @return Linhas pendentes aplicadas neste lote
+     */
+    int settleBatch() {
+        long start = System.nanoTime();
+        Integer claimed = transactionTemplate.execute(status -> {
+            lockTimeouts.apply();
+
+            // Ordenado por lojista: duas instâncias liquidando ao mesmo tempo travam as carteiras na mesma ordem
+            Map<String, BigDecimal> netted = new TreeMap<>();
+            int rows = jdbcTemplate.query(CLAIM_SQL, rs -> {
+                int count = 0;
+                while (rs.next()) {
+                    netted.merge(rs.getString("merchant_id"), rs.getBigDecimal("amount"), BigDecimal::add);
+                    count++;
+                }
+                return count;
+            }, batchSize);
+            if (rows == 0) {
+                return 0;
+            }
+
+            List<Object[]> updates = new ArrayList<>(netted.size());
+            netted.forEach((merchantId, amount) -> updates.add(new Object[]{amount, merchantId}));
+            int[] updated = jdbcTemplate.batchUpdate("UPDATE wallets SET balance = balance + ? WHERE user_id = ?", updates);
+            for (int i = 0; i < updated.length; i++) {
+                if (updated[i] == 0) {
+                    throw new IllegalStateException("Carteira do lojista " + updates.get(i)[1] + " não encontrada");
+                }
+            }
+
+            settledCredits.increment(rows);
+            walletUpdates.increment(netted.size());
+            return rows;
+        });
+        batchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return claimed == null ? 0 : claimed;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.wallet.wallet.services;
+
+import com.wallet.wallet.domain.DomainException;
+import com.wallet.wallet.dtos.ExceptionDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Hashing de senhas em executores dedicados.
+ *
+ * Cadastros individuais entram na fila limitada do passwordHashingExecutor e
+ * são rejeitados imediatamente quando ela está cheia. A thread do Tomcat
+ * continua esperando o hash (até timeout-ms): o ganho não é liberar a thread
+ * da requisição, e sim limitar quantos hashes rodam ao mesmo tempo e recusar
+ * o excesso na hora, em vez de deixar cadastros em rajada tomarem a CPU das
+ * transferências.
+ *
+ * A importação em massa usa {@link #hashAll(List)} no
+ * passwordImportHashingExecutor, separado: um arquivo grande não ocupa a fila
+ * dos cadastros. O que não couber na fila da importação roda no próprio
+ * chamador (backpressure).
+ */
+@Service
+@Slf4j
+public class PasswordHashingService {
+
+    private static final ExceptionDTO QUEUE_FULL =
+        new ExceptionDTO("Serviço de cadastro sobrecarregado, tente novamente", "503");
+    private static final ExceptionDTO TIMED_OUT =
+        new ExceptionDTO("Tempo esgotado ao processar senha, tente novamente", "503");
+    private static final ExceptionDTO INTERRUPTED =
+        new ExceptionDTO("Processamento de senha interrompido", "503");
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final ThreadPoolExecutor importExecutor;
+    private final long timeoutMs;
+    private final Counter rejectedCounter;
+
+    public PasswordHashingService(
+            PasswordEncoder passwordEncoder,
+            @Qualifier("passwordHashingExecutor") ThreadPoolExecutor executor,
+            @Qualifier("passwordImportHashingExecutor") ThreadPoolExecutor importExecutor,
+            @Value("${wallet.security.password.hashing.timeout-ms:5000}") long timeoutMs,
+            MeterRegistry meterRegistry) {
+        this.passwordEncoder = passwordEncoder;
+        this.executor = executor;
+        this.importExecutor = importExecutor;
+        this.timeoutMs = timeoutMs;
+        this.rejectedCounter = Counter.builder("wallet.password.hashing.rejected")
+            .description("Cadastros rejeitados por fila de hashing cheia ou timeout")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Gera o hash de uma senha no executor dedicado.
+     * Bloqueia a thread chamadora até o hash ficar pronto ou o timeout expirar.
+     *
+     * @param rawPassword Senha em texto puro
+     * @return Hash da senha
+     * @throws HashingRejectedException se a fila estiver cheia ou o hash exceder o timeout
+     */
+    public String hash(String rawPassword) {
+        Future<String> future;
+        try {
+            future = executor.submit(() -> passwordEncoder.encode(rawPassword));
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            log.warn("Fila de hashing cheia ({} pendentes) - cadastro rejeitado", executor.getQueue().size());
+            throw new HashingRejectedException(QUEUE_FULL);
+        }
+
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejectedCounter.increment();
+            throw new HashingRejectedException(TIMED_OUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new HashingRejectedException(INTERRUPTED);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Falha ao gerar hash da senha", e.getCause());
+        }
+    }
+
+    /**
+     * Gera o hash de várias senhas em paralelo no executor da importação, preservando a ordem.
+     * O que não couber na fila roda na thread chamadora (backpressure para cargas em lote).
+     *
+     * @param rawPasswords Senhas em texto puro
+     * @return Hashes na mesma ordem da entrada
+     */
+    public List<String> hashAll(List<String> rawPasswords) {
+        List<Future<String>> futures = new ArrayList<>(rawPasswords.size());
+        List<String> hashes = new ArrayList<>(rawPasswords.size());
+
+        for (String raw : rawPasswords) {
+            try {
+                futures.add(importExecutor.submit(() -> passwordEncoder.encode(raw)));
+            } catch (RejectedExecutionException e) {
+                futures.add(CompletableFuture.completedFuture(passwordEncoder.encode(raw)));
+            }
+        }
+
+        for (Future<String> future : futures) {
+            try {
+                hashes.add(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new HashingRejectedException(INTERRUPTED);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Falha ao gerar hash da senha", e.getCause());
+            }
+        }
+        return hashes;
+    }
+
+    /**
+     * Cadastro rejeitado por sobrecarga do hashing (mapeado para 503).
+     */
+    public static class HashingRejectedException extends DomainException {
+        public HashingRejectedException(ExceptionDTO body) {
+            super(HttpStatus.SERVICE_UNAVAILABLE, body);
+        }
+    }
+}
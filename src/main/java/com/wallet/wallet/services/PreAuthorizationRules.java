@@ -0,0 +1,275 @@
+package com.wallet.wallet.services;
+
+import com.wallet.wallet.domain.User;
+import com.wallet.wallet.domain.UserType;
+import com.wallet.wallet.infra.LogMasker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.event.Level;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pré-autorização local, avaliada antes de chamar o autorizador externo.
+ *
+ * As regras vêm de wallet.preauth.rules e são compiladas uma vez na
+ * inicialização. A primeira regra que casar decide:
+ * - APPROVE: transferência aprovada localmente, sem chamada remota
+ * - REMOTE: segue para o autorizador externo
+ * Sem regra casando, vai para o autorizador (REMOTE).
+ *
+ * Formato: regras separadas por ';', cada uma "nome:condições:ação", com
+ * condições separadas por ',' (todas precisam casar):
+ * - amount<=X / amount>X   valor da transferência
+ * - sender=COMMON|MERCHANT tipo do remetente
+ * - history>=N             transferências anteriores do remetente para o mesmo
+ *                          recebedor dentro de history-window-days
+ *
+ * Ex: high-value:amount>500:REMOTE;small-known:amount<=100,sender=COMMON,history>=3:APPROVE
+ *
+ * Sem regras (padrão), tudo vai ao autorizador: aprovar localmente é uma
+ * decisão de política e precisa ser ligada explicitamente.
+ *
+ * O casamento das regras não aloca: percorre um array com limites já
+ * convertidos e consulta o histórico por fingerprint de 64 bits. Cada decisão
+ * incrementa o contador da regra. Toda aprovação local sai em INFO no logger de
+ * auditoria (wallet.audit.preauthorization), com regra, remetente e recebedor
+ * mascarados e valor: é o único registro de uma transferência que não passou
+ * pelo autorizador. Decisões REMOTE e o padrão só saem em DEBUG.
+ */
+@Service
+public class PreAuthorizationRules {
+
+    private static final Logger audit = LoggerFactory.getLogger("wallet.audit.preauthorization");
+
+    private static final int HISTORY_LOCK_STRIPES = 64;
+
+    public enum Action {
+        APPROVE,
+        REMOTE
+    }
+
+    private final boolean enabled;
+    private final Rule[] rules;
+    // Histórico só é mantido se alguma regra usa history>=N
+    private final boolean tracksHistory;
+    private final Counter defaultRemote;
+
+    // Histórico de pares remetente → recebedor: tabela de endereçamento direto.
+    // Colisão de slot sobrescreve o par antigo (ele só "esquece" o histórico, nunca herda).
+    private final long[] historyKeys;
+    private final int[] historyCounts;
+    private final long[] historyLastSeen;
+    private final Object[] historyLocks = new Object[HISTORY_LOCK_STRIPES];
+    private final int historyMask;
+    private final long historyWindowMillis;
+
+    public PreAuthorizationRules(
+            MeterRegistry meterRegistry,
+            @Value("${wallet.preauth.enabled:true}") boolean enabled,
+            @Value("${wallet.preauth.rules:}") String rules,
+            @Value("${wallet.preauth.history-window-days:30}") int historyWindowDays,
+            @Value("${wallet.preauth.history-slots:65536}") int historySlots) {
+        this.enabled = enabled;
+        this.rules = compile(rules, meterRegistry);
+        this.tracksHistory = Arrays.stream(this.rules).anyMatch(rule -> rule.minHistory > 0);
+        this.defaultRemote = hitCounter(meterRegistry, "default", Action.REMOTE);
+
+        int slots = Integer.highestOneBit(Math.max(HISTORY_LOCK_STRIPES, historySlots));
+        this.historyKeys = new long[slots];
+        this.historyCounts = new int[slots];
+        this.historyLastSeen = new long[slots];
+        this.historyMask = slots - 1;
+        this.historyWindowMillis = TimeUnit.DAYS.toMillis(historyWindowDays);
+        for (int i = 0; i < HISTORY_LOCK_STRIPES; i++) {
+            historyLocks[i] = new Object();
+        }
+    }
+
+    /**
+     * Decide se a transferência pode ser aprovada sem o autorizador externo.
+     *
+     * @param sender Remetente (já validado)
+     * @param receiverId ID do recebedor
+     * @param amount Valor da transferência
+     * @return true se alguma regra APPROVE casou
+     */
+    public boolean approvesLocally(User sender, String receiverId, BigDecimal amount) {
+        if (!enabled || rules.length == 0) {
+            return false;
+        }
+
+        long fingerprint = fingerprint(sender.getId(), receiverId);
+        int history = -1;
+
+        for (Rule rule : rules) {
+            if (rule.minHistory > 0 && history < 0) {
+                history = historyCount(fingerprint);
+            }
+            if (rule.matches(sender.getUserType(), amount, history)) {
+                rule.hits.increment();
+                audit(rule.name, rule.action, sender.getId(), receiverId, amount);
+                return rule.action == Action.APPROVE;
+            }
+        }
+
+        defaultRemote.increment();
+        audit("default", Action.REMOTE, sender.getId(), receiverId, amount);
+        return false;
+    }
+
+    /**
+     * Registra uma transferência concluída para a regra de histórico (chamar após o commit).
+     */
+    public void recordTransfer(String senderId, String receiverId) {
+        if (!enabled || !tracksHistory) {
+            return;
+        }
+        long fingerprint = fingerprint(senderId, receiverId);
+        int slot = (int) (fingerprint ^ (fingerprint >>> 32)) & historyMask;
+        long now = System.currentTimeMillis();
+
+        synchronized (historyLocks[slot & (HISTORY_LOCK_STRIPES - 1)]) {
+            if (historyKeys[slot] != fingerprint || now - historyLastSeen[slot] > historyWindowMillis) {
+                historyKeys[slot] = fingerprint;
+                historyCounts[slot] = 0;
+            }
+            if (historyCounts[slot] < Integer.MAX_VALUE) {
+                historyCounts[slot]++;
+            }
+            historyLastSeen[slot] = now;
+        }
+    }
+
+    int historyCount(String senderId, String receiverId) {
+        return historyCount(fingerprint(senderId, receiverId));
+    }
+
+    private int historyCount(long fingerprint) {
+        int slot = (int) (fingerprint ^ (fingerprint >>> 32)) & historyMask;
+        synchronized (historyLocks[slot & (HISTORY_LOCK_STRIPES - 1)]) {
+            if (historyKeys[slot] != fingerprint
+                    || System.currentTimeMillis() - historyLastSeen[slot] > historyWindowMillis) {
+                return 0;
+            }
+            return historyCounts[slot];
+        }
+    }
+
+    private void audit(String rule, Action action, String senderId, String receiverId, BigDecimal amount) {
+        // Aprovação local sempre auditada; REMOTE fica registrado pelo próprio autorizador
+        Level level = action == Action.APPROVE ? Level.INFO : Level.DEBUG;
+        if (!audit.isEnabledForLevel(level)) {
+            return;
+        }
+        audit.atLevel(level)
+            .addKeyValue("rule", rule)
+            .addKeyValue("action", action)
+            .addKeyValue("senderId", LogMasker.maskUserId(senderId))
+            .addKeyValue("receiverId", LogMasker.maskUserId(receiverId))
+            .addKeyValue("amount", LogMasker.maskBalance(amount))
+            .log("Decisão de pré-autorização");
+    }
+
+    /**
+     * FNV-1a 64 bits sobre "senderId|receiverId", sem concatenar strings.
+     */
+    private static long fingerprint(String senderId, String receiverId) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < senderId.length(); i++) {
+            hash = (hash ^ senderId.charAt(i)) * 0x100000001b3L;
+        }
+        hash = (hash ^ '|') * 0x100000001b3L;
+        for (int i = 0; i < receiverId.length(); i++) {
+            hash = (hash ^ receiverId.charAt(i)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static Rule[] compile(String config, MeterRegistry meterRegistry) {
+        List<Rule> compiled = new ArrayList<>();
+        if (config == null || config.isBlank()) {
+            return new Rule[0];
+        }
+
+        for (String definition : config.split(";")) {
+            if (definition.isBlank()) {
+                continue;
+            }
+            String[] parts = definition.trim().split(":");
+            if (parts.length != 3) {
+                throw new IllegalStateException("Regra de pré-autorização inválida (esperado nome:condições:ação): " + definition);
+            }
+
+            String name = parts[0].trim();
+            Action action = Action.valueOf(parts[2].trim().toUpperCase());
+            BigDecimal maxAmount = null;
+            BigDecimal minAmountExclusive = null;
+            UserType senderType = null;
+            int minHistory = 0;
+
+            for (String condition : parts[1].split(",")) {
+                String c = condition.trim();
+                if (c.startsWith("amount<=")) {
+                    maxAmount = new BigDecimal(c.substring("amount<=".length()));
+                } else if (c.startsWith("amount>")) {
+                    minAmountExclusive = new BigDecimal(c.substring("amount>".length()));
+                } else if (c.startsWith("sender=")) {
+                    senderType = UserType.valueOf(c.substring("sender=".length()).toUpperCase());
+                } else if (c.startsWith("history>=")) {
+                    minHistory = Integer.parseInt(c.substring("history>=".length()));
+                } else {
+                    throw new IllegalStateException("Condição de pré-autorização não suportada: " + c + " (regra " + name + ")");
+                }
+            }
+
+            compiled.add(new Rule(name, action, maxAmount, minAmountExclusive, senderType, minHistory,
+                hitCounter(meterRegistry, name, action)));
+        }
+        return compiled.toArray(new Rule[0]);
+    }
+
+    private static Counter hitCounter(MeterRegistry meterRegistry, String rule, Action action) {
+        return Counter.builder("wallet.preauth.decisions")
+            .description("Decisões de pré-autorização por regra")
+            .tag("rule", rule)
+            .tag("action", action.name().toLowerCase())
+            .register(meterRegistry);
+    }
+
+    private static final class Rule {
+        final String name;
+        final Action action;
+        final BigDecimal maxAmount;
+        final BigDecimal minAmountExclusive;
+        final UserType senderType;
+        final int minHistory;
+        final Counter hits;
+
+        Rule(String name, Action action, BigDecimal maxAmount, BigDecimal minAmountExclusive,
+             UserType senderType, int minHistory, Counter hits) {
+            this.name = name;
+            this.action = action;
+            this.maxAmount = maxAmount;
+            this.minAmountExclusive = minAmountExclusive;
+            this.senderType = senderType;
+            this.minHistory = minHistory;
+            this.hits = hits;
+        }
+
+        boolean matches(UserType type, BigDecimal amount, int history) {
+            return (maxAmount == null || amount.compareTo(maxAmount) <= 0)
+                && (minAmountExclusive == null || amount.compareTo(minAmountExclusive) > 0)
+                && (senderType == null || senderType == type)
+                && (minHistory == 0 || history >= minHistory);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.wallet.wallet.services;
+
+import com.wallet.wallet.infra.LogMasker;
+import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
+import io.github.resilience4j.retry.annotation.Retry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientException;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * Versão não bloqueante de {@link AuthorizationService} para a stack reativa.
+ *
+ * Usa as mesmas instâncias do Resilience4j (authorizerCircuitBreaker e
+ * authorizerRetry, aplicadas ao Mono via resilience4j-reactor) e o mesmo
+ * {@link AuthorizerConcurrencyLimiter}: nas duas stacks o autorizador vê o
+ * mesmo limite. Sem hedging.
+ *
+ * ⚠️ Com wallet.authorizer.limiter.queue-policy=WAIT a reserva de vaga pode
+ * bloquear a thread por até max-wait-ms; na stack reativa use REJECT.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveAuthorizationClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveAuthorizationClient.class);
+
+    private static final ParameterizedTypeReference<Map<String, Object>> RESPONSE_TYPE =
+        new ParameterizedTypeReference<>() {};
+
+    @Autowired
+    private WebClient authorizerWebClient;
+
+    @Autowired
+    private AuthorizerConcurrencyLimiter concurrencyLimiter;
+
+    @Value("${wallet.authorizer.url:https://run.mocky.io/v3/5794d450-d2e2-4412-8131-73d0293ac1cc}")
+    private String authorizerUrl;
+
+    /**
+     * Autoriza uma transação via API externa, sem ocupar thread durante a espera.
+     * Cada tentativa (re)assina o Mono e ocupa uma vaga do limite adaptativo.
+     *
+     * @param senderId ID do remetente
+     * @param value Valor da transação
+     * @return Mono com true se autorizado
+     */
+    @CircuitBreaker(
+        name = "authorizerCircuitBreaker",
+        fallbackMethod = "authorizationFallback"
+    )
+    @Retry(
+        name = "authorizerRetry"
+    )
+    public Mono<Boolean> authorizeTransaction(String senderId, BigDecimal value) {
+        return Mono.using(
+            concurrencyLimiter::acquire,
+            permit -> authorizerWebClient.get()
+                .uri(authorizerUrl)
+                .retrieve()
+                .bodyToMono(RESPONSE_TYPE)
+                .doOnNext(body -> permit.onSuccess())
+                .doOnError(e -> {
+                    // Só I/O, timeout, 5xx e 429 reduzem o limite; 4xx ou corpo inválido contam como resposta
+                    permit.onFailure(e);
+                    if (e instanceof WebClientException) {
+                        logger.warn("Erro ao chamar autorizador (será retentado): {}", e.getMessage());
+                    }
+                })
+                .map(body -> {
+                    boolean authorized = "Autorizado".equalsIgnoreCase((String) body.get("message"));
+                    if (authorized && logger.isDebugEnabled()) {
+                        logger.debug("Transação autorizada pelo autorizador externo para senderId: {}",
+                            LogMasker.maskUserId(senderId));
+                    }
+                    return authorized;
+                })
+                .defaultIfEmpty(false),
+            AuthorizerConcurrencyLimiter.Permit::close);
+    }
+
+    /**
+     * Fallback: autorizador indisponível nega a transação (mesma política da stack MVC).
+     */
+    public Mono<Boolean> authorizationFallback(String senderId, BigDecimal value, Throwable ex) {
+        logger.error(
+            "FALLBACK ACIONADO: Autorizador externo indisponível. Transação negada por segurança. Motivo: {}",
+            ex.getMessage()
+        );
+        return Mono.just(false);
+    }
+
+    /**
+     * Autorizador saturado não é negação: propaga para virar 503.
+     */
+    public Mono<Boolean> authorizationFallback(String senderId, BigDecimal value,
+                                               AuthorizerConcurrencyLimiter.LimitExceededException ex) {
+        return Mono.error(ex);
+    }
+}
@@ -0,0 +1,324 @@
+package com.wallet.wallet.services;
+
+import com.wallet.wallet.domain.DomainException.InsufficientFundsException;
+import com.wallet.wallet.domain.DomainException.TransactionNotAuthorizedException;
+import com.wallet.wallet.domain.DomainException.UserNotFoundException;
+import com.wallet.wallet.domain.DomainException.WalletNotFoundException;
+import com.wallet.wallet.domain.Transaction;
+import com.wallet.wallet.domain.User;
+import com.wallet.wallet.domain.UserType;
+import com.wallet.wallet.domain.Wallet;
+import com.wallet.wallet.dtos.BalanceDTO;
+import com.wallet.wallet.dtos.TransactionDTO;
+import com.wallet.wallet.infra.TransferMetrics;
+import com.wallet.wallet.infra.TransferPhaseTimer;
+import io.github.resilience4j.reactor.retry.RetryOperator;
+import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.R2dbcException;
+import io.r2dbc.spi.Readable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Transferência e consulta de saldo da stack reativa (perfil "reactive").
+ *
+ * Mesma semântica de {@link TransferGateway} + {@link TransactionService}:
+ * - admissão ({@link AdmissionControlService}) antes de tocar no banco
+ * - validação, pré-autorização local e autorizador externo fora da transação
+ * - transação READ_COMMITTED com lock_timeout/statement_timeout (PostgreSQL),
+ *   FOR UPDATE no remetente, checagem de saldo, FOR UPDATE no recebedor
+ * - falha de lock repetida com jitter (transferLockRetry): só a transação, sem
+ *   consultar o autorizador de novo
+ *
+ * A diferença é que nenhuma thread fica parada esperando autorizador, lock ou
+ * banco: o SQL vai pelo R2DBC e o autorizador pelo {@link ReactiveAuthorizationClient}.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveWalletService {
+
+    private static final String SELECT_USER = """
+        SELECT u.id, u.document, u.email, u.first_name, u.last_name, u.password, u.user_type,
+               w.id AS wallet_id, w.balance
+          FROM users u
+          LEFT JOIN wallets w ON w.user_id = u.id
+         WHERE u.id = :id
+        """;
+
+    private static final String SELECT_BALANCE = "SELECT w.balance FROM wallets w WHERE w.user_id = :userId";
+
+    // Mesmo statement de MerchantSettlementService.balanceWithPending
+    private static final String SELECT_BALANCE_WITH_PENDING = """
+        SELECT w.balance + COALESCE((SELECT SUM(p.amount) FROM pending_credits p WHERE p.merchant_id = w.user_id), 0) AS balance
+          FROM wallets w
+         WHERE w.user_id = :userId
+        """;
+
+    private static final String LOCK_WALLET =
+        "SELECT w.id, w.balance FROM wallets w WHERE w.user_id = :userId FOR UPDATE";
+
+    private static final String UPDATE_BALANCE = "UPDATE wallets SET balance = :balance WHERE id = :id";
+
+    private static final String INSERT_TRANSACTION = """
+        INSERT INTO transactions (id, amount, sender_id, receiver_id, "timestamp")
+        VALUES (:id, :amount, :senderId, :receiverId, :timestamp)
+        """;
+
+    private final DatabaseClient databaseClient;
+    private final TransactionalOperator transactionalOperator;
+    private final ReactiveAuthorizationClient authorizationClient;
+    private final PreAuthorizationRules preAuthorizationRules;
+    private final VelocityLimits velocityLimits;
+    private final AdmissionControlService admissionControl;
+    private final UserService userService;
+    private final MerchantSettlementService merchantSettlement;
+    private final TransferMetrics transferMetrics;
+    private final Retry lockRetry;
+
+    // SET LOCAL só no PostgreSQL (H2 nos testes não tem lock_timeout por transação)
+    private final boolean postgres;
+    private final String setLockTimeout;
+    private final String setStatementTimeout;
+
+    public ReactiveWalletService(
+            DatabaseClient databaseClient,
+            TransactionalOperator transferTransactionalOperator,
+            ConnectionFactory connectionFactory,
+            ReactiveAuthorizationClient authorizationClient,
+            PreAuthorizationRules preAuthorizationRules,
+            VelocityLimits velocityLimits,
+            AdmissionControlService admissionControl,
+            UserService userService,
+            MerchantSettlementService merchantSettlement,
+            TransferMetrics transferMetrics,
+            RetryRegistry retryRegistry,
+            @Value("${wallet.transfer.lock-timeout-ms:1000}") long lockTimeoutMs,
+            @Value("${wallet.transfer.statement-timeout-ms:3000}") long statementTimeoutMs) {
+        this.databaseClient = databaseClient;
+        this.transactionalOperator = transferTransactionalOperator;
+        this.authorizationClient = authorizationClient;
+        this.preAuthorizationRules = preAuthorizationRules;
+        this.velocityLimits = velocityLimits;
+        this.admissionControl = admissionControl;
+        this.userService = userService;
+        this.merchantSettlement = merchantSettlement;
+        this.transferMetrics = transferMetrics;
+        this.lockRetry = retryRegistry.retry("transferLockRetry");
+        this.postgres = "PostgreSQL".equals(connectionFactory.getMetadata().getName());
+        this.setLockTimeout = "SET LOCAL lock_timeout = '" + lockTimeoutMs + "ms'";
+        this.setStatementTimeout = "SET LOCAL statement_timeout = '" + statementTimeoutMs + "ms'";
+    }
+
+    /**
+     * Executa a transferência. A permissão de admissão vale para a transferência
+     * inteira, incluindo as novas tentativas da transação.
+     *
+     * @param transaction Transfer details (amount, sender, receiver)
+     * @return Mono com a transação persistida (emitido após o commit)
+     */
+    public Mono<Transaction> transfer(TransactionDTO transaction) {
+        return Mono.using(
+            () -> admissionControl.admit(transaction.senderId(), transaction.receiverId()),
+            permit -> createTransaction(transaction),
+            AdmissionControlService.Permit::close);
+    }
+
+    /**
+     * Saldo atual, sem lock (leitura READ_COMMITTED).
+     * Com liquidação diferida, inclui os créditos pendentes do lojista (como {@link UserService#getBalance}).
+     */
+    public Mono<BalanceDTO> getBalance(String userId) {
+        return databaseClient.sql(merchantSettlement.isEnabled() ? SELECT_BALANCE_WITH_PENDING : SELECT_BALANCE)
+            .bind("userId", userId)
+            .map(row -> row.get("balance", BigDecimal.class))
+            .one()
+            .map(balance -> new BalanceDTO(userId, balance))
+            .switchIfEmpty(Mono.error(WalletNotFoundException::ofUser));
+    }
+
+    private Mono<Transaction> createTransaction(TransactionDTO transaction) {
+        return Mono.defer(() -> {
+            TransferPhaseTimer timer = new TransferPhaseTimer();
+            long[] lockAcquiredNanos = new long[1];
+            VelocityLimits.Reservation[] velocity = {VelocityLimits.Reservation.NONE};
+
+            return Mono.zip(findUser(transaction.senderId()), findUser(transaction.receiverId()))
+                .flatMap(users -> {
+                    User sender = users.getT1();
+                    User receiver = users.getT2();
+                    timer.lap(TransferMetrics.Phase.USER_LOOKUP);
+
+                    userService.validateTransaction(sender, transaction.value());
+                    velocity[0] = velocityLimits.reserve(sender.getId(), transaction.value());
+
+                    timer.mark();
+                    return authorize(sender, receiver, transaction.value())
+                        .flatMap(authorized -> {
+                            timer.lap(TransferMetrics.Phase.AUTHORIZATION);
+                            if (!authorized) {
+                                return Mono.error(new TransactionNotAuthorizedException());
+                            }
+                            // Nova tentativa = nova assinatura da transação; a autorização acima não se repete
+                            return transferLocked(sender, receiver, transaction.value(), timer, lockAcquiredNanos)
+                                .as(transactionalOperator::transactional)
+                                .transformDeferred(RetryOperator.of(lockRetry));
+                        });
+                })
+                // Após o commit: lock hold, métrica de sucesso e histórico da pré-autorização (a reserva do limite fica)
+                .doOnSuccess(newTransaction -> {
+                    timer.record(TransferMetrics.Phase.LOCK_HOLD, lockAcquiredNanos[0]);
+                    transferMetrics.record(timer, TransferMetrics.Outcome.SUCCESS);
+                    preAuthorizationRules.recordTransfer(
+                        newTransaction.getSender().getId(), newTransaction.getReceiver().getId());
+                })
+                .doOnError(e -> {
+                    transferMetrics.record(timer, TransferMetrics.outcomeOf(e));
+                    // Negada ou desfeita (depois das novas tentativas): a reserva não conta no limite
+                    velocity[0].release();
+                });
+        });
+    }
+
+    private Mono<Boolean> authorize(User sender, User receiver, BigDecimal amount) {
+        if (preAuthorizationRules.approvesLocally(sender, receiver.getId(), amount)) {
+            return Mono.just(true);
+        }
+        return authorizationClient.authorizeTransaction(sender.getId(), amount);
+    }
+
+    /**
+     * Parte transacional: locks na mesma ordem de TransactionService (remetente, depois recebedor).
+     */
+    private Mono<Transaction> transferLocked(User sender, User receiver, BigDecimal amount,
+                                             TransferPhaseTimer timer, long[] lockAcquiredNanos) {
+        return applyLockTimeouts()
+            .then(Mono.fromRunnable(timer::mark))
+            .then(lockWallet(sender))
+            .switchIfEmpty(Mono.error(WalletNotFoundException::ofSender))
+            .flatMap(senderWallet -> {
+                timer.lap(TransferMetrics.Phase.LOCK_WAIT);
+                lockAcquiredNanos[0] = System.nanoTime();
+
+                if (senderWallet.getBalance().compareTo(amount) < 0) {
+                    return Mono.error(new InsufficientFundsException());
+                }
+
+                timer.mark();
+                return lockWallet(receiver)
+                    .switchIfEmpty(Mono.error(WalletNotFoundException::ofReceiver))
+                    .flatMap(receiverWallet -> {
+                        timer.lap(TransferMetrics.Phase.LOCK_WAIT);
+
+                        senderWallet.setBalance(senderWallet.getBalance().subtract(amount));
+                        receiverWallet.setBalance(receiverWallet.getBalance().add(amount));
+                        sender.setWallet(senderWallet);
+                        receiver.setWallet(receiverWallet);
+
+                        Transaction newTransaction = new Transaction();
+                        newTransaction.setId(UUID.randomUUID().toString());
+                        newTransaction.setAmount(amount);
+                        newTransaction.setSender(sender);
+                        newTransaction.setReceiver(receiver);
+                        newTransaction.setTimestamp(LocalDateTime.now());
+
+                        return updateBalance(senderWallet)
+                            .then(updateBalance(receiverWallet))
+                            .then(insertTransaction(newTransaction))
+                            .then(Mono.fromCallable(() -> {
+                                timer.lap(TransferMetrics.Phase.INSERT);
+                                return newTransaction;
+                            }));
+                    });
+            })
+            .onErrorMap(DataAccessException.class, ReactiveWalletService::translateTimeout);
+    }
+
+    /**
+     * O tradutor do R2DBC entrega 55P03 (lock_timeout) e 57014 (statement_timeout) como
+     * DataAccessResourceFailureException; aqui viram as mesmas exceções da stack JPA,
+     * que o transferLockRetry retenta e o ControllerExceptionHandler responde com 409/503.
+     */
+    private static Throwable translateTimeout(DataAccessException e) {
+        if (!(e.getCause() instanceof R2dbcException cause)) {
+            return e;
+        }
+        if ("55P03".equals(cause.getSqlState())) {
+            return new CannotAcquireLockException(e.getMessage(), cause);
+        }
+        if ("57014".equals(cause.getSqlState())) {
+            return new QueryTimeoutException(e.getMessage(), cause);
+        }
+        return e;
+    }
+
+    private Mono<Void> applyLockTimeouts() {
+        if (!postgres) {
+            return Mono.empty();
+        }
+        return databaseClient.sql(setLockTimeout).then()
+            .then(databaseClient.sql(setStatementTimeout).then());
+    }
+
+    private Mono<User> findUser(String id) {
+        return databaseClient.sql(SELECT_USER)
+            .bind("id", id)
+            .map(ReactiveWalletService::toUser)
+            .one()
+            .switchIfEmpty(Mono.error(UserNotFoundException::new));
+    }
+
+    private Mono<Wallet> lockWallet(User owner) {
+        return databaseClient.sql(LOCK_WALLET)
+            .bind("userId", owner.getId())
+            .map(row -> new Wallet(row.get("id", String.class), row.get("balance", BigDecimal.class), owner))
+            .one();
+    }
+
+    private Mono<Void> updateBalance(Wallet wallet) {
+        return databaseClient.sql(UPDATE_BALANCE)
+            .bind("balance", wallet.getBalance())
+            .bind("id", wallet.getId())
+            .then();
+    }
+
+    private Mono<Void> insertTransaction(Transaction transaction) {
+        return databaseClient.sql(INSERT_TRANSACTION)
+            .bind("id", transaction.getId())
+            .bind("amount", transaction.getAmount())
+            .bind("senderId", transaction.getSender().getId())
+            .bind("receiverId", transaction.getReceiver().getId())
+            .bind("timestamp", transaction.getTimestamp())
+            .then();
+    }
+
+    private static User toUser(Readable row) {
+        User user = new User();
+        user.setId(row.get("id", String.class));
+        user.setDocument(row.get("document", String.class));
+        user.setEmail(row.get("email", String.class));
+        user.setFirstName(row.get("first_name", String.class));
+        user.setLastName(row.get("last_name", String.class));
+        user.setPassword(row.get("password", String.class));
+        String userType = row.get("user_type", String.class);
+        user.setUserType(userType != null ? UserType.valueOf(userType) : null);
+
+        String walletId = row.get("wallet_id", String.class);
+        if (walletId != null) {
+            user.setWallet(new Wallet(walletId, row.get("balance", BigDecimal.class), user));
+        }
+        return user;
+    }
+}
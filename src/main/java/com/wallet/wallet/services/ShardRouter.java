@@ -0,0 +1,93 @@
+package com.wallet.wallet.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Shard de cada carteira e shard corrente da thread.
+ *
+ * A carteira (e o usuário dono) mora no shard hash(userId) mod N, com N = número
+ * de URLs em wallet.sharding.urls (perfil "sharded"). Sem shards configurados há
+ * um único shard e {@link #onShard} só executa a operação.
+ *
+ * O shard corrente é lido pelo {@code ShardRoutingDataSource} quando uma conexão
+ * é obtida, ou seja, no início da transação: {@link #onShard} precisa envolver a
+ * chamada @Transactional, não ficar dentro dela. Trocar de shard com transação
+ * ativa é erro (a conexão já está presa ao shard anterior).
+ *
+ * ⚠️ N é fixo: mudar o número de shards muda o shard da maioria das carteiras e
+ * exige migrar os dados antes.
+ */
+@Component
+public class ShardRouter {
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private final int shardCount;
+
+    public ShardRouter(@Value("${wallet.sharding.urls:}") List<String> shardUrls) {
+        this.shardCount = Math.max(1, (int) shardUrls.stream().filter(url -> !url.isBlank()).count());
+    }
+
+    /**
+     * Shard corrente da thread (nulo = shard padrão, o 0).
+     */
+    public static Integer currentShard() {
+        return CURRENT.get();
+    }
+
+    public boolean isSharded() {
+        return shardCount > 1;
+    }
+
+    public int shardCount() {
+        return shardCount;
+    }
+
+    /**
+     * @param walletKey ID do dono da carteira
+     * @return Shard onde moram o usuário e a carteira
+     */
+    public int shardOf(String walletKey) {
+        return isSharded() ? (int) Long.remainderUnsigned(WalletPartitioning.hash(walletKey), shardCount) : 0;
+    }
+
+    public <T> T onShardOf(String walletKey, Supplier<T> operation) {
+        return onShard(shardOf(walletKey), operation);
+    }
+
+    /**
+     * Executa a operação com as conexões roteadas para o shard.
+     */
+    public <T> T onShard(int shard, Supplier<T> operation) {
+        if (!isSharded()) {
+            return operation.get();
+        }
+        Integer previous = CURRENT.get();
+        if (previous != null && previous != shard && TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException(
+                "Troca do shard " + previous + " para " + shard + " dentro de uma transação");
+        }
+        CURRENT.set(shard);
+        try {
+            return operation.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    public void onShard(int shard, Runnable operation) {
+        onShard(shard, () -> {
+            operation.run();
+            return null;
+        });
+    }
+}
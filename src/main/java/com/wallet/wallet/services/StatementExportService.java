@@ -0,0 +1,265 @@
+package com.wallet.wallet.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exportação do extrato de um usuário (CSV ou NDJSON), em streaming.
+ *
+ * As linhas saem de um cursor no servidor (fetch-size linhas por ida ao banco,
+ * dentro de uma transação somente leitura, exigência do driver do PostgreSQL
+ * para não carregar o resultado inteiro) e são escritas direto na resposta,
+ * sem entidades JPA: memória constante, seja o extrato de 10 ou de 10 milhões
+ * de transações. Enviadas e recebidas vêm de duas varreduras ordenadas dos
+ * índices (sender_id, timestamp) e (receiver_id, timestamp), intercaladas pelo
+ * banco (Merge Append), então a primeira linha sai sem ordenar o extrato todo.
+ */
+@Service
+@Slf4j
+public class StatementExportService {
+
+    // Cada ramo ordenado pelo seu índice: o ORDER BY externo vira Merge Append, sem Sort do extrato inteiro
+    private static final String STATEMENT_SQL = """
+        (SELECT id, timestamp, 'DEBIT' AS direction, receiver_id AS counterparty_id, amount
+           FROM transactions
+          WHERE sender_id = ? AND timestamp >= ? AND timestamp < ?
+          ORDER BY timestamp)
+        UNION ALL
+        (SELECT id, timestamp, 'CREDIT' AS direction, sender_id AS counterparty_id, amount
+           FROM transactions
+          WHERE receiver_id = ? AND timestamp >= ? AND timestamp < ?
+          ORDER BY timestamp)
+        ORDER BY timestamp
+        """;
+
+    private static final String CSV_HEADER = "id,timestamp,direction,counterpartyId,amount\n";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ShardRouter shardRouter;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final int fetchSize;
+
+    public StatementExportService(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            ShardRouter shardRouter,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${wallet.statement.fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.shardRouter = shardRouter;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.fetchSize = fetchSize;
+    }
+
+    public enum Format {
+        CSV("text/csv"),
+        NDJSON("application/x-ndjson");
+
+        private final String contentType;
+
+        Format(String contentType) {
+            this.contentType = contentType;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+
+        public static Format parse(String value) {
+            try {
+                return valueOf(value.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Formato de extrato não suportado: " + value);
+            }
+        }
+    }
+
+    /**
+     * Valida o período antes de abrir a resposta (depois do primeiro byte não há mais como devolver 400).
+     */
+    public void validatePeriod(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Data inicial do extrato posterior à data final");
+        }
+    }
+
+    /**
+     * Escreve o extrato de from até to (inclusive) em ordem cronológica.
+     *
+     * @param gzip Comprime a saída (Content-Encoding: gzip)
+     * @return Transações exportadas
+     */
+    public long export(String userId, LocalDate from, LocalDate to, Format format, boolean gzip, OutputStream output)
+            throws IOException {
+        validatePeriod(from, to);
+        Timestamp start = Timestamp.valueOf(from.atStartOfDay());
+        Timestamp end = Timestamp.valueOf(to.plusDays(1).atStartOfDay());
+
+        long startNanos = System.nanoTime();
+        OutputStream target = gzip ? new GZIPOutputStream(output, 64 * 1024) : output;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), 64 * 1024);
+        StatementWriter rows = format == Format.CSV ? new CsvRows(writer) : new NdjsonRows(writer);
+
+        long exported;
+        try {
+            exported = shardRouter.onShardOf(userId, () -> readOnlyTransaction.execute(status -> {
+                rows.start();
+                jdbcTemplate.query(connection -> {
+                    PreparedStatement statement = connection.prepareStatement(STATEMENT_SQL);
+                    statement.setFetchSize(fetchSize);
+                    statement.setString(1, userId);
+                    statement.setTimestamp(2, start);
+                    statement.setTimestamp(3, end);
+                    statement.setString(4, userId);
+                    statement.setTimestamp(5, start);
+                    statement.setTimestamp(6, end);
+                    return statement;
+                }, (RowCallbackHandler) rs -> rows.write(
+                    rs.getString("id"),
+                    rs.getTimestamp("timestamp").toLocalDateTime(),
+                    rs.getString("direction"),
+                    rs.getString("counterparty_id"),
+                    rs.getBigDecimal("amount")));
+                return rows.count;
+            }));
+            rows.finish();
+            writer.flush();
+            if (target instanceof GZIPOutputStream gzipOutput) {
+                gzipOutput.finish();
+            }
+        } catch (UncheckedIOException e) {
+            // Cliente desconectou no meio: o cursor já foi fechado junto com a transação
+            log.debug("Exportação de extrato interrompida após {} linhas: {}", rows.count, e.getCause().getMessage());
+            throw e.getCause();
+        }
+
+        Counter.builder("wallet.statement.rows").tag("format", format.name().toLowerCase(Locale.ROOT))
+            .description("Transações exportadas em extratos")
+            .register(meterRegistry).increment(exported);
+        Timer.builder("wallet.statement.export").tag("format", format.name().toLowerCase(Locale.ROOT))
+            .description("Duração da exportação de extratos")
+            .register(meterRegistry).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        return exported;
+    }
+
+    private abstract static class StatementWriter {
+        protected final Writer writer;
+        long count;
+
+        StatementWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        void start() {
+        }
+
+        void finish() throws IOException {
+        }
+
+        final void write(String id, LocalDateTime timestamp, String direction, String counterpartyId, BigDecimal amount) {
+            try {
+                writeRow(id, timestamp, direction, counterpartyId, amount);
+                count++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        abstract void writeRow(String id, LocalDateTime timestamp, String direction, String counterpartyId,
+                               BigDecimal amount) throws IOException;
+    }
+
+    private static final class CsvRows extends StatementWriter {
+
+        CsvRows(Writer writer) {
+            super(writer);
+        }
+
+        @Override
+        void start() {
+            try {
+                writer.write(CSV_HEADER);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        void writeRow(String id, LocalDateTime timestamp, String direction, String counterpartyId, BigDecimal amount)
+                throws IOException {
+            // Ids (UUID), datas ISO e valores não têm vírgula nem aspas: sem escape
+            writer.write(id);
+            writer.write(',');
+            writer.write(timestamp.toString());
+            writer.write(',');
+            writer.write(direction);
+            writer.write(',');
+            writer.write(counterpartyId == null ? "" : counterpartyId);
+            writer.write(',');
+            writer.write(amount.toPlainString());
+            writer.write('\n');
+        }
+    }
+
+    private final class NdjsonRows extends StatementWriter {
+        private final JsonGenerator generator;
+
+        NdjsonRows(Writer writer) throws IOException {
+            super(writer);
+            this.generator = objectMapper.getFactory().createGenerator(writer);
+            // Uma linha por objeto: sem o espaço que o Jackson coloca entre valores de raiz
+            this.generator.setRootValueSeparator(null);
+        }
+
+        @Override
+        void finish() throws IOException {
+            generator.flush();
+        }
+
+        @Override
+        void writeRow(String id, LocalDateTime timestamp, String direction, String counterpartyId, BigDecimal amount)
+                throws IOException {
+            generator.writeStartObject();
+            generator.writeStringField("id", id);
+            generator.writeStringField("timestamp", timestamp.toString());
+            generator.writeStringField("direction", direction);
+            generator.writeStringField("counterpartyId", counterpartyId);
+            generator.writeNumberField("amount", amount);
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+            // Sem flush por linha: o BufferedWriter embaixo decide quando enviar
+        }
+    }
+}
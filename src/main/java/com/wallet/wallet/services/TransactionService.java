@@ -1,20 +1,38 @@
 package com.wallet.wallet.services;
 
+import com.wallet.wallet.domain.DomainException;
+import com.wallet.wallet.domain.DomainException.InsufficientFundsException;
+import com.wallet.wallet.domain.DomainException.TransactionNotAuthorizedException;
+import com.wallet.wallet.domain.DomainException.WalletNotFoundException;
 import com.wallet.wallet.domain.Transaction;
 import com.wallet.wallet.domain.User;
 import com.wallet.wallet.domain.Wallet;
 import com.wallet.wallet.dtos.TransactionDTO;
+import com.wallet.wallet.infra.AuthorizationCallEvent;
 import com.wallet.wallet.infra.LogMasker;
+import com.wallet.wallet.infra.TransferCommittedEvent;
+import com.wallet.wallet.infra.TransferMetrics;
+import com.wallet.wallet.infra.TransferPhaseTimer;
+import com.wallet.wallet.infra.WalletLockAcquiredEvent;
 import com.wallet.wallet.repositories.TransactionRepository;
 import com.wallet.wallet.repositories.WalletRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import lombok.extern.slf4j.Slf4j;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 @Service
 @Slf4j
@@ -35,6 +53,30 @@ public class TransactionService {
     @Autowired
     private AuthorizationService authorizationService;
 
+    @Autowired
+    private PreAuthorizationRules preAuthorizationRules;
+
+    @Autowired
+    private VelocityLimits velocityLimits;
+
+    @Autowired
+    private TransferMetrics transferMetrics;
+
+    @Autowired
+    private TransferLockTimeouts lockTimeouts;
+
+    @Autowired
+    private MerchantSettlementService merchantSettlement;
+
+    @Autowired
+    private TransferTransactions transferTransactions;
+
+    @Autowired
+    private WalletLockStripes walletLocks;
+
+    @Value("${wallet.logging.transfer-sample-rate:0.01}")
+    private double transferLogSampleRate;
+
     /**
      * Creates a transaction with pessimistic locking to prevent race conditions.
      * 
@@ -42,56 +84,160 @@ public class TransactionService {
      * - Acquires FOR UPDATE lock on both sender and receiver wallets
      * - Validates balance after lock acquisition
      * - External authorization happens before locking to avoid blocking database
+     *   (skipped when a local pre-authorization rule approves the transfer)
+     * - Concurrent transfers from the same sender on this instance queue in memory
+     *   ({@link WalletLockStripes}) around the database section only, after authorization
+     * - lock_timeout/statement_timeout are set per transaction ({@link TransferLockTimeouts})
+     * - Merchants in deferred settlement ({@link MerchantSettlementService}) are not locked:
+     *   the credit is recorded as a pending entry and applied later in a netted batch
+     *
+     * User lookup, validation and authorization run once, outside the transaction.
+     * Only the database section (lock, balance check, writes) runs in the transaction
+     * ({@link TransferTransactions}); lock failures (lock timeout, deadlock) roll it back
+     * and retry it with jittered backoff (transferLockRetry), each attempt in a fresh
+     * transaction, without calling the authorizer again.
      * 
      * @param transaction Transfer details (amount, sender, receiver)
      * @return Persisted transaction
-     * @throws Exception if validation fails or balance insufficient
+     * @throws com.wallet.wallet.domain.DomainException if validation fails, authorization is denied or balance insufficient
+     * @throws PessimisticLockingFailureException if the wallet locks could not be acquired after the retries
+     * @throws QueryTimeoutException if a statement exceeded wallet.transfer.statement-timeout-ms
      */
-    @Transactional(isolation = org.springframework.transaction.annotation.Isolation.READ_COMMITTED)
-    public Transaction createTransaction(TransactionDTO transaction) throws Exception {
-        
-        User sender = this.userService.findUserById(transaction.senderId());
-        User receiver = this.userService.findUserById(transaction.receiverId());
-        userService.validateTransaction(sender, transaction.value());
-
-        boolean isAuthorized = this.authorizationService.authorizeTransaction(
-            sender.getId(),
-            transaction.value()
-        );
-        
-        if (!isAuthorized) {
-            throw new Exception("Transação não autorizada");
+    public Transaction createTransaction(TransactionDTO transaction) {
+        return execute(transaction, Locking.PESSIMISTIC);
+    }
+
+    /**
+     * Same transfer with optimistic concurrency (wallet.transfer.locking=OPTIMISTIC).
+     *
+     * Wallets are read without FOR UPDATE; the balance UPDATE checks the version
+     * read ({@link Wallet#getVersion()}) and fails if another transfer changed the
+     * wallet in between. Nothing queues on the row lock while the transfer runs:
+     * rows are locked only from the flush to the commit. Updates are ordered by
+     * wallet id (hibernate.order_updates), so opposite transfers do not deadlock.
+     *
+     * A version conflict rolls back the transaction and only the database section
+     * is retried (transferOptimisticRetry, bounded); authorization is not repeated. Cheap when
+     * conflicts are rare; on a hot wallet most attempts are wasted, which is
+     * what compare-locking.sh measures.
+     *
+     * @throws OptimisticLockingFailureException if every attempt hit a version conflict
+     */
+    public Transaction createTransactionOptimistic(TransactionDTO transaction) {
+        return execute(transaction, Locking.OPTIMISTIC);
+    }
+
+    private Transaction execute(TransactionDTO transaction, Locking locking) {
+        TransferPhaseTimer timer = new TransferPhaseTimer();
+        TransferCommittedEvent committedEvent = new TransferCommittedEvent();
+        committedEvent.begin();
+        // Recusas de negócio são classificadas pelo tipo; o resto fica como ERROR
+        TransferMetrics.Outcome outcome = TransferMetrics.Outcome.ERROR;
+        VelocityLimits.Reservation velocity = VelocityLimits.Reservation.NONE;
+
+        try {
+            User sender = this.userService.findUserById(transaction.senderId());
+            User receiver = this.userService.findUserById(transaction.receiverId());
+            timer.lap(TransferMetrics.Phase.USER_LOOKUP);
+
+            userService.validateTransaction(sender, transaction.value());
+            velocity = velocityLimits.reserve(sender.getId(), transaction.value());
+
+            timer.mark();
+            try {
+                authorize(sender, receiver.getId(), transaction.value());
+            } finally {
+                // Negadas também: a latência do autorizador conta com ou sem aprovação
+                timer.lap(TransferMetrics.Phase.AUTHORIZATION);
+            }
+
+            // Só leitura, checagem e escrita são repetidas: a autorização acima vale para todas as tentativas
+            Supplier<Transaction> write = () -> write(transaction, sender, receiver, locking, timer, committedEvent);
+            Transaction newTransaction;
+            // Fila local do remetente só em volta da parte de banco, já autorizada
+            try (WalletLockStripes.Hold hold = walletLocks.acquire(sender.getId())) {
+                newTransaction = locking == Locking.OPTIMISTIC
+                    ? transferTransactions.optimistic(write)
+                    : transferTransactions.pessimistic(write);
+            }
+
+            outcome = TransferMetrics.Outcome.SUCCESS;
+            return newTransaction;
+        } catch (DomainException e) {
+            outcome = TransferMetrics.outcomeOf(e);
+            throw e;
+        } catch (PessimisticLockingFailureException e) {
+            outcome = TransferMetrics.Outcome.LOCK_FAILURE;
+            throw e;
+        } catch (OptimisticLockingFailureException e) {
+            outcome = TransferMetrics.Outcome.VERSION_CONFLICT;
+            throw e;
+        } catch (QueryTimeoutException e) {
+            outcome = TransferMetrics.Outcome.TIMEOUT;
+            throw e;
+        } finally {
+            // Sucesso é registrado no commit (recordAfterCompletion); falhas, uma vez por transferência
+            if (outcome != TransferMetrics.Outcome.SUCCESS) {
+                transferMetrics.record(timer, outcome);
+                // Negada ou desfeita (depois de todas as tentativas): a reserva não conta no limite
+                velocity.release();
+            }
         }
+    }
 
-        log.info("🔒 [Thread {}] Tentando adquirir LOCK para userId: {}", 
-            Thread.currentThread().threadId(), LogMasker.maskUserId(sender.getId()));
+    /**
+     * Uma tentativa da parte de banco, dentro da transação de {@link TransferTransactions}.
+     */
+    private Transaction write(TransactionDTO transaction, User sender, User receiver, Locking locking,
+                              TransferPhaseTimer timer, TransferCommittedEvent committedEvent) {
+        lockTimeouts.apply();
+
+        if (log.isDebugEnabled()) {
+            log.debug("🔒 [Thread {}] Tentando adquirir LOCK para userId: {}", 
+                Thread.currentThread().threadId(), LogMasker.maskUserId(sender.getId()));
+        }
         
         entityManager.flush();
         entityManager.clear();
         
-        Wallet senderWallet = this.walletRepository.findWalletByUserIdLockedNative(sender.getId())
-                .orElseThrow(() -> new Exception("Carteira do remetente não encontrada"));
+        timer.mark();
+        Wallet senderWallet = loadWallet(sender.getId(), locking, "sender", WalletNotFoundException::ofSender);
+        timer.lap(TransferMetrics.Phase.LOCK_WAIT);
+        long lockAcquiredNanos = System.nanoTime();
         
-        log.info("✅ [Thread {}] LOCK ADQUIRIDO! Saldo atual: {}", 
-            Thread.currentThread().threadId(), LogMasker.maskBalance(senderWallet.getBalance()));
+        if (log.isDebugEnabled()) {
+            log.debug("✅ [Thread {}] LOCK ADQUIRIDO! Saldo atual: {}", 
+                Thread.currentThread().threadId(), LogMasker.maskBalance(senderWallet.getBalance()));
+        }
         
         if (senderWallet.getBalance().compareTo(transaction.value()) < 0) {
-            log.warn("❌ [Thread {}] SALDO INSUFICIENTE! Valor tentado: {}", 
-                Thread.currentThread().threadId(), LogMasker.maskBalance(transaction.value()));
-            throw new Exception("Saldo insuficiente na carteira");
+            if (log.isDebugEnabled()) {
+                log.debug("❌ [Thread {}] SALDO INSUFICIENTE! Valor tentado: {}", 
+                    Thread.currentThread().threadId(), LogMasker.maskBalance(transaction.value()));
+            }
+            throw new InsufficientFundsException();
         }
         
-        Wallet receiverWallet = this.walletRepository.findWalletByUserIdLockedNative(receiver.getId())
-                .orElseThrow(() -> new Exception("Carteira do recebedor não encontrada"));
+        boolean deferredCredit = merchantSettlement.defersCreditTo(receiver);
+        Wallet receiverWallet;
+        if (deferredCredit) {
+            // Sem lock na carteira do lojista: o crédito entra como pendência
+            receiverWallet = receiver.getWallet();
+            if (receiverWallet == null) {
+                throw WalletNotFoundException.ofReceiver();
+            }
+        } else {
+            timer.mark();
+            receiverWallet = loadWallet(receiver.getId(), locking, "receiver", WalletNotFoundException::ofReceiver);
+            timer.lap(TransferMetrics.Phase.LOCK_WAIT);
+        }
 
         senderWallet.setBalance(senderWallet.getBalance().subtract(transaction.value()));
-        receiverWallet.setBalance(receiverWallet.getBalance().add(transaction.value()));
-        
-        log.info("💰 [Thread {}] Transferência executada! Valor: {}", 
-            Thread.currentThread().threadId(), LogMasker.maskBalance(transaction.value()));
-
         this.walletRepository.save(senderWallet);
-        this.walletRepository.save(receiverWallet);
+        if (!deferredCredit) {
+            receiverWallet.setBalance(receiverWallet.getBalance().add(transaction.value()));
+            this.walletRepository.save(receiverWallet);
+        }
         
         Transaction newTransaction = new Transaction();
         newTransaction.setAmount(transaction.value());
@@ -99,8 +245,119 @@ public class TransactionService {
         newTransaction.setReceiver(receiver);
         newTransaction.setTimestamp(LocalDateTime.now());
         this.repository.save(newTransaction);
+        if (deferredCredit) {
+            merchantSettlement.recordPending(receiver.getId(), newTransaction.getId(), transaction.value());
+        }
+
+        if (locking == Locking.OPTIMISTIC) {
+            // Sem FOR UPDATE, os locks de linha começam nos UPDATEs deste flush
+            lockAcquiredNanos = System.nanoTime();
+        }
+        // Flush explícito para que a fase de escrita seja medida aqui, e não diluída no commit.
+        // Pelo repositório: conflito de versão chega traduzido (OptimisticLockingFailureException)
+        this.walletRepository.flush();
+        timer.lap(TransferMetrics.Phase.INSERT);
+
+        logTransferSampled(sender, receiver, transaction, timer);
+        recordAfterCompletion(timer, lockAcquiredNanos, committedEvent, sender.getId(), receiver.getId(),
+            senderWallet.getId(), receiverWallet.getId());
 
-        log.debug("✅ [Thread {}] Transação persistida. Lock será liberado no commit.", Thread.currentThread().threadId());
         return newTransaction;
     }
+
+    /**
+     * OPTIMISTIC lê sem lock (a versão é conferida no flush); PESSIMISTIC espera o FOR UPDATE.
+     */
+    private Wallet loadWallet(String userId, Locking locking, String role,
+                              Supplier<WalletNotFoundException> notFound) {
+        if (locking == Locking.OPTIMISTIC) {
+            return this.walletRepository.findWalletByUserId(userId).orElseThrow(notFound);
+        }
+        WalletLockAcquiredEvent lockEvent = new WalletLockAcquiredEvent();
+        lockEvent.begin();
+        Wallet wallet = this.walletRepository.findWalletByUserIdLockedNative(userId).orElseThrow(notFound);
+        lockEvent.commit(wallet.getId(), role);
+        return wallet;
+    }
+
+    /**
+     * Pré-autorização local ou, se ela não aprovar, o autorizador externo.
+     * Também usado pela saga entre shards ({@link TransferSagaService}), antes do débito.
+     *
+     * @throws TransactionNotAuthorizedException se a transferência não foi autorizada
+     */
+    public void authorize(User sender, String receiverId, BigDecimal amount) {
+        boolean isAuthorized = preAuthorizationRules.approvesLocally(sender, receiverId, amount);
+        if (!isAuthorized) {
+            AuthorizationCallEvent authorizationEvent = new AuthorizationCallEvent();
+            authorizationEvent.begin();
+            isAuthorized = this.authorizationService.authorizeTransaction(sender.getId(), amount);
+            authorizationEvent.commit(sender.getId(), isAuthorized);
+        }
+
+        if (!isAuthorized) {
+            throw new TransactionNotAuthorizedException();
+        }
+    }
+
+    /**
+     * Linha INFO por transferência apenas para uma amostra (wallet.logging.transfer-sample-rate),
+     * com campos estruturados em vez de mensagem formatada. Com DEBUG ligado, loga todas.
+     */
+    private void logTransferSampled(User sender, User receiver, TransactionDTO transaction, TransferPhaseTimer timer) {
+        if (!log.isDebugEnabled() && ThreadLocalRandom.current().nextDouble() >= transferLogSampleRate) {
+            return;
+        }
+        log.atInfo()
+            .addKeyValue("senderId", LogMasker.maskUserId(sender.getId()))
+            .addKeyValue("receiverId", LogMasker.maskUserId(receiver.getId()))
+            .addKeyValue("amount", LogMasker.maskBalance(transaction.value()))
+            .addKeyValue("lockWaitMs", TimeUnit.NANOSECONDS.toMillis(timer.phaseNanos(TransferMetrics.Phase.LOCK_WAIT)))
+            .addKeyValue("elapsedMs", TimeUnit.NANOSECONDS.toMillis(timer.elapsedNanos()))
+            .log("Transferência executada");
+    }
+
+    /**
+     * O lock só é liberado no commit, então lock hold, a duração total, o
+     * evento JFR de commit e o histórico da pré-autorização são registrados
+     * depois que a transação termina (histórico só com commit confirmado; os
+     * limites de velocidade já foram reservados antes, em execute). Commit que falha chega como exceção a
+     * execute, que registra a falha.
+     * Fora de uma transação gerenciada (ex: testes unitários), registra imediatamente.
+     */
+    private void recordAfterCompletion(TransferPhaseTimer timer, long lockAcquiredNanos,
+                                       TransferCommittedEvent committedEvent,
+                                       String senderId, String receiverId,
+                                       String senderWalletId, String receiverWalletId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            timer.record(TransferMetrics.Phase.LOCK_HOLD, lockAcquiredNanos);
+            transferMetrics.record(timer, TransferMetrics.Outcome.SUCCESS);
+            committedEvent.commit(senderWalletId, receiverWalletId, timer.phaseNanos(TransferMetrics.Phase.LOCK_HOLD));
+            preAuthorizationRules.recordTransfer(senderId, receiverId);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                timer.record(TransferMetrics.Phase.LOCK_HOLD, lockAcquiredNanos);
+                if (status == STATUS_COMMITTED) {
+                    transferMetrics.record(timer, TransferMetrics.Outcome.SUCCESS);
+                    committedEvent.commit(senderWalletId, receiverWalletId,
+                        timer.phaseNanos(TransferMetrics.Phase.LOCK_HOLD));
+                    preAuthorizationRules.recordTransfer(senderId, receiverId);
+                }
+            }
+        });
+    }
+
+    /**
+     * Estratégia de concorrência da transferência (wallet.transfer.locking).
+     */
+    public enum Locking {
+        /** FOR UPDATE nas duas carteiras antes de ler o saldo */
+        PESSIMISTIC,
+        /** Leitura sem lock e UPDATE condicionado à versão, com novas tentativas */
+        OPTIMISTIC
+    }
 }
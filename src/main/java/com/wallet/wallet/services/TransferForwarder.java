@@ -0,0 +1,152 @@
+package com.wallet.wallet.services;
+
+import com.wallet.wallet.domain.DomainException;
+import com.wallet.wallet.dtos.ExceptionDTO;
+import com.wallet.wallet.dtos.TransactionDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.DefaultResponseErrorHandler;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.ConnectException;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Encaminha a transferência para o nó dono da carteira do remetente.
+ *
+ * Com a afinidade, as transferências de uma carteira se concentram num nó: o
+ * controle de admissão por carteira desse nó passa a valer para o cluster todo
+ * e a disputa pelo FOR UPDATE fica entre threads da mesma JVM, em vez de entre
+ * nós. A resposta do dono (sucesso ou erro) é repassada como veio.
+ *
+ * Uma transferência é encaminhada no máximo uma vez (cabeçalho {@link #FORWARDED_HEADER}).
+ * Se o dono recusa a conexão, nada foi enviado e a transferência roda localmente.
+ * Se a conexão caiu depois do envio, o resultado é desconhecido: responde 504 em
+ * vez de repetir (repetir poderia debitar duas vezes).
+ */
+@Service
+@Slf4j
+public class TransferForwarder {
+
+    public static final String FORWARDED_HEADER = "X-Wallet-Forwarded-By";
+    public static final String OWNER_HEADER = "X-Wallet-Owner";
+
+    private final ClusterMembershipService membership;
+    private final RestTemplate restTemplate;
+
+    private final Counter forwarded;
+    private final Counter ownerUnreachable;
+    private final Counter ownerTimedOut;
+
+    public TransferForwarder(
+            ClusterMembershipService membership,
+            ObjectProvider<RestTemplateBuilder> builderProvider,
+            MeterRegistry meterRegistry,
+            @Value("${wallet.cluster.forward-connect-timeout-ms:200}") long connectTimeoutMs,
+            @Value("${wallet.cluster.forward-read-timeout-ms:5000}") long readTimeoutMs) {
+        this.membership = membership;
+        this.restTemplate = builderProvider.getIfAvailable(RestTemplateBuilder::new)
+            .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+            .readTimeout(Duration.ofMillis(readTimeoutMs))
+            .errorHandler(new PassThroughErrorHandler())
+            .build();
+
+        this.forwarded = forwardCounter(meterRegistry, "forwarded");
+        this.ownerUnreachable = forwardCounter(meterRegistry, "owner_unreachable");
+        this.ownerTimedOut = forwardCounter(meterRegistry, "owner_timeout");
+    }
+
+    /**
+     * Encaminha se a carteira do remetente pertence a outro nó.
+     *
+     * @param transaction Transferência recebida
+     * @param forwardedBy Valor de {@link #FORWARDED_HEADER} (nulo se veio do cliente)
+     * @return Resposta do nó dono, ou vazio para executar localmente
+     * @throws OwnerTimeoutException se o dono não respondeu depois do envio
+     */
+    public Optional<ResponseEntity<String>> forwardToOwner(TransactionDTO transaction, String forwardedBy) {
+        if (forwardedBy != null) {
+            return Optional.empty();
+        }
+        Optional<WalletPartitioning.Node> owner = membership.remoteOwnerOf(transaction.senderId());
+        if (owner.isEmpty()) {
+            return Optional.empty();
+        }
+
+        WalletPartitioning.Node node = owner.get();
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set(FORWARDED_HEADER, membership.self().id());
+
+        ResponseEntity<String> response;
+        try {
+            response = restTemplate.exchange(node.baseUrl() + "/transactions", HttpMethod.POST,
+                new HttpEntity<>(transaction, headers), String.class);
+        } catch (ResourceAccessException e) {
+            if (e.getCause() instanceof ConnectException) {
+                ownerUnreachable.increment();
+                log.warn("Nó {} recusou a conexão; transferência executada localmente", node.id());
+                return Optional.empty();
+            }
+            ownerTimedOut.increment();
+            log.warn("Nó {} não respondeu à transferência encaminhada: {}", node.id(), e.getMessage());
+            throw new OwnerTimeoutException();
+        }
+
+        forwarded.increment();
+        HttpHeaders passThrough = new HttpHeaders();
+        if (response.getHeaders().getContentType() != null) {
+            passThrough.setContentType(response.getHeaders().getContentType());
+        }
+        if (response.getHeaders().containsKey(HttpHeaders.RETRY_AFTER)) {
+            passThrough.put(HttpHeaders.RETRY_AFTER, response.getHeaders().get(HttpHeaders.RETRY_AFTER));
+        }
+        passThrough.set(OWNER_HEADER, node.id());
+        return Optional.of(new ResponseEntity<>(response.getBody(), passThrough, response.getStatusCode()));
+    }
+
+    private static Counter forwardCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("wallet.cluster.forward")
+            .description("Transferências encaminhadas ao nó dono da carteira")
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+
+    /**
+     * 4xx/5xx do dono são respostas válidas da transferência: repassadas, não lançadas.
+     */
+    private static class PassThroughErrorHandler extends DefaultResponseErrorHandler {
+        @Override
+        public boolean hasError(ClientHttpResponse response) {
+            return false;
+        }
+    }
+
+    /**
+     * Dono não respondeu depois de receber a transferência (504). O resultado é
+     * desconhecido: o cliente deve consultar o saldo antes de reenviar.
+     */
+    public static class OwnerTimeoutException extends DomainException {
+        private static final ExceptionDTO BODY = body(
+            "Nó responsável pela carteira não respondeu. Consulte o saldo antes de repetir.",
+            HttpStatus.GATEWAY_TIMEOUT);
+
+        public OwnerTimeoutException() {
+            super(HttpStatus.GATEWAY_TIMEOUT, BODY);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.wallet.wallet.services;
+
+import com.wallet.wallet.domain.Transaction;
+import com.wallet.wallet.dtos.TransactionDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Ponto de entrada das transferências.
+ *
+ * Aplica a admissão fora da transação (sem segurar conexão do pool) e só
+ * então delega para {@link TransactionService} (ou, com shards, para
+ * {@link TransferSagaService}). A fila local por remetente
+ * ({@link WalletLockStripes}) fica lá dentro, só em volta da parte de banco.
+ *
+ * wallet.transfer.locking escolhe a estratégia de concorrência da transação
+ * local: PESSIMISTIC (FOR UPDATE) ou OPTIMISTIC (versão da carteira). A saga
+ * entre shards continua com FOR UPDATE.
+ */
+@Service
+public class TransferGateway {
+
+    @Autowired
+    private AdmissionControlService admissionControl;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private TransferSagaService transferSagaService;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Value("${wallet.transfer.locking:PESSIMISTIC}")
+    private TransactionService.Locking locking;
+
+    public Transaction transfer(TransactionDTO transaction) {
+        try (AdmissionControlService.Permit permit =
+                 admissionControl.admit(transaction.senderId(), transaction.receiverId())) {
+            if (shardRouter.isSharded()) {
+                return transferSagaService.transfer(transaction);
+            }
+            if (locking == TransactionService.Locking.OPTIMISTIC) {
+                return transactionService.createTransactionOptimistic(transaction);
+            }
+            return transactionService.createTransaction(transaction);
+        }
+    }
+}
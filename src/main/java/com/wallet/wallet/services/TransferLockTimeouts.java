@@ -0,0 +1,55 @@
+package com.wallet.wallet.services;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.sql.Statement;
+
+/**
+ * Timeouts de lock e de statement da transação de transferência.
+ *
+ * No PostgreSQL aplica SET LOCAL lock_timeout / statement_timeout na conexão
+ * da transação corrente: valem só até o commit/rollback e não vazam para o
+ * pool. Um FOR UPDATE preso passa a falhar com 55P03 (CannotAcquireLockException)
+ * e um statement lento com 57014 (QueryTimeoutException), em vez de segurar a
+ * thread e a conexão indefinidamente.
+ *
+ * Em outros bancos (H2 nos testes) não faz nada: o timeout de lock vem da URL.
+ * O banco é detectado na primeira chamada, não na inicialização (o training
+ * run do CDS sobe o contexto sem banco).
+ */
+@Component
+public class TransferLockTimeouts {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final String setLocalSql;
+    private volatile Boolean postgres;
+
+    public TransferLockTimeouts(
+            @Value("${wallet.transfer.lock-timeout-ms:1000}") long lockTimeoutMs,
+            @Value("${wallet.transfer.statement-timeout-ms:3000}") long statementTimeoutMs) {
+        this.setLocalSql = "SET LOCAL lock_timeout = '" + lockTimeoutMs + "ms'; "
+            + "SET LOCAL statement_timeout = '" + statementTimeoutMs + "ms'";
+    }
+
+    /**
+     * Aplica os timeouts na transação corrente (chamar dentro do @Transactional).
+     */
+    public void apply() {
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            if (postgres == null) {
+                postgres = "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName());
+            }
+            if (postgres) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute(setLocalSql);
+                }
+            }
+        });
+    }
+}
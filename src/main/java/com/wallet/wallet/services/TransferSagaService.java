@@ -0,0 +1,270 @@
+package com.wallet.wallet.services;
+
+import com.wallet.wallet.domain.DomainException;
+import com.wallet.wallet.domain.Transaction;
+import com.wallet.wallet.domain.User;
+import com.wallet.wallet.dtos.ExceptionDTO;
+import com.wallet.wallet.dtos.TransactionDTO;
+import com.wallet.wallet.infra.LogMasker;
+import com.wallet.wallet.infra.TransferMetrics;
+import com.wallet.wallet.infra.TransferPhaseTimer;
+import com.wallet.wallet.repositories.TransferSagaRepository;
+import com.wallet.wallet.repositories.TransferSagaRepository.CreditOutcome;
+import com.wallet.wallet.repositories.TransferSagaRepository.Saga;
+import com.wallet.wallet.repositories.TransferSagaRepository.Status;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Transferências com carteiras em shards diferentes (perfil "sharded").
+ *
+ * Remetente e recebedor no mesmo shard: {@link TransactionService#createTransaction}
+ * nesse shard, como sem shards. Em shards diferentes não há transação única, então
+ * a transferência vira uma saga de transações locais:
+ *
+ * 1. Débito no shard do remetente, junto com a transação e a saga (DEBITED)
+ * 2. Crédito no shard do recebedor, decidido uma única vez em saga_credits
+ * 3. Saga COMPLETED no shard do remetente
+ *
+ * Recusa no crédito (recebedor sem carteira) compensa: cancela o crédito no
+ * recebedor e estorna o remetente. Falha transitória (lock, timeout, shard fora)
+ * deixa a saga DEBITED para o {@link TransferSagaSweeper}, que repete o crédito
+ * e, após max-attempts, compensa. Enquanto isso o valor já saiu do remetente e
+ * ainda não chegou ao recebedor (consistência eventual entre shards).
+ */
+@Service
+@Slf4j
+public class TransferSagaService {
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private PreAuthorizationRules preAuthorizationRules;
+
+    @Autowired
+    private VelocityLimits velocityLimits;
+
+    @Autowired
+    private TransferSagaSteps steps;
+
+    @Autowired
+    private WalletLockStripes walletLocks;
+
+    @Autowired
+    private TransferSagaRepository sagaRepository;
+
+    @Autowired
+    private TransferMetrics transferMetrics;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * @throws DomainException recusas de negócio, como em createTransaction
+     * @throws TransferNotCompletedException se o crédito ficou pendente (202) ou foi estornado (409)
+     */
+    public Transaction transfer(TransactionDTO transfer) {
+        int senderShard = shardRouter.shardOf(transfer.senderId());
+        int receiverShard = shardRouter.shardOf(transfer.receiverId());
+        if (senderShard == receiverShard) {
+            return shardRouter.onShard(senderShard, () -> transactionService.createTransaction(transfer));
+        }
+
+        TransferPhaseTimer timer = new TransferPhaseTimer();
+        TransferMetrics.Outcome outcome = TransferMetrics.Outcome.ERROR;
+        VelocityLimits.Reservation velocity = VelocityLimits.Reservation.NONE;
+        // Débito feito e não estornado: a reserva do limite fica, mesmo com o crédito pendente
+        boolean debited = false;
+        try {
+            User sender = userService.findUserById(transfer.senderId());
+            User receiver = userService.findUserById(transfer.receiverId());
+            timer.lap(TransferMetrics.Phase.USER_LOOKUP);
+
+            userService.validateTransaction(sender, transfer.value());
+            velocity = velocityLimits.reserve(sender.getId(), transfer.value());
+
+            timer.mark();
+            try {
+                transactionService.authorize(sender, receiver.getId(), transfer.value());
+            } finally {
+                timer.lap(TransferMetrics.Phase.AUTHORIZATION);
+            }
+
+            String sagaId = UUID.randomUUID().toString();
+            Saga saga;
+            // Fila local do remetente só no débito (a parte que trava a carteira dele)
+            try (WalletLockStripes.Hold hold = walletLocks.acquire(sender.getId())) {
+                saga = shardRouter.onShard(senderShard, () -> steps.debit(sagaId, transfer));
+            }
+            debited = true;
+            sagaEvent("started");
+
+            Status status;
+            try {
+                status = advance(saga);
+            } catch (DomainException e) {
+                // Crédito recusado: advance já estornou o remetente
+                debited = false;
+                throw e;
+            } catch (RuntimeException e) {
+                recordFailure(saga, e);
+                throw TransferNotCompletedException.pending();
+            }
+            if (status == Status.COMPENSATED) {
+                debited = false;
+                throw TransferNotCompletedException.compensated();
+            }
+
+            outcome = TransferMetrics.Outcome.SUCCESS;
+            preAuthorizationRules.recordTransfer(sender.getId(), receiver.getId());
+            return new Transaction(saga.transactionId(), saga.amount(), sender, receiver, saga.createdAt());
+        } catch (DomainException e) {
+            outcome = TransferMetrics.outcomeOf(e);
+            throw e;
+        } catch (PessimisticLockingFailureException e) {
+            outcome = TransferMetrics.Outcome.LOCK_FAILURE;
+            throw e;
+        } catch (QueryTimeoutException e) {
+            outcome = TransferMetrics.Outcome.TIMEOUT;
+            throw e;
+        } finally {
+            transferMetrics.record(timer, outcome);
+            if (outcome != TransferMetrics.Outcome.SUCCESS && !debited) {
+                velocity.release();
+            }
+        }
+    }
+
+    /**
+     * Retoma as sagas paradas do shard (o shard do remetente guarda a saga).
+     *
+     * @return Sagas reservadas nesta rodada
+     */
+    public int recoverStuck(int shard, long stuckAfterMs, int batchSize, int maxAttempts) {
+        List<Saga> claimed = shardRouter.onShard(shard, () -> sagaRepository.claimStuck(stuckAfterMs, batchSize));
+        for (Saga saga : claimed) {
+            try {
+                if (saga.attempts() > maxAttempts) {
+                    log.warn("Saga {} sem crédito após {} tentativas: compensando", saga.id(), maxAttempts);
+                    compensate(saga);
+                } else {
+                    advance(saga);
+                }
+            } catch (DomainException e) {
+                // Já compensada dentro de advance
+                log.debug("Saga {} compensada: {}", saga.id(), e.getMessage());
+            } catch (RuntimeException e) {
+                recordFailure(saga, e);
+            }
+        }
+        return claimed.size();
+    }
+
+    /**
+     * Credita no shard do recebedor e conclui a saga. Recusa no crédito compensa e propaga.
+     */
+    Status advance(Saga saga) {
+        CreditOutcome credit;
+        try {
+            credit = shardRouter.onShardOf(saga.receiverId(), () -> steps.credit(saga));
+        } catch (DomainException e) {
+            log.warn("Crédito da saga {} recusado ({}): estornando {}",
+                saga.id(), e.getMessage(), LogMasker.maskUserId(saga.senderId()));
+            compensate(saga);
+            throw e;
+        }
+
+        if (credit == CreditOutcome.CANCELLED) {
+            // Uma compensação anterior bloqueou o crédito: falta só o estorno
+            refund(saga);
+            return Status.COMPENSATED;
+        }
+        if (shardRouter.onShardOf(saga.senderId(),
+                () -> sagaRepository.transition(saga.id(), Status.DEBITED, Status.COMPLETED))) {
+            sagaEvent("completed");
+        }
+        return Status.COMPLETED;
+    }
+
+    /**
+     * Cancela o crédito e estorna; se o crédito já tinha sido aplicado, conclui em vez de estornar.
+     */
+    Status compensate(Saga saga) {
+        CreditOutcome decided = shardRouter.onShardOf(saga.receiverId(), () -> steps.cancelCredit(saga.id()));
+        if (decided == CreditOutcome.APPLIED) {
+            if (shardRouter.onShardOf(saga.senderId(),
+                    () -> sagaRepository.transition(saga.id(), Status.DEBITED, Status.COMPLETED))) {
+                sagaEvent("completed");
+            }
+            return Status.COMPLETED;
+        }
+        refund(saga);
+        return Status.COMPENSATED;
+    }
+
+    private void refund(Saga saga) {
+        if (shardRouter.onShardOf(saga.senderId(), () -> steps.refund(saga))) {
+            sagaEvent("compensated");
+        }
+    }
+
+    private void recordFailure(Saga saga, RuntimeException failure) {
+        sagaEvent("pending");
+        log.warn("Saga {} pendente: {}", saga.id(), failure.getMessage());
+        try {
+            shardRouter.onShard(shardRouter.shardOf(saga.senderId()),
+                () -> sagaRepository.recordFailure(saga.id(), failure.getMessage()));
+        } catch (RuntimeException e) {
+            // Só diagnóstico: a varredura retoma a saga pelo updated_at de qualquer forma
+            log.debug("Falha ao registrar erro da saga {}: {}", saga.id(), e.getMessage());
+        }
+    }
+
+    private void sagaEvent(String event) {
+        meterRegistry.counter("wallet.transfer.saga", "event", event).increment();
+    }
+
+    /**
+     * Débito confirmado, mas o crédito não terminou na requisição.
+     */
+    public static class TransferNotCompletedException extends DomainException {
+        private static final ExceptionDTO PENDING_BODY = body(
+            "Transferência em processamento: o crédito será concluído ou estornado automaticamente",
+            HttpStatus.ACCEPTED);
+        private static final ExceptionDTO COMPENSATED_BODY = body(
+            "Transferência estornada: o crédito não pôde ser concluído", HttpStatus.CONFLICT);
+
+        private TransferNotCompletedException(HttpStatus status, ExceptionDTO body) {
+            super(status, body);
+        }
+
+        /**
+         * Saga DEBITED (202): valor fora do remetente até a varredura concluir ou estornar.
+         */
+        public static TransferNotCompletedException pending() {
+            return new TransferNotCompletedException(HttpStatus.ACCEPTED, PENDING_BODY);
+        }
+
+        /**
+         * Saga COMPENSATED (409): o valor voltou para o remetente.
+         */
+        public static TransferNotCompletedException compensated() {
+            return new TransferNotCompletedException(HttpStatus.CONFLICT, COMPENSATED_BODY);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.wallet.wallet.services;
+
+import com.wallet.wallet.domain.DomainException.InsufficientFundsException;
+import com.wallet.wallet.domain.DomainException.WalletNotFoundException;
+import com.wallet.wallet.dtos.TransactionDTO;
+import com.wallet.wallet.repositories.TransferSagaRepository;
+import com.wallet.wallet.repositories.TransferSagaRepository.CreditOutcome;
+import com.wallet.wallet.repositories.TransferSagaRepository.Saga;
+import com.wallet.wallet.repositories.TransferSagaRepository.Status;
+import io.github.resilience4j.retry.annotation.Retry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Passos locais da saga entre shards, cada um numa transação de um único shard.
+ *
+ * Quem chama escolhe o shard com {@link ShardRouter#onShard} em volta do passo
+ * (a conexão é roteada no início da transação). Mesmos timeouts de lock e mesmas
+ * novas tentativas (transferLockRetry) de {@link TransactionService#createTransaction}.
+ * Os saldos são alterados por SQL direto: nada de entidade em cache entre shards.
+ */
+@Component
+public class TransferSagaSteps {
+
+    private static final String INSERT_LEDGER_SQL = """
+        INSERT INTO transactions (id, amount, sender_id, receiver_id, timestamp) VALUES (?, ?, ?, ?, ?)
+        """;
+
+    private static final String ADD_BALANCE_SQL = "UPDATE wallets SET balance = balance + ? WHERE user_id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransferSagaRepository sagaRepository;
+
+    @Autowired
+    private TransferLockTimeouts lockTimeouts;
+
+    /**
+     * Shard do remetente: trava a carteira, debita, grava a transação e a saga (DEBITED).
+     *
+     * @throws InsufficientFundsException se o saldo travado não cobre o valor
+     */
+    @Retry(name = "transferLockRetry")
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public Saga debit(String sagaId, TransactionDTO transfer) {
+        lockTimeouts.apply();
+
+        BigDecimal balance = jdbcTemplate.query("SELECT balance FROM wallets WHERE user_id = ? FOR UPDATE",
+                (rs, rowNum) -> rs.getBigDecimal("balance"), transfer.senderId())
+            .stream()
+            .findFirst()
+            .orElseThrow(WalletNotFoundException::ofSender);
+        if (balance.compareTo(transfer.value()) < 0) {
+            throw new InsufficientFundsException();
+        }
+        jdbcTemplate.update(ADD_BALANCE_SQL, transfer.value().negate(), transfer.senderId());
+
+        Saga saga = new Saga(sagaId, UUID.randomUUID().toString(), transfer.senderId(), transfer.receiverId(),
+            transfer.value(), LocalDateTime.now(), 0);
+        insertLedgerRow(saga);
+        sagaRepository.insert(saga);
+        return saga;
+    }
+
+    /**
+     * Shard do recebedor: decide APPLIED e credita, ou devolve a decisão já tomada.
+     * Repetir o crédito (nova tentativa, varredura) nunca credita duas vezes.
+     *
+     * @throws WalletNotFoundException se o recebedor não tem carteira (a decisão é desfeita junto)
+     */
+    @Retry(name = "transferLockRetry")
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public CreditOutcome credit(Saga saga) {
+        lockTimeouts.apply();
+
+        if (!sagaRepository.tryDecideCredit(saga.id(), CreditOutcome.APPLIED)) {
+            return decidedOutcome(saga.id());
+        }
+        if (jdbcTemplate.update(ADD_BALANCE_SQL, saga.amount(), saga.receiverId()) == 0) {
+            throw WalletNotFoundException.ofReceiver();
+        }
+        // Cópia da linha do remetente (mesmo id): o histórico do recebedor fica no shard dele
+        insertLedgerRow(saga);
+        return CreditOutcome.APPLIED;
+    }
+
+    /**
+     * Shard do recebedor: impede um crédito futuro da saga antes do estorno.
+     *
+     * @return CANCELLED, ou APPLIED se o crédito chegou antes (aí não se estorna)
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public CreditOutcome cancelCredit(String sagaId) {
+        lockTimeouts.apply();
+
+        if (sagaRepository.tryDecideCredit(sagaId, CreditOutcome.CANCELLED)) {
+            return CreditOutcome.CANCELLED;
+        }
+        return decidedOutcome(sagaId);
+    }
+
+    /**
+     * Shard do remetente: devolve o valor e apaga a transação. Só a chamada que
+     * move a saga de DEBITED para COMPENSATED estorna.
+     *
+     * @return false se a saga já tinha sido concluída ou estornada
+     */
+    @Retry(name = "transferLockRetry")
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public boolean refund(Saga saga) {
+        lockTimeouts.apply();
+
+        if (!sagaRepository.transition(saga.id(), Status.DEBITED, Status.COMPENSATED)) {
+            return false;
+        }
+        jdbcTemplate.update(ADD_BALANCE_SQL, saga.amount(), saga.senderId());
+        jdbcTemplate.update("DELETE FROM transactions WHERE id = ?", saga.transactionId());
+        return true;
+    }
+
+    private CreditOutcome decidedOutcome(String sagaId) {
+        return sagaRepository.creditOutcome(sagaId)
+            .orElseThrow(() -> new IllegalStateException("Decisão de crédito da saga " + sagaId + " não encontrada"));
+    }
+
+    private void insertLedgerRow(Saga saga) {
+        jdbcTemplate.update(INSERT_LEDGER_SQL, saga.transactionId(), saga.amount(), saga.senderId(),
+            saga.receiverId(), saga.createdAt());
+    }
+}
@@ -0,0 +1,84 @@
+package com.wallet.wallet.services;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Varredura das sagas entre shards que pararam no meio (só com shards).
+ *
+ * Cada instância varre todos os shards; a reserva com SKIP LOCKED em
+ * {@code TransferSagaRepository#claimStuck} impede duas instâncias de pegar a
+ * mesma saga na mesma rodada. Uma saga só é retomada após stuck-after-ms sem
+ * progresso, o que deixa a requisição original terminar antes.
+ */
+@Service
+@Slf4j
+public class TransferSagaSweeper {
+
+    private final TransferSagaService sagaService;
+    private final ShardRouter shardRouter;
+    private final long sweepIntervalMs;
+    private final long stuckAfterMs;
+    private final int batchSize;
+    private final int maxAttempts;
+
+    private final ScheduledExecutorService scheduler;
+
+    public TransferSagaSweeper(
+            TransferSagaService sagaService,
+            ShardRouter shardRouter,
+            @Value("${wallet.sharding.saga.sweep-interval-ms:5000}") long sweepIntervalMs,
+            @Value("${wallet.sharding.saga.stuck-after-ms:10000}") long stuckAfterMs,
+            @Value("${wallet.sharding.saga.batch-size:100}") int batchSize,
+            @Value("${wallet.sharding.saga.max-attempts:10}") int maxAttempts) {
+        this.sagaService = sagaService;
+        this.shardRouter = shardRouter;
+        this.sweepIntervalMs = sweepIntervalMs;
+        this.stuckAfterMs = stuckAfterMs;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+
+        this.scheduler = shardRouter.isSharded()
+            ? Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("saga-sweeper-"))
+            : null;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (scheduler == null) {
+            return;
+        }
+        log.info("Varredura de sagas em {} shards a cada {}ms", shardRouter.shardCount(), sweepIntervalMs);
+        scheduler.scheduleWithFixedDelay(this::sweep, sweepIntervalMs, sweepIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    void sweep() {
+        for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+            try {
+                int claimed = sagaService.recoverStuck(shard, stuckAfterMs, batchSize, maxAttempts);
+                if (claimed > 0) {
+                    log.info("Shard {}: {} sagas retomadas", shard, claimed);
+                }
+            } catch (RuntimeException e) {
+                // Shard fora: tenta de novo na próxima rodada
+                log.warn("Varredura de sagas do shard {} falhou: {}", shard, e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+}
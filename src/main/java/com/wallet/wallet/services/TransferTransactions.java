@@ -0,0 +1,40 @@
+package com.wallet.wallet.services;
+
+import io.github.resilience4j.retry.annotation.Retry;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.function.Supplier;
+
+/**
+ * Transação e novas tentativas da parte de banco de uma transferência local.
+ *
+ * {@link TransactionService} busca os usuários, valida e autoriza uma única vez
+ * e só então passa por aqui a leitura das carteiras, a checagem de saldo e as
+ * escritas. Uma falha de lock ou conflito de versão desfaz a transação e repete
+ * só esse trecho (cada tentativa numa transação nova), sem chamar o autorizador
+ * de novo. O retry fica por fora da transação, como nos passos da saga
+ * ({@link TransferSagaSteps}).
+ */
+@Component
+public class TransferTransactions {
+
+    /**
+     * FOR UPDATE nas carteiras; lock timeout ou deadlock repetem (transferLockRetry).
+     */
+    @Retry(name = "transferLockRetry")
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public <T> T pessimistic(Supplier<T> work) {
+        return work.get();
+    }
+
+    /**
+     * Leitura sem lock e UPDATE versionado; conflito de versão repete (transferOptimisticRetry).
+     */
+    @Retry(name = "transferOptimisticRetry")
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public <T> T optimistic(Supplier<T> work) {
+        return work.get();
+    }
+}
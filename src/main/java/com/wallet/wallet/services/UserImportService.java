@@ -0,0 +1,288 @@
+package com.wallet.wallet.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wallet.wallet.domain.UserType;
+import com.wallet.wallet.dtos.UserDTO;
+import com.wallet.wallet.dtos.UserImportErrorDTO;
+import com.wallet.wallet.dtos.UserImportResultDTO;
+import com.wallet.wallet.repositories.UserBulkRepository;
+import com.wallet.wallet.repositories.UserBulkRepository.UserRow;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Importação em massa de usuários (onboarding de redes de lojistas).
+ *
+ * O arquivo é lido em streaming, linha a linha, e gravado em lotes de
+ * wallet.import.batch-size linhas via {@link UserBulkRepository}. Cada linha
+ * passa pelas mesmas regras de {@link UserDTO}; linhas inválidas ou duplicadas
+ * são reportadas sem abortar a carga.
+ */
+@Service
+@Slf4j
+public class UserImportService {
+
+    private static final List<String> CSV_COLUMNS =
+        List.of("firstName", "lastName", "document", "balance", "email", "password", "userType");
+
+    @Autowired
+    private UserBulkRepository bulkRepository;
+
+    @Autowired
+    private PasswordHashingService passwordHashingService;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${wallet.import.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${wallet.import.max-reported-errors:1000}")
+    private int maxReportedErrors;
+
+    public enum Format {
+        CSV,
+        NDJSON
+    }
+
+    /**
+     * Importa usuários a partir de um arquivo CSV (com cabeçalho) ou NDJSON.
+     *
+     * @param input Corpo da requisição
+     * @param format Formato do arquivo
+     * @return Totais e erros por linha
+     */
+    public UserImportResultDTO importUsers(InputStream input, Format format) throws IOException {
+        ImportRun run = new ImportRun();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+
+        Map<String, Integer> csvHeader = null;
+        long lineNumber = 0;
+        String line;
+        List<ParsedRow> chunk = new ArrayList<>(batchSize);
+
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+
+            if (format == Format.CSV && csvHeader == null) {
+                csvHeader = parseCsvHeader(line);
+                continue;
+            }
+
+            run.totalRows++;
+            UserDTO data;
+            try {
+                data = format == Format.CSV ? parseCsvRow(line, csvHeader) : parseJsonRow(line);
+            } catch (IllegalArgumentException e) {
+                run.reject(lineNumber, e.getMessage());
+                continue;
+            }
+
+            String violations = validate(data);
+            if (violations != null) {
+                run.reject(lineNumber, violations);
+                continue;
+            }
+
+            chunk.add(new ParsedRow(lineNumber, data));
+            if (chunk.size() >= batchSize) {
+                flush(chunk, run);
+                chunk.clear();
+            }
+        }
+
+        if (!chunk.isEmpty()) {
+            flush(chunk, run);
+        }
+
+        log.info("Importação concluída: {} linhas, {} importadas, {} rejeitadas",
+            run.totalRows, run.importedRows, run.failedRows);
+        return new UserImportResultDTO(run.totalRows, run.importedRows, run.failedRows, run.errors);
+    }
+
+    /**
+     * Grava um lote: descarta duplicatas (no próprio lote e na base), hasheia
+     * as senhas e insere tudo em uma transação. Se outra requisição inserir
+     * um documento/email entre a checagem e o INSERT, o lote é refeito linha a
+     * linha para isolar a linha conflitante.
+     */
+    private void flush(List<ParsedRow> chunk, ImportRun run) {
+        Set<String> documents = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        List<ParsedRow> unique = new ArrayList<>(chunk.size());
+
+        for (ParsedRow row : chunk) {
+            if (!documents.add(row.data().document())) {
+                run.reject(row.line(), "Documento duplicado no arquivo");
+            } else if (!emails.add(row.data().email())) {
+                documents.remove(row.data().document());
+                run.reject(row.line(), "Email duplicado no arquivo");
+            } else {
+                unique.add(row);
+            }
+        }
+
+        Set<String> existing = bulkRepository.findExistingDocumentsAndEmails(documents, emails);
+        List<ParsedRow> accepted = new ArrayList<>(unique.size());
+        for (ParsedRow row : unique) {
+            if (existing.contains(row.data().document())) {
+                run.reject(row.line(), "Documento já cadastrado no sistema");
+            } else if (existing.contains(row.data().email())) {
+                run.reject(row.line(), "Email já cadastrado no sistema");
+            } else {
+                accepted.add(row);
+            }
+        }
+
+        if (accepted.isEmpty()) {
+            return;
+        }
+
+        List<String> hashes = passwordHashingService.hashAll(
+            accepted.stream().map(row -> row.data().password()).toList());
+
+        List<UserRow> rows = new ArrayList<>(accepted.size());
+        for (int i = 0; i < accepted.size(); i++) {
+            rows.add(new UserRow(
+                UUID.randomUUID().toString(),
+                UUID.randomUUID().toString(),
+                accepted.get(i).data(),
+                hashes.get(i)));
+        }
+
+        try {
+            bulkRepository.insertUsersWithWallets(rows);
+            run.importedRows += rows.size();
+        } catch (DataIntegrityViolationException e) {
+            log.warn("Conflito no lote de importação, regravando linha a linha: {}", e.getMessage());
+            for (int i = 0; i < rows.size(); i++) {
+                try {
+                    bulkRepository.insertUsersWithWallets(List.of(rows.get(i)));
+                    run.importedRows++;
+                } catch (DataIntegrityViolationException rowError) {
+                    run.reject(accepted.get(i).line(), "Documento ou email já cadastrado no sistema");
+                }
+            }
+        }
+    }
+
+    private String validate(UserDTO data) {
+        Set<ConstraintViolation<UserDTO>> violations = validator.validate(data);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+            .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+            .sorted()
+            .collect(Collectors.joining("; "));
+    }
+
+    private Map<String, Integer> parseCsvHeader(String line) {
+        String[] columns = line.split(",", -1);
+        Map<String, Integer> header = new HashMap<>();
+        for (int i = 0; i < columns.length; i++) {
+            header.put(columns[i].trim(), i);
+        }
+        for (String required : CSV_COLUMNS) {
+            if (!header.containsKey(required)) {
+                throw new IllegalArgumentException("Cabeçalho CSV sem a coluna obrigatória: " + required);
+            }
+        }
+        return header;
+    }
+
+    /**
+     * Converte uma linha CSV simples (separador vírgula, sem aspas).
+     */
+    private UserDTO parseCsvRow(String line, Map<String, Integer> header) {
+        String[] values = line.split(",", -1);
+        if (values.length < header.size()) {
+            throw new IllegalArgumentException("Linha com " + values.length + " colunas, esperado " + header.size());
+        }
+
+        String balance = column(values, header, "balance");
+        String userType = column(values, header, "userType");
+
+        return new UserDTO(
+            column(values, header, "firstName"),
+            column(values, header, "lastName"),
+            column(values, header, "document"),
+            balance == null ? null : parseBalance(balance),
+            column(values, header, "email"),
+            column(values, header, "password"),
+            userType == null ? null : parseUserType(userType));
+    }
+
+    private UserDTO parseJsonRow(String line) {
+        try {
+            return objectMapper.readValue(line, UserDTO.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("JSON inválido: " + e.getOriginalMessage());
+        }
+    }
+
+    private static String column(String[] values, Map<String, Integer> header, String name) {
+        String value = values[header.get(name)].trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static BigDecimal parseBalance(String value) {
+        try {
+            return new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Saldo inválido: " + value);
+        }
+    }
+
+    private static UserType parseUserType(String value) {
+        try {
+            return UserType.valueOf(value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Tipo de usuário inválido: " + value);
+        }
+    }
+
+    private record ParsedRow(long line, UserDTO data) {
+    }
+
+    private class ImportRun {
+        long totalRows;
+        long importedRows;
+        long failedRows;
+        final List<UserImportErrorDTO> errors = new ArrayList<>();
+
+        void reject(long line, String message) {
+            failedRows++;
+            if (errors.size() < maxReportedErrors) {
+                errors.add(new UserImportErrorDTO(line, message));
+            }
+        }
+    }
+}
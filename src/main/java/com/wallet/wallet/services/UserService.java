@@ -1,16 +1,24 @@
 package com.wallet.wallet.services;
 
+import com.wallet.wallet.domain.DomainException.InsufficientFundsException;
+import com.wallet.wallet.domain.DomainException.MerchantSenderException;
+import com.wallet.wallet.domain.DomainException.UserNotFoundException;
+import com.wallet.wallet.domain.DomainException.WalletNotFoundException;
 import com.wallet.wallet.domain.User;
 import com.wallet.wallet.domain.UserType;
 import com.wallet.wallet.domain.Wallet;
+import com.wallet.wallet.dtos.BalanceDTO;
 import com.wallet.wallet.dtos.UserDTO;
+import com.wallet.wallet.repositories.UserBulkRepository;
 import com.wallet.wallet.repositories.UserRepository;
+import com.wallet.wallet.repositories.WalletRepository;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 
 @Service
 public class UserService {
@@ -19,42 +27,60 @@ public class UserService {
     private UserRepository repository;
 
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private PasswordHashingService passwordHashingService;
 
-    public void validateTransaction(User sender, BigDecimal amount) throws Exception {
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private UserBulkRepository bulkRepository;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private MerchantSettlementService merchantSettlement;
+
+    public void validateTransaction(User sender, BigDecimal amount) {
         if (sender == null) {
-            throw new Exception("Usuário remetente não pode ser nulo");
+            throw new UserNotFoundException();
         }
         
         if (sender.getUserType() == UserType.MERCHANT){
-            throw new Exception("Usuário do tipo Lojista não está autorizado a realizar transação");
+            throw new MerchantSenderException();
         }
 
         if (sender.getWallet() == null) {
-            throw new Exception("Carteira do usuário não encontrada");
+            throw WalletNotFoundException.ofUser();
         }
 
         if (sender.getWallet().getBalance() == null) {
-            throw new Exception("Saldo da carteira não disponível");
+            // Inconsistência de dados, não recusa de negócio: segue como 500 com stack
+            throw new IllegalStateException("Saldo da carteira não disponível");
         }
 
         if(sender.getWallet().getBalance().compareTo(amount) < 0){
-            throw new Exception("Saldo insuficiente");
+            throw new InsufficientFundsException();
         }
     }
 
-    public User findUserById(String id) throws Exception {
-        return this.repository.findById(id).orElseThrow(() -> new Exception("Usuário não encontrado"));
+    public User findUserById(String id) {
+        // Com shards, o usuário está em todos, mas a carteira só no shard dele
+        return shardRouter.onShardOf(id, () -> this.repository.findById(id)).orElseThrow(UserNotFoundException::new);
     }
 
     public User createUser(UserDTO data) {
+        if (shardRouter.isSharded()) {
+            return createUserOnShards(data);
+        }
+
         User newUser = new User();
         newUser.setFirstName(data.firstName());
         newUser.setLastName(data.lastName());
         newUser.setDocument(data.document());
         newUser.setEmail(data.email());
         
-        String hashedPassword = passwordEncoder.encode(data.password());
+        String hashedPassword = passwordHashingService.hash(data.password());
         newUser.setPassword(hashedPassword);
         
         newUser.setUserType(data.userType());
@@ -69,8 +95,60 @@ public class UserService {
         return newUser;
     }
 
+    /**
+     * Cadastro com shards: usuário gravado em todos os shards e carteira no shard
+     * dele, pelo mesmo caminho da importação em massa ({@link UserBulkRepository}).
+     */
+    private User createUserOnShards(UserDTO data) {
+        String hashedPassword = passwordHashingService.hash(data.password());
+        UserBulkRepository.UserRow row = new UserBulkRepository.UserRow(
+            UUID.randomUUID().toString(), UUID.randomUUID().toString(), data, hashedPassword);
+        bulkRepository.insertUsersWithWallets(List.of(row));
+
+        User newUser = new User();
+        newUser.setId(row.userId());
+        newUser.setFirstName(data.firstName());
+        newUser.setLastName(data.lastName());
+        newUser.setDocument(data.document());
+        newUser.setEmail(data.email());
+        newUser.setPassword(hashedPassword);
+        newUser.setUserType(data.userType());
+
+        Wallet newWallet = new Wallet();
+        newWallet.setId(row.walletId());
+        newWallet.setBalance(data.balance());
+        newWallet.setUser(newUser);
+        newUser.setWallet(newWallet);
+        return newUser;
+    }
+
+    /**
+     * Saldo atual, sem lock e sem carregar o usuário.
+     * Com liquidação diferida, inclui os créditos pendentes do lojista.
+     */
+    public BalanceDTO getBalance(String userId) {
+        BigDecimal balance = shardRouter.onShardOf(userId, () -> merchantSettlement.isEnabled()
+                ? merchantSettlement.balanceWithPending(userId)
+                : walletRepository.findBalanceByUserId(userId))
+            .orElseThrow(WalletNotFoundException::ofUser);
+        return new BalanceDTO(userId, balance);
+    }
+
+    /**
+     * Com shards, cada usuário vem do shard da carteira dele (nos outros a linha é só réplica).
+     */
     public List<User> getAllUsers() {
-        return this.repository.findAll();
+        if (!shardRouter.isSharded()) {
+            return this.repository.findAll();
+        }
+        List<User> users = new ArrayList<>();
+        for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+            int current = shard;
+            shardRouter.onShard(shard, () -> this.repository.findAll().stream()
+                .filter(user -> shardRouter.shardOf(user.getId()) == current)
+                .forEach(users::add));
+        }
+        return users;
     }
 
     public void saveUser(User user){
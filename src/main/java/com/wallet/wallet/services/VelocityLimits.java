@@ -0,0 +1,318 @@
+package com.wallet.wallet.services;
+
+import com.wallet.wallet.dtos.ExceptionDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Limites de velocidade por remetente: quantidade e valor enviados por minuto e por hora.
+ *
+ * Em memória, sem consulta a transactions: cada remetente ocupa um slot de
+ * uma tabela associativa por conjunto (fingerprint de 64 bits do id, como o
+ * histórico da {@link PreAuthorizationRules}; o fingerprint escolhe um conjunto
+ * de {@value #WAYS} slots) e, para cada janela, um anel de
+ * buckets com contagem e soma em centavos. A janela desliza de bucket em
+ * bucket (12 por janela: 5s no minuto, 5min na hora). Uma checagem percorre
+ * 2 x 12 posições de arrays primitivos.
+ *
+ * Memória fixa: a tabela tem o dobro de VELOCITY_SLOTS (remetentes ativos por
+ * hora esperados) em slots de ~300 bytes, para os conjuntos terem folga. Slot
+ * de remetente sem movimento há mais de uma hora é tratado como vazio e
+ * reaproveitado; a janela de um remetente ativo nunca é despejada. Com o
+ * conjunto cheio de remetentes ativos, o novo remetente passa sem ser contado
+ * (o limite não recusa cliente legítimo por falta de slot) e a passagem conta
+ * em wallet.velocity.collisions, que deve ter alerta: acima de zero, aumentar
+ * VELOCITY_SLOTS.
+ *
+ * {@link #reserve} checa e já soma a transferência às janelas, sob o mesmo
+ * lock: transferências simultâneas do mesmo remetente veem as reservas umas
+ * das outras e uma rajada não passa do limite. Quem reservou libera
+ * ({@link Reservation#release}) se a transferência for negada ou desfeita;
+ * com commit, a reserva fica como o registro. Os contadores são por instância
+ * (com CLUSTER_ENABLED, o remetente fica no nó dono).
+ */
+@Service
+public class VelocityLimits {
+
+    private static final int LOCK_STRIPES = 64;
+    private static final int WAYS = 8;
+    private static final int BUCKETS = 12;
+    private static final long[] WINDOW_MILLIS = {TimeUnit.MINUTES.toMillis(1), TimeUnit.HOURS.toMillis(1)};
+    private static final String[] WINDOW_NAMES = {"minute", "hour"};
+    private static final String[] WINDOW_LABELS = {"por minuto", "por hora"};
+    private static final int WINDOWS = WINDOW_MILLIS.length;
+
+    private final boolean enabled;
+    private final LongSupplier clock;
+
+    // Limite por janela; 0 = sem limite
+    private final int[] maxCount = new int[WINDOWS];
+    private final long[] maxCents = new long[WINDOWS];
+    private final long[] bucketMillis = new long[WINDOWS];
+    private final ExceptionDTO[] countExceeded = new ExceptionDTO[WINDOWS];
+    private final ExceptionDTO[] amountExceeded = new ExceptionDTO[WINDOWS];
+    private final Counter[] rejected = new Counter[WINDOWS];
+    private final Counter collisions;
+
+    private final long[] slotKeys;
+    private final long[] slotLastSeen;
+    // [slot][janela] -> índice absoluto do bucket mais recente
+    private final long[] heads;
+    // [slot][janela][bucket]
+    private final int[] counts;
+    private final long[] cents;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final int setMask;
+
+    @Autowired
+    public VelocityLimits(
+            MeterRegistry meterRegistry,
+            @Value("${wallet.velocity.enabled:false}") boolean enabled,
+            @Value("${wallet.velocity.max-count-per-minute:0}") int maxCountPerMinute,
+            @Value("${wallet.velocity.max-amount-per-minute:0}") BigDecimal maxAmountPerMinute,
+            @Value("${wallet.velocity.max-count-per-hour:0}") int maxCountPerHour,
+            @Value("${wallet.velocity.max-amount-per-hour:0}") BigDecimal maxAmountPerHour,
+            @Value("${wallet.velocity.slots:16384}") int slots) {
+        this(meterRegistry, enabled, maxCountPerMinute, maxAmountPerMinute, maxCountPerHour, maxAmountPerHour,
+            slots, System::currentTimeMillis);
+    }
+
+    // Relógio injetável para os testes
+    VelocityLimits(MeterRegistry meterRegistry, boolean enabled,
+                   int maxCountPerMinute, BigDecimal maxAmountPerMinute,
+                   int maxCountPerHour, BigDecimal maxAmountPerHour,
+                   int slots, LongSupplier clock) {
+        this.enabled = enabled;
+        this.clock = clock;
+
+        maxCount[0] = maxCountPerMinute;
+        maxCount[1] = maxCountPerHour;
+        maxCents[0] = toCents(maxAmountPerMinute);
+        maxCents[1] = toCents(maxAmountPerHour);
+        for (int w = 0; w < WINDOWS; w++) {
+            bucketMillis[w] = WINDOW_MILLIS[w] / BUCKETS;
+            countExceeded[w] = new ExceptionDTO("Limite de transferências " + WINDOW_LABELS[w] + " excedido", "429");
+            amountExceeded[w] = new ExceptionDTO("Limite de valor transferido " + WINDOW_LABELS[w] + " excedido", "429");
+            rejected[w] = Counter.builder("wallet.velocity.rejected")
+                .description("Transferências recusadas por limite de velocidade do remetente")
+                .tag("window", WINDOW_NAMES[w])
+                .register(meterRegistry);
+        }
+        this.collisions = Counter.builder("wallet.velocity.collisions")
+            .description("Transferências que passaram sem contar no limite: conjunto cheio de remetentes ativos")
+            .register(meterRegistry);
+
+        // Potência de 2 com pelo menos o dobro dos remetentes esperados
+        int size = enabled ? Integer.highestOneBit(Math.max(LOCK_STRIPES, 2 * slots - 1)) << 1 : 0;
+        this.slotKeys = new long[size];
+        this.slotLastSeen = new long[size];
+        this.heads = new long[size * WINDOWS];
+        this.counts = new int[size * WINDOWS * BUCKETS];
+        this.cents = new long[size * WINDOWS * BUCKETS];
+        this.setMask = size / WAYS - 1;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Recusa se esta transferência passaria algum limite, contando o que o
+     * remetente já enviou ou reservou nas janelas; se não passa, reserva
+     * quantidade e valor na janela de agora.
+     *
+     * @return reserva a liberar se a transferência for negada ou desfeita
+     * @throws LimitExceededException 429 com Retry-After de um bucket da janela estourada
+     */
+    public Reservation reserve(String senderId, BigDecimal amount) {
+        if (!enabled) {
+            return Reservation.NONE;
+        }
+        long amountCents = toCents(amount);
+        long fingerprint = fingerprint(senderId);
+        int set = setOf(fingerprint);
+        long now = clock.getAsLong();
+
+        synchronized (locks[set & (LOCK_STRIPES - 1)]) {
+            int slot = find(set, fingerprint, now);
+            if (slot < 0) {
+                slot = free(set, now);
+                if (slot < 0) {
+                    // Nenhuma janela ativa é despejada: esta passa sem contar, com sinal na métrica
+                    collisions.increment();
+                    return Reservation.NONE;
+                }
+                reset(slot, fingerprint, now);
+            }
+            for (int w = 0; w < WINDOWS; w++) {
+                advance(slot, w, now);
+                int count = 0;
+                long sum = 0;
+                int base = (slot * WINDOWS + w) * BUCKETS;
+                for (int b = 0; b < BUCKETS; b++) {
+                    count += counts[base + b];
+                    sum += cents[base + b];
+                }
+                if (maxCount[w] > 0 && count + 1 > maxCount[w]) {
+                    throw reject(w, countExceeded[w]);
+                }
+                if (maxCents[w] > 0 && sum + amountCents > maxCents[w]) {
+                    throw reject(w, amountExceeded[w]);
+                }
+            }
+
+            long[] reservedBuckets = new long[WINDOWS];
+            for (int w = 0; w < WINDOWS; w++) {
+                reservedBuckets[w] = heads[slot * WINDOWS + w];
+                int bucket = (slot * WINDOWS + w) * BUCKETS + (int) (reservedBuckets[w] % BUCKETS);
+                counts[bucket]++;
+                cents[bucket] += amountCents;
+            }
+            slotLastSeen[slot] = now;
+            int reservedSlot = slot;
+            return new Reservation() {
+                private boolean released;
+
+                @Override
+                public void release() {
+                    synchronized (locks[set & (LOCK_STRIPES - 1)]) {
+                        if (!released) {
+                            released = true;
+                            unreserve(reservedSlot, fingerprint, reservedBuckets, amountCents);
+                        }
+                    }
+                }
+            };
+        }
+    }
+
+    /**
+     * Tira a reserva do bucket em que entrou, se o slot ainda é do remetente e o bucket ainda está na janela.
+     */
+    private void unreserve(int slot, long fingerprint, long[] reservedBuckets, long amountCents) {
+        if (slotKeys[slot] != fingerprint) {
+            return;
+        }
+        for (int w = 0; w < WINDOWS; w++) {
+            long head = heads[slot * WINDOWS + w];
+            if (head - reservedBuckets[w] >= BUCKETS) {
+                continue;
+            }
+            int bucket = (slot * WINDOWS + w) * BUCKETS + (int) (reservedBuckets[w] % BUCKETS);
+            counts[bucket] = Math.max(0, counts[bucket] - 1);
+            cents[bucket] = Math.max(0, cents[bucket] - amountCents);
+        }
+    }
+
+    // Slot com a janela ativa do remetente, ou -1
+    private int find(int set, long fingerprint, long now) {
+        for (int slot = set * WAYS; slot < (set + 1) * WAYS; slot++) {
+            if (slotKeys[slot] == fingerprint && !isStale(slot, now)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    // Slot vazio ou vencido do conjunto, ou -1 se todos têm remetentes ativos
+    private int free(int set, long now) {
+        for (int slot = set * WAYS; slot < (set + 1) * WAYS; slot++) {
+            if (isStale(slot, now)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Move o anel da janela até o bucket de agora, zerando os que saíram dela.
+     */
+    private void advance(int slot, int w, long now) {
+        int headIndex = slot * WINDOWS + w;
+        long current = now / bucketMillis[w];
+        long head = heads[headIndex];
+        if (current <= head) {
+            return;
+        }
+        int base = headIndex * BUCKETS;
+        long expired = Math.min(current - head, BUCKETS);
+        for (long i = 1; i <= expired; i++) {
+            int bucket = base + (int) ((head + i) % BUCKETS);
+            counts[bucket] = 0;
+            cents[bucket] = 0;
+        }
+        heads[headIndex] = current;
+    }
+
+    private void reset(int slot, long fingerprint, long now) {
+        slotKeys[slot] = fingerprint;
+        for (int w = 0; w < WINDOWS; w++) {
+            heads[slot * WINDOWS + w] = now / bucketMillis[w];
+            int base = (slot * WINDOWS + w) * BUCKETS;
+            for (int b = 0; b < BUCKETS; b++) {
+                counts[base + b] = 0;
+                cents[base + b] = 0;
+            }
+        }
+    }
+
+    // Sem movimento há mais que a maior janela: nada do que está no slot conta mais
+    private boolean isStale(int slot, long now) {
+        return now - slotLastSeen[slot] >= WINDOW_MILLIS[WINDOWS - 1];
+    }
+
+    private LimitExceededException reject(int w, ExceptionDTO body) {
+        rejected[w].increment();
+        return new LimitExceededException(body, (int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(bucketMillis[w])));
+    }
+
+    private int setOf(long fingerprint) {
+        return (int) (fingerprint ^ (fingerprint >>> 32)) & setMask;
+    }
+
+    // Conjunto do remetente (os testes usam para montar colisões)
+    int setOf(String senderId) {
+        return setOf(fingerprint(senderId));
+    }
+
+    private static long toCents(BigDecimal amount) {
+        return amount.movePointRight(2).setScale(0, RoundingMode.CEILING).longValue();
+    }
+
+    /**
+     * FNV-1a 64 bits sobre o id do remetente.
+     */
+    private static long fingerprint(String senderId) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < senderId.length(); i++) {
+            hash = (hash ^ senderId.charAt(i)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Quantidade e valor reservados por {@link #reserve}; liberar desfaz a reserva (chamadas repetidas não fazem nada).
+     */
+    @FunctionalInterface
+    public interface Reservation {
+        Reservation NONE = () -> { };
+
+        void release();
+    }
+
+    /**
+     * Limite de velocidade atingido (429 + Retry-After, como a admissão).
+     */
+    public static class LimitExceededException extends AdmissionControlService.TransferRejectedException {
+        public LimitExceededException(ExceptionDTO body, int retryAfterSeconds) {
+            super(body, retryAfterSeconds);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.wallet.wallet.services;
+
+import com.wallet.wallet.domain.DomainException;
+import com.wallet.wallet.dtos.ExceptionDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fila local (na JVM) por remetente, na frente da transação de transferência.
+ *
+ * Sem ela, N transferências do mesmo remetente nesta instância pegam N conexões
+ * do Hikari só para esperar no FOR UPDATE do PostgreSQL, e uma carteira quente
+ * esvazia o pool. Com ela, só a primeira entra na transação e as demais esperam
+ * em memória, sem conexão. O lock do banco continua sendo a garantia entre
+ * instâncias; este é só um filtro local.
+ *
+ * Locks fixos em stripes (hash do userId): memória constante, sem mapa por
+ * carteira para limpar. Carteiras no mesmo stripe esperam uma pela outra sem
+ * necessidade, por isso o número de stripes fica bem acima das transferências
+ * simultâneas (wallet.admission.max-in-flight-total). Locks justos (FIFO) e com
+ * timeout: quem chegou antes entra antes e ninguém espera indefinidamente.
+ *
+ * O lock cobre só a parte de banco ({@link TransferTransactions}: FOR UPDATE,
+ * checagem de saldo, escritas e as novas tentativas), depois da autorização
+ * remota, e só o remetente: pagamentos de vários clientes para o mesmo
+ * lojista não se enfileiram aqui, só no FOR UPDATE do recebedor, como sem a
+ * fila. O timeout padrão é o pior caso de quem está segurando o lock:
+ * todas as tentativas do transferLockRetry esperando lock-timeout-ms em cada
+ * FOR UPDATE, mais o backoff entre elas ({@link #worstCaseHoldMs}). Esgotado,
+ * 409 + Retry-After.
+ */
+@Service
+@Slf4j
+public class WalletLockStripes {
+
+    private static final ExceptionDTO WALLET_BUSY =
+        new ExceptionDTO("Carteira em uso por outra transferência. Tente novamente.", "409");
+
+    private final boolean enabled;
+    private final long timeoutNanos;
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    private final Timer waitTimer;
+    private final Counter timeouts;
+
+    @Autowired
+    public WalletLockStripes(
+            MeterRegistry meterRegistry,
+            @Value("${wallet.transfer.local-lock.enabled:true}") boolean enabled,
+            @Value("${wallet.transfer.local-lock.stripes:1024}") int stripes,
+            @Value("${wallet.transfer.local-lock.timeout-ms:0}") long timeoutMs,
+            @Value("${wallet.transfer.lock-timeout-ms:1000}") long lockTimeoutMs,
+            @Value("${resilience4j.retry.instances.transferLockRetry.max-attempts:3}") int attempts,
+            @Value("${resilience4j.retry.instances.transferLockRetry.wait-duration:50}") long waitMs,
+            @Value("${resilience4j.retry.instances.transferLockRetry.exponential-backoff-multiplier:2.0}") double multiplier,
+            @Value("${resilience4j.retry.instances.transferLockRetry.randomized-wait-factor:0.5}") double randomizedWaitFactor) {
+        this(meterRegistry, enabled, stripes, timeoutMs > 0 ? timeoutMs
+            : worstCaseHoldMs(lockTimeoutMs, attempts, waitMs, multiplier, randomizedWaitFactor));
+    }
+
+    WalletLockStripes(MeterRegistry meterRegistry, boolean enabled, int stripes, long timeoutMs) {
+        this.enabled = enabled;
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+
+        // Potência de 2: índice por máscara em vez de módulo
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.stripes = new ReentrantLock[enabled ? size : 0];
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new ReentrantLock(true);
+        }
+        this.mask = size - 1;
+
+        this.waitTimer = Timer.builder("wallet.transfer.local.lock.wait")
+            .description("Espera pelo lock local do remetente, antes da transação")
+            .register(meterRegistry);
+        this.timeouts = Counter.builder("wallet.transfer.local.lock.timeouts")
+            .description("Transferências recusadas por espera longa no lock local da carteira")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Trava o stripe do remetente. Um lock só por transferência: não há ordem a
+     * respeitar entre dois locks, então transferências opostas não se travam.
+     * O {@link Hold} devolvido deve ser fechado ao fim da parte de banco (try-with-resources).
+     *
+     * @param senderId ID do remetente
+     * @throws LockTimeoutException se o lock não veio dentro de timeout-ms
+     */
+    public Hold acquire(String senderId) {
+        if (!enabled) {
+            return Hold.NOOP;
+        }
+
+        long start = System.nanoTime();
+        ReentrantLock lock = stripes[stripeOf(senderId)];
+        lock(lock, start);
+        waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return lock::unlock;
+    }
+
+    /**
+     * Maior tempo que uma transferência segura o lock: cada tentativa espera até
+     * lock-timeout-ms no FOR UPDATE do remetente e no do recebedor, e entre as
+     * tentativas vem o backoff exponencial com o jitter máximo.
+     */
+    static long worstCaseHoldMs(long lockTimeoutMs, int attempts, long waitMs,
+                                double multiplier, double randomizedWaitFactor) {
+        long hold = attempts * 2 * lockTimeoutMs;
+        double backoff = waitMs;
+        for (int retry = 1; retry < attempts; retry++) {
+            hold += (long) Math.ceil(backoff * (1 + randomizedWaitFactor));
+            backoff *= multiplier;
+        }
+        return hold;
+    }
+
+    int stripeOf(String walletKey) {
+        int hash = walletKey.hashCode();
+        // Espalha os bits altos: ids com o mesmo sufixo não caem todos no mesmo stripe
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private void lock(ReentrantLock lock, long start) {
+        long remaining = timeoutNanos - (System.nanoTime() - start);
+        boolean acquired;
+        try {
+            acquired = lock.tryLock(Math.max(0, remaining), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            timeouts.increment();
+            log.debug("Lock local da carteira não obtido em {}ms", TimeUnit.NANOSECONDS.toMillis(timeoutNanos));
+            throw new LockTimeoutException();
+        }
+    }
+
+    /**
+     * Locks locais ocupados; fechar libera.
+     */
+    @FunctionalInterface
+    public interface Hold extends AutoCloseable {
+        Hold NOOP = () -> { };
+
+        @Override
+        void close();
+    }
+
+    /**
+     * Espera pelo lock local esgotada (mapeada para 409 + Retry-After, como lock do banco).
+     */
+    public static class LockTimeoutException extends DomainException {
+        public LockTimeoutException() {
+            super(HttpStatus.CONFLICT, WALLET_BUSY);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.wallet.wallet.services;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Divisão das carteiras entre os nós do cluster (snapshot imutável).
+ *
+ * Cada carteira, pelo id do dono, cai numa de N partições fixas. Cada partição
+ * pertence ao nó de maior peso rendezvous (HRW) entre os membros vivos. Quando um
+ * nó entra, ele só toma partições dos outros; quando sai, só as dele são
+ * redistribuídas (~1/n das partições em cada caso). Todos os nós chegam ao mesmo
+ * dono a partir da mesma lista de membros, sem tabela de faixas para coordenar.
+ */
+public final class WalletPartitioning {
+
+    private final int partitions;
+    private final List<Node> members;
+    private final Node[] owners;
+
+    private WalletPartitioning(int partitions, List<Node> members) {
+        this.partitions = partitions;
+        this.members = members;
+        this.owners = new Node[partitions];
+
+        long[] nodeHashes = members.stream().mapToLong(node -> hash(node.id())).toArray();
+        for (int partition = 0; partition < partitions; partition++) {
+            long partitionHash = mix(partition + 0x9E3779B97F4A7C15L);
+            int best = 0;
+            long bestWeight = Long.MIN_VALUE;
+            for (int i = 0; i < nodeHashes.length; i++) {
+                long weight = mix(nodeHashes[i] ^ partitionHash);
+                // Membros ordenados por id: empate (improvável) decide igual em todos os nós
+                if (weight > bestWeight) {
+                    bestWeight = weight;
+                    best = i;
+                }
+            }
+            owners[partition] = members.get(best);
+        }
+    }
+
+    /**
+     * @param members Nós vivos (ao menos um; a ordem não importa)
+     * @param partitions Número de partições, igual em todos os nós
+     */
+    public static WalletPartitioning of(Collection<Node> members, int partitions) {
+        if (members.isEmpty() || partitions < 1) {
+            throw new IllegalArgumentException("Partição de carteiras exige ao menos um nó e uma partição");
+        }
+        List<Node> sorted = members.stream()
+            .distinct()
+            .sorted(Comparator.comparing(Node::id))
+            .toList();
+        return new WalletPartitioning(partitions, sorted);
+    }
+
+    public int partitionOf(String walletKey) {
+        return (int) Long.remainderUnsigned(hash(walletKey), partitions);
+    }
+
+    public Node ownerOf(String walletKey) {
+        return owners[partitionOf(walletKey)];
+    }
+
+    public Node ownerOfPartition(int partition) {
+        return owners[partition];
+    }
+
+    public int partitionsOwnedBy(String nodeId) {
+        int owned = 0;
+        for (Node owner : owners) {
+            if (owner.id().equals(nodeId)) {
+                owned++;
+            }
+        }
+        return owned;
+    }
+
+    public List<Node> members() {
+        return members;
+    }
+
+    public int partitions() {
+        return partitions;
+    }
+
+    /**
+     * FNV-1a 64 bits + finalizador: estável entre JVMs (String.hashCode espalha mal UUIDs parecidos).
+     * Também decide o shard da carteira ({@link ShardRouter}).
+     */
+    public static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= (b & 0xff);
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    // Finalizador do SplitMix64
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Nó do cluster: id estável e URL base para onde as transferências são encaminhadas.
+     */
+    public record Node(String id, String baseUrl) {
+    }
+}
@@ -0,0 +1,89 @@
+-- ========================================
+-- V1: esquema base (users, wallets, transactions)
+--
+-- Idempotente: bancos criados antes pelo ddl-auto=update já têm as tabelas e,
+-- com nomes gerados pelo Hibernate, as constraints únicas. Cada bloco só cria
+-- o que falta, então a mesma migração serve para banco novo e banco existente.
+-- Tipos alinhados ao mapeamento JPA (o startup roda ddl-auto=validate).
+--
+-- Os índices (únicos e de histórico) ficam na V1.1 (BaselineIndexMigration),
+-- criados com CONCURRENTLY fora de transação para não bloquear escritas.
+-- ========================================
+
+CREATE TABLE IF NOT EXISTS users (
+    id         varchar(255) NOT NULL,
+    document   varchar(255),
+    email      varchar(255),
+    first_name varchar(255),
+    last_name  varchar(255),
+    password   varchar(255),
+    user_type  varchar(255),
+    CONSTRAINT pk_users PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS wallets (
+    id      varchar(255) NOT NULL,
+    balance numeric(38, 2),
+    user_id varchar(255),
+    CONSTRAINT pk_wallets PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS transactions (
+    id          varchar(255) NOT NULL,
+    amount      numeric(38, 2),
+    sender_id   varchar(255),
+    receiver_id varchar(255),
+    timestamp   timestamp(6),
+    CONSTRAINT pk_transactions PRIMARY KEY (id)
+);
+
+CREATE FUNCTION pg_temp.ensure_constraint(p_table text, p_name text, p_definition text) RETURNS void AS $$
+BEGIN
+    IF NOT EXISTS (
+        SELECT 1 FROM pg_constraint WHERE conrelid = p_table::regclass AND conname = p_name
+    ) THEN
+        EXECUTE format('ALTER TABLE %I ADD CONSTRAINT %I %s', p_table, p_name, p_definition);
+    END IF;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE FUNCTION pg_temp.has_foreign_key(p_table text, p_column text) RETURNS boolean AS $$
+    SELECT EXISTS (
+        SELECT 1
+          FROM pg_constraint c
+          JOIN pg_attribute a ON a.attrelid = c.conrelid AND a.attnum = c.conkey[1]
+         WHERE c.conrelid = p_table::regclass
+           AND c.contype = 'f'
+           AND a.attname = p_column
+    );
+$$ LANGUAGE sql;
+
+DO $$
+BEGIN
+    -- Chaves estrangeiras (bancos do ddl-auto já têm as equivalentes "fk..." com hash no nome)
+    IF NOT pg_temp.has_foreign_key('wallets', 'user_id') THEN
+        PERFORM pg_temp.ensure_constraint('wallets', 'fk_wallets_user',
+            'FOREIGN KEY (user_id) REFERENCES users (id)');
+    END IF;
+    IF NOT pg_temp.has_foreign_key('transactions', 'sender_id') THEN
+        PERFORM pg_temp.ensure_constraint('transactions', 'fk_transactions_sender',
+            'FOREIGN KEY (sender_id) REFERENCES users (id)');
+    END IF;
+    IF NOT pg_temp.has_foreign_key('transactions', 'receiver_id') THEN
+        PERFORM pg_temp.ensure_constraint('transactions', 'fk_transactions_receiver',
+            'FOREIGN KEY (receiver_id) REFERENCES users (id)');
+    END IF;
+
+    -- Regras de negócio também no banco. NOT VALID: vale para escritas novas sem varrer
+    -- (nem travar) as linhas existentes; rode VALIDATE CONSTRAINT depois, fora do pico.
+    PERFORM pg_temp.ensure_constraint('wallets', 'ck_wallets_balance_non_negative',
+        'CHECK (balance >= 0) NOT VALID');
+    PERFORM pg_temp.ensure_constraint('transactions', 'ck_transactions_amount_positive',
+        'CHECK (amount > 0) NOT VALID');
+    -- O ddl-auto já cria users_user_type_check
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conrelid = 'users'::regclass AND contype = 'c') THEN
+        PERFORM pg_temp.ensure_constraint('users', 'ck_users_user_type',
+            'CHECK (user_type IN (''COMMON'', ''MERCHANT''))');
+    END IF;
+END;
+$$;
@@ -0,0 +1,14 @@
+-- ========================================
+-- V2: membros do cluster (afinidade de carteiras por nó)
+--
+-- Cada nó com wallet.cluster.enabled=true renova last_heartbeat periodicamente;
+-- nós sem heartbeat dentro do TTL deixam de receber partições.
+-- Fora do mapeamento JPA: acessada só via JDBC (ClusterMembershipService).
+-- ========================================
+
+CREATE TABLE IF NOT EXISTS cluster_nodes (
+    node_id        varchar(255) NOT NULL,
+    base_url       varchar(255) NOT NULL,
+    last_heartbeat timestamp(6) NOT NULL,
+    CONSTRAINT pk_cluster_nodes PRIMARY KEY (node_id)
+);
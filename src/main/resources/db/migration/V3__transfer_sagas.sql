@@ -0,0 +1,35 @@
+-- ========================================
+-- V3: sagas de transferência entre shards (perfil "sharded")
+--
+-- transfer_sagas fica no shard do remetente e é gravada na mesma transação
+-- local do débito. saga_credits fica no shard do recebedor: a linha decide
+-- de uma vez se o crédito foi aplicado (APPLIED) ou cancelado para estorno
+-- (CANCELLED), o que torna crédito e compensação idempotentes.
+-- Sem shards as tabelas ficam vazias.
+-- ========================================
+
+CREATE TABLE IF NOT EXISTS transfer_sagas (
+    id             varchar(36)    NOT NULL,
+    transaction_id varchar(255)   NOT NULL,
+    sender_id      varchar(255)   NOT NULL,
+    receiver_id    varchar(255)   NOT NULL,
+    amount         numeric(38, 2) NOT NULL,
+    status         varchar(16)    NOT NULL,
+    attempts       integer        NOT NULL DEFAULT 0,
+    last_error     varchar(500),
+    created_at     timestamp(6)   NOT NULL,
+    updated_at     timestamp(6)   NOT NULL,
+    CONSTRAINT pk_transfer_sagas PRIMARY KEY (id),
+    CONSTRAINT ck_transfer_sagas_status CHECK (status IN ('DEBITED', 'COMPLETED', 'COMPENSATED'))
+);
+
+-- Varredura de sagas paradas: só as pendentes, pela última atualização
+CREATE INDEX IF NOT EXISTS ix_transfer_sagas_pending ON transfer_sagas (updated_at) WHERE status = 'DEBITED';
+
+CREATE TABLE IF NOT EXISTS saga_credits (
+    saga_id    varchar(36)  NOT NULL,
+    outcome    varchar(16)  NOT NULL,
+    decided_at timestamp(6) NOT NULL,
+    CONSTRAINT pk_saga_credits PRIMARY KEY (saga_id),
+    CONSTRAINT ck_saga_credits_outcome CHECK (outcome IN ('APPLIED', 'CANCELLED'))
+);
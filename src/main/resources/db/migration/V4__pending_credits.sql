@@ -0,0 +1,22 @@
+-- ========================================
+-- V4: créditos pendentes de lojistas (liquidação diferida, wallet.settlement.enabled)
+--
+-- A transferência para um lojista em modo diferido grava uma linha aqui em vez
+-- de travar e atualizar a carteira dele. A liquidação periódica soma as linhas
+-- por lojista, aplica um UPDATE por carteira e apaga as linhas na mesma transação.
+-- Saldo do lojista = wallets.balance + soma das linhas pendentes.
+-- ========================================
+
+CREATE TABLE IF NOT EXISTS pending_credits (
+    id             bigserial      NOT NULL,
+    merchant_id    varchar(255)   NOT NULL,
+    transaction_id varchar(255)   NOT NULL,
+    amount         numeric(38, 2) NOT NULL,
+    created_at     timestamp(6)   NOT NULL DEFAULT LOCALTIMESTAMP,
+    CONSTRAINT pk_pending_credits PRIMARY KEY (id),
+    CONSTRAINT fk_pending_credits_merchant FOREIGN KEY (merchant_id) REFERENCES users (id),
+    CONSTRAINT ck_pending_credits_amount_positive CHECK (amount > 0)
+);
+
+-- Leitura de saldo soma por lojista (a liquidação percorre pela PK, mais antigas primeiro)
+CREATE INDEX IF NOT EXISTS ix_pending_credits_merchant ON pending_credits (merchant_id);
@@ -0,0 +1,30 @@
+-- ========================================
+-- V5: saldo de abertura das carteiras (base da conciliação)
+--
+-- Saldo esperado = opening_balance + recebido - enviado (transactions), e o
+-- saldo real inclui os créditos pendentes de lojistas (pending_credits).
+-- O gatilho preenche opening_balance com o saldo inicial em todo INSERT
+-- (cadastro via JPA, importação em massa, instâncias antigas no rolling deploy),
+-- sem mudar a entidade.
+--
+-- Carteiras existentes ficam com opening_balance NULL ("sem base"): um UPDATE
+-- de todas as carteiras aqui travaria todas elas durante o deploy. A base é
+-- preenchida fora da migração, em blocos, pela conciliação
+-- (BalanceReconciliationService), derivada do histórico do momento, ou seja,
+-- assume que hoje elas estão conciliadas. Divergências anteriores a isso não
+-- aparecem na conciliação.
+-- ========================================
+
+ALTER TABLE wallets ADD COLUMN IF NOT EXISTS opening_balance numeric(38, 2);
+
+CREATE OR REPLACE FUNCTION wallets_set_opening_balance() RETURNS trigger AS $$
+BEGIN
+    NEW.opening_balance := COALESCE(NEW.opening_balance, NEW.balance);
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS tg_wallets_opening_balance ON wallets;
+CREATE TRIGGER tg_wallets_opening_balance
+    BEFORE INSERT ON wallets
+    FOR EACH ROW EXECUTE FUNCTION wallets_set_opening_balance();
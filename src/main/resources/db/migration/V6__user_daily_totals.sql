@@ -0,0 +1,77 @@
+-- ========================================
+-- V6: totais diários por usuário (enviado/recebido), mantidos por outbox
+--
+-- Cada INSERT/DELETE em transactions grava, pelo trigger, uma linha em
+-- transaction_outbox (DELETE com sinal negativo: estorno de saga). O consumidor
+-- (DailyTotalsService) apaga as linhas em lotes, soma por usuário e dia e faz
+-- um upsert por chave em user_daily_totals, na mesma transação. O trigger cobre
+-- todos os caminhos de escrita (JPA, R2DBC, saga via JDBC) sem travar a linha
+-- de totais de um lojista a cada pagamento.
+--
+-- Sem carga inicial aqui: um INSERT ... SELECT ... GROUP BY sobre transactions
+-- dentro da migração seguraria as escritas em transactions pelo scan inteiro.
+-- As transações anteriores a esta migração ficam com daily_totals_tracked =
+-- false (as novas, true) e o DailyTotalsService as soma em lotes pela PK,
+-- guardando o último id em daily_totals_backfill.
+-- ========================================
+
+CREATE TABLE IF NOT EXISTS user_daily_totals (
+    user_id         varchar(255)   NOT NULL,
+    day             date           NOT NULL,
+    sent_amount     numeric(38, 2) NOT NULL DEFAULT 0,
+    sent_count      bigint         NOT NULL DEFAULT 0,
+    received_amount numeric(38, 2) NOT NULL DEFAULT 0,
+    received_count  bigint         NOT NULL DEFAULT 0,
+    CONSTRAINT pk_user_daily_totals PRIMARY KEY (user_id, day)
+);
+
+CREATE TABLE IF NOT EXISTS transaction_outbox (
+    id          bigserial      NOT NULL,
+    sender_id   varchar(255),
+    receiver_id varchar(255),
+    day         date           NOT NULL,
+    amount      numeric(38, 2) NOT NULL,
+    delta       smallint       NOT NULL,
+    CONSTRAINT pk_transaction_outbox PRIMARY KEY (id),
+    CONSTRAINT ck_transaction_outbox_delta CHECK (delta IN (-1, 1))
+);
+
+-- Carga inicial em lotes (DailyTotalsService): último id já somado de transactions
+CREATE TABLE IF NOT EXISTS daily_totals_backfill (
+    id      smallint     NOT NULL,
+    last_id varchar(255) NOT NULL DEFAULT '',
+    done    boolean      NOT NULL DEFAULT false,
+    CONSTRAINT pk_daily_totals_backfill PRIMARY KEY (id),
+    CONSTRAINT ck_daily_totals_backfill_single CHECK (id = 1)
+);
+INSERT INTO daily_totals_backfill (id) VALUES (1) ON CONFLICT (id) DO NOTHING;
+
+-- Linhas existentes leem false (default rápido, sem reescrever a tabela); as inseridas daqui em
+-- diante recebem true e entram nos totais pelo outbox
+ALTER TABLE transactions ADD COLUMN IF NOT EXISTS daily_totals_tracked boolean NOT NULL DEFAULT false;
+ALTER TABLE transactions ALTER COLUMN daily_totals_tracked SET DEFAULT true;
+
+CREATE OR REPLACE FUNCTION transactions_to_outbox() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO transaction_outbox (sender_id, receiver_id, day, amount, delta)
+        VALUES (NEW.sender_id, NEW.receiver_id, CAST(COALESCE(NEW.timestamp, LOCALTIMESTAMP) AS date), NEW.amount, 1);
+        RETURN NEW;
+    END IF;
+    -- Transação anterior à migração só sai dos totais se a carga inicial já a somou. O FOR SHARE
+    -- espera o lote de carga em andamento, que trava a linha de daily_totals_backfill
+    IF NOT OLD.daily_totals_tracked
+       AND NOT EXISTS (SELECT 1 FROM daily_totals_backfill
+                        WHERE id = 1 AND (done OR last_id >= OLD.id) FOR SHARE) THEN
+        RETURN OLD;
+    END IF;
+    INSERT INTO transaction_outbox (sender_id, receiver_id, day, amount, delta)
+    VALUES (OLD.sender_id, OLD.receiver_id, CAST(COALESCE(OLD.timestamp, LOCALTIMESTAMP) AS date), -OLD.amount, -1);
+    RETURN OLD;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS tg_transactions_outbox ON transactions;
+CREATE TRIGGER tg_transactions_outbox
+    AFTER INSERT OR DELETE ON transactions
+    FOR EACH ROW EXECUTE FUNCTION transactions_to_outbox();
@@ -0,0 +1,28 @@
+-- ========================================
+-- V7: versão da carteira (estratégia de transferência OPTIMISTIC)
+--
+-- A entidade Wallet tem @Version: o Hibernate grava version + 1 com
+-- "WHERE id = ? AND version = ?" e uma transferência que leu a carteira antes
+-- de outra alterá-la falha no UPDATE (conflito) em vez de sobrescrever o saldo.
+--
+-- Nem toda escrita de saldo passa pelo Hibernate (liquidação de lojistas,
+-- saga entre shards, stack reativa). O gatilho incrementa a versão em todo
+-- UPDATE de saldo que não a alterou, então esses caminhos também invalidam a
+-- leitura de uma transferência otimista em andamento.
+-- ========================================
+
+ALTER TABLE wallets ADD COLUMN IF NOT EXISTS version bigint NOT NULL DEFAULT 0;
+
+CREATE OR REPLACE FUNCTION wallets_bump_version() RETURNS trigger AS $$
+BEGIN
+    NEW.version := OLD.version + 1;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS tg_wallets_version ON wallets;
+CREATE TRIGGER tg_wallets_version
+    BEFORE UPDATE OF balance ON wallets
+    FOR EACH ROW
+    WHEN (NEW.version = OLD.version AND NEW.balance IS DISTINCT FROM OLD.balance)
+    EXECUTE FUNCTION wallets_bump_version();
@@ -0,0 +1,273 @@
+package com.wallet.wallet.controllers;
+
+import com.wallet.wallet.domain.DomainException;
+import com.wallet.wallet.domain.Transaction;
+import com.wallet.wallet.domain.User;
+import com.wallet.wallet.dtos.TransactionDTO;
+import com.wallet.wallet.grpc.BalanceRequest;
+import com.wallet.wallet.grpc.TransferRequest;
+import com.wallet.wallet.grpc.TransferResult;
+import com.wallet.wallet.grpc.WalletServiceGrpc;
+import com.wallet.wallet.services.TransferGateway;
+import com.wallet.wallet.services.UserService;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Serviço gRPC num servidor in-process (sem rede), com o gateway de transferências simulado.
+ */
+@ExtendWith(MockitoExtension.class)
+class WalletGrpcServiceTest {
+
+    private static final int MAX_IN_FLIGHT = 4;
+
+    @Mock
+    private TransferGateway transferGateway;
+
+    @Mock
+    private UserService userService;
+
+    private WalletGrpcService grpcService;
+    private Server server;
+    private ManagedChannel channel;
+
+    @BeforeEach
+    void setup() throws Exception {
+        grpcService = new WalletGrpcService(transferGateway, userService,
+            Validation.buildDefaultValidatorFactory().getValidator(), MAX_IN_FLIGHT, 16, 64);
+        start(grpcService);
+    }
+
+    private void start(WalletGrpcService service) throws Exception {
+        String name = InProcessServerBuilder.generateName();
+        server = InProcessServerBuilder.forName(name).directExecutor().addService(service).build().start();
+        channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+    }
+
+    @AfterEach
+    void teardown() {
+        channel.shutdownNow();
+        server.shutdownNow();
+        grpcService.shutdown();
+    }
+
+    @Test
+    @DisplayName("Transferência unária deve passar pelo gateway e devolver a transação")
+    void unaryTransfer() {
+        when(transferGateway.transfer(any())).thenAnswer(invocation -> transaction(invocation.getArgument(0)));
+
+        TransferResult result = WalletServiceGrpc.newBlockingStub(channel).transfer(request("r-1", "10.50"));
+
+        assertEquals(200, result.getStatus());
+        assertEquals("r-1", result.getRequestId());
+        assertEquals("tx-sender", result.getTransactionId());
+        assertEquals("10.50", result.getAmount());
+        verify(transferGateway).transfer(new TransactionDTO(new BigDecimal("10.50"), "sender", "receiver"));
+    }
+
+    @Test
+    @DisplayName("Transferência unária deve rodar no pool grpc-transfer-, não na thread do transporte")
+    void unaryTransferRunsOnTransferPool() {
+        AtomicReference<String> thread = new AtomicReference<>();
+        when(transferGateway.transfer(any())).thenAnswer(invocation -> {
+            thread.set(Thread.currentThread().getName());
+            return transaction(invocation.getArgument(0));
+        });
+
+        WalletServiceGrpc.newBlockingStub(channel).transfer(request("r-1", "1"));
+
+        assertTrue(thread.get().startsWith("grpc-transfer-"), thread.get());
+    }
+
+    @Test
+    @DisplayName("Pool de transferências com a fila cheia deve recusar a chamada unária com UNAVAILABLE")
+    void fullTransferQueueIsUnavailable() throws Exception {
+        teardown();
+        grpcService = new WalletGrpcService(transferGateway, userService,
+            Validation.buildDefaultValidatorFactory().getValidator(), MAX_IN_FLIGHT, 1, 1);
+        start(grpcService);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch running = new CountDownLatch(1);
+        when(transferGateway.transfer(any())).thenAnswer(invocation -> {
+            running.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return transaction(invocation.getArgument(0));
+        });
+        WalletServiceGrpc.WalletServiceFutureStub stub = WalletServiceGrpc.newFutureStub(channel);
+
+        var first = stub.transfer(request("r-1", "1"));
+        assertTrue(running.await(10, TimeUnit.SECONDS));
+        var queued = stub.transfer(request("r-2", "1"));
+        StatusRuntimeException exception = assertThrows(StatusRuntimeException.class, () ->
+            WalletServiceGrpc.newBlockingStub(channel).transfer(request("r-3", "1")));
+        release.countDown();
+
+        assertEquals(Status.Code.UNAVAILABLE, exception.getStatus().getCode());
+        assertEquals(200, first.get(10, TimeUnit.SECONDS).getStatus());
+        assertEquals(200, queued.get(10, TimeUnit.SECONDS).getStatus());
+    }
+
+    @Test
+    @DisplayName("Recusas de negócio e entradas inválidas devem vir no resultado com o status do REST")
+    void rejectionsCarryRestStatus() {
+        when(transferGateway.transfer(any())).thenThrow(new DomainException.InsufficientFundsException());
+        WalletServiceGrpc.WalletServiceBlockingStub stub = WalletServiceGrpc.newBlockingStub(channel);
+
+        TransferResult insufficient = stub.transfer(request("r-1", "10"));
+        TransferResult invalidValue = stub.transfer(request("r-2", "dez"));
+        TransferResult zero = stub.transfer(request("r-3", "0"));
+
+        assertEquals(422, insufficient.getStatus());
+        assertEquals("Saldo insuficiente", insufficient.getMessage());
+        assertEquals(400, invalidValue.getStatus());
+        assertEquals(400, zero.getStatus());
+        assertEquals("Valor deve ser maior que zero", zero.getMessage());
+        verify(transferGateway, times(1)).transfer(any());
+    }
+
+    @Test
+    @DisplayName("Stream deve devolver um resultado por item sem passar de max-in-flight por stream")
+    void streamTransfersBoundsInFlight() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        when(transferGateway.transfer(any())).thenAnswer(invocation -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(5);
+            running.decrementAndGet();
+            return transaction(invocation.getArgument(0));
+        });
+
+        Set<String> received = ConcurrentHashMap.newKeySet();
+        CountDownLatch completed = new CountDownLatch(1);
+        StreamObserver<TransferRequest> requests = WalletServiceGrpc.newStub(channel)
+            .streamTransfers(new StreamObserver<>() {
+                @Override
+                public void onNext(TransferResult result) {
+                    assertEquals(200, result.getStatus());
+                    received.add(result.getRequestId());
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    fail(t);
+                }
+
+                @Override
+                public void onCompleted() {
+                    completed.countDown();
+                }
+            });
+        for (int i = 0; i < 100; i++) {
+            requests.onNext(request("r-" + i, "1"));
+        }
+        requests.onCompleted();
+
+        assertTrue(completed.await(10, TimeUnit.SECONDS));
+        assertEquals(100, received.size());
+        assertTrue(maxRunning.get() <= MAX_IN_FLIGHT, "em paralelo: " + maxRunning.get());
+        assertTrue(maxRunning.get() > 1, "itens do stream deveriam rodar em paralelo");
+    }
+
+    @Test
+    @DisplayName("Cliente que não lê os resultados não deve receber pedidos de novos itens além de max-in-flight")
+    void slowReaderStopsItemRequests() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        when(transferGateway.transfer(any())).thenAnswer(invocation -> {
+            calls.incrementAndGet();
+            return transaction(invocation.getArgument(0));
+        });
+
+        AtomicReference<ClientCallStreamObserver<TransferRequest>> call = new AtomicReference<>();
+        Set<String> received = ConcurrentHashMap.newKeySet();
+        CountDownLatch completed = new CountDownLatch(1);
+        StreamObserver<TransferRequest> requests = WalletServiceGrpc.newStub(channel)
+            .streamTransfers(new ClientResponseObserver<TransferRequest, TransferResult>() {
+                @Override
+                public void beforeStart(ClientCallStreamObserver<TransferRequest> requestStream) {
+                    // Cliente lento: não lê nenhum resultado até o teste liberar
+                    requestStream.disableAutoRequestWithInitial(0);
+                    call.set(requestStream);
+                }
+
+                @Override
+                public void onNext(TransferResult result) {
+                    received.add(result.getRequestId());
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    fail(t);
+                }
+
+                @Override
+                public void onCompleted() {
+                    completed.countDown();
+                }
+            });
+        for (int i = 0; i < 100; i++) {
+            requests.onNext(request("r-" + i, "1"));
+        }
+        requests.onCompleted();
+
+        // Resultados parados no buffer de saída: o servidor não pede mais itens
+        Thread.sleep(300);
+        assertEquals(MAX_IN_FLIGHT, calls.get());
+
+        call.get().request(Integer.MAX_VALUE);
+        assertTrue(completed.await(10, TimeUnit.SECONDS));
+        assertEquals(100, received.size());
+        assertEquals(100, calls.get());
+    }
+
+    @Test
+    @DisplayName("Saldo de usuário inexistente deve virar NOT_FOUND")
+    void balanceOfUnknownUser() {
+        when(userService.getBalance("nope")).thenThrow(new DomainException.UserNotFoundException());
+
+        StatusRuntimeException exception = assertThrows(StatusRuntimeException.class, () ->
+            WalletServiceGrpc.newBlockingStub(channel).getBalance(BalanceRequest.newBuilder().setUserId("nope").build()));
+
+        assertEquals(Status.Code.NOT_FOUND, exception.getStatus().getCode());
+    }
+
+    private static TransferRequest request(String requestId, String value) {
+        return TransferRequest.newBuilder()
+            .setRequestId(requestId).setValue(value).setSenderId("sender").setReceiverId("receiver").build();
+    }
+
+    private static Transaction transaction(TransactionDTO transfer) {
+        User sender = new User();
+        sender.setId(transfer.senderId());
+        User receiver = new User();
+        receiver.setId(transfer.receiverId());
+        return new Transaction("tx-" + transfer.senderId(), transfer.value(), sender, receiver, LocalDateTime.now());
+    }
+}
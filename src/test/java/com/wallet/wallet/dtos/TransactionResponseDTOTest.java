@@ -0,0 +1,83 @@
+package com.wallet.wallet.dtos;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.wallet.wallet.domain.Transaction;
+import com.wallet.wallet.domain.User;
+import com.wallet.wallet.domain.UserType;
+import com.wallet.wallet.domain.Wallet;
+import com.wallet.wallet.infra.JacksonConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionResponseDTOTest {
+
+    private ObjectMapper objectMapper;
+    private Transaction transaction;
+
+    @BeforeEach
+    void setup() {
+        // Mesmo ObjectMapper da aplicação: datas ISO (padrão do Boot) e Blackbird
+        Jackson2ObjectMapperBuilder builder = new Jackson2ObjectMapperBuilder()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        new JacksonConfig().blackbirdCustomizer().customize(builder);
+        objectMapper = builder.build();
+
+        User sender = user("2e313e6f-6e1a-4f27-bc51-aad59b127f07", "12345678901", UserType.COMMON);
+        User receiver = user("c35b4d49-8ef5-425b-ad0e-943f7af7a801", "12345678000190", UserType.MERCHANT);
+        transaction = new Transaction("987d3af7-77c2-4b82-810d-51b4f44aee7d", new BigDecimal("2.50"),
+            sender, receiver, LocalDateTime.of(2026, 10, 19, 11, 9, 30, 123456000));
+    }
+
+    @Test
+    @DisplayName("Resposta da transferência deve ter só ids, valor e data")
+    void responseContainsOnlyIdsAmountAndTimestamp() throws Exception {
+        JsonNode json = objectMapper.readTree(objectMapper.writeValueAsBytes(TransactionResponseDTO.from(transaction)));
+
+        assertEquals(List.of("id", "amount", "senderId", "receiverId", "timestamp"), fieldNames(json));
+        assertEquals("2e313e6f-6e1a-4f27-bc51-aad59b127f07", json.get("senderId").asText());
+        assertEquals("c35b4d49-8ef5-425b-ad0e-943f7af7a801", json.get("receiverId").asText());
+        assertEquals("2026-10-19T11:09:30.123456", json.get("timestamp").asText());
+        assertEquals(0, new BigDecimal("2.50").compareTo(json.get("amount").decimalValue()));
+    }
+
+    @Test
+    @DisplayName("Resposta não deve expor hash de senha e deve ser bem menor que a entidade")
+    void responseIsSmallerThanEntityAndHidesPasswordHash() throws Exception {
+        String entityJson = objectMapper.writeValueAsString(transaction);
+        String responseJson = objectMapper.writeValueAsString(TransactionResponseDTO.from(transaction));
+
+        assertTrue(entityJson.contains("password"));
+        assertFalse(responseJson.contains("password"));
+        assertFalse(responseJson.contains("document"));
+
+        int entityBytes = entityJson.getBytes(StandardCharsets.UTF_8).length;
+        int responseBytes = responseJson.getBytes(StandardCharsets.UTF_8).length;
+        assertTrue(responseBytes * 2 < entityBytes,
+            "resposta com " + responseBytes + " bytes, entidade com " + entityBytes);
+    }
+
+    private static List<String> fieldNames(JsonNode json) {
+        List<String> names = new ArrayList<>();
+        json.fieldNames().forEachRemaining(names::add);
+        return names;
+    }
+
+    private static User user(String id, String document, UserType type) {
+        User user = new User(id, document, document + "@email.com", "Nome", "Sobrenome",
+            "{bcrypt}$2a$10$V1OXl3VoCwO3HDI0ALnq0Or1E4nZ8zoLdQ72JfW9YpPp8Ir4GOAMq", type, null);
+        user.setWallet(new Wallet("wallet-" + id, new BigDecimal("100.00"), user));
+        return user;
+    }
+}
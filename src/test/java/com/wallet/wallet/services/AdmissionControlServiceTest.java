@@ -0,0 +1,67 @@
+package com.wallet.wallet.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionControlServiceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private AdmissionControlService service(int perWallet, int total) {
+        return new AdmissionControlService(meterRegistry, null, true, perWallet, total, 20, 2);
+    }
+
+    @Test
+    @DisplayName("Deve recusar com Retry-After quando a carteira atingir o limite de transferências simultâneas")
+    void rejectWhenWalletLimitReached() {
+        AdmissionControlService admission = service(2, 100);
+
+        AdmissionControlService.Permit first = admission.admit("hot", "r1");
+        AdmissionControlService.Permit second = admission.admit("hot", "r2");
+
+        AdmissionControlService.TransferRejectedException rejected = assertThrows(
+            AdmissionControlService.TransferRejectedException.class,
+            () -> admission.admit("hot", "r3"));
+        assertEquals(2, rejected.getRetryAfterSeconds());
+
+        // Outras carteiras seguem livres
+        admission.admit("other", "r4").close();
+
+        first.close();
+        admission.admit("hot", "r3").close();
+        second.close();
+
+        assertEquals(0, admission.inFlight("hot"));
+        assertEquals(1.0, meterRegistry.get("wallet.transfer.admission.rejected").tag("reason", "wallet").counter().count());
+    }
+
+    @Test
+    @DisplayName("Deve considerar a carteira do recebedor e liberar a do remetente se ela estiver saturada")
+    void receiverWalletCountsTowardsLimit() {
+        AdmissionControlService admission = service(1, 100);
+
+        AdmissionControlService.Permit merchant = admission.admit("a", "merchant");
+
+        assertThrows(AdmissionControlService.TransferRejectedException.class, () -> admission.admit("b", "merchant"));
+        assertEquals(0, admission.inFlight("b"), "Vaga do remetente deve ser devolvida na recusa");
+
+        merchant.close();
+        assertEquals(0, admission.inFlight("merchant"));
+    }
+
+    @Test
+    @DisplayName("Deve recusar quando o total de transferências em andamento atingir o limite global")
+    void rejectWhenGlobalLimitReached() {
+        AdmissionControlService admission = service(10, 1);
+
+        try (AdmissionControlService.Permit permit = admission.admit("a", "b")) {
+            assertThrows(AdmissionControlService.TransferRejectedException.class, () -> admission.admit("c", "d"));
+        }
+
+        admission.admit("c", "d").close();
+        assertEquals(1.0, meterRegistry.get("wallet.transfer.admission.rejected").tag("reason", "total").counter().count());
+    }
+}
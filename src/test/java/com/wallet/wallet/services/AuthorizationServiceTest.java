@@ -1,13 +1,20 @@
 package com.wallet.wallet.services;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
@@ -34,12 +41,21 @@ class AuthorizationServiceTest {
     @Mock
     private RestTemplate restTemplate;
 
+    @Spy
+    private AuthorizerConcurrencyLimiter concurrencyLimiter = new AuthorizerConcurrencyLimiter(
+        new SimpleMeterRegistry(), true, 20, 2, 100, 0.9, 500, AuthorizerConcurrencyLimiter.QueuePolicy.REJECT, 100, 50);
+
+    @Spy
+    private HedgedRequestExecutor hedgedRequestExecutor =
+        new HedgedRequestExecutor(new SimpleMeterRegistry(), concurrencyLimiter, false, 0.95, 20, 0.05, 1024, 4);
+
     @InjectMocks
     private AuthorizationService authorizationService;
 
     @BeforeEach
     void setup() {
         // Inicializa Resilience4j antes de cada teste
+        ReflectionTestUtils.setField(authorizationService, "authorizerUrl", "http://localhost/authorize");
     }
 
     @Test
@@ -152,6 +168,32 @@ class AuthorizationServiceTest {
         assertFalse(result);
     }
 
+    @Test
+    @DisplayName("Só I/O, 5xx e 429 devem reduzir o limite de concorrência; 4xx e corpo inválido não")
+    void testOnlyOverloadShrinksConcurrencyLimit() {
+        // ARRANGE
+        when(restTemplate.getForEntity(anyString(), eq(Map.class)))
+            .thenThrow(HttpClientErrorException.create(HttpStatus.BAD_REQUEST, "Bad Request", null, null, null))
+            .thenThrow(new RestClientException("Erro ao converter resposta"))
+            .thenThrow(HttpServerErrorException.create(HttpStatus.SERVICE_UNAVAILABLE, "Unavailable", null, null, null))
+            .thenThrow(HttpClientErrorException.create(HttpStatus.TOO_MANY_REQUESTS, "Too Many Requests", null, null, null))
+            .thenThrow(new ResourceAccessException("Read timed out"));
+
+        // ACT & ASSERT: limite inicial 20, backoff 0.9
+        BigDecimal value = new BigDecimal("100");
+        assertThrows(RuntimeException.class, () -> authorizationService.authorizeTransaction("user1", value));
+        assertThrows(RuntimeException.class, () -> authorizationService.authorizeTransaction("user1", value));
+        assertEquals(20, concurrencyLimiter.getLimit());
+
+        assertThrows(RuntimeException.class, () -> authorizationService.authorizeTransaction("user1", value));
+        assertEquals(18, concurrencyLimiter.getLimit());
+        assertThrows(RuntimeException.class, () -> authorizationService.authorizeTransaction("user1", value));
+        assertEquals(16, concurrencyLimiter.getLimit());
+        assertThrows(RuntimeException.class, () -> authorizationService.authorizeTransaction("user1", value));
+        assertEquals(14, concurrencyLimiter.getLimit());
+        assertEquals(0, concurrencyLimiter.getInFlight());
+    }
+
     @Test
     @DisplayName("Deve negar quando API retorna null body")
     void testDenyWhenAPIReturnsNullBody() {
@@ -165,4 +207,36 @@ class AuthorizationServiceTest {
         // ASSERT
         assertFalse(result);
     }
+
+    @Test
+    @DisplayName("Autorizador saturado deve propagar recusa do bulkhead, sem chamar a API nem cair no smoke test")
+    void testRejectWhenConcurrencyLimitReached() {
+        // ARRANGE
+        doThrow(new AuthorizerConcurrencyLimiter.LimitExceededException()).when(concurrencyLimiter).acquire();
+
+        // ACT & ASSERT
+        assertThrows(AuthorizerConcurrencyLimiter.LimitExceededException.class,
+            () -> authorizationService.authorizeTransaction("user1", new BigDecimal("100")));
+        assertThrows(AuthorizerConcurrencyLimiter.LimitExceededException.class,
+            () -> authorizationService.authorizationFallback("user1", new BigDecimal("100"),
+                new AuthorizerConcurrencyLimiter.LimitExceededException()));
+        verify(restTemplate, never()).getForEntity(anyString(), eq(Map.class));
+    }
+
+    @Test
+    @DisplayName("Falha verificada com hedging não deve cair no smoke test: chega ao retry/fallback e não aprova")
+    void testHedgedCheckedFailureIsNotApproved() {
+        // ARRANGE
+        HedgedRequestExecutor hedging = new HedgedRequestExecutor(new SimpleMeterRegistry(), concurrencyLimiter, true, 0.95, 20, 0.05, 1024, 4);
+        ReflectionTestUtils.setField(authorizationService, "hedgedRequestExecutor", hedging);
+        when(restTemplate.getForEntity(anyString(), eq(Map.class)))
+            .thenAnswer(invocation -> { throw new java.io.IOException("conexão resetada"); });
+
+        // ACT & ASSERT: mesma falha de comunicação do RestClientException (retentada e, no fim, negada)
+        RuntimeException e = assertThrows(RuntimeException.class,
+            () -> authorizationService.authorizeTransaction("user1", new BigDecimal("100")));
+        assertTrue(e.getMessage().contains("Falha ao comunicar com autorizador"));
+        assertFalse(authorizationService.authorizationFallback("user1", new BigDecimal("100"), e));
+        hedging.shutdown();
+    }
 }
@@ -0,0 +1,109 @@
+package com.wallet.wallet.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuthorizerConcurrencyLimiterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private AuthorizerConcurrencyLimiter limiter(int initialLimit, AuthorizerConcurrencyLimiter.QueuePolicy policy) {
+        return new AuthorizerConcurrencyLimiter(meterRegistry, true, initialLimit, 2, 10, 0.5, 50, policy, 1000, 5);
+    }
+
+    @Test
+    @DisplayName("REJECT deve recusar imediatamente quando o limite estiver ocupado")
+    void rejectWhenLimitReached() {
+        AuthorizerConcurrencyLimiter limiter = limiter(2, AuthorizerConcurrencyLimiter.QueuePolicy.REJECT);
+
+        AuthorizerConcurrencyLimiter.Permit first = limiter.acquire();
+        AuthorizerConcurrencyLimiter.Permit second = limiter.acquire();
+
+        assertThrows(AuthorizerConcurrencyLimiter.LimitExceededException.class, limiter::acquire);
+        assertEquals(1.0, meterRegistry.counter("wallet.authorizer.limiter.rejected").count());
+        // tryAcquire (hedge) não espera nem conta como recusa
+        assertNull(limiter.tryAcquire());
+        assertEquals(1.0, meterRegistry.counter("wallet.authorizer.limiter.rejected").count());
+
+        first.close();
+        limiter.acquire().close();
+        second.close();
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    @DisplayName("Na stack reativa, só I/O, 5xx e 429 devem reduzir o limite")
+    void reactiveFailuresShrinkOnlyOnOverload() {
+        AuthorizerConcurrencyLimiter limiter = limiter(8, AuthorizerConcurrencyLimiter.QueuePolicy.REJECT);
+
+        limiter.acquire().onFailure(WebClientResponseException.create(404, "Not Found", null, null, null));
+        limiter.acquire().onFailure(new DecodingException("JSON inválido"));
+        assertEquals(8, limiter.getLimit());
+
+        limiter.acquire().onFailure(WebClientResponseException.create(429, "Too Many Requests", null, null, null));
+        assertEquals(4, limiter.getLimit());
+        limiter.acquire().onFailure(new WebClientRequestException(
+            new IOException("conexão recusada"), HttpMethod.GET, URI.create("http://localhost/authorize"), new HttpHeaders()));
+        assertEquals(2, limiter.getLimit());
+        assertEquals(2.0, meterRegistry.counter("wallet.authorizer.limiter.dropped").count());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    @DisplayName("Timeouts e respostas lentas devem reduzir o limite; respostas rápidas sob carga devem aumentá-lo")
+    void adjustLimitByLatency() throws Exception {
+        AuthorizerConcurrencyLimiter limiter = limiter(8, AuthorizerConcurrencyLimiter.QueuePolicy.REJECT);
+
+        limiter.acquire().onDropped();
+        assertEquals(4, limiter.getLimit());
+
+        AuthorizerConcurrencyLimiter.Permit slow = limiter.acquire();
+        TimeUnit.MILLISECONDS.sleep(60);
+        slow.onSuccess();
+        assertEquals(2, limiter.getLimit());
+
+        // Nunca abaixo do mínimo
+        limiter.acquire().onDropped();
+        assertEquals(2, limiter.getLimit());
+
+        // Limite em uso e respostas rápidas: cresce aditivamente
+        for (int i = 0; i < 10; i++) {
+            AuthorizerConcurrencyLimiter.Permit a = limiter.acquire();
+            AuthorizerConcurrencyLimiter.Permit b = limiter.acquire();
+            a.onSuccess();
+            b.onSuccess();
+        }
+        assertTrue(limiter.getLimit() > 2, "Limite deveria ter crescido");
+        assertEquals(2.0, meterRegistry.counter("wallet.authorizer.limiter.dropped").count());
+    }
+
+    @Test
+    @DisplayName("WAIT deve liberar quem está na fila assim que uma vaga abrir")
+    void waitForSlot() throws Exception {
+        AuthorizerConcurrencyLimiter limiter = limiter(2, AuthorizerConcurrencyLimiter.QueuePolicy.WAIT);
+        AuthorizerConcurrencyLimiter.Permit first = limiter.acquire();
+        AuthorizerConcurrencyLimiter.Permit second = limiter.acquire();
+
+        CompletableFuture<AuthorizerConcurrencyLimiter.Permit> waiting = CompletableFuture.supplyAsync(limiter::acquire);
+        TimeUnit.MILLISECONDS.sleep(50);
+        assertFalse(waiting.isDone());
+
+        first.close();
+        waiting.get(1, TimeUnit.SECONDS).close();
+        second.close();
+        assertEquals(0, limiter.getInFlight());
+    }
+}
@@ -0,0 +1,148 @@
+package com.wallet.wallet.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Conciliação contra um H2 em memória (SQL real, sem Spring).
+ */
+class BalanceReconciliationServiceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setup() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+            "jdbc:h2:mem:reconciliation-" + UUID.randomUUID() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        jdbcTemplate.execute("CREATE TABLE wallets (user_id VARCHAR(36) PRIMARY KEY, balance NUMERIC(38,2), opening_balance NUMERIC(38,2))");
+        jdbcTemplate.execute("CREATE TABLE transactions (id VARCHAR(36) PRIMARY KEY, amount NUMERIC(38,2), sender_id VARCHAR(36), receiver_id VARCHAR(36))");
+        jdbcTemplate.execute("CREATE TABLE pending_credits (id BIGSERIAL PRIMARY KEY, merchant_id VARCHAR(36), transaction_id VARCHAR(36), amount NUMERIC(38,2))");
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    @DisplayName("Deve conciliar todas as carteiras em blocos e reportar só as divergentes")
+    void reportsOnlyMismatchedWallets() {
+        // 25 carteiras consistentes: abriram com 100 e a de índice i mandou 10 para a i+1
+        for (int i = 0; i < 25; i++) {
+            wallet(id(i), "100.00");
+        }
+        for (int i = 0; i < 24; i++) {
+            transfer(id(i), id(i + 1), "10.00");
+        }
+        // Lojista com crédito ainda pendente de liquidação também bate
+        wallet("merchant", "0.00");
+        transfer(id(24), "merchant", "5.00");
+        jdbcTemplate.update("UPDATE wallets SET balance = 0 WHERE user_id = 'merchant'");
+        jdbcTemplate.update("INSERT INTO pending_credits (merchant_id, transaction_id, amount) VALUES ('merchant', 'tx-m', 5.00)");
+        // Divergente: saldo alterado fora de uma transferência
+        jdbcTemplate.update("UPDATE wallets SET balance = balance + 1 WHERE user_id = ?", id(7));
+        // Anterior à V5: recebe a base nesta execução
+        jdbcTemplate.update("INSERT INTO wallets (user_id, balance) VALUES ('legacy', 50)");
+
+        BalanceReconciliationService.Progress progress = service(4, 3).runNow();
+
+        assertEquals(BalanceReconciliationService.State.DONE, progress.state());
+        assertEquals(27, progress.totalWallets());
+        assertEquals(27, progress.scannedWallets());
+        assertEquals(7, progress.chunks());
+        assertEquals(1, progress.mismatches());
+        assertEquals(1, progress.baselinedWallets());
+        assertEquals(0, progress.skippedWallets());
+        assertEquals(100.0, progress.percent());
+
+        BalanceReconciliationService.Mismatch mismatch = progress.mismatchSample().get(0);
+        assertEquals(id(7), mismatch.userId());
+        assertEquals(0, new BigDecimal("1.00").compareTo(mismatch.difference()));
+        assertEquals(1.0, meterRegistry.get("wallet.reconciliation.mismatches").gauge().value());
+    }
+
+    @Test
+    @DisplayName("Deve preencher a base das carteiras anteriores à V5 a partir do histórico, sem reportar divergência")
+    void baselinesLegacyWalletsFromHistory() {
+        wallet("merchant", "0.00");
+        jdbcTemplate.update("INSERT INTO wallets (user_id, balance) VALUES ('legacy-a', 100)");
+        jdbcTemplate.update("INSERT INTO wallets (user_id, balance) VALUES ('legacy-b', 20)");
+        transfer("legacy-a", "legacy-b", "30.00");
+        transfer("legacy-a", "merchant", "5.00");
+        jdbcTemplate.update("UPDATE wallets SET balance = 0 WHERE user_id = 'merchant'");
+        jdbcTemplate.update("INSERT INTO pending_credits (merchant_id, transaction_id, amount) VALUES ('merchant', 'tx-m', 5.00)");
+
+        BalanceReconciliationService.Progress progress = service(2, 3).runNow();
+
+        assertEquals(3, progress.scannedWallets());
+        assertEquals(2, progress.baselinedWallets());
+        assertEquals(0, progress.skippedWallets());
+        assertEquals(0, progress.mismatches());
+        assertEquals(0, new BigDecimal("100.00").compareTo(openingBalance("legacy-a")));
+        assertEquals(0, new BigDecimal("20.00").compareTo(openingBalance("legacy-b")));
+
+        // A base fica: divergência posterior aparece na próxima execução
+        jdbcTemplate.update("UPDATE wallets SET balance = balance + 1 WHERE user_id = 'legacy-b'");
+        BalanceReconciliationService.Progress next = service(2, 3).runNow();
+        assertEquals(0, next.baselinedWallets());
+        assertEquals(1, next.mismatches());
+        assertEquals("legacy-b", next.mismatchSample().get(0).userId());
+    }
+
+    @Test
+    @DisplayName("Deve limitar a amostra de divergências e terminar com tabela vazia")
+    void boundsMismatchSample() {
+        for (int i = 0; i < 10; i++) {
+            wallet(id(i), "100.00");
+        }
+        jdbcTemplate.update("UPDATE wallets SET balance = 0");
+
+        BalanceReconciliationService.Progress progress = service(3, 2).runNow();
+
+        assertEquals(10, progress.mismatches());
+        assertEquals(2, progress.mismatchSample().size());
+
+        jdbcTemplate.update("DELETE FROM wallets");
+        BalanceReconciliationService.Progress empty = service(3, 2).runNow();
+        assertEquals(BalanceReconciliationService.State.DONE, empty.state());
+        assertEquals(0, empty.scannedWallets());
+    }
+
+    private BalanceReconciliationService service(int chunkSize, int maxReportedMismatches) {
+        return new BalanceReconciliationService(jdbcTemplate, transactionTemplate, new ShardRouter(List.of()), meterRegistry,
+            chunkSize, 2, maxReportedMismatches);
+    }
+
+    private void wallet(String userId, String openingBalance) {
+        jdbcTemplate.update("INSERT INTO wallets (user_id, balance, opening_balance) VALUES (?, ?, ?)",
+            userId, new BigDecimal(openingBalance), new BigDecimal(openingBalance));
+    }
+
+    private BigDecimal openingBalance(String userId) {
+        return jdbcTemplate.queryForObject("SELECT opening_balance FROM wallets WHERE user_id = ?", BigDecimal.class, userId);
+    }
+
+    private void transfer(String senderId, String receiverId, String amount) {
+        BigDecimal value = new BigDecimal(amount);
+        jdbcTemplate.update("INSERT INTO transactions (id, amount, sender_id, receiver_id) VALUES (?, ?, ?, ?)",
+            UUID.randomUUID().toString(), value, senderId, receiverId);
+        jdbcTemplate.update("UPDATE wallets SET balance = balance - ? WHERE user_id = ?", value, senderId);
+        jdbcTemplate.update("UPDATE wallets SET balance = balance + ? WHERE user_id = ?", value, receiverId);
+    }
+
+    private static String id(int i) {
+        return "user-%03d".formatted(i);
+    }
+}
@@ -0,0 +1,161 @@
+package com.wallet.wallet.services;
+
+import com.wallet.wallet.services.DailyTotalsService.Key;
+import com.wallet.wallet.services.DailyTotalsService.OutboxEvent;
+import com.wallet.wallet.services.DailyTotalsService.Totals;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DailyTotalsServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2026, 3, 10);
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private DailyTotalsService dailyTotalsService;
+
+    @BeforeEach
+    void setup() {
+        dailyTotalsService = new DailyTotalsService(jdbcTemplate, transactionTemplate, new ShardRouter(List.of()),
+            new SimpleMeterRegistry(), false, 1000, 100, 31, 3);
+    }
+
+    @Test
+    @DisplayName("Deve somar enviado e recebido por usuário e dia, descontando estornos")
+    void netsEventsPerUserAndDay() {
+        List<OutboxEvent> events = List.of(
+            new OutboxEvent("ana", "loja", DAY, new BigDecimal("10.00"), 1),
+            new OutboxEvent("bia", "loja", DAY, new BigDecimal("5.00"), 1),
+            new OutboxEvent("ana", "loja", DAY.plusDays(1), new BigDecimal("7.00"), 1),
+            // Estorno de saga da primeira transferência
+            new OutboxEvent("ana", "loja", DAY, new BigDecimal("-10.00"), -1));
+
+        Map<Key, Totals> netted = DailyTotalsService.net(events);
+
+        assertEquals(List.of(new Key("ana", DAY), new Key("ana", DAY.plusDays(1)), new Key("bia", DAY),
+            new Key("loja", DAY), new Key("loja", DAY.plusDays(1))), List.copyOf(netted.keySet()));
+
+        Totals ana = netted.get(new Key("ana", DAY));
+        assertEquals(0, ana.sentAmount.signum());
+        assertEquals(0, ana.sentCount);
+
+        Totals loja = netted.get(new Key("loja", DAY));
+        assertEquals(0, new BigDecimal("5.00").compareTo(loja.receivedAmount));
+        assertEquals(1, loja.receivedCount);
+        assertEquals(0, loja.sentCount);
+    }
+
+    @Test
+    @DisplayName("Deve aplicar o lote do outbox com um upsert por usuário e dia")
+    @SuppressWarnings("unchecked")
+    void consumeBatchUpsertsNettedTotals() {
+        when(transactionTemplate.execute(any()))
+            .thenAnswer(invocation -> ((TransactionCallback<?>) invocation.getArgument(0)).doInTransaction(null));
+        when(jdbcTemplate.query(contains("DELETE FROM transaction_outbox"), any(RowMapper.class), eq(100)))
+            .thenReturn(List.of(
+                new OutboxEvent("ana", "loja", DAY, new BigDecimal("10.00"), 1),
+                new OutboxEvent("bia", "loja", DAY, new BigDecimal("5.00"), 1)));
+
+        int consumed = dailyTotalsService.consumeBatch();
+
+        assertEquals(2, consumed);
+        ArgumentCaptor<List<Object[]>> upserts = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(contains("ON CONFLICT (user_id, day)"), upserts.capture());
+        assertEquals(3, upserts.getValue().size());
+        assertArrayEquals(new Object[]{"loja", Date.valueOf(DAY), BigDecimal.ZERO, 0L, new BigDecimal("15.00"), 2L},
+            upserts.getValue().get(2));
+    }
+
+    @Test
+    @DisplayName("Carga inicial deve somar só as transações anteriores ao outbox e avançar o último id")
+    @SuppressWarnings("unchecked")
+    void backfillBatchAddsUntrackedRowsAndAdvancesCursor() throws Exception {
+        when(transactionTemplate.execute(any()))
+            .thenAnswer(invocation -> ((TransactionCallback<?>) invocation.getArgument(0)).doInTransaction(null));
+        when(jdbcTemplate.queryForList(contains("FROM daily_totals_backfill"), eq(String.class)))
+            .thenReturn(List.of("t0"));
+        List<ResultSet> rows = List.of(
+            row("t1", "ana", "loja", "10.00", false),
+            // Já veio pelo outbox: não soma de novo
+            row("t2", "bia", "loja", "99.00", true),
+            row("t3", "bia", "loja", "5.00", false));
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (ResultSet rs : rows) {
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbcTemplate).query(contains("FROM transactions"), any(RowCallbackHandler.class), eq("t0"), eq(3));
+
+        assertEquals(3, dailyTotalsService.backfillBatch());
+
+        ArgumentCaptor<List<Object[]>> upserts = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(contains("ON CONFLICT (user_id, day)"), upserts.capture());
+        assertEquals(3, upserts.getValue().size());
+        assertArrayEquals(new Object[]{"loja", Date.valueOf(DAY), BigDecimal.ZERO, 0L, new BigDecimal("15.00"), 2L},
+            upserts.getValue().get(2));
+        // Lote cheio: ainda pode haver linhas depois de t3
+        verify(jdbcTemplate).update(contains("UPDATE daily_totals_backfill"), eq("t3"), eq(false));
+    }
+
+    @Test
+    @DisplayName("Carga inicial concluída não deve ler transactions")
+    void backfillDoneSkipsTransactions() {
+        when(transactionTemplate.execute(any()))
+            .thenAnswer(invocation -> ((TransactionCallback<?>) invocation.getArgument(0)).doInTransaction(null));
+        when(jdbcTemplate.queryForList(contains("FROM daily_totals_backfill"), eq(String.class)))
+            .thenReturn(List.of());
+
+        assertEquals(0, dailyTotalsService.backfillBatch());
+        verify(jdbcTemplate, never()).query(contains("FROM transactions"), any(RowCallbackHandler.class), any(), any());
+        verify(jdbcTemplate, never()).update(anyString(), any(Object[].class));
+    }
+
+    private static ResultSet row(String id, String sender, String receiver, String amount, boolean tracked)
+            throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        lenient().when(rs.getString("id")).thenReturn(id);
+        lenient().when(rs.getString("sender_id")).thenReturn(sender);
+        lenient().when(rs.getString("receiver_id")).thenReturn(receiver);
+        lenient().when(rs.getDate("day")).thenReturn(Date.valueOf(DAY));
+        lenient().when(rs.getBigDecimal("amount")).thenReturn(new BigDecimal(amount));
+        lenient().when(rs.getBoolean("daily_totals_tracked")).thenReturn(tracked);
+        return rs;
+    }
+
+    @Test
+    @DisplayName("Deve recusar período invertido ou maior que o limite sem consultar o banco")
+    void rejectsInvalidPeriods() {
+        assertThrows(IllegalArgumentException.class, () -> dailyTotalsService.totals("ana", DAY, DAY.minusDays(1)));
+        assertThrows(IllegalArgumentException.class, () -> dailyTotalsService.totals("ana", DAY, DAY.plusDays(31)));
+        verifyNoInteractions(jdbcTemplate);
+    }
+}
@@ -0,0 +1,198 @@
+package com.wallet.wallet.services;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Hedging contra um autorizador local (stub HTTP) com latência injetada:
+ * a requisição de número slowRequest demora SLOW_MS, as demais respondem na hora.
+ */
+class HedgedRequestExecutorTest {
+
+    private static final long SLOW_MS = 800;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AuthorizerConcurrencyLimiter concurrencyLimiter = new AuthorizerConcurrencyLimiter(
+        meterRegistry, true, 2, 2, 10, 0.9, 500, AuthorizerConcurrencyLimiter.QueuePolicy.REJECT, 100, 50);
+    private final RestTemplate restTemplate = new RestTemplate();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger slowRequest = new AtomicInteger(-1);
+
+    private HttpServer stub;
+    private String url;
+
+    @BeforeEach
+    void startStub() throws Exception {
+        stub = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        stub.setExecutor(Executors.newCachedThreadPool());
+        stub.createContext("/authorize", exchange -> {
+            if (requests.getAndIncrement() == slowRequest.get()) {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(SLOW_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            byte[] body = "{\"message\":\"Autorizado\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        stub.start();
+        url = "http://localhost:" + stub.getAddress().getPort() + "/authorize";
+    }
+
+    @AfterEach
+    void stopStub() {
+        stub.stop(0);
+    }
+
+    @Test
+    @DisplayName("Deve disparar hedge quando a chamada passar do percentil e usar a resposta mais rápida")
+    void hedgeSlowCall() {
+        HedgedRequestExecutor executor = new HedgedRequestExecutor(meterRegistry, concurrencyLimiter, true, 0.9, 1, 1.0, 64, 8);
+        prime(executor);
+
+        slowRequest.set(requests.get());
+        long start = System.nanoTime();
+        Map<?, ?> body = call(executor);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals("Autorizado", body.get("message"));
+        assertTrue(elapsedMs < SLOW_MS / 2, "Hedge deveria responder antes da chamada lenta: " + elapsedMs + "ms");
+        assertEquals(1.0, meterRegistry.counter("wallet.authorizer.hedging.sent").count());
+        assertEquals(1.0, meterRegistry.counter("wallet.authorizer.hedging.won").count());
+        executor.shutdown();
+    }
+
+    @Test
+    @DisplayName("Hedge deve ocupar vaga do limite de concorrência e não ser disparado sem vaga")
+    void hedgeNeedsLimiterPermit() {
+        HedgedRequestExecutor executor = new HedgedRequestExecutor(meterRegistry, concurrencyLimiter, true, 0.9, 1, 1.0, 64, 8);
+        prime(executor);
+
+        // Limite (2) todo em uso por outras chamadas
+        AuthorizerConcurrencyLimiter.Permit first = concurrencyLimiter.acquire();
+        AuthorizerConcurrencyLimiter.Permit second = concurrencyLimiter.acquire();
+        try {
+            slowRequest.set(requests.get());
+            int before = requests.get();
+            long start = System.nanoTime();
+            call(executor);
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            assertTrue(elapsedMs >= SLOW_MS, "Sem vaga a chamada espera a resposta lenta");
+            assertEquals(1, requests.get() - before);
+            assertEquals(0.0, meterRegistry.counter("wallet.authorizer.hedging.sent").count());
+            assertEquals(1.0, meterRegistry.counter("wallet.authorizer.hedging.over_limit").count());
+        } finally {
+            first.close();
+            second.close();
+            executor.shutdown();
+        }
+        assertEquals(0, concurrencyLimiter.getInFlight());
+    }
+
+    @Test
+    @DisplayName("O percentil deve usar a latência da chamada original, não a do hedge que venceu")
+    void recordPrimaryLatencyWhenHedgeWins() throws Exception {
+        // Percentil 100: o atraso passa a ser a maior latência da janela
+        HedgedRequestExecutor executor = new HedgedRequestExecutor(meterRegistry, concurrencyLimiter, true, 1.0, 1, 1.0, 64, 8);
+        prime(executor);
+
+        slowRequest.set(requests.get());
+        call(executor);
+        assertEquals(1.0, meterRegistry.counter("wallet.authorizer.hedging.won").count());
+        // A original termina depois e devolve a vaga do hedge; completa a janela até o próximo recálculo
+        TimeUnit.MILLISECONDS.sleep(SLOW_MS + 200);
+        assertEquals(0, concurrencyLimiter.getInFlight());
+        for (int i = 1; i < HedgedRequestExecutor.MIN_SAMPLES; i++) {
+            call(executor);
+        }
+
+        assertTrue(executor.hedgeDelayMillis() >= SLOW_MS,
+            "Latência lenta da original deveria entrar na janela: " + executor.hedgeDelayMillis() + "ms");
+        executor.shutdown();
+    }
+
+    @Test
+    @DisplayName("Sem orçamento não deve duplicar a chamada, mesmo lenta")
+    void respectBudget() {
+        HedgedRequestExecutor executor = new HedgedRequestExecutor(meterRegistry, concurrencyLimiter, true, 0.9, 1, 0.0, 64, 8);
+        prime(executor);
+
+        slowRequest.set(requests.get());
+        int before = requests.get();
+        long start = System.nanoTime();
+        call(executor);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(elapsedMs >= SLOW_MS, "Sem hedge a chamada espera a resposta lenta");
+        assertEquals(1, requests.get() - before);
+        assertEquals(0.0, meterRegistry.counter("wallet.authorizer.hedging.sent").count());
+        assertEquals(1.0, meterRegistry.counter("wallet.authorizer.hedging.over_budget").count());
+        executor.shutdown();
+    }
+
+    @Test
+    @DisplayName("Exceção verificada da chamada deve sair como ResourceAccessException, não IllegalStateException")
+    void checkedFailureBecomesResourceAccess() {
+        HedgedRequestExecutor executor = new HedgedRequestExecutor(meterRegistry, concurrencyLimiter, true, 0.9, 1, 1.0, 64, 8);
+
+        ResourceAccessException e = assertThrows(ResourceAccessException.class,
+            () -> executor.execute(() -> sneakyThrow(new IOException("conexão resetada"))));
+        assertInstanceOf(IOException.class, e.getCause());
+        executor.shutdown();
+    }
+
+    @Test
+    @DisplayName("Interrupção durante a espera deve sair como ResourceAccessException e manter a flag")
+    void interruptBecomesResourceAccess() {
+        HedgedRequestExecutor executor = new HedgedRequestExecutor(meterRegistry, concurrencyLimiter, true, 0.9, 1, 1.0, 64, 8);
+        slowRequest.set(requests.get());
+
+        Thread.currentThread().interrupt();
+        try {
+            assertThrows(ResourceAccessException.class, () -> call(executor));
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+            executor.shutdown();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T, E extends Throwable> T sneakyThrow(Throwable e) throws E {
+        throw (E) e;
+    }
+
+    private void prime(HedgedRequestExecutor executor) {
+        for (int i = 0; i < HedgedRequestExecutor.MIN_SAMPLES; i++) {
+            call(executor);
+        }
+        assertTrue(executor.hedgeDelayMillis() >= 0, "Percentil deveria estar calculado");
+    }
+
+    private Map<?, ?> call(HedgedRequestExecutor executor) {
+        return executor.execute(() -> restTemplate.getForObject(url, Map.class));
+    }
+}
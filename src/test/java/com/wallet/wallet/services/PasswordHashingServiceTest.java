@@ -0,0 +1,112 @@
+package com.wallet.wallet.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHashingServiceTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+        1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1), new ThreadPoolExecutor.AbortPolicy());
+
+    private final ThreadPoolExecutor importExecutor = new ThreadPoolExecutor(
+        1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1), new ThreadPoolExecutor.AbortPolicy());
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    /** Encoder que só devolve o hash depois que o teste libera o latch. */
+    private final PasswordEncoder blockingEncoder = new PasswordEncoder() {
+        @Override
+        public String encode(CharSequence rawPassword) {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "hash:" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return encodedPassword.equals("hash:" + rawPassword);
+        }
+    };
+
+    private final PasswordHashingService service =
+        new PasswordHashingService(blockingEncoder, executor, importExecutor, 2000, meterRegistry);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+        importExecutor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar imediatamente quando a fila de hashing estiver cheia")
+    void rejectWhenQueueIsFull() {
+        // Ocupa a única thread e a única posição da fila
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> service.hash("a"));
+        CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> service.hash("b"));
+        waitUntil(() -> executor.getActiveCount() == 1 && executor.getQueue().size() == 1);
+
+        long start = System.nanoTime();
+        assertThrows(PasswordHashingService.HashingRejectedException.class, () -> service.hash("c"));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 500, "Rejeição deve ser imediata");
+        assertEquals(1.0, meterRegistry.counter("wallet.password.hashing.rejected").count());
+
+        release.countDown();
+        assertEquals("hash:a", first.join());
+        assertEquals("hash:b", second.join());
+    }
+
+    @Test
+    @DisplayName("hashAll deve executar no chamador o que não couber na fila e preservar a ordem")
+    void hashAllAppliesCallerRunsBackpressure() {
+        release.countDown();
+
+        List<String> hashes = service.hashAll(List.of("1", "2", "3", "4", "5"));
+
+        assertEquals(List.of("hash:1", "hash:2", "hash:3", "hash:4", "hash:5"), hashes);
+        assertEquals(0.0, meterRegistry.counter("wallet.password.hashing.rejected").count());
+    }
+
+    @Test
+    @DisplayName("Importação em massa não deve ocupar a fila dos cadastros individuais")
+    void hashAllDoesNotStarveSignups() {
+        CompletableFuture<List<String>> bulk = CompletableFuture.supplyAsync(() -> service.hashAll(List.of("1", "2", "3")));
+        // Thread e fila da importação ocupadas; a terceira senha roda no chamador
+        waitUntil(() -> importExecutor.getActiveCount() == 1 && importExecutor.getQueue().size() == 1);
+
+        assertEquals(0, executor.getActiveCount() + executor.getQueue().size());
+        CompletableFuture<String> signup = CompletableFuture.supplyAsync(() -> service.hash("a"));
+        waitUntil(() -> executor.getActiveCount() == 1);
+
+        release.countDown();
+        assertEquals("hash:a", signup.join());
+        assertEquals(List.of("hash:1", "hash:2", "hash:3"), bulk.join());
+        assertEquals(0.0, meterRegistry.counter("wallet.password.hashing.rejected").count());
+    }
+
+    private static void waitUntil(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Condição não atingida a tempo");
+            Thread.onSpinWait();
+        }
+    }
+}
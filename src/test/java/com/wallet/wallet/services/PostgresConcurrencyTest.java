@@ -4,6 +4,7 @@ import com.wallet.wallet.domain.User;
 import com.wallet.wallet.domain.UserType;
 import com.wallet.wallet.domain.Wallet;
 import com.wallet.wallet.dtos.TransactionDTO;
+import com.wallet.wallet.repositories.TransactionRepository;
 import com.wallet.wallet.repositories.UserRepository;
 import com.wallet.wallet.repositories.WalletRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -52,6 +53,9 @@ public class PostgresConcurrencyTest {
     @Autowired
     private WalletRepository walletRepository;
 
+    @Autowired
+    private TransactionRepository transactionRepository;
+
     @MockBean
     private AuthorizationService authorizationService;
 
@@ -60,7 +64,8 @@ public class PostgresConcurrencyTest {
 
     @BeforeEach
     void setup() {
-        // Limpa dados do teste anterior
+        // Limpa dados do teste anterior (transações primeiro por causa das FKs)
+        transactionRepository.deleteAll();
         walletRepository.deleteAll();
         userRepository.deleteAll();
 
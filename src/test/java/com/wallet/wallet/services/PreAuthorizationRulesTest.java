@@ -0,0 +1,135 @@
+package com.wallet.wallet.services;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.wallet.wallet.domain.User;
+import com.wallet.wallet.domain.UserType;
+import com.wallet.wallet.infra.LogMasker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PreAuthorizationRulesTest {
+
+    private static final String RULES =
+        "high-value:amount>500:REMOTE;small-established:amount<=100,sender=COMMON,history>=3:APPROVE";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final PreAuthorizationRules rules = new PreAuthorizationRules(meterRegistry, true, RULES, 30, 1024);
+
+    @Test
+    @DisplayName("Deve aprovar localmente transferência pequena entre contrapartes já estabelecidas")
+    void approveSmallTransferToEstablishedCounterparty() {
+        User sender = user("sender-1", UserType.COMMON);
+
+        assertFalse(rules.approvesLocally(sender, "receiver-1", new BigDecimal("50")), "Sem histórico vai ao autorizador");
+
+        for (int i = 0; i < 3; i++) {
+            rules.recordTransfer("sender-1", "receiver-1");
+        }
+        assertEquals(3, rules.historyCount("sender-1", "receiver-1"));
+
+        assertTrue(rules.approvesLocally(sender, "receiver-1", new BigDecimal("50")));
+        // Histórico é por par: outro recebedor continua remoto
+        assertFalse(rules.approvesLocally(sender, "receiver-2", new BigDecimal("50")));
+
+        assertEquals(1.0, hits("small-established", "approve"));
+        assertEquals(2.0, hits("default", "remote"));
+    }
+
+    @Test
+    @DisplayName("Regra REMOTE anterior deve prevalecer e valores acima do limite vão ao autorizador")
+    void firstMatchingRuleWins() {
+        User sender = user("sender-1", UserType.COMMON);
+        for (int i = 0; i < 5; i++) {
+            rules.recordTransfer("sender-1", "receiver-1");
+        }
+
+        assertFalse(rules.approvesLocally(sender, "receiver-1", new BigDecimal("1000")));
+        assertFalse(rules.approvesLocally(sender, "receiver-1", new BigDecimal("200")));
+
+        assertEquals(1.0, hits("high-value", "remote"));
+        assertEquals(1.0, hits("default", "remote"));
+    }
+
+    @Test
+    @DisplayName("Aprovação local deve sair em INFO na auditoria; decisões remotas só em DEBUG")
+    void localApprovalIsAuditedAtInfo() {
+        Logger audit = (Logger) LoggerFactory.getLogger("wallet.audit.preauthorization");
+        Level previous = audit.getLevel();
+        ListAppender<ILoggingEvent> appender = new ListAppender<>();
+        appender.start();
+        audit.addAppender(appender);
+        audit.setLevel(Level.INFO);
+        try {
+            User sender = user("sender-1", UserType.COMMON);
+            for (int i = 0; i < 3; i++) {
+                rules.recordTransfer("sender-1", "receiver-1");
+            }
+
+            assertTrue(rules.approvesLocally(sender, "receiver-1", new BigDecimal("50")));
+            assertFalse(rules.approvesLocally(sender, "receiver-1", new BigDecimal("1000")));
+            assertFalse(rules.approvesLocally(sender, "receiver-2", new BigDecimal("50")));
+
+            assertEquals(1, appender.list.size(), "Só a aprovação local");
+            ILoggingEvent event = appender.list.get(0);
+            assertEquals(Level.INFO, event.getLevel());
+            assertEquals("small-established", keyValue(event, "rule"));
+            assertEquals(PreAuthorizationRules.Action.APPROVE, keyValue(event, "action"));
+            assertEquals(LogMasker.maskUserId("sender-1"), keyValue(event, "senderId"));
+            assertEquals(LogMasker.maskUserId("receiver-1"), keyValue(event, "receiverId"));
+        } finally {
+            audit.detachAppender(appender);
+            audit.setLevel(previous);
+        }
+    }
+
+    private static Object keyValue(ILoggingEvent event, String key) {
+        return event.getKeyValuePairs().stream()
+            .filter(pair -> pair.key.equals(key))
+            .map(pair -> pair.value)
+            .findFirst()
+            .orElse(null);
+    }
+
+    @Test
+    @DisplayName("Configuração inválida deve falhar na inicialização")
+    void rejectInvalidConfiguration() {
+        assertThrows(IllegalStateException.class,
+            () -> new PreAuthorizationRules(meterRegistry, true, "bad:country=BR:APPROVE", 30, 1024));
+        assertThrows(IllegalStateException.class,
+            () -> new PreAuthorizationRules(meterRegistry, true, "missing-action:amount<=10", 30, 1024));
+    }
+
+    @Test
+    @DisplayName("Sem regras configuradas (padrão) tudo vai ao autorizador e o histórico não é mantido")
+    void emptyRulesAlwaysGoRemote() {
+        PreAuthorizationRules defaults = new PreAuthorizationRules(meterRegistry, true, "", 30, 1024);
+
+        for (int i = 0; i < 5; i++) {
+            defaults.recordTransfer("sender-1", "receiver-1");
+        }
+
+        assertFalse(defaults.approvesLocally(user("sender-1", UserType.COMMON), "receiver-1", BigDecimal.ONE));
+        assertEquals(0, defaults.historyCount("sender-1", "receiver-1"));
+    }
+
+    private double hits(String rule, String action) {
+        return meterRegistry.counter("wallet.preauth.decisions", "rule", rule, "action", action).count();
+    }
+
+    private static User user(String id, UserType type) {
+        User user = new User();
+        user.setId(id);
+        user.setUserType(type);
+        return user;
+    }
+}
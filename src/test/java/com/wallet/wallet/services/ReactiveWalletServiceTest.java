@@ -0,0 +1,148 @@
+package com.wallet.wallet.services;
+
+import com.wallet.wallet.domain.DomainException;
+import com.wallet.wallet.domain.Transaction;
+import com.wallet.wallet.dtos.TransactionDTO;
+import com.wallet.wallet.infra.ReactiveConfig;
+import com.wallet.wallet.infra.TransferMetrics;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Stack reativa contra H2 via R2DBC (FOR UPDATE em modo PostgreSQL; SET LOCAL não se aplica).
+ */
+class ReactiveWalletServiceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ReactiveAuthorizationClient authorizationClient = mock(ReactiveAuthorizationClient.class);
+    private final PreAuthorizationRules preAuthorizationRules = mock(PreAuthorizationRules.class);
+    private final VelocityLimits velocityLimits = mock(VelocityLimits.class);
+    private final VelocityLimits.Reservation velocity = mock(VelocityLimits.Reservation.class);
+    private final AdmissionControlService admissionControl = mock(AdmissionControlService.class);
+    private final MerchantSettlementService merchantSettlement = mock(MerchantSettlementService.class);
+
+    private DatabaseClient databaseClient;
+    private ReactiveWalletService walletService;
+
+    @BeforeEach
+    void setup() {
+        ConnectionFactory connectionFactory = ConnectionFactories.get(
+            "r2dbc:h2:mem:///reactive-" + UUID.randomUUID() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1");
+        databaseClient = DatabaseClient.create(connectionFactory);
+
+        execute("CREATE TABLE users (id varchar(255) PRIMARY KEY, document varchar(255), email varchar(255), "
+            + "first_name varchar(255), last_name varchar(255), password varchar(255), user_type varchar(255))");
+        execute("CREATE TABLE wallets (id varchar(255) PRIMARY KEY, balance numeric(38,2), user_id varchar(255) UNIQUE)");
+        execute("CREATE TABLE transactions (id varchar(255) PRIMARY KEY, amount numeric(38,2), "
+            + "sender_id varchar(255), receiver_id varchar(255), \"timestamp\" timestamp(6))");
+        execute("CREATE TABLE pending_credits (id bigserial PRIMARY KEY, merchant_id varchar(255), "
+            + "transaction_id varchar(255), amount numeric(38,2))");
+        execute("INSERT INTO users (id, user_type) VALUES ('1', 'COMMON'), ('2', 'COMMON')");
+        execute("INSERT INTO wallets (id, balance, user_id) VALUES ('wallet1', 100, '1'), ('wallet2', 100, '2')");
+
+        when(admissionControl.admit(anyString(), anyString())).thenReturn(AdmissionControlService.Permit.NOOP);
+        when(velocityLimits.reserve(anyString(), any())).thenReturn(velocity);
+
+        walletService = new ReactiveWalletService(
+            databaseClient,
+            new ReactiveConfig().transferTransactionalOperator(connectionFactory),
+            connectionFactory,
+            authorizationClient,
+            preAuthorizationRules,
+            velocityLimits,
+            admissionControl,
+            new UserService(),
+            merchantSettlement,
+            new TransferMetrics(meterRegistry),
+            RetryRegistry.ofDefaults(),
+            1000, 3000);
+    }
+
+    @Test
+    @DisplayName("Deve transferir com lock, gravar a transação e registrar o histórico após o commit")
+    void transferCommits() {
+        when(authorizationClient.authorizeTransaction("1", new BigDecimal("10"))).thenReturn(Mono.just(true));
+
+        Transaction transaction = walletService.transfer(new TransactionDTO(new BigDecimal("10"), "1", "2")).block();
+
+        assertNotNull(transaction);
+        assertEquals(0, new BigDecimal("90").compareTo(balanceOf("1")));
+        assertEquals(0, new BigDecimal("110").compareTo(balanceOf("2")));
+        assertEquals(1L, count("SELECT COUNT(*) AS total FROM transactions WHERE id = '" + transaction.getId() + "'"));
+        assertEquals(0, new BigDecimal("90").compareTo(transaction.getSender().getWallet().getBalance()));
+
+        verify(preAuthorizationRules).recordTransfer("1", "2");
+        verify(velocityLimits).reserve(eq("1"), argThat(amount -> amount.compareTo(new BigDecimal("10")) == 0));
+        verify(velocity, never()).release();
+        assertEquals(1L, transfers(TransferMetrics.Outcome.SUCCESS));
+    }
+
+    @Test
+    @DisplayName("Deve recusar sem tocar nas carteiras quando o autorizador negar")
+    void unauthorizedTransferDoesNotLock() {
+        when(authorizationClient.authorizeTransaction(anyString(), any())).thenReturn(Mono.just(false));
+
+        assertThrows(DomainException.TransactionNotAuthorizedException.class,
+            () -> walletService.transfer(new TransactionDTO(new BigDecimal("10"), "1", "2")).block());
+
+        assertEquals(0, new BigDecimal("100").compareTo(balanceOf("1")));
+        assertEquals(0L, count("SELECT COUNT(*) AS total FROM transactions"));
+        verify(preAuthorizationRules, never()).recordTransfer(anyString(), anyString());
+        verify(velocity).release();
+        assertEquals(1L, transfers(TransferMetrics.Outcome.UNAUTHORIZED));
+    }
+
+    @Test
+    @DisplayName("Deve ler o saldo e responder 404 para carteira inexistente")
+    void readBalance() {
+        assertEquals(0, new BigDecimal("100").compareTo(walletService.getBalance("1").block().balance()));
+
+        assertThrows(DomainException.WalletNotFoundException.class, () -> walletService.getBalance("404").block());
+    }
+
+    @Test
+    @DisplayName("Com liquidação diferida, o saldo deve incluir os créditos pendentes do lojista")
+    void readBalanceWithPendingCredits() {
+        execute("INSERT INTO pending_credits (merchant_id, transaction_id, amount) VALUES ('2', 'tx-1', 5), ('2', 'tx-2', 7.50)");
+
+        assertEquals(0, new BigDecimal("100").compareTo(balanceOf("2")));
+
+        when(merchantSettlement.isEnabled()).thenReturn(true);
+        assertEquals(0, new BigDecimal("112.50").compareTo(balanceOf("2")));
+        assertEquals(0, new BigDecimal("100").compareTo(balanceOf("1")));
+        assertThrows(DomainException.WalletNotFoundException.class, () -> walletService.getBalance("404").block());
+    }
+
+    private void execute(String sql) {
+        databaseClient.sql(sql).then().block();
+    }
+
+    private BigDecimal balanceOf(String userId) {
+        return walletService.getBalance(userId).block().balance();
+    }
+
+    private long count(String sql) {
+        return databaseClient.sql(sql).map(row -> row.get("total", Long.class)).one().block();
+    }
+
+    private long transfers(TransferMetrics.Outcome outcome) {
+        return meterRegistry.find("wallet.transfer").tag("outcome", outcome.name().toLowerCase()).timer().count();
+    }
+}
@@ -0,0 +1,103 @@
+package com.wallet.wallet.services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Exportação de extrato contra um H2 em memória (SQL real, sem Spring).
+ */
+class StatementExportServiceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private StatementExportService exportService;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @BeforeEach
+    void setup() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+            "jdbc:h2:mem:statement-" + UUID.randomUUID() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE transactions (id VARCHAR(36) PRIMARY KEY, amount NUMERIC(38,2), sender_id VARCHAR(36), receiver_id VARCHAR(36), timestamp TIMESTAMP(6))");
+        exportService = new StatementExportService(jdbcTemplate, new DataSourceTransactionManager(dataSource),
+            new ShardRouter(List.of()), objectMapper, new SimpleMeterRegistry(), 2);
+
+        transaction("tx-1", "alice", "bob", "10.00", LocalDateTime.of(2026, 1, 1, 9, 0));
+        transaction("tx-2", "bob", "alice", "3.50", LocalDateTime.of(2026, 1, 2, 12, 0));
+        transaction("tx-3", "alice", "carol", "7.25", LocalDateTime.of(2026, 1, 2, 18, 30));
+        transaction("tx-4", "bob", "carol", "1.00", LocalDateTime.of(2026, 1, 2, 19, 0));
+        transaction("tx-5", "carol", "alice", "2.00", LocalDateTime.of(2026, 1, 3, 0, 0));
+    }
+
+    @Test
+    @DisplayName("Deve exportar enviadas e recebidas do período em ordem cronológica (CSV)")
+    void exportsCsvInChronologicalOrder() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        long exported = exportService.export("alice", LocalDate.of(2026, 1, 1), LocalDate.of(2026, 1, 2),
+            StatementExportService.Format.CSV, false, output);
+
+        assertEquals(3, exported);
+        assertEquals("""
+            id,timestamp,direction,counterpartyId,amount
+            tx-1,2026-01-01T09:00,DEBIT,bob,10.00
+            tx-2,2026-01-02T12:00,CREDIT,bob,3.50
+            tx-3,2026-01-02T18:30,DEBIT,carol,7.25
+            """, output.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Deve exportar NDJSON comprimido com gzip, um objeto por linha")
+    void exportsGzippedNdjson() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        long exported = exportService.export("alice", LocalDate.of(2026, 1, 2), LocalDate.of(2026, 1, 3),
+            StatementExportService.Format.NDJSON, true, output);
+
+        String body = new String(new GZIPInputStream(new ByteArrayInputStream(output.toByteArray())).readAllBytes(),
+            StandardCharsets.UTF_8);
+        List<String> lines = body.lines().toList();
+        assertEquals(3, exported);
+        assertEquals(3, lines.size());
+        assertTrue(body.endsWith("\n"));
+
+        JsonNode last = objectMapper.readTree(lines.get(2));
+        assertEquals("tx-5", last.get("id").asText());
+        assertEquals("CREDIT", last.get("direction").asText());
+        assertEquals("carol", last.get("counterpartyId").asText());
+        assertEquals(0, new BigDecimal("2.00").compareTo(last.get("amount").decimalValue()));
+    }
+
+    @Test
+    @DisplayName("Deve recusar período invertido e formato desconhecido")
+    void rejectsInvalidParameters() {
+        assertThrows(IllegalArgumentException.class,
+            () -> exportService.validatePeriod(LocalDate.of(2026, 1, 2), LocalDate.of(2026, 1, 1)));
+        assertThrows(IllegalArgumentException.class, () -> StatementExportService.Format.parse("xml"));
+        assertEquals(StatementExportService.Format.NDJSON, StatementExportService.Format.parse("ndjson"));
+    }
+
+    private void transaction(String id, String senderId, String receiverId, String amount, LocalDateTime timestamp) {
+        jdbcTemplate.update("INSERT INTO transactions (id, amount, sender_id, receiver_id, timestamp) VALUES (?, ?, ?, ?, ?)",
+            id, new BigDecimal(amount), senderId, receiverId, Timestamp.valueOf(timestamp));
+    }
+}
@@ -1,9 +1,11 @@
 package com.wallet.wallet.services;
 
+import com.wallet.wallet.domain.DomainException;
 import com.wallet.wallet.domain.User;
 import com.wallet.wallet.domain.UserType;
 import com.wallet.wallet.domain.Wallet;
 import com.wallet.wallet.dtos.TransactionDTO;
+import com.wallet.wallet.infra.TransferMetrics;
 import com.wallet.wallet.repositories.TransactionRepository;
 import com.wallet.wallet.repositories.WalletRepository;
 import org.junit.jupiter.api.Assertions;
@@ -11,13 +13,19 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 
 import java.math.BigDecimal;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -41,6 +49,27 @@ class TransactionServiceTest {
     @Mock // Mock do EntityManager (para flush e clear)
     private jakarta.persistence.EntityManager entityManager;
 
+    @Mock // Mock da pré-autorização local (sem regras: tudo vai ao autorizador)
+    private PreAuthorizationRules preAuthorizationRules;
+
+    @Mock(answer = Answers.RETURNS_MOCKS) // Mock dos limites de velocidade por remetente (reserva também é mock)
+    private VelocityLimits velocityLimits;
+
+    @Mock // Mock das métricas do pipeline (Micrometer)
+    private TransferMetrics transferMetrics;
+
+    @Mock // Mock dos timeouts de lock (SET LOCAL só existe no PostgreSQL)
+    private TransferLockTimeouts lockTimeouts;
+
+    @Mock // Mock da liquidação diferida de lojistas (desligada: crédito imediato)
+    private MerchantSettlementService merchantSettlement;
+
+    @Spy // Sem proxy: a transação e as novas tentativas não se aplicam, só o trecho de banco roda
+    private TransferTransactions transferTransactions = new TransferTransactions();
+
+    @Mock // Mock da fila local por remetente (devolve null: try-with-resources ignora)
+    private WalletLockStripes walletLocks;
+
     @InjectMocks // Injeta os Mocks acima dentro do Service real
     private TransactionService transactionService;
 
@@ -85,6 +114,8 @@ class TransactionServiceTest {
 
         // 5. Mockamos a Autorização (AuthorizationService com Resilience4j)
         when(authorizationService.authorizeTransaction("1", new BigDecimal(10))).thenReturn(true);
+        VelocityLimits.Reservation velocity = mock(VelocityLimits.Reservation.class);
+        when(velocityLimits.reserve("1", new BigDecimal(10))).thenReturn(velocity);
 
         // 6. Mockamos EntityManager (flush e clear são chamados no TransactionService) com lenient
         // porque podem não ser chamados se o teste falhar antes
@@ -110,10 +141,20 @@ class TransactionServiceTest {
         
         // Verifica se o autorizador foi consultado
         verify(authorizationService, times(1)).authorizeTransaction("1", new BigDecimal(10));
+
+        // Fila local só do remetente e só depois da autorização
+        InOrder order = inOrder(authorizationService, walletLocks, walletRepository);
+        order.verify(authorizationService).authorizeTransaction("1", new BigDecimal(10));
+        order.verify(walletLocks).acquire("1");
+        order.verify(walletRepository).findWalletByUserIdLockedNative("1");
+        verify(walletLocks, never()).acquire("2");
+
+        // Commit: a reserva do limite de velocidade fica como registro
+        verify(velocity, never()).release();
     }
 
     @Test
-    @DisplayName("Deve lançar Exception quando autorizador negar a transação")
+    @DisplayName("Deve lançar exceção de domínio quando autorizador negar a transação")
     void createTransactionCase2_AuthorizerDenies() throws Exception {
         // 1. Criamos Sender e Receiver
         User sender = new User();
@@ -143,6 +184,8 @@ class TransactionServiceTest {
 
         // 3. Mockamos o Autorizador NEGANDO a transação (fallback acionado) com lenient
         lenient().when(authorizationService.authorizeTransaction("1", new BigDecimal(10))).thenReturn(false);
+        VelocityLimits.Reservation velocity = mock(VelocityLimits.Reservation.class);
+        when(velocityLimits.reserve("1", new BigDecimal(10))).thenReturn(velocity);
 
         // 4. Mockamos EntityManager (flush e clear são chamados no TransactionService) com lenient
         lenient().doNothing().when(entityManager).flush();
@@ -151,7 +194,7 @@ class TransactionServiceTest {
         TransactionDTO request = new TransactionDTO(new BigDecimal(10), "1", "2");
 
         // 5. AÇÃO E VERIFICAÇÃO DE ERRO
-        Assertions.assertThrows(Exception.class, () -> {
+        Assertions.assertThrows(DomainException.TransactionNotAuthorizedException.class, () -> {
             transactionService.createTransaction(request);
         }, "Deve lançar exceção quando autorizador nega");
         
@@ -159,10 +202,14 @@ class TransactionServiceTest {
         // (pois a falha ocorre ANTES do findWalletByUserIdLockedNative)
         verify(walletRepository, never()).findWalletByUserIdLockedNative(anyString());
         verify(repository, times(0)).save(any());
+        verify(walletLocks, never()).acquire(anyString());
+
+        // Negada: a reserva do limite de velocidade é devolvida
+        verify(velocity).release();
     }
 
     @Test
-    @DisplayName("Deve lançar Exception quando a validação de negócio falhar")
+    @DisplayName("Deve lançar exceção de domínio quando a validação de negócio falhar")
     void createTransactionCase3_ValidationFails() throws Exception {
         // 1. Criamos Sender e Receiver
         User sender = new User();
@@ -183,7 +230,7 @@ class TransactionServiceTest {
         when(userService.findUserById("2")).thenReturn(receiver);
 
         // AQUI: Forçamos validação a falhar
-        lenient().doThrow(new Exception("Transação não permitida (lojista não pode transferir)"))
+        lenient().doThrow(new DomainException.MerchantSenderException())
             .when(userService).validateTransaction(any(), any());
 
         // 3. Mockamos EntityManager (flush e clear são chamados no TransactionService) com lenient
@@ -193,7 +240,7 @@ class TransactionServiceTest {
         TransactionDTO request = new TransactionDTO(new BigDecimal(10), "1", "2");
 
         // 4. AÇÃO E VERIFICAÇÃO
-        Assertions.assertThrows(Exception.class, () -> {
+        Assertions.assertThrows(DomainException.MerchantSenderException.class, () -> {
             transactionService.createTransaction(request);
         });
 
@@ -204,7 +251,7 @@ class TransactionServiceTest {
     }
 
     @Test
-    @DisplayName("Deve lançar Exception quando saldo for insuficiente (race condition protegida)")
+    @DisplayName("Deve lançar exceção de domínio quando saldo for insuficiente (race condition protegida)")
     void createTransactionCase4_InsufficientBalance() throws Exception {
         // 1. Sender com saldo baixo
         User sender = new User();
@@ -234,10 +281,165 @@ class TransactionServiceTest {
         TransactionDTO request = new TransactionDTO(new BigDecimal(10), "1", "2");
 
         // 4. Verifica que saldo insuficiente é detectado mesmo com lock
-        Assertions.assertThrows(Exception.class, () -> {
+        DomainException.InsufficientFundsException exception = Assertions.assertThrows(
+            DomainException.InsufficientFundsException.class, () -> {
             transactionService.createTransaction(request);
         }, "Deve detectar saldo insuficiente e proteger contra race condition");
 
         verify(repository, never()).save(any());
+        // Recusa esperada: sem stack trace e com a resposta HTTP já montada
+        Assertions.assertEquals(0, exception.getStackTrace().length);
+        Assertions.assertEquals("422", exception.getBody().statusCode());
+        verify(transferMetrics).record(any(), eq(TransferMetrics.Outcome.INSUFFICIENT_FUNDS));
+    }
+
+    @Test
+    @DisplayName("Deve propagar falha de lock sem gravar nada e registrar outcome lock_failure")
+    void createTransactionCase5_LockTimeout() {
+        User sender = new User();
+        sender.setId("1");
+        User receiver = new User();
+        receiver.setId("2");
+
+        when(userService.findUserById("1")).thenReturn(sender);
+        when(userService.findUserById("2")).thenReturn(receiver);
+        when(authorizationService.authorizeTransaction("1", new BigDecimal(10))).thenReturn(true);
+
+        // lock_timeout estourado no FOR UPDATE (SQLState 55P03 traduzido pelo Spring)
+        when(walletRepository.findWalletByUserIdLockedNative("1"))
+            .thenThrow(new CannotAcquireLockException("canceling statement due to lock timeout"));
+
+        TransactionDTO request = new TransactionDTO(new BigDecimal(10), "1", "2");
+
+        Assertions.assertThrows(CannotAcquireLockException.class, () -> transactionService.createTransaction(request));
+
+        verify(lockTimeouts).apply();
+        verify(walletRepository, never()).save(any());
+        verify(repository, never()).save(any());
+        verify(transferMetrics).record(any(), eq(TransferMetrics.Outcome.LOCK_FAILURE));
+    }
+
+    @Test
+    @DisplayName("Deve gravar crédito pendente sem travar a carteira do lojista em liquidação diferida")
+    void createTransactionCase6_DeferredMerchantCredit() {
+        User sender = new User();
+        sender.setId("1");
+        sender.setUserType(UserType.COMMON);
+        Wallet senderWallet = new Wallet("wallet1", new BigDecimal(100), sender);
+        sender.setWallet(senderWallet);
+
+        User merchant = new User();
+        merchant.setId("2");
+        merchant.setUserType(UserType.MERCHANT);
+        Wallet merchantWallet = new Wallet("wallet2", new BigDecimal(100), merchant);
+        merchant.setWallet(merchantWallet);
+
+        when(userService.findUserById("1")).thenReturn(sender);
+        when(userService.findUserById("2")).thenReturn(merchant);
+        when(authorizationService.authorizeTransaction("1", new BigDecimal(10))).thenReturn(true);
+        when(walletRepository.findWalletByUserIdLockedNative("1")).thenReturn(Optional.of(senderWallet));
+        when(merchantSettlement.defersCreditTo(merchant)).thenReturn(true);
+
+        TransactionDTO request = new TransactionDTO(new BigDecimal(10), "1", "2");
+        transactionService.createTransaction(request);
+
+        // Só o remetente é travado e atualizado; o lojista recebe uma pendência
+        verify(walletRepository, never()).findWalletByUserIdLockedNative("2");
+        verify(walletRepository, never()).save(merchantWallet);
+        verify(merchantSettlement).recordPending(eq("2"), any(), eq(new BigDecimal(10)));
+        Assertions.assertEquals(new BigDecimal(90), senderWallet.getBalance());
+        Assertions.assertEquals(new BigDecimal(100), merchantWallet.getBalance());
+    }
+
+    @Test
+    @DisplayName("Estratégia otimista deve ler as carteiras sem FOR UPDATE e gravar pelo flush versionado")
+    void createTransactionCase7_OptimisticReadsWithoutLock() {
+        User sender = new User();
+        sender.setId("1");
+        sender.setUserType(UserType.COMMON);
+        Wallet senderWallet = new Wallet("wallet1", new BigDecimal(100), sender);
+        User receiver = new User();
+        receiver.setId("2");
+        Wallet receiverWallet = new Wallet("wallet2", new BigDecimal(100), receiver);
+
+        when(userService.findUserById("1")).thenReturn(sender);
+        when(userService.findUserById("2")).thenReturn(receiver);
+        when(authorizationService.authorizeTransaction("1", new BigDecimal(10))).thenReturn(true);
+        when(walletRepository.findWalletByUserId("1")).thenReturn(Optional.of(senderWallet));
+        when(walletRepository.findWalletByUserId("2")).thenReturn(Optional.of(receiverWallet));
+
+        transactionService.createTransactionOptimistic(new TransactionDTO(new BigDecimal(10), "1", "2"));
+
+        verify(walletRepository, never()).findWalletByUserIdLockedNative(anyString());
+        verify(walletRepository).flush();
+        Assertions.assertEquals(new BigDecimal(90), senderWallet.getBalance());
+        Assertions.assertEquals(new BigDecimal(110), receiverWallet.getBalance());
+        verify(transferMetrics).record(any(), eq(TransferMetrics.Outcome.SUCCESS));
+    }
+
+    @Test
+    @DisplayName("Conflito de versão no flush deve propagar para a nova tentativa e registrar outcome version_conflict")
+    void createTransactionCase8_OptimisticVersionConflict() {
+        User sender = new User();
+        sender.setId("1");
+        sender.setUserType(UserType.COMMON);
+        User receiver = new User();
+        receiver.setId("2");
+
+        when(userService.findUserById("1")).thenReturn(sender);
+        when(userService.findUserById("2")).thenReturn(receiver);
+        when(authorizationService.authorizeTransaction("1", new BigDecimal(10))).thenReturn(true);
+        when(walletRepository.findWalletByUserId("1"))
+            .thenReturn(Optional.of(new Wallet("wallet1", new BigDecimal(100), sender)));
+        when(walletRepository.findWalletByUserId("2"))
+            .thenReturn(Optional.of(new Wallet("wallet2", new BigDecimal(100), receiver)));
+        // Outra transferência alterou a carteira entre a leitura e o UPDATE
+        doThrow(new ObjectOptimisticLockingFailureException(Wallet.class, "wallet1"))
+            .when(walletRepository).flush();
+
+        TransactionDTO request = new TransactionDTO(new BigDecimal(10), "1", "2");
+
+        Assertions.assertThrows(ObjectOptimisticLockingFailureException.class,
+            () -> transactionService.createTransactionOptimistic(request));
+        verify(transferMetrics).record(any(), eq(TransferMetrics.Outcome.VERSION_CONFLICT));
+    }
+
+    @Test
+    @DisplayName("Nova tentativa por falha de lock deve repetir só o trecho de banco, sem chamar o autorizador de novo")
+    void createTransactionCase9_LockRetryDoesNotReauthorize() {
+        User sender = new User();
+        sender.setId("1");
+        sender.setUserType(UserType.COMMON);
+        Wallet senderWallet = new Wallet("wallet1", new BigDecimal(100), sender);
+        User receiver = new User();
+        receiver.setId("2");
+        Wallet receiverWallet = new Wallet("wallet2", new BigDecimal(100), receiver);
+
+        when(userService.findUserById("1")).thenReturn(sender);
+        when(userService.findUserById("2")).thenReturn(receiver);
+        when(authorizationService.authorizeTransaction("1", new BigDecimal(10))).thenReturn(true);
+        // Primeira tentativa estoura o lock_timeout; a segunda trava
+        when(walletRepository.findWalletByUserIdLockedNative("1"))
+            .thenThrow(new CannotAcquireLockException("canceling statement due to lock timeout"))
+            .thenReturn(Optional.of(senderWallet));
+        when(walletRepository.findWalletByUserIdLockedNative("2")).thenReturn(Optional.of(receiverWallet));
+        // Uma nova tentativa, como o transferLockRetry faria em volta da transação
+        doAnswer(invocation -> {
+            Supplier<?> work = invocation.getArgument(0);
+            try {
+                return work.get();
+            } catch (CannotAcquireLockException e) {
+                return work.get();
+            }
+        }).when(transferTransactions).pessimistic(any());
+
+        transactionService.createTransaction(new TransactionDTO(new BigDecimal(10), "1", "2"));
+
+        verify(authorizationService, times(1)).authorizeTransaction("1", new BigDecimal(10));
+        verify(walletRepository, times(2)).findWalletByUserIdLockedNative("1");
+        verify(lockTimeouts, times(2)).apply();
+        Assertions.assertEquals(new BigDecimal(90), senderWallet.getBalance());
+        verify(transferMetrics).record(any(), eq(TransferMetrics.Outcome.SUCCESS));
+        verify(transferMetrics, never()).record(any(), eq(TransferMetrics.Outcome.LOCK_FAILURE));
     }
 }
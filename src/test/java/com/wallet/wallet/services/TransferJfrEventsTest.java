@@ -0,0 +1,138 @@
+package com.wallet.wallet.services;
+
+import com.wallet.wallet.domain.User;
+import com.wallet.wallet.domain.UserType;
+import com.wallet.wallet.domain.Wallet;
+import com.wallet.wallet.dtos.TransactionDTO;
+import com.wallet.wallet.infra.LogMasker;
+import com.wallet.wallet.infra.TransferMetrics;
+import com.wallet.wallet.repositories.TransactionRepository;
+import com.wallet.wallet.repositories.WalletRepository;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Answers;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Eventos JFR de uma transferência (com.wallet.*): emitidos e com os campos preenchidos.
+ */
+@ExtendWith(MockitoExtension.class)
+class TransferJfrEventsTest {
+
+    @Mock
+    private jakarta.persistence.EntityManager entityManager;
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private TransactionRepository repository;
+
+    @Mock
+    private WalletRepository walletRepository;
+
+    @Mock
+    private AuthorizationService authorizationService;
+
+    @Mock
+    private PreAuthorizationRules preAuthorizationRules;
+
+    @Mock(answer = Answers.RETURNS_MOCKS) // Reserva do limite também é mock
+    private VelocityLimits velocityLimits;
+
+    @Mock
+    private TransferMetrics transferMetrics;
+
+    @Mock
+    private TransferLockTimeouts lockTimeouts;
+
+    @Mock
+    private MerchantSettlementService merchantSettlement;
+
+    @Spy
+    private TransferTransactions transferTransactions = new TransferTransactions();
+
+    @Mock
+    private WalletLockStripes walletLocks;
+
+    @InjectMocks
+    private TransactionService transactionService;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Transferência deve emitir AuthorizationCall, WalletLockAcquired (sender e receiver) e TransferCommitted")
+    void transferEmitsEvents() throws Exception {
+        User sender = user("sender-1", "wallet-sender-1");
+        User receiver = user("receiver-1", "wallet-receiver-1");
+        when(userService.findUserById("sender-1")).thenReturn(sender);
+        when(userService.findUserById("receiver-1")).thenReturn(receiver);
+        when(authorizationService.authorizeTransaction("sender-1", new BigDecimal(10))).thenReturn(true);
+        when(walletRepository.findWalletByUserIdLockedNative("sender-1")).thenReturn(Optional.of(sender.getWallet()));
+        when(walletRepository.findWalletByUserIdLockedNative("receiver-1")).thenReturn(Optional.of(receiver.getWallet()));
+
+        Path file = tempDir.resolve("transfer.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.wallet.AuthorizationCall");
+            recording.enable("com.wallet.WalletLockAcquired");
+            recording.enable("com.wallet.TransferCommitted");
+            recording.start();
+
+            transactionService.createTransaction(new TransactionDTO(new BigDecimal(10), "sender-1", "receiver-1"));
+
+            recording.stop();
+            recording.dump(file);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+
+        RecordedEvent authorization = single(events, "com.wallet.AuthorizationCall");
+        assertEquals(LogMasker.maskUserId("sender-1"), authorization.getString("senderId"));
+        assertTrue(authorization.getBoolean("authorized"));
+
+        List<RecordedEvent> locks = ofType(events, "com.wallet.WalletLockAcquired");
+        assertEquals(List.of("sender", "receiver"), locks.stream().map(event -> event.getString("role")).toList());
+        assertEquals(LogMasker.maskUserId("wallet-sender-1"), locks.get(0).getString("walletId"));
+        assertEquals(LogMasker.maskUserId("wallet-receiver-1"), locks.get(1).getString("walletId"));
+
+        RecordedEvent committed = single(events, "com.wallet.TransferCommitted");
+        assertEquals(LogMasker.maskUserId("wallet-sender-1"), committed.getString("senderWalletId"));
+        assertEquals(LogMasker.maskUserId("wallet-receiver-1"), committed.getString("receiverWalletId"));
+        assertTrue(committed.getLong("lockHold") > 0, "lockHold preenchido");
+        assertFalse(committed.getDuration().isNegative());
+    }
+
+    private static RecordedEvent single(List<RecordedEvent> events, String name) {
+        List<RecordedEvent> matching = ofType(events, name);
+        assertEquals(1, matching.size(), name);
+        return matching.get(0);
+    }
+
+    private static List<RecordedEvent> ofType(List<RecordedEvent> events, String name) {
+        return events.stream().filter(event -> event.getEventType().getName().equals(name)).toList();
+    }
+
+    private static User user(String id, String walletId) {
+        User user = new User();
+        user.setId(id);
+        user.setUserType(UserType.COMMON);
+        user.setWallet(new Wallet(walletId, new BigDecimal(100), user));
+        return user;
+    }
+}
@@ -0,0 +1,133 @@
+package com.wallet.wallet.services;
+
+import com.wallet.wallet.domain.DomainException;
+import com.wallet.wallet.domain.User;
+import com.wallet.wallet.domain.UserType;
+import com.wallet.wallet.domain.Wallet;
+import com.wallet.wallet.dtos.TransactionDTO;
+import com.wallet.wallet.infra.TransferMetrics;
+import com.wallet.wallet.repositories.TransactionRepository;
+import com.wallet.wallet.repositories.WalletRepository;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * TransactionService com o TransferMetrics real: nomes e tags dos timers gravados por transferência.
+ */
+@ExtendWith(MockitoExtension.class)
+class TransferMetricsRecordingTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private TransferMetrics transferMetrics = new TransferMetrics(meterRegistry);
+
+    @Mock
+    private jakarta.persistence.EntityManager entityManager;
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private TransactionRepository repository;
+
+    @Mock
+    private WalletRepository walletRepository;
+
+    @Mock
+    private AuthorizationService authorizationService;
+
+    @Mock
+    private PreAuthorizationRules preAuthorizationRules;
+
+    @Mock(answer = Answers.RETURNS_MOCKS) // Reserva do limite também é mock
+    private VelocityLimits velocityLimits;
+
+    @Mock
+    private TransferLockTimeouts lockTimeouts;
+
+    @Mock
+    private MerchantSettlementService merchantSettlement;
+
+    @Spy
+    private TransferTransactions transferTransactions = new TransferTransactions();
+
+    @Mock
+    private WalletLockStripes walletLocks;
+
+    @InjectMocks
+    private TransactionService transactionService;
+
+    @Test
+    @DisplayName("Transferência concluída deve gravar o timer total e todas as fases com outcome success")
+    void successRecordsTotalAndPhases() {
+        User sender = user("1", new BigDecimal(100));
+        User receiver = user("2", new BigDecimal(100));
+        when(userService.findUserById("1")).thenReturn(sender);
+        when(userService.findUserById("2")).thenReturn(receiver);
+        when(authorizationService.authorizeTransaction("1", new BigDecimal(10))).thenReturn(true);
+        when(walletRepository.findWalletByUserIdLockedNative("1")).thenReturn(Optional.of(sender.getWallet()));
+        when(walletRepository.findWalletByUserIdLockedNative("2")).thenReturn(Optional.of(receiver.getWallet()));
+
+        transactionService.createTransaction(new TransactionDTO(new BigDecimal(10), "1", "2"));
+
+        assertEquals(1, transferTimer("success").count());
+        assertTrue(transferTimer("success").totalTime(TimeUnit.NANOSECONDS) > 0);
+        for (String phase : new String[]{"user_lookup", "authorization", "lock_wait", "lock_hold", "insert"}) {
+            assertEquals(1, phaseTimer(phase, "success").count(), "Fase " + phase);
+        }
+        assertEquals(0, transferTimer("unauthorized").count());
+    }
+
+    @Test
+    @DisplayName("Transferência negada deve gravar outcome unauthorized só com as fases percorridas")
+    void rejectionRecordsReachedPhasesOnly() {
+        when(userService.findUserById("1")).thenReturn(user("1", new BigDecimal(100)));
+        when(userService.findUserById("2")).thenReturn(user("2", new BigDecimal(100)));
+        when(authorizationService.authorizeTransaction("1", new BigDecimal(10))).thenReturn(false);
+
+        TransactionDTO request = new TransactionDTO(new BigDecimal(10), "1", "2");
+        assertThrows(DomainException.TransactionNotAuthorizedException.class,
+            () -> transactionService.createTransaction(request));
+
+        assertEquals(1, transferTimer("unauthorized").count());
+        assertEquals(1, phaseTimer("user_lookup", "unauthorized").count());
+        assertEquals(1, phaseTimer("authorization", "unauthorized").count());
+        // Negada antes do FOR UPDATE: fases de lock e escrita não aparecem
+        assertEquals(0, phaseTimer("lock_wait", "unauthorized").count());
+        assertEquals(0, phaseTimer("lock_hold", "unauthorized").count());
+        assertEquals(0, phaseTimer("insert", "unauthorized").count());
+        assertEquals(0, transferTimer("success").count());
+    }
+
+    private Timer transferTimer(String outcome) {
+        return meterRegistry.get("wallet.transfer").tag("outcome", outcome).timer();
+    }
+
+    private Timer phaseTimer(String phase, String outcome) {
+        return meterRegistry.get("wallet.transfer.phase").tag("phase", phase).tag("outcome", outcome).timer();
+    }
+
+    private static User user(String id, BigDecimal balance) {
+        User user = new User();
+        user.setId(id);
+        user.setUserType(UserType.COMMON);
+        user.setWallet(new Wallet("wallet" + id, balance, user));
+        return user;
+    }
+}
@@ -0,0 +1,197 @@
+package com.wallet.wallet.services;
+
+import com.wallet.wallet.domain.DomainException;
+import com.wallet.wallet.domain.Transaction;
+import com.wallet.wallet.domain.User;
+import com.wallet.wallet.domain.UserType;
+import com.wallet.wallet.domain.Wallet;
+import com.wallet.wallet.dtos.TransactionDTO;
+import com.wallet.wallet.infra.TransferMetrics;
+import com.wallet.wallet.repositories.TransferSagaRepository;
+import com.wallet.wallet.repositories.TransferSagaRepository.CreditOutcome;
+import com.wallet.wallet.repositories.TransferSagaRepository.Saga;
+import com.wallet.wallet.repositories.TransferSagaRepository.Status;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.http.HttpStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransferSagaServiceTest {
+
+    @Spy // Dois shards, sem banco: só decide o shard de cada carteira
+    private ShardRouter shardRouter = new ShardRouter(List.of("jdbc:shard0", "jdbc:shard1"));
+
+    @Spy
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private TransactionService transactionService;
+
+    @Mock
+    private PreAuthorizationRules preAuthorizationRules;
+
+    @Mock(answer = Answers.RETURNS_MOCKS) // Reserva do limite também é mock
+    private VelocityLimits velocityLimits;
+
+    @Mock // Passos locais (débito, crédito, estorno) em cada shard
+    private TransferSagaSteps steps;
+
+    @Mock
+    private TransferSagaRepository sagaRepository;
+
+    @Mock
+    private TransferMetrics transferMetrics;
+
+    @Mock
+    private WalletLockStripes walletLocks;
+
+    @InjectMocks
+    private TransferSagaService sagaService;
+
+    private String senderId;
+    private String receiverId;
+    private TransactionDTO transfer;
+    private Saga saga;
+
+    @BeforeEach
+    void setup() {
+        // Remetente e recebedor em shards diferentes
+        senderId = "user-0";
+        int i = 1;
+        while (shardRouter.shardOf("user-" + i) == shardRouter.shardOf(senderId)) {
+            i++;
+        }
+        receiverId = "user-" + i;
+        transfer = new TransactionDTO(new BigDecimal("30"), senderId, receiverId);
+        saga = new Saga("saga-1", "tx-1", senderId, receiverId, new BigDecimal("30"), LocalDateTime.now(), 0);
+    }
+
+    @Test
+    @DisplayName("Deve debitar no shard do remetente, creditar no do recebedor e concluir a saga")
+    void crossShardTransferCompletes() {
+        givenUsers();
+        when(steps.debit(anyString(), eq(transfer))).thenReturn(saga);
+        when(steps.credit(saga)).thenReturn(CreditOutcome.APPLIED);
+        when(sagaRepository.transition("saga-1", Status.DEBITED, Status.COMPLETED)).thenReturn(true);
+
+        Transaction transaction = sagaService.transfer(transfer);
+
+        assertEquals("tx-1", transaction.getId());
+        verify(steps, never()).cancelCredit(anyString());
+        verify(steps, never()).refund(any());
+        verify(preAuthorizationRules).recordTransfer(senderId, receiverId);
+        verify(transferMetrics).record(any(), eq(TransferMetrics.Outcome.SUCCESS));
+        assertEquals(1.0, meterRegistry.get("wallet.transfer.saga").tag("event", "completed").counter().count());
+    }
+
+    @Test
+    @DisplayName("Deve estornar o remetente quando o crédito é recusado no shard do recebedor")
+    void rejectedCreditCompensates() {
+        givenUsers();
+        when(steps.debit(anyString(), eq(transfer))).thenReturn(saga);
+        when(steps.credit(saga)).thenThrow(DomainException.WalletNotFoundException.ofReceiver());
+        when(steps.cancelCredit("saga-1")).thenReturn(CreditOutcome.CANCELLED);
+        when(steps.refund(saga)).thenReturn(true);
+        VelocityLimits.Reservation velocity = mock(VelocityLimits.Reservation.class);
+        when(velocityLimits.reserve(eq(senderId), any())).thenReturn(velocity);
+
+        assertThrows(DomainException.WalletNotFoundException.class, () -> sagaService.transfer(transfer));
+
+        verify(steps).refund(saga);
+        verify(sagaRepository, never()).transition(anyString(), any(), eq(Status.COMPLETED));
+        verify(transferMetrics).record(any(), eq(TransferMetrics.Outcome.NOT_FOUND));
+        assertEquals(1.0, meterRegistry.get("wallet.transfer.saga").tag("event", "compensated").counter().count());
+        // Estornada: a reserva do limite de velocidade é devolvida
+        verify(velocity).release();
+    }
+
+    @Test
+    @DisplayName("Deve deixar a saga pendente (202) quando o crédito falha por lock")
+    void transientCreditFailureLeavesSagaPending() {
+        givenUsers();
+        when(steps.debit(anyString(), eq(transfer))).thenReturn(saga);
+        when(steps.credit(saga)).thenThrow(new CannotAcquireLockException("lock_timeout"));
+        VelocityLimits.Reservation velocity = mock(VelocityLimits.Reservation.class);
+        when(velocityLimits.reserve(eq(senderId), any())).thenReturn(velocity);
+
+        TransferSagaService.TransferNotCompletedException exception = assertThrows(
+            TransferSagaService.TransferNotCompletedException.class, () -> sagaService.transfer(transfer));
+
+        assertEquals(HttpStatus.ACCEPTED, exception.getStatus());
+        verify(sagaRepository).recordFailure("saga-1", "lock_timeout");
+        verify(steps, never()).cancelCredit(anyString());
+        verify(steps, never()).refund(any());
+        // Débito feito: a reserva fica enquanto a saga conclui ou estorna
+        verify(velocity, never()).release();
+    }
+
+    @Test
+    @DisplayName("Varredura deve concluir em vez de estornar quando o crédito já foi aplicado")
+    void sweeperCompletesWhenCreditAlreadyApplied() {
+        Saga exhausted = new Saga("saga-1", "tx-1", senderId, receiverId, new BigDecimal("30"), LocalDateTime.now(), 11);
+        when(sagaRepository.claimStuck(10_000, 100)).thenReturn(List.of(exhausted));
+        when(steps.cancelCredit("saga-1")).thenReturn(CreditOutcome.APPLIED);
+        when(sagaRepository.transition("saga-1", Status.DEBITED, Status.COMPLETED)).thenReturn(true);
+
+        int claimed = sagaService.recoverStuck(shardRouter.shardOf(senderId), 10_000, 100, 10);
+
+        assertEquals(1, claimed);
+        verify(steps, never()).credit(any());
+        verify(steps, never()).refund(any());
+        verify(sagaRepository).transition("saga-1", Status.DEBITED, Status.COMPLETED);
+    }
+
+    @Test
+    @DisplayName("Carteiras no mesmo shard devem usar a transação local de sempre")
+    void sameShardUsesLocalTransaction() {
+        int i = 1;
+        while (shardRouter.shardOf("user-" + i) != shardRouter.shardOf(senderId)) {
+            i++;
+        }
+        String sameShardReceiver = "user-" + i;
+        TransactionDTO local = new TransactionDTO(new BigDecimal("30"), senderId, sameShardReceiver);
+        when(transactionService.createTransaction(local)).thenReturn(new Transaction());
+
+        sagaService.transfer(local);
+
+        verify(transactionService).createTransaction(local);
+        verifyNoInteractions(steps, sagaRepository);
+    }
+
+    private void givenUsers() {
+        User sender = user(senderId, UserType.COMMON);
+        User receiver = user(receiverId, UserType.MERCHANT);
+        when(userService.findUserById(senderId)).thenReturn(sender);
+        when(userService.findUserById(receiverId)).thenReturn(receiver);
+    }
+
+    private static User user(String id, UserType type) {
+        User user = new User();
+        user.setId(id);
+        user.setUserType(type);
+        user.setWallet(new Wallet("wallet-" + id, new BigDecimal("100"), user));
+        return user;
+    }
+}
@@ -0,0 +1,127 @@
+package com.wallet.wallet.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wallet.wallet.dtos.UserImportResultDTO;
+import com.wallet.wallet.repositories.UserBulkRepository;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserImportServiceTest {
+
+    @Mock
+    private UserBulkRepository bulkRepository;
+
+    @Mock
+    private PasswordHashingService passwordHashingService;
+
+    @Spy
+    private Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @InjectMocks
+    private UserImportService userImportService;
+
+    @BeforeEach
+    void setup() {
+        ReflectionTestUtils.setField(userImportService, "batchSize", 2);
+        ReflectionTestUtils.setField(userImportService, "maxReportedErrors", 100);
+        lenient().when(passwordHashingService.hashAll(anyList()))
+            .thenAnswer(invocation -> ((List<?>) invocation.getArgument(0)).stream().map(raw -> "hash").toList());
+        lenient().when(bulkRepository.findExistingDocumentsAndEmails(any(), any())).thenReturn(Set.of());
+    }
+
+    @Test
+    @DisplayName("Deve importar linhas válidas do CSV e reportar as inválidas sem abortar")
+    void importCsvWithInvalidRows() throws Exception {
+        ReflectionTestUtils.setField(userImportService, "batchSize", 10);
+        String csv = """
+            firstName,lastName,document,balance,email,password,userType
+            Ana,Souza,12345678901,100.00,ana@email.com,senha123,COMMON
+            Bruno,Lima,123,50,bruno@email.com,senha123,COMMON
+            Loja,ABC,12345678000190,0,loja@email.com,senha123,MERCHANT
+            Carla,Dias,12345678901,10,carla@email.com,senha123,COMMON
+            """;
+
+        UserImportResultDTO result = userImportService.importUsers(stream(csv), UserImportService.Format.CSV);
+
+        assertEquals(4, result.totalRows());
+        assertEquals(2, result.importedRows());
+        assertEquals(2, result.failedRows());
+        assertEquals(3, result.errors().get(0).line());
+        assertEquals(5, result.errors().get(1).line());
+        verify(bulkRepository, times(1)).insertUsersWithWallets(anyList());
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar linhas NDJSON malformadas e já cadastradas")
+    void importNdjsonWithExistingDocument() throws Exception {
+        when(bulkRepository.findExistingDocumentsAndEmails(any(), any())).thenReturn(Set.of("98765432100"));
+        String ndjson = """
+            {"firstName":"Ana","lastName":"Souza","document":"12345678901","balance":100,"email":"ana@email.com","password":"senha123","userType":"COMMON"}
+            {"firstName":"Bruno",
+            {"firstName":"Davi","lastName":"Reis","document":"98765432100","balance":1,"email":"davi@email.com","password":"senha123","userType":"COMMON"}
+            """;
+
+        UserImportResultDTO result = userImportService.importUsers(stream(ndjson), UserImportService.Format.NDJSON);
+
+        assertEquals(3, result.totalRows());
+        assertEquals(1, result.importedRows());
+        assertEquals(2, result.errors().get(0).line());
+        assertEquals("Documento já cadastrado no sistema", result.errors().get(1).message());
+    }
+
+    @Test
+    @DisplayName("Deve regravar linha a linha quando o lote violar constraint")
+    @SuppressWarnings("unchecked")
+    void fallbackToSingleRowsOnConflict() throws Exception {
+        doThrow(new DataIntegrityViolationException("duplicate key"))
+            .doNothing()
+            .doThrow(new DataIntegrityViolationException("duplicate key"))
+            .when(bulkRepository).insertUsersWithWallets(anyList());
+
+        String csv = """
+            firstName,lastName,document,balance,email,password,userType
+            Ana,Souza,12345678901,100.00,ana@email.com,senha123,COMMON
+            Bruno,Lima,12345678902,50,bruno@email.com,senha123,COMMON
+            """;
+
+        UserImportResultDTO result = userImportService.importUsers(stream(csv), UserImportService.Format.CSV);
+
+        assertEquals(1, result.importedRows());
+        assertEquals(1, result.failedRows());
+        assertEquals(3, result.errors().get(0).line());
+
+        ArgumentCaptor<List<UserBulkRepository.UserRow>> captor = ArgumentCaptor.forClass(List.class);
+        verify(bulkRepository, times(3)).insertUsersWithWallets(captor.capture());
+        assertEquals(2, captor.getAllValues().get(0).size());
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
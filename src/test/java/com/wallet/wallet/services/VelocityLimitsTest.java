@@ -0,0 +1,183 @@
+package com.wallet.wallet.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VelocityLimitsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicLong now = new AtomicLong(TimeUnit.DAYS.toMillis(1));
+
+    @Test
+    @DisplayName("Deve recusar com 429 a transferência que passa da quantidade por minuto")
+    void rejectCountPerMinute() {
+        VelocityLimits limits = limits(3, BigDecimal.ZERO, 0, BigDecimal.ZERO, 1024);
+
+        for (int i = 0; i < 3; i++) {
+            limits.reserve("sender-1", BigDecimal.ONE);
+        }
+
+        VelocityLimits.LimitExceededException e = assertThrows(VelocityLimits.LimitExceededException.class,
+            () -> limits.reserve("sender-1", BigDecimal.ONE));
+        assertEquals("Limite de transferências por minuto excedido", e.getMessage());
+        assertEquals(5, e.getRetryAfterSeconds());
+        assertDoesNotThrow(() -> limits.reserve("sender-2", BigDecimal.ONE), "Limite é por remetente");
+        assertEquals(1.0, meterRegistry.counter("wallet.velocity.rejected", "window", "minute").count());
+    }
+
+    @Test
+    @DisplayName("Deve recusar pelo valor acumulado na hora, contando a transferência em análise")
+    void rejectAmountPerHour() {
+        VelocityLimits limits = limits(0, BigDecimal.ZERO, 0, new BigDecimal("1000.00"), 1024);
+
+        limits.reserve("sender-1", new BigDecimal("600.00"));
+        now.addAndGet(TimeUnit.MINUTES.toMillis(30));
+
+        VelocityLimits.LimitExceededException e = assertThrows(VelocityLimits.LimitExceededException.class,
+            () -> limits.reserve("sender-1", new BigDecimal("400.01")));
+        assertEquals("Limite de valor transferido por hora excedido", e.getMessage());
+        assertEquals(300, e.getRetryAfterSeconds());
+        assertDoesNotThrow(() -> limits.reserve("sender-1", new BigDecimal("400.00")));
+    }
+
+    @Test
+    @DisplayName("Deve liberar o remetente quando as transferências saem da janela deslizante")
+    void slidingWindowExpires() {
+        VelocityLimits limits = limits(2, BigDecimal.ZERO, 0, BigDecimal.ZERO, 1024);
+
+        limits.reserve("sender-1", BigDecimal.ONE);
+        now.addAndGet(TimeUnit.SECONDS.toMillis(30));
+        limits.reserve("sender-1", BigDecimal.ONE);
+        assertThrows(VelocityLimits.LimitExceededException.class, () -> limits.reserve("sender-1", BigDecimal.ONE));
+
+        // A primeira sai da janela de 1 minuto; a segunda ainda conta
+        now.addAndGet(TimeUnit.SECONDS.toMillis(35));
+        assertDoesNotThrow(() -> limits.reserve("sender-1", BigDecimal.ONE));
+        assertThrows(VelocityLimits.LimitExceededException.class, () -> limits.reserve("sender-1", BigDecimal.ONE));
+    }
+
+    @Test
+    @DisplayName("Rajada simultânea do mesmo remetente não deve passar do limite antes de algum commit")
+    void concurrentBurstStopsAtLimit() throws Exception {
+        VelocityLimits limits = limits(5, BigDecimal.ZERO, 0, BigDecimal.ZERO, 1024);
+        int threads = 16;
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger passed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> transfers = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                transfers.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        limits.reserve("sender-1", BigDecimal.ONE);
+                        passed.incrementAndGet();
+                    } catch (VelocityLimits.LimitExceededException e) {
+                        // recusada pelo limite
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> transfer : transfers) {
+                transfer.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(5, passed.get());
+    }
+
+    @Test
+    @DisplayName("Transferência negada ou desfeita deve devolver a reserva uma vez só")
+    void releaseReturnsReservationOnce() {
+        VelocityLimits limits = limits(2, BigDecimal.ZERO, 0, new BigDecimal("100.00"), 1024);
+
+        limits.reserve("sender-1", new BigDecimal("50.00"));
+        VelocityLimits.Reservation rolledBack = limits.reserve("sender-1", new BigDecimal("50.00"));
+        assertThrows(VelocityLimits.LimitExceededException.class, () -> limits.reserve("sender-1", BigDecimal.ONE));
+
+        rolledBack.release();
+        rolledBack.release();
+        assertDoesNotThrow(() -> limits.reserve("sender-1", new BigDecimal("50.00")));
+        assertThrows(VelocityLimits.LimitExceededException.class, () -> limits.reserve("sender-1", BigDecimal.ONE));
+    }
+
+    @Test
+    @DisplayName("Remetentes no mesmo conjunto devem manter cada um a sua janela")
+    void collidingSendersKeepTheirWindows() {
+        // Menor tabela possível (128 slots, 16 conjuntos)
+        VelocityLimits limits = limits(1, BigDecimal.ZERO, 0, BigDecimal.ZERO, 1);
+        List<String> senders = sameSet(limits, 2);
+
+        limits.reserve(senders.get(0), BigDecimal.ONE);
+        limits.reserve(senders.get(1), BigDecimal.ONE);
+
+        assertThrows(VelocityLimits.LimitExceededException.class, () -> limits.reserve(senders.get(0), BigDecimal.ONE));
+        assertThrows(VelocityLimits.LimitExceededException.class, () -> limits.reserve(senders.get(1), BigDecimal.ONE));
+        assertEquals(2.0, meterRegistry.counter("wallet.velocity.rejected", "window", "minute").count());
+        assertEquals(0.0, meterRegistry.counter("wallet.velocity.collisions").count());
+    }
+
+    @Test
+    @DisplayName("Conjunto cheio de remetentes ativos deve deixar o novo passar sem contar, sem despejar janela ativa")
+    void fullSetPassesNewSenderUncounted() {
+        VelocityLimits limits = limits(1, BigDecimal.ZERO, 0, BigDecimal.ZERO, 1);
+        List<String> senders = sameSet(limits, 9);
+        for (String sender : senders.subList(0, 8)) {
+            limits.reserve(sender, BigDecimal.ONE);
+        }
+        String newcomer = senders.get(8);
+
+        assertDoesNotThrow(() -> limits.reserve(newcomer, BigDecimal.ONE));
+        assertDoesNotThrow(() -> limits.reserve(newcomer, BigDecimal.ONE));
+        assertEquals(2.0, meterRegistry.counter("wallet.velocity.collisions").count());
+        for (String sender : senders.subList(0, 8)) {
+            assertThrows(VelocityLimits.LimitExceededException.class, () -> limits.reserve(sender, BigDecimal.ONE));
+        }
+
+        // Passada a hora, os slots vencem e o novo remetente passa a ser contado
+        now.addAndGet(TimeUnit.HOURS.toMillis(1));
+        limits.reserve(newcomer, BigDecimal.ONE);
+        assertThrows(VelocityLimits.LimitExceededException.class, () -> limits.reserve(newcomer, BigDecimal.ONE));
+    }
+
+    @Test
+    @DisplayName("Desligado não deve recusar nem alocar as tabelas")
+    void disabledIsNoop() {
+        VelocityLimits limits = new VelocityLimits(meterRegistry, false, 1, BigDecimal.ONE, 1, BigDecimal.ONE,
+            16384, now::get);
+
+        limits.reserve("sender-1", BigDecimal.TEN);
+        assertDoesNotThrow(() -> limits.reserve("sender-1", BigDecimal.TEN));
+    }
+
+    private static List<String> sameSet(VelocityLimits limits, int count) {
+        int set = limits.setOf("sender-0");
+        return IntStream.range(0, 10_000).mapToObj(i -> "sender-" + i)
+            .filter(sender -> limits.setOf(sender) == set)
+            .limit(count)
+            .toList();
+    }
+
+    private VelocityLimits limits(int countPerMinute, BigDecimal amountPerMinute,
+                                  int countPerHour, BigDecimal amountPerHour, int slots) {
+        return new VelocityLimits(meterRegistry, true, countPerMinute, amountPerMinute, countPerHour, amountPerHour,
+            slots, now::get);
+    }
+}
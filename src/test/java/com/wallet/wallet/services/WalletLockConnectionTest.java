@@ -0,0 +1,130 @@
+package com.wallet.wallet.services;
+
+import com.wallet.wallet.domain.User;
+import com.wallet.wallet.domain.UserType;
+import com.wallet.wallet.domain.Wallet;
+import com.wallet.wallet.repositories.UserRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Transferências do mesmo remetente na fila local (MVC, configuração padrão):
+ * quem espera o stripe não pode estar segurando conexão do pool.
+ */
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:walletlockdb;MODE=PostgreSQL;LOCK_TIMEOUT=10000;DB_CLOSE_DELAY=-1",
+    "spring.datasource.hikari.maximum-pool-size=4"
+})
+@AutoConfigureMockMvc
+class WalletLockConnectionTest {
+
+    private static final int TRANSFERS = 3;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @MockBean
+    private AuthorizationService authorizationService;
+
+    @SpyBean
+    private WalletLockStripes walletLocks;
+
+    @SpyBean
+    private TransferLockTimeouts lockTimeouts;
+
+    @Test
+    @DisplayName("Transferências na fila local do remetente não devem segurar conexão do pool")
+    void queuedSameSenderTransfersHoldNoConnection() throws Exception {
+        User sender = userRepository.save(user("11111111111", UserType.COMMON));
+        User receiver = userRepository.save(user("22222222222", UserType.MERCHANT));
+        when(authorizationService.authorizeTransaction(anyString(), any(BigDecimal.class))).thenReturn(true);
+
+        // Todas pediram o stripe; a primeira segura a parte de banco até a liberação
+        CountDownLatch queued = new CountDownLatch(TRANSFERS);
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean first = new AtomicBoolean(true);
+        doAnswer(invocation -> {
+            queued.countDown();
+            return invocation.callRealMethod();
+        }).when(walletLocks).acquire(anyString());
+        doAnswer(invocation -> {
+            if (first.compareAndSet(true, false)) {
+                holding.countDown();
+                release.await(10, TimeUnit.SECONDS);
+            }
+            return invocation.callRealMethod();
+        }).when(lockTimeouts).apply();
+
+        String body = "{\"value\": 1, \"senderId\": \"" + sender.getId() + "\", \"receiverId\": \"" + receiver.getId() + "\"}";
+        ExecutorService executor = Executors.newFixedThreadPool(TRANSFERS);
+        try {
+            List<Future<?>> transfers = new ArrayList<>();
+            for (int i = 0; i < TRANSFERS; i++) {
+                transfers.add(executor.submit(() -> {
+                    mockMvc.perform(post("/transactions").contentType(MediaType.APPLICATION_JSON).content(body))
+                        .andExpect(status().isOk());
+                    return null;
+                }));
+            }
+
+            assertTrue(holding.await(10, TimeUnit.SECONDS), "Primeira transferência na parte de banco");
+            assertTrue(queued.await(10, TimeUnit.SECONDS), "Demais transferências na fila local");
+            // Só a conexão da transação em andamento; as da busca dos usuários já voltaram ao pool
+            assertEquals(1, dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean().getActiveConnections());
+
+            release.countDown();
+            for (Future<?> transfer : transfers) {
+                transfer.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    private static User user(String document, UserType type) {
+        User user = new User();
+        user.setDocument(document);
+        user.setEmail(document + "@wallet.test");
+        user.setFirstName("Teste");
+        user.setLastName(document);
+        user.setPassword("senha");
+        user.setUserType(type);
+        user.setWallet(new Wallet(new BigDecimal(100), user));
+        return user;
+    }
+}
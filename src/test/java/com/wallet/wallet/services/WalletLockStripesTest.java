@@ -0,0 +1,99 @@
+package com.wallet.wallet.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WalletLockStripesTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private WalletLockStripes locks(long timeoutMs) {
+        return new WalletLockStripes(meterRegistry, true, 1024, timeoutMs);
+    }
+
+    @Test
+    @DisplayName("Deve fazer a segunda transferência do mesmo remetente esperar em memória e recusar após o timeout")
+    void sameSenderWaitsAndTimesOut() {
+        WalletLockStripes locks = locks(50);
+
+        WalletLockStripes.Hold hold = locks.acquire("hot");
+
+        assertThrows(WalletLockStripes.LockTimeoutException.class, () -> acquireOnOtherThread(locks, "hot"));
+        assertEquals(1.0, meterRegistry.get("wallet.transfer.local.lock.timeouts").counter().count());
+
+        hold.close();
+        assertDoesNotThrow(() -> acquireOnOtherThread(locks, "hot"));
+    }
+
+    @Test
+    @DisplayName("Remetentes diferentes não devem esperar um pelo outro")
+    void otherSendersDoNotWait() {
+        WalletLockStripes locks = locks(50);
+        assertNotEquals(locks.stripeOf("sender"), locks.stripeOf("other"));
+
+        try (WalletLockStripes.Hold hold = locks.acquire("sender")) {
+            assertDoesNotThrow(() -> acquireOnOtherThread(locks, "other"));
+        }
+    }
+
+    @Test
+    @DisplayName("Transferências do mesmo remetente devem passar uma de cada vez")
+    void sameSenderRunsOneAtATime() throws Exception {
+        WalletLockStripes locks = locks(5_000);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        AtomicInteger inside = new AtomicInteger();
+        AtomicInteger maxInside = new AtomicInteger();
+        try {
+            List<CompletableFuture<Void>> transfers = new ArrayList<>();
+            for (int i = 0; i < 400; i++) {
+                transfers.add(CompletableFuture.runAsync(() -> {
+                    try (WalletLockStripes.Hold hold = locks.acquire("a")) {
+                        maxInside.accumulateAndGet(inside.incrementAndGet(), Math::max);
+                        inside.decrementAndGet();
+                    }
+                }, executor));
+            }
+            CompletableFuture.allOf(transfers.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, maxInside.get(), "Uma transferência por vez do mesmo remetente");
+    }
+
+    @Test
+    @DisplayName("Desligado não deve travar nada")
+    void disabledIsNoop() {
+        WalletLockStripes locks = new WalletLockStripes(meterRegistry, false, 1024, 50);
+
+        try (WalletLockStripes.Hold hold = locks.acquire("hot")) {
+            assertDoesNotThrow(() -> acquireOnOtherThread(locks, "hot"));
+        }
+    }
+
+    @Test
+    @DisplayName("Timeout padrão deve cobrir o pior caso de quem segura o lock, não só a espera no banco")
+    void defaultTimeoutCoversWorstCaseHold() {
+        // 3 tentativas x 2 FOR UPDATE x 1000ms + backoff 75ms + 150ms (jitter máximo)
+        assertEquals(6225, WalletLockStripes.worstCaseHoldMs(1000, 3, 50, 2.0, 0.5));
+    }
+
+    private static void acquireOnOtherThread(WalletLockStripes locks, String senderId) throws Throwable {
+        try {
+            CompletableFuture.runAsync(() -> locks.acquire(senderId).close()).get(5, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        }
+    }
+}
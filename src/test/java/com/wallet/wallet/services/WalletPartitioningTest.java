@@ -0,0 +1,101 @@
+package com.wallet.wallet.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class WalletPartitioningTest {
+
+    private static final int PARTITIONS = 256;
+
+    private static final WalletPartitioning.Node A = node("a");
+    private static final WalletPartitioning.Node B = node("b");
+    private static final WalletPartitioning.Node C = node("c");
+    private static final WalletPartitioning.Node D = node("d");
+
+    @Test
+    @DisplayName("Deve dar o mesmo dono em todos os nós, independente da ordem dos membros")
+    void ownershipIsDeterministic() {
+        WalletPartitioning first = WalletPartitioning.of(List.of(A, B, C), PARTITIONS);
+        WalletPartitioning second = WalletPartitioning.of(List.of(C, A, B), PARTITIONS);
+
+        for (int i = 0; i < 1000; i++) {
+            String walletKey = UUID.randomUUID().toString();
+            assertEquals(first.ownerOf(walletKey), second.ownerOf(walletKey));
+        }
+        // Cada nó fica com uma fatia próxima de 1/3
+        for (WalletPartitioning.Node node : List.of(A, B, C)) {
+            int owned = first.partitionsOwnedBy(node.id());
+            assertTrue(owned > PARTITIONS / 3 * 0.7 && owned < PARTITIONS / 3 * 1.3, node.id() + " com " + owned);
+        }
+    }
+
+    @Test
+    @DisplayName("Nó que entra deve só tomar partições; nó que sai deve só liberar as suas")
+    void rebalanceMovesOnlyAffectedPartitions() {
+        WalletPartitioning three = WalletPartitioning.of(List.of(A, B, C), PARTITIONS);
+        WalletPartitioning four = WalletPartitioning.of(List.of(A, B, C, D), PARTITIONS);
+
+        int moved = 0;
+        for (int partition = 0; partition < PARTITIONS; partition++) {
+            WalletPartitioning.Node before = three.ownerOfPartition(partition);
+            WalletPartitioning.Node after = four.ownerOfPartition(partition);
+            if (!before.equals(after)) {
+                moved++;
+                assertEquals(D, after, "Partição só pode mudar para o nó novo");
+            }
+        }
+        assertEquals(four.partitionsOwnedBy("d"), moved);
+
+        // D sai: quem não era de D continua com o mesmo dono
+        for (int partition = 0; partition < PARTITIONS; partition++) {
+            if (!four.ownerOfPartition(partition).equals(D)) {
+                assertEquals(four.ownerOfPartition(partition), three.ownerOfPartition(partition));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Deve encaminhar só carteiras de outros nós e rebalancear quando os membros mudam")
+    void membershipRoutesRemoteWallets() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ClusterMembershipService membership = new ClusterMembershipService(
+            mock(JdbcTemplate.class), meterRegistry, true, "a", A.baseUrl(), PARTITIONS, 2000, 6000);
+
+        // Sozinho: tudo é local
+        assertTrue(membership.remoteOwnerOf("wallet-1").isEmpty());
+
+        membership.apply(List.of(A, B));
+        WalletPartitioning view = membership.view();
+        List<String> remote = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            String walletKey = "wallet-" + i;
+            boolean owned = view.ownerOf(walletKey).equals(A);
+            assertEquals(owned, membership.remoteOwnerOf(walletKey).isEmpty());
+            if (!owned) {
+                remote.add(walletKey);
+                assertEquals(B, membership.remoteOwnerOf(walletKey).get());
+            }
+        }
+        assertFalse(remote.isEmpty());
+
+        // Mesmo conjunto não rebalanceia; B sumindo devolve tudo para A
+        membership.apply(List.of(B, A));
+        membership.apply(List.of(A));
+        remote.forEach(walletKey -> assertTrue(membership.remoteOwnerOf(walletKey).isEmpty()));
+        assertEquals(2.0, meterRegistry.get("wallet.cluster.rebalances").counter().count());
+        assertEquals(PARTITIONS, meterRegistry.get("wallet.cluster.partitions.owned").gauge().value());
+    }
+
+    private static WalletPartitioning.Node node(String id) {
+        return new WalletPartitioning.Node(id, "http://localhost/" + id);
+    }
+}